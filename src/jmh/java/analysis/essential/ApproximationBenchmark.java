@@ -0,0 +1,200 @@
+package analysis.essential;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import benchmark.Corpus;
+import smt.BVAst;
+import smt.Builder;
+import synth.Specification;
+
+
+
+// Measures the construction of the over- and underapproximations for the
+// specifications of the benchmark corpus and for synthetic operation chains
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApproximationBenchmark {
+
+	private static final int NUMBER_OF_INPUTS = 3;
+
+	private static final int CHAIN_LENGTH = 4;
+
+
+
+	@State(Scope.Benchmark)
+	public static class Spec {
+
+		// The jmh task replaces these with all files of the corpus
+		@Param({ "cvc4-1", "optgen-1", "souper-sub", "sygus-btr-bench", "sygus-hd-13" })
+		public String spec;
+
+		BVAst function;
+		List<BVAst> inputs;
+
+
+
+		@Setup
+		public void setup() {
+			final Specification specification = Corpus.read(this.spec).getSpecification();
+			this.inputs = Corpus.getInputs(specification);
+			this.function = specification.getFunction().apply(this.inputs);
+		}
+	}
+
+
+
+	@State(Scope.Benchmark)
+	public static class Circuit {
+
+		@Param({ "add", "mul", "div" })
+		public String operation;
+
+		@Param({ "8", "16", "32", "64", "128" })
+		public int width;
+
+		BVAst function;
+		List<BVAst> inputs;
+
+
+
+		@Setup
+		public void setup() {
+			this.inputs = createInputs(this.width);
+			this.function = createChain(this.operation, this.inputs);
+		}
+	}
+
+
+
+	// The third order approximation needs a quadratic number of passes in the
+	// number of input bits, so it runs out of memory on the wide circuits
+	@State(Scope.Benchmark)
+	public static class NarrowCircuit {
+
+		@Param({ "add", "mul", "div" })
+		public String operation;
+
+		@Param({ "8", "16" })
+		public int width;
+
+		BVAst function;
+		List<BVAst> inputs;
+
+
+
+		@Setup
+		public void setup() {
+			this.inputs = createInputs(this.width);
+			this.function = createChain(this.operation, this.inputs);
+		}
+	}
+
+
+
+	@State(Scope.Benchmark)
+	public static class Order {
+
+		@Param({ "1", "2", "3" })
+		public int order;
+	}
+
+
+
+	private static List<BVAst> createInputs(final int width) {
+		final List<BVAst> inputs = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_INPUTS; ++i) {
+			inputs.add(Builder.mkBVVar(width, "i" + i));
+		}
+		return inputs;
+	}
+
+
+
+	private static BVAst createChain(final String operation, final List<BVAst> inputs) {
+		BVAst result = inputs.get(0);
+		for (int i = 1; i <= CHAIN_LENGTH; ++i) {
+			final BVAst operand = inputs.get(i % inputs.size());
+			switch (operation) {
+				case "add":
+					result = Builder.mkAdd(result, operand);
+					break;
+				case "mul":
+					result = Builder.mkMul(result, operand);
+					break;
+				case "div":
+					result = Builder.mkUDiv(result, operand);
+					break;
+				default:
+					throw new IllegalArgumentException("Unexpected operation " + operation);
+			}
+		}
+		return result;
+	}
+
+
+
+	@Benchmark
+	public MultiBitsApproximation<ZPolyOverApproximation> overSpec(final Spec spec) {
+		return ZPolyOverApproximation.create(spec.function, spec.inputs);
+	}
+
+
+
+	@Benchmark
+	public MultiBitsApproximation<ZPolyUnderApproximation> underSpec(final Spec spec,
+			final Order order) {
+
+		return ZPolyUnderApproximation.create(spec.function, spec.inputs, order.order);
+	}
+
+
+
+	@Benchmark
+	public MultiBitsApproximation<ZPolyOverApproximation> overCircuit(final Circuit circuit) {
+		return ZPolyOverApproximation.create(circuit.function, circuit.inputs);
+	}
+
+
+
+	@Benchmark
+	public MultiBitsApproximation<ZPolyUnderApproximation> underCircuitFirstOrder(
+			final Circuit circuit) {
+
+		return ZPolyUnderApproximation.create(circuit.function, circuit.inputs, 1);
+	}
+
+
+
+	@Benchmark
+	public MultiBitsApproximation<ZPolyUnderApproximation> underCircuitSecondOrder(
+			final Circuit circuit) {
+
+		return ZPolyUnderApproximation.create(circuit.function, circuit.inputs, 2);
+	}
+
+
+
+	@Benchmark
+	public MultiBitsApproximation<ZPolyUnderApproximation> underCircuitThirdOrder(
+			final NarrowCircuit circuit) {
+
+		return ZPolyUnderApproximation.create(circuit.function, circuit.inputs, 3);
+	}
+}
@@ -0,0 +1,254 @@
+package analysis.essential;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import analysis.essential.ShapeFeasibilityChecker.Op;
+import analysis.essential.ShapeFeasibilityChecker.Shape;
+import benchmark.Corpus;
+import smt.Builder;
+import synth.LibraryFunction;
+import synth.Specification;
+
+
+
+// Measures the screening of ShapeFeasibilityChecker on the benchmark corpus
+// and on synthetic problems. The synthetic specifications are taken from
+// ShapeFeasibilityCheckerTest, their libraries cycle through a fixed list of
+// components.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShapeFeasibilityBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class CorpusProblem {
+
+		// The jmh task replaces these with all files of the corpus
+		@Param({ "cvc4-1", "optgen-1", "souper-sub", "sygus-btr-bench", "sygus-hd-13" })
+		public String spec;
+
+		Specification specification;
+		List<LibraryFunction> library;
+		MultiBitsApproximation<ZPolyUnderApproximation> specApprox;
+
+
+
+		@Setup
+		public void setup() {
+			final benchmark.Benchmark benchmark = Corpus.read(this.spec);
+			this.specification = benchmark.getSpecification();
+			this.library = benchmark.getLibrary();
+			this.specApprox = ShapeFeasibilityChecker.getVarApproximation(this.specification);
+		}
+	}
+
+
+
+	static abstract class AbstractProblem {
+
+		Specification specification;
+		List<LibraryFunction> library;
+		MultiBitsApproximation<ZPolyUnderApproximation> specApprox;
+
+		Shape[] varShapes;
+		Op[] ops;
+		int[][] successors;
+
+
+
+		void setup(final String family, final int width, final int components) {
+			this.specification = createSpecification(family, width);
+			this.library = createLibrary(width, components);
+			this.specApprox = ShapeFeasibilityChecker.getVarApproximation(this.specification);
+
+			this.varShapes = ShapeFeasibilityChecker.getVarShapes(this.specification, this.specApprox);
+			this.ops = ShapeFeasibilityChecker.getAscDescMerged(this.varShapes,
+					ShapeFeasibilityChecker.getOps(this.library)).iterator().next();
+
+			this.successors = new int[this.ops.length + 1][];
+			for (int i = 0; i < this.ops.length; ++i) {
+				this.successors[i] = new int[this.ops[i].arguments.length];
+				Arrays.fill(this.successors[i], -1);
+			}
+			this.successors[this.ops.length] = new int[] { -1 };
+		}
+	}
+
+
+
+	@State(Scope.Benchmark)
+	public static class Problem extends AbstractProblem {
+
+		@Param({ "negshl", "sdiv", "not", "lowerbound" })
+		public String family;
+
+		@Param({ "4", "8", "32" })
+		public int width;
+
+		@Param({ "2", "5", "10", "15", "20", "30" })
+		public int components;
+
+
+
+		@Setup
+		public void setup() {
+			setup(this.family, this.width, this.components);
+		}
+	}
+
+
+
+	// The search of isUnsat and optimize grows exponentially with the number
+	// of components and runs out of memory with about 20 of them
+	@State(Scope.Benchmark)
+	public static class SearchProblem extends AbstractProblem {
+
+		@Param({ "negshl", "sdiv", "not", "lowerbound" })
+		public String family;
+
+		@Param({ "4", "8", "32" })
+		public int width;
+
+		@Param({ "2", "4", "8", "12", "16" })
+		public int components;
+
+		int[][] firstCombination;
+
+
+
+		@Setup
+		public void setup() {
+			setup(this.family, this.width, this.components);
+			this.firstCombination = ShapeFeasibilityChecker.combinations(
+					this.varShapes, this.ops, this.successors).next();
+		}
+	}
+
+
+
+	private static Specification createSpecification(final String family, final int width) {
+		switch (family) {
+			case "negshl":
+				return new Specification(Collections.nCopies(2, width), width, xs ->
+						Builder.mkNeg(Builder.mkShl(xs.get(0), xs.get(1))));
+			case "sdiv":
+				return new Specification(Collections.singletonList(width), width, xs ->
+						Builder.mkSDiv(Builder.mkBVConst(width, 7), xs.get(0)));
+			case "not":
+				return new Specification(Collections.singletonList(width), width, xs ->
+						Builder.mkNot(xs.get(0)));
+			case "lowerbound":
+				return new Specification(Collections.nCopies(2, width), width, xs ->
+						Builder.mkSub(
+							Builder.mkSub(
+								Builder.mkLshr(xs.get(1), Builder.mkBVConst(width, 10)),
+								Builder.mkIte(
+									Builder.mkNe(xs.get(0), Builder.mkBVConst(width, 14)),
+									xs.get(0),
+									Builder.mkBVConst(width, 1))),
+							Builder.mkOr(
+								Builder.mkAshr(xs.get(1), Builder.mkBVConst(width, 5)),
+								Builder.mkBVConst(width, 5))));
+			default:
+				throw new IllegalArgumentException("Unexpected family " + family);
+		}
+	}
+
+
+
+	private static List<LibraryFunction> createLibrary(final int width, final int components) {
+		final List<LibraryFunction> pool = Arrays.asList(
+				LibraryFunction.getAnd(width),
+				LibraryFunction.getOr(width),
+				LibraryFunction.getAdd(width),
+				LibraryFunction.getSub(width),
+				LibraryFunction.getXor(width),
+				LibraryFunction.getShl(width),
+				LibraryFunction.getAshr(width),
+				LibraryFunction.getLshr(width),
+				LibraryFunction.getMul(width),
+				LibraryFunction.getNeg(width),
+				LibraryFunction.getNot(width),
+				LibraryFunction.getSDiv(width),
+				LibraryFunction.getConst(width, 1));
+
+		final List<LibraryFunction> result = new ArrayList<>();
+		for (int i = 0; i < components; ++i) {
+			result.add(pool.get(i % pool.size()));
+		}
+		return result;
+	}
+
+
+
+	@Benchmark
+	public boolean isUnsatCorpus(final CorpusProblem problem) {
+		return ShapeFeasibilityChecker.isUnsat(problem.specification, problem.library);
+	}
+
+
+
+	@Benchmark
+	public boolean oneCheckCorpus(final CorpusProblem problem) {
+		return ShapeFeasibilityChecker.oneCheck(problem.specApprox, problem.library);
+	}
+
+
+
+	@Benchmark
+	public boolean isUnsat(final SearchProblem problem) {
+		return ShapeFeasibilityChecker.isUnsat(problem.specification, problem.library);
+	}
+
+
+
+	@Benchmark
+	public int[][] optimize(final SearchProblem problem) {
+		// optimize works in place
+		final int[][] successors = new int[problem.firstCombination.length][];
+		for (int i = 0; i < successors.length; ++i) {
+			successors[i] = problem.firstCombination[i].clone();
+		}
+		ShapeFeasibilityChecker.optimize(problem.varShapes, problem.ops, successors);
+		return successors;
+	}
+
+
+
+	@Benchmark
+	public int combinations(final Problem problem) {
+		int result = 0;
+		final Iterator<int[][]> iterator = ShapeFeasibilityChecker.combinations(
+				problem.varShapes, problem.ops, problem.successors);
+		while (iterator.hasNext()) {
+			result += iterator.next().length;
+		}
+		return result;
+	}
+
+
+
+	@Benchmark
+	public boolean oneCheck(final Problem problem) {
+		return ShapeFeasibilityChecker.oneCheck(problem.specApprox, problem.library);
+	}
+}
@@ -0,0 +1,55 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import smt.BVAst;
+import smt.Builder;
+import synth.Specification;
+
+
+
+// Access to the benchmark corpus for the JMH benchmarks; the directory can be
+// changed with the system property bitdep.corpus
+public class Corpus {
+
+	public static final String DIRECTORY_PROPERTY = "bitdep.corpus";
+
+
+
+	private Corpus() {
+	}
+
+
+
+	public static Path getDirectory() {
+		return Paths.get(System.getProperty(DIRECTORY_PROPERTY, "benchmark"));
+	}
+
+
+
+	public static Benchmark read(final String name) {
+		final Path file = getDirectory().resolve(name);
+		try {
+			return name.endsWith(".sl")
+					? SyGuSReader.read(file)
+					: BenchmarkReader.read(file);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+
+	public static List<BVAst> getInputs(final Specification specification) {
+		final List<BVAst> inputs = new ArrayList<>();
+		for (int i = 0; i < specification.getNumberOfInputs(); ++i) {
+			inputs.add(Builder.mkBVVar(specification.getInputBitWidth(i), "i" + i));
+		}
+		return inputs;
+	}
+}
@@ -0,0 +1,189 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import util.Json;
+
+
+
+// Compares two JMH result files in JSON format and reports the benchmarks that
+// got slower by more than a threshold. A benchmark only counts as a regression
+// if the confidence intervals of both results do not overlap either.
+public class ResultComparison {
+
+	static class Score {
+		final double value;
+		final double error;
+		final String unit;
+		final boolean higherIsBetter;
+
+
+
+		Score(final double value, final double error, final String unit,
+				final boolean higherIsBetter) {
+
+			this.value = value;
+			this.error = error;
+			this.unit = unit;
+			this.higherIsBetter = higherIsBetter;
+		}
+	}
+
+
+
+	private ResultComparison() {
+	}
+
+
+
+	static Map<String, Score> read(final Path file) throws IOException {
+		final Object parsed = Json.parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+		if (!(parsed instanceof List)) {
+			throw new IllegalArgumentException("Expected a list of results in " + file);
+		}
+
+		final Map<String, Score> result = new LinkedHashMap<>();
+		for (final Object element : (List<?>) parsed) {
+			final Map<?, ?> run = (Map<?, ?>) element;
+			final Map<?, ?> metric = (Map<?, ?>) run.get("primaryMetric");
+			final String mode = String.valueOf(run.get("mode"));
+
+			result.put(getKey(run), new Score(
+					toDouble(metric.get("score")),
+					toDouble(metric.get("scoreError")),
+					String.valueOf(metric.get("scoreUnit")),
+					mode.equals("thrpt")));
+		}
+		return result;
+	}
+
+
+
+	private static String getKey(final Map<?, ?> run) {
+		final StringBuilder result = new StringBuilder(String.valueOf(run.get("benchmark")));
+		if (run.get("params") instanceof Map) {
+			// Sort the parameters to be independent of their order in the file
+			final Map<String, Object> params = new TreeMap<>();
+			for (final Map.Entry<?, ?> entry : ((Map<?, ?>) run.get("params")).entrySet()) {
+				params.put(String.valueOf(entry.getKey()), entry.getValue());
+			}
+			result.append(params);
+		}
+		return result.toString();
+	}
+
+
+
+	// JMH writes "NaN" as a string if there are too few iterations to compute
+	// the error
+	private static double toDouble(final Object value) {
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		return Double.NaN;
+	}
+
+
+
+	// Returns the relative slowdown of the current score, e.g. 0.1 if it is 10%
+	// slower than the baseline
+	static double getSlowdown(final Score baseline, final Score current) {
+		return baseline.higherIsBetter
+				? baseline.value / current.value - 1.0
+				: current.value / baseline.value - 1.0;
+	}
+
+
+
+	static boolean isRegression(final Score baseline, final Score current, final double threshold) {
+		if (getSlowdown(baseline, current) <= threshold) {
+			return false;
+		}
+
+		final double baselineError = Double.isNaN(baseline.error) ? 0.0 : baseline.error;
+		final double currentError = Double.isNaN(current.error) ? 0.0 : current.error;
+		return baseline.higherIsBetter
+				? current.value + currentError < baseline.value - baselineError
+				: current.value - currentError > baseline.value + baselineError;
+	}
+
+
+
+	private static void printUsage() {
+		System.err.println("Usage: ResultComparison [options] baseline.json results.json");
+		System.err.println("  -threshold num   Slowdown in percent that counts as a regression (default: 10)");
+	}
+
+
+
+	public static void main(final String[] args) throws IOException {
+		double threshold = 0.1;
+		Path baselineFile = null;
+		Path resultsFile = null;
+
+		try {
+			for (int i = 0; i < args.length; ++i) {
+				if (args[i].equals("-threshold")) {
+					if (i + 1 >= args.length) {
+						throw new IllegalArgumentException("Missing argument for " + args[i]);
+					}
+					threshold = Double.parseDouble(args[++i]) / 100.0;
+				} else if (baselineFile == null) {
+					baselineFile = Paths.get(args[i]);
+				} else if (resultsFile == null) {
+					resultsFile = Paths.get(args[i]);
+				} else {
+					throw new IllegalArgumentException("Unexpected argument " + args[i]);
+				}
+			}
+			if (resultsFile == null) {
+				throw new IllegalArgumentException("Missing result files");
+			}
+		} catch (final IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			printUsage();
+			System.exit(2);
+			return;
+		}
+
+		final Map<String, Score> baseline = read(baselineFile);
+		final Map<String, Score> current = read(resultsFile);
+
+		int regressions = 0;
+		for (final Map.Entry<String, Score> entry : current.entrySet()) {
+			final Score baselineScore = baseline.get(entry.getKey());
+			final Score currentScore = entry.getValue();
+
+			if (baselineScore == null) {
+				System.out.printf(Locale.ROOT, "NEW        %s: %.3f %s%n",
+						entry.getKey(), currentScore.value, currentScore.unit);
+			} else if (!baselineScore.unit.equals(currentScore.unit)) {
+				System.out.printf(Locale.ROOT, "SKIPPED    %s: units %s and %s differ%n",
+						entry.getKey(), baselineScore.unit, currentScore.unit);
+			} else {
+				final boolean regression = isRegression(baselineScore, currentScore, threshold);
+				if (regression) {
+					regressions += 1;
+				}
+				System.out.printf(Locale.ROOT, "%-10s %s: %.3f -> %.3f %s (%+.1f%%)%n",
+						regression ? "REGRESSION" : "OK",
+						entry.getKey(), baselineScore.value, currentScore.value, currentScore.unit,
+						getSlowdown(baselineScore, currentScore) * 100.0);
+			}
+		}
+
+		System.out.println(regressions + " regressions in " + current.size() + " benchmarks");
+		if (regressions > 0) {
+			System.exit(1);
+		}
+	}
+}
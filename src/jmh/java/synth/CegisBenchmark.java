@@ -0,0 +1,370 @@
+package synth;
+
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.Range;
+import com.google.common.math.IntMath;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static smt.Builder.*;
+
+import sat.BitBlastingSolver;
+import smt.BVAst;
+import smt.BitVector;
+import smt.BoolAst;
+import smt.SatResult;
+import smt.Solver;
+import smt.SolverLog;
+import smt.SolverRecording;
+
+
+
+// Measures the phases of the CEGIS loop of ListBasedSynthesizer on the fast
+// test cases. The setup records one synthesis run; the synthesize benchmark
+// replays the recorded answers instead of calling a solver, so it measures
+// only the work on the Java side and does not depend on the native solver.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CegisBenchmark {
+
+	private static final int NUMBER_OF_EXAMPLES = 64;
+
+
+
+	@State(Scope.Benchmark)
+	public static class Session {
+
+		@Param({ "GreaterZero", "Absolute", "Maximum", "HighestBit", "AshrGreater" })
+		public String problem;
+
+		// The solver of the recorded run; YICES needs the native library
+		@Param({ "JAVA" })
+		public String solver;
+
+		final ListBasedSynthesizer synthesizer = new ListBasedSynthesizer();
+
+		Specification specification;
+		Library library;
+		Collection<Integer> outputs;
+		Collection<Integer> inputs;
+
+		SynthesizerSettings settings;
+		SolverRecording recording;
+		Program program;
+
+		List<List<BitVector>> examples;
+		List<BitVector> exampleOutputs;
+		List<BoolAst> generateConstraints;
+		Solver generateSolver;
+
+		List<BVAst> ls;
+		List<BVAst> invs;
+		BVAst outv;
+		List<BVAst> tmpvs;
+
+		int next = 0;
+
+
+
+		@Setup
+		public void setup() throws TimeoutException {
+			final TestCase testCase = TestData.getSatTestCases().stream()
+					.filter(t -> t.getName().equals(this.problem))
+					.findFirst()
+					.orElseThrow(() -> new IllegalArgumentException("Unknown problem " + this.problem));
+
+			this.specification = testCase.getSpecification();
+			this.library = this.synthesizer.removeUnusableOperations(this.specification,
+					Library.of(testCase.getLibrary()));
+
+			int inputSize = 0;
+			for (final LibraryFunction libFunc : this.library) {
+				inputSize += libFunc.getNumberOfInputs();
+			}
+			this.outputs = ContiguousSet.create(
+					Range.closedOpen(0, this.library.size()), DiscreteDomain.integers());
+			this.inputs = ContiguousSet.create(
+					Range.closedOpen(this.library.size(), this.library.size() + inputSize),
+					DiscreteDomain.integers());
+
+			record();
+			createExamples();
+			createGenerateSolver();
+			createConnectivityVariables();
+		}
+
+
+
+		private void record() throws TimeoutException {
+			this.settings = SynthesizerSettings.getDefault();
+			this.settings.setGenerateSolverType(SolverType.valueOf(this.solver));
+			this.settings.setVerifySolverType(SolverType.valueOf(this.solver));
+
+			this.recording = new SolverRecording();
+			final SynthesizerSettings recordSettings = this.settings.copy();
+			recordSettings.setSolverInterceptor(this.recording::record);
+			final Optional<Program> result = new ListBasedSynthesizer().synthesizeProgram(
+					this.specification, this.library, recordSettings);
+			if (!result.isPresent()) {
+				throw new IllegalStateException("No program found for " + this.problem);
+			}
+			this.program = result.get();
+
+			// Makes sure that the run is deterministic, so the replay below does
+			// not diverge
+			final SynthesizerSettings checkSettings = this.settings.copy();
+			checkSettings.setSolverInterceptor(this.recording.replay(true));
+			new ListBasedSynthesizer().synthesizeProgram(this.specification, this.library,
+					checkSettings);
+		}
+
+
+
+		private void createExamples() {
+			final Random random = new Random(0);
+			this.examples = new ArrayList<>();
+			this.exampleOutputs = new ArrayList<>();
+			for (int i = 0; i < NUMBER_OF_EXAMPLES; ++i) {
+				final List<BitVector> example = new ArrayList<>();
+				for (int j = 0; j < this.specification.getNumberOfInputs(); ++j) {
+					example.add(new BitVector(this.specification.getInputBitWidth(j), random.nextLong()));
+				}
+				this.examples.add(example);
+				this.exampleOutputs.add(this.specification.evaluate(example));
+			}
+		}
+
+
+
+		// Without an example limit or incremental verification, the generate
+		// solver is the first solver of a run
+		private void createGenerateSolver() {
+			this.generateConstraints = new ArrayList<>();
+			for (final SolverLog.Event event : this.recording.getLogs().get(0).getEvents()) {
+				if (event.getKind() == SolverLog.Kind.ADD) {
+					this.generateConstraints.add((BoolAst) event.getArguments().get(0));
+				}
+			}
+
+			this.generateSolver = new BitBlastingSolver();
+			for (final BoolAst constraint : this.generateConstraints) {
+				this.generateSolver.add(constraint);
+			}
+			if (this.generateSolver.checkSat() != SatResult.SAT) {
+				throw new IllegalStateException("The recorded generate constraints are not satisfiable");
+			}
+		}
+
+
+
+		private void createConnectivityVariables() {
+			final int lbw = IntMath.log2(this.library.size() + this.specification.getNumberOfInputs() + 1,
+					RoundingMode.UP);
+
+			this.ls = new ArrayList<>();
+			for (int i = 0; i < this.outputs.size() + this.inputs.size(); ++i) {
+				this.ls.add(mkBVVar(lbw, "l_" + i));
+			}
+			this.tmpvs = new ArrayList<>();
+			for (int i = 0; i < this.ls.size(); ++i) {
+				this.tmpvs.add(mkBVVar(this.synthesizer.getComponentBitWidth(this.library, i), "t_" + i));
+			}
+			this.invs = new ArrayList<>();
+			for (int i = 0; i < this.specification.getNumberOfInputs(); ++i) {
+				this.invs.add(mkBVVar(this.specification.getInputBitWidth(i), "in_" + i));
+			}
+			this.outv = mkBVVar(this.specification.getOutputBitWidth(), "out");
+		}
+
+
+
+		int nextExample() {
+			final int result = this.next;
+			this.next = (this.next + 1) % NUMBER_OF_EXAMPLES;
+			return result;
+		}
+	}
+
+
+
+	// Counts the constraints instead of solving them
+	private static final class Sink implements Solver {
+
+		int constraints = 0;
+
+
+
+		@Override
+		public void add(final BoolAst constraint) {
+			this.constraints += 1;
+		}
+
+
+
+		@Override
+		public SatResult checkSat() {
+			throw new UnsupportedOperationException();
+		}
+
+
+
+		@Override
+		public SatResult checkSatAssuming(final List<BoolAst> assumptions) {
+			throw new UnsupportedOperationException();
+		}
+
+
+
+		@Override
+		public List<BoolAst> getUnsatCore() {
+			throw new UnsupportedOperationException();
+		}
+
+
+
+		@Override
+		public BitVector getBVAssignment(final BVAst tree) {
+			throw new UnsupportedOperationException();
+		}
+
+
+
+		@Override
+		public List<BitVector> getBVAssignments(final List<? extends BVAst> trees) {
+			throw new UnsupportedOperationException();
+		}
+
+
+
+		@Override
+		public boolean getBoolAssignment(final BoolAst tree) {
+			throw new UnsupportedOperationException();
+		}
+
+
+
+		@Override
+		public void push() {
+			throw new UnsupportedOperationException();
+		}
+
+
+
+		@Override
+		public void pop() {
+			throw new UnsupportedOperationException();
+		}
+
+
+
+		@Override
+		public void interrupt() {
+		}
+	}
+
+
+
+	@Benchmark
+	public Optional<Program> synthesize(final Session session) throws TimeoutException {
+		final SynthesizerSettings settings = session.settings.copy();
+		settings.setSolverInterceptor(session.recording.replay(false));
+		return new ListBasedSynthesizer().synthesizeProgram(session.specification, session.library,
+				settings);
+	}
+
+
+
+	@Benchmark
+	public int assertWellFormednessConstraint(final Session session) {
+		final Sink sink = new Sink();
+		session.synthesizer.assertWellFormednessConstraint(sink, session.specification,
+				session.library, session.outputs, session.inputs);
+		return sink.constraints;
+	}
+
+
+
+	@Benchmark
+	public int assertExample(final Session session) {
+		final Sink sink = new Sink();
+		final int example = session.nextExample();
+		session.synthesizer.assertExample(sink, session.specification, session.library,
+				session.outputs, session.inputs, example, session.examples.get(example),
+				session.exampleOutputs.get(example));
+		return sink.constraints;
+	}
+
+
+
+	@Benchmark
+	public int assertConnectivity(final Session session) {
+		final Sink sink = new Sink();
+		session.synthesizer.assertConnectivity(sink, session.specification, session.library,
+				session.ls, session.invs, session.outv, session.tmpvs);
+		return sink.constraints;
+	}
+
+
+
+	// Bit-blasts the constraints of the recorded generate solver
+	@Benchmark
+	public Solver translate(final Session session) {
+		final Solver solver = new BitBlastingSolver();
+		for (final BoolAst constraint : session.generateConstraints) {
+			solver.add(constraint);
+		}
+		return solver;
+	}
+
+
+
+	@Benchmark
+	public Program extractModel(final Session session) {
+		final int[] program = session.synthesizer.getProgram(session.generateSolver,
+				session.specification, session.library, session.outputs, session.inputs);
+		final List<BitVector> auxiliaryVariables = session.synthesizer.getAuxiliaryVariableValues(
+				session.generateSolver, session.library);
+		return session.synthesizer.makeResult(session.library,
+				session.specification.getNumberOfInputs(),
+				session.synthesizer.getNumberOfStatements(session.specification, session.library),
+				program, auxiliaryVariables);
+	}
+
+
+
+	@Benchmark
+	public BitVector evaluateSpecification(final Session session) {
+		return AbstractBVSynthesizer.evalSpec(session.specification,
+				session.examples.get(session.nextExample()));
+	}
+
+
+
+	@Benchmark
+	public BitVector executeProgram(final Session session) {
+		return session.program.execute(session.examples.get(session.nextExample()));
+	}
+}
@@ -3053,6 +3053,39 @@ __YICES_DLLSPEC__ extern int32_t yices_assert_formulas(context_t *ctx, uint32_t
 __YICES_DLLSPEC__ extern smt_status_t yices_check_context(context_t *ctx, const param_t *params);
 
 
+/*
+ * Check satisfiability under assumptions:
+ * - ctx: context
+ * - params: optional search parameters (may be NULL)
+ * - n: number of assumptions
+ * - t: array of n Boolean terms
+ *
+ * The assumptions are treated as temporary assertions for this call only.
+ * If the result is STATUS_UNSAT, a subset of t that is sufficient for
+ * unsatisfiability can be obtained by calling yices_get_unsat_core.
+ *
+ * Error report: as for yices_check_context. In addition,
+ * if one of the t[i] is not a Boolean term
+ *   code = TYPE_MISMATCH
+ */
+__YICES_DLLSPEC__ extern smt_status_t yices_check_context_with_assumptions(context_t *ctx, const param_t *params,
+									  uint32_t n, const term_t t[]);
+
+
+/*
+ * Unsat core of the last call to yices_check_context_with_assumptions:
+ * - v must be an initialized term_vector
+ * - the core is stored in v (it's a subset of the assumptions)
+ *
+ * Return code: 0 if there's no error, -1 otherwise.
+ *
+ * Error report:
+ * if the context status is not STATUS_UNSAT
+ *   code = CTX_INVALID_OPERATION
+ */
+__YICES_DLLSPEC__ extern int32_t yices_get_unsat_core(context_t *ctx, term_vector_t *v);
+
+
 /*
  * Add a blocking clause: this is intended to help enumerate different models
  * for a set of assertions.
@@ -17,9 +17,22 @@
  * You should have received a copy of the GNU General Public License
  * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
  */
+#include <stdlib.h>
+
 #include "yices.h"
 #include "yicesjni.h"
 
+/* Opcodes of yices_build_terms; must match yices.TermEncoder */
+enum {
+	OP_TERM, OP_TRUE, OP_FALSE, OP_BOOL_VAR, OP_BV_VAR, OP_BV_CONST,
+	OP_NOT, OP_EQ, OP_NEQ, OP_IMPLIES, OP_AND, OP_OR, OP_DISTINCT,
+	OP_BV_EQ, OP_BV_NEQ, OP_BV_UGT, OP_BV_UGE, OP_BV_ULT, OP_BV_ULE,
+	OP_BV_SGT, OP_BV_SGE, OP_BV_SLT, OP_BV_SLE,
+	OP_BV_ADD, OP_BV_SUB, OP_BV_MUL, OP_BV_SDIV, OP_BV_UDIV, OP_BV_SREM, OP_BV_UREM,
+	OP_BV_SMOD, OP_BV_AND, OP_BV_OR, OP_BV_XOR, OP_BV_SHL, OP_BV_ASHR, OP_BV_LSHR,
+	OP_BV_ROL, OP_BV_ROR, OP_BV_CONCAT, OP_BV_NOT, OP_BV_NEG, OP_BV_EXTRACT, OP_ITE
+};
+
 
 JNIEXPORT void Java_yices_Yices_yices_1init(JNIEnv *env, jclass cls) {
 	yices_init();
@@ -33,6 +46,17 @@ JNIEXPORT void Java_yices_Yices_yices_1reset(JNIEnv *env, jclass cls) {
 	yices_reset();
 }
 
+JNIEXPORT void Java_yices_Yices_yices_1garbage_1collect(JNIEnv *env, jclass cls, jintArray terms,
+		jintArray types, jint keep_named) {
+
+	term_t *t_ptr = (*env)->GetIntArrayElements(env, terms, NULL);
+	type_t *tau_ptr = (*env)->GetIntArrayElements(env, types, NULL);
+	yices_garbage_collect(t_ptr, (uint32_t) (*env)->GetArrayLength(env, terms),
+			tau_ptr, (uint32_t) (*env)->GetArrayLength(env, types), (int32_t) keep_named);
+	(*env)->ReleaseIntArrayElements(env, types, tau_ptr, JNI_ABORT);
+	(*env)->ReleaseIntArrayElements(env, terms, t_ptr, JNI_ABORT);
+}
+
 JNIEXPORT jint Java_yices_Yices_yices_1error_1code(JNIEnv *env, jclass cls) {
 	return (jint) yices_error_code();
 }
@@ -331,6 +355,32 @@ JNIEXPORT jint Java_yices_Yices_yices_1check_1context(JNIEnv *env, jclass cls, j
 	return (jint) yices_check_context((context_t *) ctx, (param_t *) params);
 }
 
+JNIEXPORT jint Java_yices_Yices_yices_1check_1context_1with_1assumptions(JNIEnv *env, jclass cls,
+		jlong ctx, jlong params, jintArray t) {
+
+	term_t *t_ptr = (*env)->GetIntArrayElements(env, t, NULL);
+	const smt_status_t result = yices_check_context_with_assumptions((context_t *) ctx,
+			(param_t *) params, (uint32_t) (*env)->GetArrayLength(env, t), t_ptr);
+	(*env)->ReleaseIntArrayElements(env, t, t_ptr, JNI_ABORT);
+	return (jint) result;
+}
+
+JNIEXPORT jintArray Java_yices_Yices_yices_1get_1unsat_1core(JNIEnv *env, jclass cls, jlong ctx) {
+	term_vector_t v;
+	yices_init_term_vector(&v);
+
+	jintArray result = NULL;
+	if (yices_get_unsat_core((context_t *) ctx, &v) == 0) {
+		result = (*env)->NewIntArray(env, (jsize) v.size);
+		if (result != NULL) {
+			(*env)->SetIntArrayRegion(env, result, 0, (jsize) v.size, (const jint *) v.data);
+		}
+	}
+
+	yices_delete_term_vector(&v);
+	return result;
+}
+
 JNIEXPORT void Java_yices_Yices_yices_1stop_1search(JNIEnv *env, jclass cls, jlong ctx) {
 	yices_stop_search((context_t *) ctx);
 }
@@ -385,3 +435,231 @@ JNIEXPORT jint Java_yices_Yices_yices_1get_1bv_1value(JNIEnv *env, jclass cls, j
 	(*env)->ReleaseIntArrayElements(env, val, val_ptr, 0);
 	return result;
 }
+
+static term_t build_bvconst(uint32_t width, const jlong *words) {
+	if (width <= 64) {
+		return yices_bvconst_uint64(width, (uint64_t) words[0]);
+	}
+
+	int32_t *bits = malloc(width * sizeof(int32_t));
+	if (bits == NULL) {
+		return NULL_TERM;
+	}
+	for (uint32_t i = 0; i < width; ++i) {
+		bits[i] = (int32_t) (((uint64_t) words[i / 64] >> (i % 64)) & 1);
+	}
+	const term_t result = yices_bvconst_from_array(width, bits);
+	free(bits);
+	return result;
+}
+
+static term_t build_rotate(term_t value, term_t count, int left) {
+	const uint32_t width = yices_term_bitsize(value);
+	const term_t inverse = yices_bvsub(yices_bvconst_uint32(width, width), count);
+	if (left) {
+		return yices_bvor2(yices_bvshl(value, count), yices_bvlshr(value, inverse));
+	} else {
+		return yices_bvor2(yices_bvlshr(value, count), yices_bvshl(value, inverse));
+	}
+}
+
+/*
+ * Executes the instructions in code and stores the term of the i-th
+ * instruction in terms[i]. Returns 0 on success and -1 otherwise.
+ */
+JNIEXPORT jint Java_yices_Yices_yices_1build_1terms(JNIEnv *env, jclass cls, jintArray code,
+		jint length, jlongArray words, jintArray terms) {
+
+	jint *c = (*env)->GetPrimitiveArrayCritical(env, code, NULL);
+	jlong *w = (*env)->GetPrimitiveArrayCritical(env, words, NULL);
+	jint *t = (*env)->GetPrimitiveArrayCritical(env, terms, NULL);
+
+	jint status = 0;
+	jint pc = 0;
+	for (jint k = 0; pc < length; ++k) {
+		term_t result;
+		switch (c[pc]) {
+			case OP_TERM:
+				result = (term_t) c[pc + 1];
+				pc += 2;
+				break;
+
+			case OP_TRUE:
+				result = yices_true();
+				pc += 1;
+				break;
+
+			case OP_FALSE:
+				result = yices_false();
+				pc += 1;
+				break;
+
+			case OP_BOOL_VAR:
+				result = yices_new_uninterpreted_term(yices_bool_type());
+				pc += 1;
+				break;
+
+			case OP_BV_VAR:
+				result = yices_new_uninterpreted_term(yices_bv_type((uint32_t) c[pc + 1]));
+				pc += 2;
+				break;
+
+			case OP_BV_CONST:
+				result = build_bvconst((uint32_t) c[pc + 1], w + c[pc + 2]);
+				pc += 3;
+				break;
+
+			case OP_NOT:
+				result = yices_not(t[c[pc + 1]]);
+				pc += 2;
+				break;
+
+			case OP_DISTINCT: {
+				const uint32_t n = (uint32_t) c[pc + 1];
+				term_t *args = malloc(n * sizeof(term_t));
+				if (args == NULL) {
+					result = NULL_TERM;
+				} else {
+					for (uint32_t i = 0; i < n; ++i) {
+						args[i] = t[c[pc + 2 + i]];
+					}
+					result = yices_distinct(n, args);
+					free(args);
+				}
+				pc += 2 + n;
+				break;
+			}
+
+			case OP_BV_NOT:
+				result = yices_bvnot(t[c[pc + 1]]);
+				pc += 2;
+				break;
+
+			case OP_BV_NEG:
+				result = yices_bvneg(t[c[pc + 1]]);
+				pc += 2;
+				break;
+
+			case OP_BV_EXTRACT:
+				result = yices_bvextract(t[c[pc + 1]], (uint32_t) c[pc + 2], (uint32_t) c[pc + 3]);
+				pc += 4;
+				break;
+
+			case OP_ITE:
+				result = yices_ite(t[c[pc + 1]], t[c[pc + 2]], t[c[pc + 3]]);
+				pc += 4;
+				break;
+
+			default: {
+				const term_t a = t[c[pc + 1]];
+				const term_t b = t[c[pc + 2]];
+				switch (c[pc]) {
+					case OP_EQ:        result = yices_eq(a, b); break;
+					case OP_NEQ:       result = yices_neq(a, b); break;
+					case OP_IMPLIES:   result = yices_implies(a, b); break;
+					case OP_AND:       result = yices_and2(a, b); break;
+					case OP_OR:        result = yices_or2(a, b); break;
+					case OP_BV_EQ:     result = yices_bveq_atom(a, b); break;
+					case OP_BV_NEQ:    result = yices_bvneq_atom(a, b); break;
+					case OP_BV_UGT:    result = yices_bvgt_atom(a, b); break;
+					case OP_BV_UGE:    result = yices_bvge_atom(a, b); break;
+					case OP_BV_ULT:    result = yices_bvlt_atom(a, b); break;
+					case OP_BV_ULE:    result = yices_bvle_atom(a, b); break;
+					case OP_BV_SGT:    result = yices_bvsgt_atom(a, b); break;
+					case OP_BV_SGE:    result = yices_bvsge_atom(a, b); break;
+					case OP_BV_SLT:    result = yices_bvslt_atom(a, b); break;
+					case OP_BV_SLE:    result = yices_bvsle_atom(a, b); break;
+					case OP_BV_ADD:    result = yices_bvadd(a, b); break;
+					case OP_BV_SUB:    result = yices_bvsub(a, b); break;
+					case OP_BV_MUL:    result = yices_bvmul(a, b); break;
+					case OP_BV_SDIV:   result = yices_bvsdiv(a, b); break;
+					case OP_BV_UDIV:   result = yices_bvdiv(a, b); break;
+					case OP_BV_SREM:   result = yices_bvsrem(a, b); break;
+					case OP_BV_UREM:   result = yices_bvrem(a, b); break;
+					case OP_BV_SMOD:   result = yices_bvsmod(a, b); break;
+					case OP_BV_AND:    result = yices_bvand2(a, b); break;
+					case OP_BV_OR:     result = yices_bvor2(a, b); break;
+					case OP_BV_XOR:    result = yices_bvxor2(a, b); break;
+					case OP_BV_SHL:    result = yices_bvshl(a, b); break;
+					case OP_BV_ASHR:   result = yices_bvashr(a, b); break;
+					case OP_BV_LSHR:   result = yices_bvlshr(a, b); break;
+					case OP_BV_ROL:    result = build_rotate(a, b, 1); break;
+					case OP_BV_ROR:    result = build_rotate(a, b, 0); break;
+					case OP_BV_CONCAT: result = yices_bvconcat2(a, b); break;
+					default:           result = NULL_TERM; break;
+				}
+				pc += 3;
+				break;
+			}
+		}
+
+		if (result == NULL_TERM) {
+			status = -1;
+			break;
+		}
+		t[k] = (jint) result;
+	}
+
+	(*env)->ReleasePrimitiveArrayCritical(env, terms, t, 0);
+	(*env)->ReleasePrimitiveArrayCritical(env, words, w, JNI_ABORT);
+	(*env)->ReleasePrimitiveArrayCritical(env, code, c, JNI_ABORT);
+	return status;
+}
+
+/*
+ * Stores the values of the bit-vector terms in words. Each value occupies
+ * ceil(width / 64) words, least significant word first. Returns 0 on success
+ * and -1 otherwise.
+ */
+JNIEXPORT jint Java_yices_Yices_yices_1get_1bv_1values(JNIEnv *env, jclass cls, jlong mdl,
+		jintArray terms, jlongArray words) {
+
+	const jsize n = (*env)->GetArrayLength(env, terms);
+	jint *t = (*env)->GetPrimitiveArrayCritical(env, terms, NULL);
+	jlong *w = (*env)->GetPrimitiveArrayCritical(env, words, NULL);
+
+	int32_t small_bits[64];
+	int32_t *bits = small_bits;
+	uint32_t capacity = 64;
+
+	jint status = 0;
+	jsize offset = 0;
+	for (jsize i = 0; i < n; ++i) {
+		const uint32_t width = yices_term_bitsize((term_t) t[i]);
+		if (width > capacity) {
+			int32_t *new_bits = malloc(width * sizeof(int32_t));
+			if (new_bits == NULL) {
+				status = -1;
+				break;
+			}
+			if (bits != small_bits) {
+				free(bits);
+			}
+			bits = new_bits;
+			capacity = width;
+		}
+
+		if (width == 0 || yices_get_bv_value((model_t *) mdl, (term_t) t[i], bits) != 0) {
+			status = -1;
+			break;
+		}
+
+		const uint32_t num_words = (width + 63) / 64;
+		for (uint32_t j = 0; j < num_words; ++j) {
+			uint64_t word = 0;
+			const uint32_t high = width < 64 * (j + 1) ? width : 64 * (j + 1);
+			for (uint32_t b = 64 * j; b < high; ++b) {
+				word |= (uint64_t) (bits[b] != 0) << (b - 64 * j);
+			}
+			w[offset + j] = (jlong) word;
+		}
+		offset += num_words;
+	}
+
+	if (bits != small_bits) {
+		free(bits);
+	}
+	(*env)->ReleasePrimitiveArrayCritical(env, words, w, 0);
+	(*env)->ReleasePrimitiveArrayCritical(env, terms, t, JNI_ABORT);
+	return status;
+}
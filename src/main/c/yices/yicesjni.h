@@ -25,6 +25,7 @@
 JNIEXPORT void     Java_yices_Yices_yices_1init(JNIEnv *, jclass);
 JNIEXPORT void     Java_yices_Yices_yices_1exit(JNIEnv *, jclass);
 JNIEXPORT void     Java_yices_Yices_yices_1reset(JNIEnv *, jclass);
+JNIEXPORT void     Java_yices_Yices_yices_1garbage_1collect(JNIEnv *, jclass, jintArray, jintArray, jint);
 JNIEXPORT jint     Java_yices_Yices_yices_1error_1code(JNIEnv *, jclass);
 JNIEXPORT jstring  Java_yices_Yices_yices_1error_1string(JNIEnv *, jclass);
 JNIEXPORT jint     Java_yices_Yices_yices_1bool_1type(JNIEnv *, jclass);
@@ -91,6 +92,9 @@ JNIEXPORT jint     Java_yices_Yices_yices_1context_1enable_1option(JNIEnv *, jcl
 JNIEXPORT jint     Java_yices_Yices_yices_1context_1disable_1option(JNIEnv *, jclass, jlong, jstring);
 JNIEXPORT jint     Java_yices_Yices_yices_1assert_1formula(JNIEnv *, jclass, jlong, jint);
 JNIEXPORT jint     Java_yices_Yices_yices_1check_1context(JNIEnv *, jclass, jlong, jlong);
+JNIEXPORT jint     Java_yices_Yices_yices_1check_1context_1with_1assumptions(JNIEnv *, jclass, jlong, jlong, jintArray);
+JNIEXPORT jintArray Java_yices_Yices_yices_1get_1unsat_1core(JNIEnv *, jclass, jlong);
+JNIEXPORT jint     Java_yices_Yices_yices_1build_1terms(JNIEnv *, jclass, jintArray, jint, jlongArray, jintArray);
 JNIEXPORT void     Java_yices_Yices_yices_1stop_1search(JNIEnv *, jclass, jlong);
 JNIEXPORT jlong    Java_yices_Yices_yices_1new_1param_1record(JNIEnv *, jclass);
 JNIEXPORT void     Java_yices_Yices_yices_1default_1params_1for_1context(JNIEnv *, jclass, jlong, jlong);
@@ -100,6 +104,7 @@ JNIEXPORT jlong    Java_yices_Yices_yices_1get_1model(JNIEnv *, jclass, jlong, j
 JNIEXPORT void     Java_yices_Yices_yices_1free_1model(JNIEnv *, jclass, jlong);
 JNIEXPORT jint     Java_yices_Yices_yices_1get_1bool_1value(JNIEnv *, jclass, jlong, jint, jintArray);
 JNIEXPORT jint     Java_yices_Yices_yices_1get_1bv_1value(JNIEnv *, jclass, jlong, jint, jintArray);
+JNIEXPORT jint     Java_yices_Yices_yices_1get_1bv_1values(JNIEnv *, jclass, jlong, jintArray, jlongArray);
 
 #endif
 
@@ -23,10 +23,12 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.function.IntFunction;
 
 import smt.Ast;
@@ -45,6 +47,7 @@ import smt.BVIte;
 import smt.BVUnary;
 import smt.BVUnaryOp;
 import smt.BVVar;
+import smt.Builder;
 import smt.TreeTransformer;
 import util.Pair;
 
@@ -56,8 +59,9 @@ public class ApproximationBuilder<T extends Approximation<T>>
 	private IntFunction<T> constBuilder;
 	private IntFunction<T> singletonBuilder;
 	private Map<Ast, MultiBitsApproximation<T>> variableApproximations;
+	private Function<Ast, List<T>> variableBuilder;
 
-	private final Map<Ast, MultiBitsApproximation<T>> cache = new HashMap<>();
+	private Map<Ast, MultiBitsApproximation<T>> cache = new HashMap<>();
 
 
 
@@ -100,6 +104,24 @@ public class ApproximationBuilder<T extends Approximation<T>>
 
 
 
+	/**
+	 * Creates a builder that approximates each variable on first use. The
+	 * builder passed in receives the variable and returns one approximation
+	 * per bit (a single one for Boolean variables). Subtrees are cached by
+	 * identity, which avoids hashing large trees repeatedly.
+	 */
+	public ApproximationBuilder(final IntFunction<T> constBuilder,
+			final Function<Ast, List<T>> variableBuilder) {
+
+		this.constBuilder = constBuilder;
+		this.variableBuilder = variableBuilder;
+
+		this.variableApproximations = new HashMap<>();
+		this.cache = new IdentityHashMap<>();
+	}
+
+
+
 	private MultiBitsApproximation<T> get(final Ast tree) {
 		if (this.cache.containsKey(tree)) {
 			return this.cache.get(tree);
@@ -126,7 +148,7 @@ public class ApproximationBuilder<T extends Approximation<T>>
 		T result = distinct(childrenRes.get(width - 2).toList(),
 				childrenRes.get(width - 1).toList());
 		for (int i = width - 3; i >= 0; --i) {
-			for (int j = i + 2; j < width; ++j) {
+			for (int j = i + 1; j < width; ++j) {
 				result = result.and(distinct(childrenRes.get(i).toList(), childrenRes.get(j).toList()));
 			}
 		}
@@ -274,7 +296,7 @@ public class ApproximationBuilder<T extends Approximation<T>>
 
 	@Override
 	public MultiBitsApproximation<T> visit(final BoolVar tree) {
-		return this.variableApproximations.get(tree);
+		return getVariable(tree);
 	}
 
 
@@ -395,7 +417,9 @@ public class ApproximationBuilder<T extends Approximation<T>>
 					for (int i = 0; i < tree.getWidth(); ++i) {
 						T cur = left.get(i).and(eqCnsts.get(0));
 
-						for (int j = tree.getWidth() - 1; j > 0; --j) {
+						// Shift amounts between the width and the next power of two
+						// also fill with the sign bit
+						for (int j = eqCnsts.size() - 1; j > 0; --j) {
 							cur = cur.xorM(left.get(Math.min(j + i, left.bitWidth() - 1)).and(eqCnsts.get(j)));
 						}
 
@@ -438,8 +462,16 @@ public class ApproximationBuilder<T extends Approximation<T>>
 			}
 
 			case ROL:
+				// Same definition as in BitVector
+				return get(Builder.mkOr(
+						Builder.mkShl(tree.getLeft(), tree.getRight()),
+						Builder.mkLshr(tree.getLeft(), Builder.mkSub(
+								Builder.mkBVConst(tree.getWidth(), tree.getWidth()), tree.getRight()))));
 			case ROR:
-				assert false : "TODO";
+				return get(Builder.mkOr(
+						Builder.mkLshr(tree.getLeft(), tree.getRight()),
+						Builder.mkShl(tree.getLeft(), Builder.mkSub(
+								Builder.mkBVConst(tree.getWidth(), tree.getWidth()), tree.getRight()))));
 			case CONCAT:
 				return left.concat(right);
 			default:
@@ -508,7 +540,18 @@ public class ApproximationBuilder<T extends Approximation<T>>
 
 	@Override
 	public MultiBitsApproximation<T> visit(final BVVar tree) {
-		return this.variableApproximations.get(tree);
+		return getVariable(tree);
+	}
+
+
+
+	private MultiBitsApproximation<T> getVariable(final Ast variable) {
+		MultiBitsApproximation<T> result = this.variableApproximations.get(variable);
+		if (result == null && this.variableBuilder != null) {
+			result = new MultiBitsApproximation<>(this.variableBuilder.apply(variable));
+			this.variableApproximations.put(variable, result);
+		}
+		return result;
 	}
 
 
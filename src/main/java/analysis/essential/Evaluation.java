@@ -50,7 +50,7 @@ public class Evaluation {
 					if (solver.checkSat() == SatResult.SAT) {
 						current.add(c);
 					}
-					YicesSolver.freeAll();
+					solver.free();
 				}
 			}
 			result.add(current);
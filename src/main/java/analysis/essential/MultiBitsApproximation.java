@@ -56,6 +56,18 @@ public final class MultiBitsApproximation<T extends Approximation<T>>
 
 
 
+	/**
+	 * Stores the result of a modifying operation on a bit, which is required
+	 * for approximations that cannot be modified and return a new object.
+	 */
+	private void setBit(final int i, final T bit) {
+		if (this.bitApproximations.get(i) != bit) {
+			this.bitApproximations.set(i, bit);
+		}
+	}
+
+
+
 	@Override
 	public MultiBitsApproximation<T> and(final MultiBitsApproximation<T> other) {
 		final int width = this.bitWidth();
@@ -83,7 +95,7 @@ public final class MultiBitsApproximation<T extends Approximation<T>>
 		}
 
 		for (int i = 0; i < width; ++i) {
-			this.bitApproximations.get(i).andM(other.bitApproximations.get(i));
+			setBit(i, this.bitApproximations.get(i).andM(other.bitApproximations.get(i)));
 		}
 
 		return this;
@@ -118,7 +130,7 @@ public final class MultiBitsApproximation<T extends Approximation<T>>
 		}
 
 		for (int i = 0; i < width; ++i) {
-			this.bitApproximations.get(i).xorM(other.bitApproximations.get(i));
+			setBit(i, this.bitApproximations.get(i).xorM(other.bitApproximations.get(i)));
 		}
 
 		return this;
@@ -145,7 +157,7 @@ public final class MultiBitsApproximation<T extends Approximation<T>>
 		final int width = this.bitWidth();
 
 		for (int i = 0; i < width; ++i) {
-			this.bitApproximations.get(i).notM();
+			setBit(i, this.bitApproximations.get(i).notM());
 		}
 
 		return this;
@@ -20,8 +20,12 @@
 package analysis.essential;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.function.Function;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import smt.*;
 import synth.FunctionParser;
 import synth.LibraryFunction;
@@ -31,6 +35,13 @@ import synth.Specification;
 
 public class ShapeFeasibilityChecker {
 
+	// Shape profiles of library functions by their body. Libraries are usually
+	// rebuilt for every problem, but most of their functions are the same.
+	private static final Cache<BVAst, Op> OP_CACHE = CacheBuilder.newBuilder()
+			.maximumSize(4096)
+			.build();
+
+
 	static enum PartialOrdering {
 		INCOMPARABLE,
 		LESS,
@@ -473,7 +484,7 @@ public class ShapeFeasibilityChecker {
 
 
 
-	private static MultiBitsApproximation<ZPolyUnderApproximation> getVarApproximation(
+	static MultiBitsApproximation<ZPolyUnderApproximation> getVarApproximation(
 			final Specification specification) {
 
 		final List<BVAst> inputs = new ArrayList<>();
@@ -488,7 +499,7 @@ public class ShapeFeasibilityChecker {
 
 
 
-	private static Shape[] getVarShapes(final Specification specification,
+	static Shape[] getVarShapes(final Specification specification,
 			final MultiBitsApproximation<ZPolyUnderApproximation> funcUnder) {
 
 		final List<Shape> result = new ArrayList<>();
@@ -514,6 +525,11 @@ public class ShapeFeasibilityChecker {
 
 		final BVAst func = libFunc.getFunction().apply(inputs);
 
+		final Op cached = OP_CACHE.getIfPresent(func);
+		if (cached != null) {
+			return cached;
+		}
+
 		final MultiBitsApproximation<ZPolyOverApproximation> funcOver
 				= ZPolyOverApproximation.create(func, inputs);
 
@@ -527,15 +543,20 @@ public class ShapeFeasibilityChecker {
 			from = to;
 		}
 
-		return new Op(arguments.toArray(new Shape[arguments.size()]));
+		final Op result = new Op(arguments.toArray(new Shape[arguments.size()]));
+		OP_CACHE.put(func, result);
+		return result;
 	}
 
 
 
-	private static Op[] getOps(final List<LibraryFunction> library) {
+	// Approximating the library functions can take a while, so the interrupt
+	// is checked for each of them
+	static Op[] getOps(final List<LibraryFunction> library) {
 		final List<Op> result = new ArrayList<>();
 
 		for (final LibraryFunction libFunc : library) {
+			checkInterrupted();
 			final Op op = getOp(libFunc);
 			if (op.arguments.length > 0) {
 				result.add(op);
@@ -547,6 +568,14 @@ public class ShapeFeasibilityChecker {
 
 
 
+	private static void checkInterrupted() {
+		if (Thread.currentThread().isInterrupted()) {
+			throw new CancellationException();
+		}
+	}
+
+
+
 	static Iterable<Op[]> getAscDescMerged(final Shape[] varShapes, final Op[] initialOps) {
 		boolean varsContainBlock = false;
 		for (final Shape shape : varShapes) {
@@ -706,11 +735,13 @@ public class ShapeFeasibilityChecker {
 
 
 
+	// Stops with a CancellationException when the thread is interrupted
 	public static boolean isUnsat(final Specification specification,
 			final List<LibraryFunction> library) {
 
 		final MultiBitsApproximation<ZPolyUnderApproximation> specApprox
 				= getVarApproximation(specification);
+		checkInterrupted();
 
 		{
 			final Shape[] varShapes = getVarShapes(specification, specApprox);
@@ -742,6 +773,8 @@ public class ShapeFeasibilityChecker {
 
 				final Iterator<int[][]> succIter = combinations(varShapes, ops, successors);
 				while (succIter.hasNext()) {
+					checkInterrupted();
+
 					final int[][] curSucc = succIter.next();
 
 					optimize(varShapes, ops, curSucc);
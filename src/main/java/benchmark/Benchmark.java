@@ -0,0 +1,58 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package benchmark;
+
+import synth.Library;
+import synth.Specification;
+
+
+
+public class Benchmark {
+
+	private final String name;
+	private final Specification specification;
+	private final Library library;
+
+
+
+	public Benchmark(final String name, final Specification specification, final Library library) {
+		this.name = name;
+		this.specification = specification;
+		this.library = library;
+	}
+
+
+
+	public String getName() {
+		return this.name;
+	}
+
+
+
+	public Specification getSpecification() {
+		return this.specification;
+	}
+
+
+
+	public Library getLibrary() {
+		return this.library;
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import smt.BitVector;
+import smt.Builder;
+import smt.BVAst;
+import synth.FunctionParser;
+import synth.Library;
+import synth.LibraryFunction;
+import synth.Specification;
+
+
+
+// Reads benchmarks of the form
+//
+//   (define name (x1 ... xk) expr)
+//   ...
+//   (spec n w x1 ... xn expr)
+//   (lib f1 f2 ...)
+//
+// where expr uses the syntax of FunctionParser and each fi is the name of a
+// predefined library function, (const w), (const w value) or
+// (fun name x1 ... xk expr). Expressions may apply the functions that are
+// defined before them. The forms are read one at a time from the underlying
+// reader.
+public class BenchmarkReader implements Closeable {
+
+	private final SExpressionReader reader;
+
+
+
+	public BenchmarkReader(final Reader reader) {
+		this.reader = new SExpressionReader(reader);
+	}
+
+
+
+	public static Benchmark read(final Path path) throws IOException {
+		try (final BenchmarkReader reader
+				= new BenchmarkReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+			return reader.read(path.getFileName().toString());
+		}
+	}
+
+
+
+	public Benchmark read(final String name) throws IOException {
+		Specification specification = null;
+		int bitWidth = -1;
+		Library library = null;
+		final Map<String, Function<List<BVAst>, BVAst>> definitions = new HashMap<>();
+
+		SExpression form;
+		while ((form = this.reader.readForm()) != null) {
+			if (form.isAtom() || form.children.isEmpty() || !form.children.get(0).isAtom()) {
+				throw new IllegalArgumentException("parse error: unexpected " + form);
+			}
+
+			switch (form.children.get(0).atom) {
+				case "spec":
+					if (specification != null) {
+						throw new IllegalArgumentException("parse error: duplicate spec");
+					}
+					bitWidth = parseInt(form, 2);
+					specification = parseSpecification(form, bitWidth, definitions);
+					break;
+
+				case "lib":
+					if (specification == null) {
+						throw new IllegalArgumentException("parse error: lib before spec");
+					}
+					if (library != null) {
+						throw new IllegalArgumentException("parse error: duplicate lib");
+					}
+					library = parseLibrary(form, bitWidth, definitions);
+					break;
+
+				case "define":
+					parseDefinition(form, definitions);
+					break;
+
+				default:
+					throw new IllegalArgumentException("parse error: unexpected " + form.children.get(0));
+			}
+		}
+
+		if (specification == null || library == null) {
+			throw new IllegalArgumentException("parse error: expected spec and lib");
+		}
+		return new Benchmark(name, specification, library);
+	}
+
+
+
+	@Override
+	public void close() throws IOException {
+		this.reader.close();
+	}
+
+
+
+	private static void parseDefinition(final SExpression form,
+			final Map<String, Function<List<BVAst>, BVAst>> definitions) {
+
+		if (form.children.size() != 4 || !form.children.get(1).isAtom()
+				|| form.children.get(2).isAtom()) {
+			throw new IllegalArgumentException("parse error: malformed " + form);
+		}
+
+		final String name = form.children.get(1).atom;
+		if (definitions.containsKey(name)) {
+			throw new IllegalArgumentException("parse error: duplicate definition of " + name);
+		}
+
+		final int numParameters = form.children.get(2).children.size();
+		final Function<List<BVAst>, BVAst> function = parseFunction(form.children.get(2).children,
+				form.children.get(3), definitions);
+
+		definitions.put(name, arguments -> {
+			if (arguments.size() != numParameters) {
+				throw new IllegalArgumentException("parse error: " + name + " expects "
+						+ numParameters + " arguments");
+			}
+			return function.apply(arguments);
+		});
+	}
+
+
+
+	private static Specification parseSpecification(final SExpression form, final int bitWidth,
+			final Map<String, Function<List<BVAst>, BVAst>> definitions) {
+
+		final int numInputs = parseInt(form, 1);
+		if (numInputs < 0 || form.children.size() != numInputs + 4) {
+			throw new IllegalArgumentException("parse error: malformed " + form);
+		}
+
+		final List<Integer> inputBitWidths = Collections.nCopies(numInputs, bitWidth);
+		final Function<List<BVAst>, BVAst> function = parseFunction(
+				form.children.subList(3, 3 + numInputs), form.children.get(3 + numInputs), definitions);
+
+		return new Specification(inputBitWidths, getOutputBitWidth(function, inputBitWidths),
+				function);
+	}
+
+
+
+	private static Library parseLibrary(final SExpression form, final int bitWidth,
+			final Map<String, Function<List<BVAst>, BVAst>> definitions) {
+
+		final List<LibraryFunction> result = new ArrayList<>();
+
+		for (final SExpression component : form.children.subList(1, form.children.size())) {
+			if (component.isAtom()) {
+				result.add(LibraryFunction.forName(component.atom, bitWidth).orElseThrow(
+						() -> new IllegalArgumentException("unknown library function " + component)));
+			} else if (component.children.isEmpty() || !component.children.get(0).isAtom()) {
+				throw new IllegalArgumentException("parse error: unexpected " + component);
+			} else if ("const".equals(component.children.get(0).atom)) {
+				final int constWidth = parseInt(component, 1);
+				if (constWidth <= 0) {
+					throw new IllegalArgumentException("bit width must be positive");
+				}
+
+				if (component.children.size() == 2) {
+					result.add(LibraryFunction.getArbitraryConst(constWidth));
+				} else if (component.children.size() == 3 && component.children.get(2).isAtom()) {
+					result.add(LibraryFunction.getConst(
+							new BitVector(constWidth, parseNumber(component.children.get(2).atom))));
+				} else {
+					throw new IllegalArgumentException("parse error: malformed " + component);
+				}
+			} else if ("fun".equals(component.children.get(0).atom)) {
+				final int size = component.children.size();
+				if (size < 3 || !component.children.get(1).isAtom()) {
+					throw new IllegalArgumentException("parse error: malformed " + component);
+				}
+
+				final List<Integer> inputBitWidths = Collections.nCopies(size - 3, bitWidth);
+				final Function<List<BVAst>, BVAst> function = parseFunction(
+						component.children.subList(2, size - 1), component.children.get(size - 1),
+						definitions);
+
+				result.add(new LibraryFunction(component.children.get(1).atom, inputBitWidths,
+						getOutputBitWidth(function, inputBitWidths), function));
+			} else {
+				throw new IllegalArgumentException("parse error: unexpected " + component.children.get(0));
+			}
+		}
+
+		return Library.of(result);
+	}
+
+
+
+	private static Function<List<BVAst>, BVAst> parseFunction(final List<SExpression> parameters,
+			final SExpression body, final Map<String, Function<List<BVAst>, BVAst>> definitions) {
+
+		final StringBuilder functionBuilder = new StringBuilder();
+		for (final SExpression parameter : parameters) {
+			if (!parameter.isAtom()) {
+				throw new IllegalArgumentException("parse error: unexpected " + parameter);
+			}
+			functionBuilder.append(parameter.atom).append(' ');
+		}
+		functionBuilder.append("-> ").append(body);
+
+		// Later definitions are not visible, which also rules out recursion
+		return FunctionParser.parse(functionBuilder.toString(), new HashMap<>(definitions));
+	}
+
+
+
+	// Also reports errors in the function body, which FunctionParser only
+	// detects when the function is applied
+	private static int getOutputBitWidth(final Function<List<BVAst>, BVAst> function,
+			final List<Integer> inputBitWidths) {
+
+		final List<BVAst> inputs = new ArrayList<>(inputBitWidths.size());
+		for (int i = 0; i < inputBitWidths.size(); ++i) {
+			inputs.add(Builder.mkBVVar(inputBitWidths.get(i), "x_" + i));
+		}
+		return function.apply(inputs).getWidth();
+	}
+
+
+
+	private static int parseInt(final SExpression form, final int index) {
+		if (form.children.size() <= index || !form.children.get(index).isAtom()) {
+			throw new IllegalArgumentException("parse error: malformed " + form);
+		}
+		try {
+			return Integer.parseInt(form.children.get(index).atom);
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("parse error: expected number in " + form, e);
+		}
+	}
+
+
+
+	private static BigInteger parseNumber(final String number) {
+		try {
+			if (number.startsWith("0x")) {
+				return new BigInteger(number.substring(2), 16);
+			} else if (number.startsWith("0b")) {
+				return new BigInteger(number.substring(2), 2);
+			} else {
+				return new BigInteger(number);
+			}
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("parse error: expected number " + number, e);
+		}
+	}
+}
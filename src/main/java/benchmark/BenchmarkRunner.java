@@ -0,0 +1,459 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import analysis.essential.ShapeFeasibilityChecker;
+import synth.ListBasedSynthesizer;
+import synth.Program;
+import synth.SolverType;
+import synth.SynthesizerSettings;
+import util.Json;
+
+
+
+// Screens and/or synthesizes a set of benchmark files on a pool of worker
+// threads and reports a verdict and the running time of each phase. Files
+// with the extension .sl are read as SyGuS problems.
+public class BenchmarkRunner {
+
+	public static enum Mode {
+		SCREEN,
+		SYNTHESIZE,
+		BOTH
+	}
+
+
+
+	public static enum Format {
+		CSV,
+		JSON
+	}
+
+
+
+	public static enum Verdict {
+		INFEASIBLE,
+		UNKNOWN,
+		SAT,
+		UNSAT,
+		TIMEOUT,
+		ERROR;
+
+		@Override
+		public String toString() {
+			return this.name().toLowerCase(Locale.ENGLISH);
+		}
+	}
+
+
+
+	public static class Result {
+		private final String name;
+		private Verdict screeningVerdict;
+		private long screeningTime;
+		private Verdict synthesisVerdict;
+		private long synthesisTime;
+		private String program;
+		private String error;
+
+
+		Result(final String name) {
+			this.name = name;
+		}
+
+
+		public String getName() {
+			return this.name;
+		}
+
+
+		// Empty if the benchmark has not been screened
+		public Optional<Verdict> getScreeningVerdict() {
+			return Optional.ofNullable(this.screeningVerdict);
+		}
+
+
+		// In nanoseconds
+		public long getScreeningTime() {
+			return this.screeningTime;
+		}
+
+
+		// Empty if no synthesis has been attempted
+		public Optional<Verdict> getSynthesisVerdict() {
+			return Optional.ofNullable(this.synthesisVerdict);
+		}
+
+
+		// In nanoseconds
+		public long getSynthesisTime() {
+			return this.synthesisTime;
+		}
+
+
+		public Optional<String> getProgram() {
+			return Optional.ofNullable(this.program);
+		}
+
+
+		public Optional<String> getError() {
+			return Optional.ofNullable(this.error);
+		}
+	}
+
+
+
+	private final Mode mode;
+	private final int timeout;
+	private final int numberOfThreads;
+	private final SynthesizerSettings settings;
+
+
+
+	// The timeout (in milliseconds) applies to the screening and to the
+	// synthesis of each benchmark separately
+	public BenchmarkRunner(final Mode mode, final int timeout, final int numberOfThreads,
+			final SynthesizerSettings settings) {
+
+		if (timeout <= 0 || numberOfThreads <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.mode = mode;
+		this.timeout = timeout;
+		this.numberOfThreads = numberOfThreads;
+		this.settings = settings;
+	}
+
+
+
+	// Passes the results to the consumer in the order of the files as soon as
+	// they are available
+	public List<Result> run(final List<Path> files, final Consumer<Result> consumer)
+			throws InterruptedException {
+
+		final ExecutorService workers = Executors.newFixedThreadPool(this.numberOfThreads);
+		// Screenings that time out stop soon after being interrupted, but their
+		// threads must not keep the JVM alive in the meantime
+		final ExecutorService screeners = Executors.newCachedThreadPool(runnable -> {
+			final Thread thread = new Thread(runnable, "benchmark-screening");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			final List<Future<Result>> futures = new ArrayList<>(files.size());
+			for (final Path file : files) {
+				futures.add(workers.submit(() -> this.run(file, screeners)));
+			}
+
+			final List<Result> results = new ArrayList<>(files.size());
+			for (int i = 0; i < futures.size(); ++i) {
+				Result result;
+				try {
+					result = futures.get(i).get();
+				} catch (final ExecutionException e) {
+					result = new Result(files.get(i).getFileName().toString());
+					result.error = String.valueOf(e.getCause());
+				}
+				results.add(result);
+				consumer.accept(result);
+			}
+			return results;
+		} finally {
+			workers.shutdownNow();
+			screeners.shutdownNow();
+		}
+	}
+
+
+
+	private Result run(final Path file, final ExecutorService screeners) throws InterruptedException {
+		final Result result = new Result(file.getFileName().toString());
+
+		final Benchmark benchmark;
+		try {
+			benchmark = file.getFileName().toString().endsWith(".sl")
+					? SyGuSReader.read(file)
+					: BenchmarkReader.read(file);
+		} catch (final IOException | IllegalArgumentException e) {
+			result.error = String.valueOf(e.getMessage());
+			return result;
+		}
+
+		if (this.mode != Mode.SYNTHESIZE) {
+			final long start = System.nanoTime();
+			final Future<Boolean> screening = screeners.submit(() -> ShapeFeasibilityChecker.isUnsat(
+					benchmark.getSpecification(), benchmark.getLibrary()));
+			try {
+				result.screeningVerdict = screening.get(this.timeout, TimeUnit.MILLISECONDS)
+						? Verdict.INFEASIBLE
+						: Verdict.UNKNOWN;
+			} catch (final TimeoutException e) {
+				screening.cancel(true);
+				result.screeningVerdict = Verdict.TIMEOUT;
+			} catch (final ExecutionException e) {
+				result.screeningVerdict = Verdict.ERROR;
+				result.error = String.valueOf(e.getCause());
+			}
+			result.screeningTime = System.nanoTime() - start;
+
+			if (result.screeningVerdict == Verdict.INFEASIBLE) {
+				return result;
+			}
+		}
+
+		if (this.mode != Mode.SCREEN) {
+			final SynthesizerSettings jobSettings = this.settings.copy();
+			jobSettings.setJobTimeout(this.timeout);
+
+			final long start = System.nanoTime();
+			try {
+				final Optional<Program> program = new ListBasedSynthesizer().synthesizeProgram(
+						benchmark.getSpecification(), benchmark.getLibrary(), jobSettings);
+				if (program.isPresent()) {
+					result.synthesisVerdict = Verdict.SAT;
+					result.program = program.get().toString();
+				} else {
+					result.synthesisVerdict = Verdict.UNSAT;
+				}
+			} catch (final TimeoutException e) {
+				result.synthesisVerdict = Verdict.TIMEOUT;
+			} catch (final RuntimeException e) {
+				result.synthesisVerdict = Verdict.ERROR;
+				result.error = String.valueOf(e);
+			}
+			result.synthesisTime = System.nanoTime() - start;
+		}
+
+		return result;
+	}
+
+
+
+	public static String getCsvHeader() {
+		return "name,screening,screening_ms,synthesis,synthesis_ms,program,error";
+	}
+
+
+
+	public static String toCsv(final Result result) {
+		return new StringBuilder()
+				.append(escapeCsv(result.name)).append(',')
+				.append(result.getScreeningVerdict().map(Verdict::toString).orElse("")).append(',')
+				.append(result.screeningVerdict == null ? "" : formatTime(result.screeningTime)).append(',')
+				.append(result.getSynthesisVerdict().map(Verdict::toString).orElse("")).append(',')
+				.append(result.synthesisVerdict == null ? "" : formatTime(result.synthesisTime)).append(',')
+				.append(escapeCsv(result.getProgram().orElse(""))).append(',')
+				.append(escapeCsv(result.getError().orElse("")))
+				.toString();
+	}
+
+
+
+	public static String toJson(final Result result) {
+		final Map<String, Object> json = new LinkedHashMap<>();
+		json.put("name", result.name);
+		json.put("screening", result.getScreeningVerdict().map(Verdict::toString).orElse(null));
+		json.put("screening_ms", result.screeningVerdict == null ? null : toMillis(result.screeningTime));
+		json.put("synthesis", result.getSynthesisVerdict().map(Verdict::toString).orElse(null));
+		json.put("synthesis_ms", result.synthesisVerdict == null ? null : toMillis(result.synthesisTime));
+		json.put("program", result.getProgram().orElse(null));
+		json.put("error", result.getError().orElse(null));
+		return Json.write(json);
+	}
+
+
+
+	private static String formatTime(final long nanos) {
+		return String.format(Locale.ENGLISH, "%.2f", nanos / 1000000.0);
+	}
+
+
+
+	// Rounded like formatTime
+	private static double toMillis(final long nanos) {
+		return Math.round(nanos / 10000.0) / 100.0;
+	}
+
+
+
+	private static String escapeCsv(final String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+
+
+	private static List<Path> listBenchmarks(final Path path) throws IOException {
+		if (!Files.isDirectory(path)) {
+			return Collections.singletonList(path);
+		}
+		try (final Stream<Path> files = Files.list(path)) {
+			return files
+					.filter(Files::isRegularFile)
+					.filter(p -> !p.getFileName().toString().startsWith("."))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+
+
+	private static void printUsage() {
+		System.err.println("Usage: BenchmarkRunner [options] file|directory ...");
+		System.err.println("  -mode screen|synth|both   Phases to run (default: both)");
+		System.err.println("  -timeout num              Timeout per phase (in milliseconds, default: 10000)");
+		System.err.println("  -threads num              Number of worker threads (default: number of cores)");
+		System.err.println("  -solver yices|java        Solver used for the synthesis (default: yices)");
+		System.err.println("  -format csv|json          Output format (default: csv)");
+	}
+
+
+
+	public static void main(final String[] args) throws IOException, InterruptedException {
+		Mode mode = Mode.BOTH;
+		Format format = Format.CSV;
+		int timeout = 10000;
+		int numberOfThreads = Runtime.getRuntime().availableProcessors();
+		final SynthesizerSettings settings = SynthesizerSettings.getDefault();
+		final List<Path> files = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < args.length; ++i) {
+				if (args[i].startsWith("-") && i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing argument for " + args[i]);
+				}
+
+				switch (args[i]) {
+					case "-mode":
+						switch (args[++i]) {
+							case "screen":
+								mode = Mode.SCREEN;
+								break;
+							case "synth":
+								mode = Mode.SYNTHESIZE;
+								break;
+							case "both":
+								mode = Mode.BOTH;
+								break;
+							default:
+								throw new IllegalArgumentException("Unexpected mode " + args[i]);
+						}
+						break;
+
+					case "-timeout":
+						timeout = Integer.parseInt(args[++i]);
+						break;
+
+					case "-threads":
+						numberOfThreads = Integer.parseInt(args[++i]);
+						break;
+
+					case "-solver":
+						switch (args[++i]) {
+							case "yices":
+								settings.setGenerateSolverType(SolverType.YICES);
+								settings.setVerifySolverType(SolverType.YICES);
+								break;
+							case "java":
+								settings.setGenerateSolverType(SolverType.JAVA);
+								settings.setVerifySolverType(SolverType.JAVA);
+								break;
+							default:
+								throw new IllegalArgumentException("Unexpected solver " + args[i]);
+						}
+						break;
+
+					case "-format":
+						switch (args[++i]) {
+							case "csv":
+								format = Format.CSV;
+								break;
+							case "json":
+								format = Format.JSON;
+								break;
+							default:
+								throw new IllegalArgumentException("Unexpected format " + args[i]);
+						}
+						break;
+
+					default:
+						files.addAll(listBenchmarks(Paths.get(args[i])));
+				}
+			}
+
+			if (files.isEmpty()) {
+				throw new IllegalArgumentException("No benchmarks given");
+			}
+			if (timeout <= 0 || numberOfThreads <= 0) {
+				throw new IllegalArgumentException("Timeout and number of threads must be positive");
+			}
+		} catch (final IllegalArgumentException e) {
+			// Also covers NumberFormatException
+			System.err.println(e.getMessage());
+			printUsage();
+			System.exit(1);
+			return;
+		}
+
+		final PrintStream out = System.out;
+		final BenchmarkRunner runner = new BenchmarkRunner(mode, timeout, numberOfThreads, settings);
+
+		if (format == Format.CSV) {
+			out.println(getCsvHeader());
+			runner.run(files, result -> out.println(toCsv(result)));
+		} else {
+			out.println("[");
+			final boolean[] first = { true };
+			runner.run(files, result -> {
+				out.print(first[0] ? "  " : ",\n  ");
+				out.print(toJson(result));
+				out.flush();
+				first[0] = false;
+			});
+			out.println();
+			out.println("]");
+		}
+	}
+}
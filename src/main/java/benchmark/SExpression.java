@@ -0,0 +1,76 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package benchmark;
+
+import java.util.List;
+
+
+
+// A node of an S-expression, either an atom or a list of children
+final class SExpression {
+
+	final String atom;
+	final List<SExpression> children;
+
+
+
+	SExpression(final String atom) {
+		this.atom = atom;
+		this.children = null;
+	}
+
+
+
+	SExpression(final List<SExpression> children) {
+		this.atom = null;
+		this.children = children;
+	}
+
+
+
+	boolean isAtom() {
+		return this.atom != null;
+	}
+
+
+
+	// Whether this is a non-empty list starting with the given atom
+	boolean isApplicationOf(final String head) {
+		return !this.isAtom() && !this.children.isEmpty() && this.children.get(0).isAtom()
+				&& head.equals(this.children.get(0).atom);
+	}
+
+
+
+	@Override
+	public String toString() {
+		if (this.isAtom()) {
+			return this.atom;
+		}
+		final StringBuilder result = new StringBuilder("(");
+		for (int i = 0; i < this.children.size(); ++i) {
+			if (i != 0) {
+				result.append(' ');
+			}
+			result.append(this.children.get(i));
+		}
+		return result.append(')').toString();
+	}
+}
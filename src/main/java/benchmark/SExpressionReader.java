@@ -0,0 +1,132 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package benchmark;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+
+
+// Reads S-expressions one top-level form at a time. Comments start with ';'
+// and extend to the end of the line.
+final class SExpressionReader implements Closeable {
+
+	private final Reader reader;
+	private int lookahead = -2;
+
+
+
+	SExpressionReader(final Reader reader) {
+		this.reader = new BufferedReader(reader);
+	}
+
+
+
+	// Returns the next top-level form or null at the end of the input
+	SExpression readForm() throws IOException {
+		final String token = this.readToken();
+		if (token == null) {
+			return null;
+		}
+		return this.readForm(token);
+	}
+
+
+
+	@Override
+	public void close() throws IOException {
+		this.reader.close();
+	}
+
+
+
+	private SExpression readForm(final String first) throws IOException {
+		if (")".equals(first)) {
+			throw new IllegalArgumentException("parse error: unexpected )");
+		}
+		if (!"(".equals(first)) {
+			return new SExpression(first);
+		}
+
+		final List<SExpression> children = new ArrayList<>();
+		while (true) {
+			final String token = this.readToken();
+			if (token == null) {
+				throw new IllegalArgumentException("parse error: unexpected end of input");
+			} else if (")".equals(token)) {
+				return new SExpression(children);
+			}
+			children.add(this.readForm(token));
+		}
+	}
+
+
+
+	private int peek() throws IOException {
+		if (this.lookahead == -2) {
+			this.lookahead = this.reader.read();
+		}
+		return this.lookahead;
+	}
+
+
+
+	private int next() throws IOException {
+		final int result = this.peek();
+		this.lookahead = -2;
+		return result;
+	}
+
+
+
+	private String readToken() throws IOException {
+		// Skip whitespace and comments
+		while (true) {
+			final int next = this.peek();
+			if (next == ';') {
+				while (this.peek() >= 0 && this.peek() != '\n') {
+					this.next();
+				}
+			} else if (next >= 0 && Character.isWhitespace(next)) {
+				this.next();
+			} else {
+				break;
+			}
+		}
+
+		final int first = this.next();
+		if (first < 0) {
+			return null;
+		} else if (first == '(' || first == ')') {
+			return String.valueOf((char) first);
+		}
+
+		final StringBuilder result = new StringBuilder().append((char) first);
+		while (this.peek() >= 0 && this.peek() != '(' && this.peek() != ')' && this.peek() != ';'
+				&& !Character.isWhitespace(this.peek())) {
+			result.append((char) this.next());
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,948 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+import static smt.Builder.*;
+
+import smt.Ast;
+import smt.BitVector;
+import smt.BoolAst;
+import smt.Builder;
+import smt.BVAst;
+import smt.BVConst;
+import synth.Library;
+import synth.LibraryFunction;
+import synth.Specification;
+
+
+
+// Reads synthesis problems in the bit-vector fragment of the SyGuS input
+// format (in the syntax of version 1 or version 2). A problem consists of a
+// single synth-fun with bit-vector parameters and result, and constraints of
+// the form
+//
+//   (= (f x1 ... xn) expr)   or   (=> pre (= (f x1 ... xn) expr))
+//
+// where x1 ... xn are distinct declared variables and neither pre nor expr
+// refers to f. Several such constraints are combined into one specification
+// whose precondition is the disjunction of the guards.
+//
+// Every production of the grammar becomes a library function whose inputs are
+// the non-terminals in the production. Boolean non-terminals are passed as
+// bit-vectors of width 1, like the condition of LibraryFunction.getIte. Since
+// library functions cannot refer to the parameters of f, parameters inside a
+// production become inputs as well. The library thus over-approximates the
+// grammar, which keeps the infeasibility results of ShapeFeasibilityChecker
+// valid.
+public class SyGuSReader implements Closeable {
+
+	// The sort Bool, bit-vector sorts are represented by their width
+	private static final int BOOL = 0;
+
+	private static final class Definition {
+		final List<String> parameters;
+		final List<Integer> parameterSorts;
+		final int sort;
+		final SExpression body;
+		final Map<String, Definition> visibleDefinitions;
+
+		Definition(final List<String> parameters, final List<Integer> parameterSorts, final int sort,
+				final SExpression body, final Map<String, Definition> visibleDefinitions) {
+			this.parameters = parameters;
+			this.parameterSorts = parameterSorts;
+			this.sort = sort;
+			this.body = body;
+			this.visibleDefinitions = visibleDefinitions;
+		}
+	}
+
+	// A constraint (=> guard (= (f arguments) expression)), the guard is null
+	// for unguarded constraints
+	private static final class Case {
+		final List<String> arguments;
+		final SExpression guard;
+		final SExpression expression;
+
+		Case(final List<String> arguments, final SExpression guard, final SExpression expression) {
+			this.arguments = arguments;
+			this.guard = guard;
+			this.expression = expression;
+		}
+	}
+
+
+
+	private final SExpressionReader reader;
+
+
+
+	public SyGuSReader(final Reader reader) {
+		this.reader = new SExpressionReader(reader);
+	}
+
+
+
+	public static Benchmark read(final Path path) throws IOException {
+		try (final SyGuSReader reader
+				= new SyGuSReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+			return reader.read(path.getFileName().toString());
+		}
+	}
+
+
+
+	public Benchmark read(final String name) throws IOException {
+		final Map<String, Definition> definitions = new HashMap<>();
+		final Map<String, Integer> variables = new HashMap<>();
+		final List<SExpression> constraints = new ArrayList<>();
+		SExpression synthFun = null;
+
+		SExpression form;
+		while ((form = this.reader.readForm()) != null) {
+			if (form.isAtom() || form.children.isEmpty() || !form.children.get(0).isAtom()) {
+				throw new IllegalArgumentException("parse error: unexpected " + form);
+			}
+
+			switch (form.children.get(0).atom) {
+				case "set-logic":
+				case "set-option":
+				case "set-info":
+				case "check-synth":
+					break;
+
+				case "declare-var":
+					if (form.children.size() != 3 || !form.children.get(1).isAtom()) {
+						throw new IllegalArgumentException("parse error: malformed " + form);
+					}
+					final int sort = parseSort(form.children.get(2));
+					if (sort == BOOL) {
+						throw new IllegalArgumentException("unsupported variable sort in " + form);
+					}
+					if (variables.put(form.children.get(1).atom, sort) != null) {
+						throw new IllegalArgumentException("parse error: duplicate variable "
+								+ form.children.get(1));
+					}
+					break;
+
+				case "define-fun":
+					parseDefinition(form, definitions);
+					break;
+
+				case "synth-fun":
+					if (synthFun != null) {
+						throw new IllegalArgumentException("unsupported: more than one synth-fun");
+					}
+					synthFun = form;
+					break;
+
+				case "constraint":
+					if (form.children.size() != 2) {
+						throw new IllegalArgumentException("parse error: malformed " + form);
+					}
+					constraints.add(form.children.get(1));
+					break;
+
+				default:
+					throw new IllegalArgumentException("unsupported command " + form.children.get(0));
+			}
+		}
+
+		if (synthFun == null || constraints.isEmpty()) {
+			throw new IllegalArgumentException("parse error: expected synth-fun and constraint");
+		}
+		if (synthFun.children.size() < 4 || synthFun.children.size() > 6
+				|| !synthFun.children.get(1).isAtom() || synthFun.children.get(2).isAtom()) {
+			throw new IllegalArgumentException("parse error: malformed " + synthFun);
+		}
+
+		final List<String> parameters = new ArrayList<>();
+		final List<Integer> inputBitWidths = new ArrayList<>();
+		parseParameters(synthFun.children.get(2), parameters, inputBitWidths);
+		final int outputBitWidth = parseSort(synthFun.children.get(3));
+		if (outputBitWidth == BOOL || inputBitWidths.contains(BOOL)) {
+			throw new IllegalArgumentException("unsupported: synth-fun must be over bit-vectors");
+		}
+
+		final Specification specification = parseSpecification(synthFun.children.get(1).atom,
+				inputBitWidths, outputBitWidth, constraints, variables, definitions);
+		final Library library = synthFun.children.size() == 4
+				? getDefaultLibrary(outputBitWidth)
+				: parseGrammar(synthFun.children.get(synthFun.children.size() - 1), parameters,
+						inputBitWidths, definitions);
+
+		return new Benchmark(name, specification, library);
+	}
+
+
+
+	@Override
+	public void close() throws IOException {
+		this.reader.close();
+	}
+
+
+
+	private static void parseDefinition(final SExpression form,
+			final Map<String, Definition> definitions) {
+
+		if (form.children.size() != 5 || !form.children.get(1).isAtom()
+				|| form.children.get(2).isAtom()) {
+			throw new IllegalArgumentException("parse error: malformed " + form);
+		}
+
+		final String name = form.children.get(1).atom;
+		if (definitions.containsKey(name)) {
+			throw new IllegalArgumentException("parse error: duplicate definition of " + name);
+		}
+
+		final List<String> parameters = new ArrayList<>();
+		final List<Integer> parameterSorts = new ArrayList<>();
+		parseParameters(form.children.get(2), parameters, parameterSorts);
+
+		// Later definitions are not visible, which also rules out recursion
+		final Definition definition = new Definition(parameters, parameterSorts,
+				parseSort(form.children.get(3)), form.children.get(4), new HashMap<>(definitions));
+
+		// Report errors in the body right away
+		final List<Ast> arguments = new ArrayList<>();
+		for (int i = 0; i < parameters.size(); ++i) {
+			arguments.add(mkVar(parameterSorts.get(i), "x_" + i));
+		}
+		apply(name, definition, arguments, form);
+
+		definitions.put(name, definition);
+	}
+
+
+
+	private static Specification parseSpecification(final String function,
+			final List<Integer> inputBitWidths, final int outputBitWidth,
+			final List<SExpression> constraints, final Map<String, Integer> variables,
+			final Map<String, Definition> definitions) {
+
+		final List<Case> cases = new ArrayList<>();
+		for (final SExpression constraint : constraints) {
+			cases.add(parseCase(function, inputBitWidths, constraint, variables));
+		}
+
+		final Specification result = new Specification(inputBitWidths, outputBitWidth, inputs -> {
+			// Constraints after an unguarded one are irrelevant
+			BVAst expression = null;
+			for (int i = cases.size() - 1; i >= 0; --i) {
+				final Case current = cases.get(i);
+				final Map<String, Ast> environment = bind(current.arguments, inputs);
+				final BVAst value = toBV(translate(current.expression, environment, definitions),
+						current.expression);
+				expression = expression == null || current.guard == null
+						? value
+						: mkIte(toBool(translate(current.guard, environment, definitions), current.guard),
+								value, expression);
+			}
+			return expression;
+		});
+
+		if (cases.stream().allMatch(c -> c.guard != null)) {
+			result.addPrecondition(inputs -> {
+				final List<BoolAst> guards = new ArrayList<>();
+				for (final Case current : cases) {
+					guards.add(toBool(translate(current.guard, bind(current.arguments, inputs),
+							definitions), current.guard));
+				}
+				return guards.stream().reduce(Builder::mkOr).get();
+			});
+		}
+
+		// Report errors in the constraints right away
+		final List<BVAst> inputs = new ArrayList<>();
+		for (int i = 0; i < inputBitWidths.size(); ++i) {
+			inputs.add(mkBVVar(inputBitWidths.get(i), "x_" + i));
+		}
+		if (result.getFunction().apply(inputs).getWidth() != outputBitWidth) {
+			throw new IllegalArgumentException("bit width mismatch in constraints of " + function);
+		}
+		result.getPreconditions().forEach(p -> p.apply(inputs));
+
+		return result;
+	}
+
+
+
+	private static Case parseCase(final String function, final List<Integer> inputBitWidths,
+			final SExpression constraint, final Map<String, Integer> variables) {
+
+		SExpression guard = null;
+		SExpression equation = constraint;
+		if (constraint.isApplicationOf("=>") && constraint.children.size() == 3) {
+			guard = constraint.children.get(1);
+			equation = constraint.children.get(2);
+		}
+		if (!equation.isApplicationOf("=") || equation.children.size() != 3) {
+			throw new IllegalArgumentException("unsupported constraint " + constraint);
+		}
+
+		SExpression call = equation.children.get(1);
+		SExpression expression = equation.children.get(2);
+		if (!call.isApplicationOf(function)) {
+			call = equation.children.get(2);
+			expression = equation.children.get(1);
+		}
+		if (!call.isApplicationOf(function) || mentions(expression, function)
+				|| (guard != null && mentions(guard, function))
+				|| call.children.size() != inputBitWidths.size() + 1) {
+			throw new IllegalArgumentException("unsupported constraint " + constraint);
+		}
+
+		final List<String> arguments = new ArrayList<>();
+		for (int i = 0; i < inputBitWidths.size(); ++i) {
+			final SExpression argument = call.children.get(i + 1);
+			if (!argument.isAtom() || arguments.contains(argument.atom)
+					|| !inputBitWidths.get(i).equals(variables.get(argument.atom))) {
+				throw new IllegalArgumentException("unsupported constraint " + constraint);
+			}
+			arguments.add(argument.atom);
+		}
+
+		// All other variables would be universally quantified
+		for (final String variable : variables.keySet()) {
+			if (!arguments.contains(variable)
+					&& (mentions(expression, variable) || (guard != null && mentions(guard, variable)))) {
+				throw new IllegalArgumentException("unsupported constraint " + constraint);
+			}
+		}
+
+		return new Case(arguments, guard, expression);
+	}
+
+
+
+	private static Library parseGrammar(final SExpression grammar, final List<String> parameters,
+			final List<Integer> parameterSorts, final Map<String, Definition> definitions) {
+
+		if (grammar.isAtom()) {
+			throw new IllegalArgumentException("parse error: malformed grammar " + grammar);
+		}
+
+		final Map<String, Integer> symbols = new HashMap<>();
+		for (int i = 0; i < parameters.size(); ++i) {
+			symbols.put(parameters.get(i), parameterSorts.get(i));
+		}
+		for (final SExpression rule : grammar.children) {
+			if (rule.isAtom() || rule.children.size() != 3 || !rule.children.get(0).isAtom()
+					|| rule.children.get(2).isAtom()) {
+				throw new IllegalArgumentException("parse error: malformed grammar rule " + rule);
+			}
+			symbols.put(rule.children.get(0).atom, parseSort(rule.children.get(1)));
+		}
+
+		// Identical productions of different non-terminals are only added once
+		final Map<String, LibraryFunction> result = new LinkedHashMap<>();
+		for (final SExpression rule : grammar.children) {
+			final int sort = symbols.get(rule.children.get(0).atom);
+			for (final SExpression production : rule.children.get(2).children) {
+				if (production.isAtom() && symbols.containsKey(production.atom)) {
+					continue;
+				}
+
+				addLibraryFunction(production, sort, symbols, definitions, result);
+			}
+		}
+
+		return Library.of(new ArrayList<>(result.values()));
+	}
+
+
+
+	private static void addLibraryFunction(final SExpression production, final int sort,
+			final Map<String, Integer> symbols, final Map<String, Definition> definitions,
+			final Map<String, LibraryFunction> result) {
+
+		if (production.isApplicationOf("Constant") && production.children.size() == 2) {
+			final int width = toWidth(parseSort(production.children.get(1)));
+			result.putIfAbsent("(Constant " + width + ")", LibraryFunction.getArbitraryConst(width));
+			return;
+		} else if (production.isApplicationOf("Variable")
+				|| production.isApplicationOf("InputVariable")
+				|| production.isApplicationOf("LocalVariable")) {
+			return;
+		}
+
+		// Replace each occurrence of a symbol by its own input
+		final List<Integer> inputSorts = new ArrayList<>();
+		final SExpression body = replaceSymbols(production, symbols, inputSorts);
+		final List<Integer> inputBitWidths = new ArrayList<>();
+		for (final int inputSort : inputSorts) {
+			inputBitWidths.add(toWidth(inputSort));
+		}
+
+		final Function<List<BVAst>, BVAst> function = inputs -> {
+			final Map<String, Ast> environment = new HashMap<>();
+			for (int i = 0; i < inputs.size(); ++i) {
+				environment.put("_" + i, inputSorts.get(i) == BOOL
+						? mkEq(inputs.get(i), mkBVConst(1, 1))
+						: inputs.get(i));
+			}
+			final Ast value = translate(body, environment, definitions);
+			if (getSort(value) != sort) {
+				throw new IllegalArgumentException("sort mismatch in production " + production);
+			}
+			return value instanceof BoolAst
+					? mkIte((BoolAst) value, mkBVConst(1, 1), mkBVConst(1, 0))
+					: (BVAst) value;
+		};
+
+		final List<BVAst> inputs = new ArrayList<>();
+		for (int i = 0; i < inputBitWidths.size(); ++i) {
+			inputs.add(mkBVVar(inputBitWidths.get(i), "x_" + i));
+		}
+		final BVAst value = function.apply(inputs);
+
+		final String key = body.toString() + inputBitWidths;
+		if (inputs.isEmpty() && value instanceof BVConst) {
+			result.putIfAbsent(key, LibraryFunction.getConst(((BVConst) value).getValue()));
+		} else {
+			result.putIfAbsent(key, new LibraryFunction(production.toString(), inputBitWidths,
+					value.getWidth(), function));
+		}
+	}
+
+
+
+	private static SExpression replaceSymbols(final SExpression term, final Map<String, Integer> symbols,
+			final List<Integer> inputSorts) {
+
+		if (term.isAtom()) {
+			final Integer sort = symbols.get(term.atom);
+			if (sort == null) {
+				return term;
+			}
+			inputSorts.add(sort);
+			return new SExpression("_" + (inputSorts.size() - 1));
+		}
+
+		final List<SExpression> children = new ArrayList<>();
+		for (int i = 0; i < term.children.size(); ++i) {
+			// Keep the operators
+			children.add(i == 0
+					? term.children.get(0)
+					: replaceSymbols(term.children.get(i), symbols, inputSorts));
+		}
+		return new SExpression(children);
+	}
+
+
+
+	// The operators of the SyGuS bit-vector track for grammars that are omitted
+	private static Library getDefaultLibrary(final int width) {
+		final List<LibraryFunction> result = new ArrayList<>();
+		for (final String name : Arrays.asList("add", "sub", "mul", "udiv", "urem", "sdiv", "srem",
+				"and", "or", "xor", "not", "neg", "shl", "lshr", "ashr")) {
+			result.add(LibraryFunction.forName(name, width).get());
+		}
+		result.add(LibraryFunction.getArbitraryConst(width));
+		return Library.of(result);
+	}
+
+
+
+	private static Ast translate(final SExpression term, final Map<String, Ast> environment,
+			final Map<String, Definition> definitions) {
+
+		if (term.isAtom()) {
+			final Ast bound = environment.get(term.atom);
+			if (bound != null) {
+				return bound;
+			} else if ("true".equals(term.atom) || "false".equals(term.atom)) {
+				return mkBoolConst("true".equals(term.atom));
+			} else if (term.atom.startsWith("#")) {
+				return mkBVConst(parseLiteral(term.atom));
+			} else if (definitions.containsKey(term.atom)) {
+				return apply(term.atom, definitions.get(term.atom), Collections.emptyList(), term);
+			}
+			throw new IllegalArgumentException("parse error: unknown symbol " + term);
+		}
+
+		if (term.children.isEmpty()) {
+			throw new IllegalArgumentException("parse error: unexpected " + term);
+		}
+
+		final SExpression head = term.children.get(0);
+		if (head.isAtom() && "_".equals(head.atom)) {
+			// (_ bvN w)
+			if (term.children.size() != 3 || !term.children.get(1).isAtom()
+					|| !term.children.get(1).atom.startsWith("bv")) {
+				throw new IllegalArgumentException("parse error: malformed " + term);
+			}
+			final int width = parseIndex(term.children.get(2), term);
+			try {
+				return mkBVConst(new BitVector(width, new BigInteger(term.children.get(1).atom.substring(2))));
+			} catch (final NumberFormatException e) {
+				throw new IllegalArgumentException("parse error: malformed " + term, e);
+			}
+		} else if (head.isAtom() && "let".equals(head.atom)) {
+			return translateLet(term, environment, definitions);
+		}
+
+		final List<Ast> arguments = new ArrayList<>();
+		for (final SExpression argument : term.children.subList(1, term.children.size())) {
+			arguments.add(translate(argument, environment, definitions));
+		}
+
+		if (!head.isAtom()) {
+			return translateIndexed(term, toBV(single(arguments, term), term));
+		}
+
+		switch (head.atom) {
+			case "bvnot":
+				return mkNot(toBV(single(arguments, term), term));
+			case "bvneg":
+				return mkNeg(toBV(single(arguments, term), term));
+			case "bvadd":
+				return reduceBV(arguments, term, Builder::mkAdd);
+			case "bvsub":
+				return reduceBV(arguments, term, Builder::mkSub);
+			case "bvmul":
+				return reduceBV(arguments, term, Builder::mkMul);
+			case "bvudiv":
+				return reduceBV(arguments, term, Builder::mkUDiv);
+			case "bvurem":
+				return reduceBV(arguments, term, Builder::mkURem);
+			case "bvsdiv":
+				return reduceBV(arguments, term, Builder::mkSDiv);
+			case "bvsrem":
+				return reduceBV(arguments, term, Builder::mkSRem);
+			case "bvsmod":
+				return reduceBV(arguments, term, Builder::mkSMod);
+			case "bvand":
+				return reduceBV(arguments, term, Builder::mkAnd);
+			case "bvor":
+				return reduceBV(arguments, term, Builder::mkOr);
+			case "bvxor":
+				return reduceBV(arguments, term, Builder::mkXor);
+			case "bvnand":
+				return mkNot(reduceBV(arguments, term, Builder::mkAnd));
+			case "bvnor":
+				return mkNot(reduceBV(arguments, term, Builder::mkOr));
+			case "bvxnor":
+				return mkNot(reduceBV(arguments, term, Builder::mkXor));
+			case "bvshl":
+				return reduceBV(arguments, term, Builder::mkShl);
+			case "bvlshr":
+				return reduceBV(arguments, term, Builder::mkLshr);
+			case "bvashr":
+				return reduceBV(arguments, term, Builder::mkAshr);
+			case "concat":
+				return reduceBV(arguments, term, Builder::mkConcat);
+			case "bvcomp":
+				return mkIte(compare(arguments, term, Builder::mkEq), mkBVConst(1, 1), mkBVConst(1, 0));
+
+			case "bvult":
+				return compare(arguments, term, Builder::mkULt);
+			case "bvule":
+				return compare(arguments, term, Builder::mkULe);
+			case "bvugt":
+				return compare(arguments, term, Builder::mkUGt);
+			case "bvuge":
+				return compare(arguments, term, Builder::mkUGe);
+			case "bvslt":
+				return compare(arguments, term, Builder::mkSLt);
+			case "bvsle":
+				return compare(arguments, term, Builder::mkSLe);
+			case "bvsgt":
+				return compare(arguments, term, Builder::mkSGt);
+			case "bvsge":
+				return compare(arguments, term, Builder::mkSGe);
+
+			case "not":
+				return mkNot(toBool(single(arguments, term), term));
+			case "and":
+				return reduceBool(arguments, term, Builder::mkAnd);
+			case "or":
+				return reduceBool(arguments, term, Builder::mkOr);
+			case "xor":
+				return reduceBool(arguments, term, Builder::mkNe);
+			case "=>":
+				return translateImplication(arguments, term);
+			case "=":
+				return translateEquality(arguments, term);
+			case "distinct":
+				return translateDistinct(arguments, term);
+			case "ite":
+				return translateIte(arguments, term);
+
+			default:
+				final Definition definition = definitions.get(head.atom);
+				if (definition == null) {
+					throw new IllegalArgumentException("parse error: unknown function " + head);
+				}
+				return apply(head.atom, definition, arguments, term);
+		}
+	}
+
+
+
+	private static Ast translateLet(final SExpression term, final Map<String, Ast> environment,
+			final Map<String, Definition> definitions) {
+
+		if (term.children.size() != 3 || term.children.get(1).isAtom()) {
+			throw new IllegalArgumentException("parse error: malformed " + term);
+		}
+
+		// The bindings are parallel, so they are translated in the outer environment
+		final Map<String, Ast> innerEnvironment = new HashMap<>(environment);
+		for (final SExpression binding : term.children.get(1).children) {
+			if (binding.isAtom() || binding.children.size() != 2 || !binding.children.get(0).isAtom()) {
+				throw new IllegalArgumentException("parse error: malformed binding " + binding);
+			}
+			innerEnvironment.put(binding.children.get(0).atom,
+					translate(binding.children.get(1), environment, definitions));
+		}
+		return translate(term.children.get(2), innerEnvironment, definitions);
+	}
+
+
+
+	private static BVAst translateIndexed(final SExpression term, final BVAst operand) {
+		final SExpression head = term.children.get(0);
+		if (head.children.size() < 3 || !head.children.get(0).isAtom()
+				|| !"_".equals(head.children.get(0).atom) || !head.children.get(1).isAtom()) {
+			throw new IllegalArgumentException("parse error: malformed " + term);
+		}
+
+		final int index = parseIndex(head.children.get(2), term);
+		final int width = operand.getWidth();
+		switch (head.children.get(1).atom) {
+			case "extract":
+				if (head.children.size() != 4) {
+					throw new IllegalArgumentException("parse error: malformed " + term);
+				}
+				return mkExtract(parseIndex(head.children.get(3), term), index, operand);
+			case "zero_extend":
+				return index == 0 ? operand : mkConcat(mkBVConst(index, 0), operand);
+			case "sign_extend":
+				return index == 0
+						? operand
+						: mkConcat(mkIte(mkSLt(operand, mkBVConst(width, 0)),
+								mkBVConst(index, -1), mkBVConst(index, 0)), operand);
+			case "repeat":
+				if (index == 0) {
+					throw new IllegalArgumentException("parse error: malformed " + term);
+				}
+				BVAst result = operand;
+				for (int i = 1; i < index; ++i) {
+					result = mkConcat(result, operand);
+				}
+				return result;
+			case "rotate_left":
+				return mkRol(operand, mkBVConst(width, index % width));
+			case "rotate_right":
+				return mkRor(operand, mkBVConst(width, index % width));
+			default:
+				throw new IllegalArgumentException("parse error: unknown function " + head);
+		}
+	}
+
+
+
+	private static BoolAst translateImplication(final List<Ast> arguments, final SExpression term) {
+		if (arguments.size() < 2) {
+			throw new IllegalArgumentException("parse error: malformed " + term);
+		}
+
+		// Right associative
+		BoolAst result = toBool(arguments.get(arguments.size() - 1), term);
+		for (int i = arguments.size() - 2; i >= 0; --i) {
+			result = mkImplies(toBool(arguments.get(i), term), result);
+		}
+		return result;
+	}
+
+
+
+	private static BoolAst translateEquality(final List<Ast> arguments, final SExpression term) {
+		if (arguments.size() < 2) {
+			throw new IllegalArgumentException("parse error: malformed " + term);
+		}
+
+		// Chainable
+		final List<BoolAst> result = new ArrayList<>();
+		for (int i = 0; i + 1 < arguments.size(); ++i) {
+			final Ast left = arguments.get(i);
+			final Ast right = arguments.get(i + 1);
+			result.add(left instanceof BoolAst
+					? mkEq((BoolAst) left, toBool(right, term))
+					: mkEq((BVAst) left, toBV(right, term)));
+		}
+		return result.stream().reduce(Builder::mkAnd).get();
+	}
+
+
+
+	private static BoolAst translateDistinct(final List<Ast> arguments, final SExpression term) {
+		if (arguments.size() < 2) {
+			throw new IllegalArgumentException("parse error: malformed " + term);
+		}
+
+		if (arguments.get(0) instanceof BoolAst) {
+			// More than two distinct Booleans do not exist
+			if (arguments.size() > 2) {
+				return mkBoolConst(false);
+			}
+			return mkNe((BoolAst) arguments.get(0), toBool(arguments.get(1), term));
+		}
+
+		final List<BVAst> operands = new ArrayList<>();
+		for (final Ast argument : arguments) {
+			operands.add(toBV(argument, term));
+		}
+		return mkAllDifferent(operands);
+	}
+
+
+
+	private static Ast translateIte(final List<Ast> arguments, final SExpression term) {
+		if (arguments.size() != 3) {
+			throw new IllegalArgumentException("parse error: malformed " + term);
+		}
+
+		final BoolAst condition = toBool(arguments.get(0), term);
+		if (arguments.get(1) instanceof BoolAst) {
+			final BoolAst thenExpr = (BoolAst) arguments.get(1);
+			final BoolAst elseExpr = toBool(arguments.get(2), term);
+			return mkOr(mkAnd(condition, thenExpr), mkAnd(mkNot(condition), elseExpr));
+		}
+		return mkIte(condition, (BVAst) arguments.get(1), toBV(arguments.get(2), term));
+	}
+
+
+
+	private static Ast apply(final String name, final Definition definition,
+			final List<Ast> arguments, final SExpression term) {
+
+		if (arguments.size() != definition.parameters.size()) {
+			throw new IllegalArgumentException("parse error: " + name + " expects "
+					+ definition.parameters.size() + " arguments");
+		}
+
+		// The body only sees the parameters
+		final Map<String, Ast> environment = new HashMap<>();
+		for (int i = 0; i < arguments.size(); ++i) {
+			if (getSort(arguments.get(i)) != definition.parameterSorts.get(i)) {
+				throw new IllegalArgumentException("sort mismatch in " + term);
+			}
+			environment.put(definition.parameters.get(i), arguments.get(i));
+		}
+
+		final Ast result = translate(definition.body, environment, definition.visibleDefinitions);
+		if (getSort(result) != definition.sort) {
+			throw new IllegalArgumentException("sort mismatch in definition of " + name);
+		}
+		return result;
+	}
+
+
+
+	private static BVAst reduceBV(final List<Ast> arguments, final SExpression term,
+			final BinaryOperator<BVAst> operator) {
+
+		if (arguments.size() < 2) {
+			throw new IllegalArgumentException("parse error: malformed " + term);
+		}
+
+		BVAst result = toBV(arguments.get(0), term);
+		for (int i = 1; i < arguments.size(); ++i) {
+			result = operator.apply(result, toBV(arguments.get(i), term));
+		}
+		return result;
+	}
+
+
+
+	private static BoolAst reduceBool(final List<Ast> arguments, final SExpression term,
+			final BinaryOperator<BoolAst> operator) {
+
+		if (arguments.size() < 2) {
+			throw new IllegalArgumentException("parse error: malformed " + term);
+		}
+
+		BoolAst result = toBool(arguments.get(0), term);
+		for (int i = 1; i < arguments.size(); ++i) {
+			result = operator.apply(result, toBool(arguments.get(i), term));
+		}
+		return result;
+	}
+
+
+
+	private static BoolAst compare(final List<Ast> arguments, final SExpression term,
+			final BiFunction<BVAst, BVAst, BoolAst> comparison) {
+
+		if (arguments.size() != 2) {
+			throw new IllegalArgumentException("parse error: malformed " + term);
+		}
+		return comparison.apply(toBV(arguments.get(0), term), toBV(arguments.get(1), term));
+	}
+
+
+
+	private static Ast single(final List<Ast> arguments, final SExpression term) {
+		if (arguments.size() != 1) {
+			throw new IllegalArgumentException("parse error: malformed " + term);
+		}
+		return arguments.get(0);
+	}
+
+
+
+	private static BVAst toBV(final Ast ast, final SExpression term) {
+		if (!(ast instanceof BVAst)) {
+			throw new IllegalArgumentException("sort mismatch in " + term);
+		}
+		return (BVAst) ast;
+	}
+
+
+
+	private static BoolAst toBool(final Ast ast, final SExpression term) {
+		if (!(ast instanceof BoolAst)) {
+			throw new IllegalArgumentException("sort mismatch in " + term);
+		}
+		return (BoolAst) ast;
+	}
+
+
+
+	private static Map<String, Ast> bind(final List<String> names, final List<BVAst> values) {
+		final Map<String, Ast> result = new HashMap<>();
+		for (int i = 0; i < names.size(); ++i) {
+			result.put(names.get(i), values.get(i));
+		}
+		return result;
+	}
+
+
+
+	private static boolean mentions(final SExpression term, final String symbol) {
+		if (term.isAtom()) {
+			return symbol.equals(term.atom);
+		}
+		return term.children.stream().anyMatch(c -> mentions(c, symbol));
+	}
+
+
+
+	private static Ast mkVar(final int sort, final String name) {
+		return sort == BOOL ? mkBoolVar(name) : mkBVVar(sort, name);
+	}
+
+
+
+	private static int getSort(final Ast ast) {
+		return ast instanceof BoolAst ? BOOL : ((BVAst) ast).getWidth();
+	}
+
+
+
+	private static int toWidth(final int sort) {
+		return sort == BOOL ? 1 : sort;
+	}
+
+
+
+	private static void parseParameters(final SExpression list, final List<String> names,
+			final List<Integer> sorts) {
+
+		for (final SExpression parameter : list.children) {
+			if (parameter.isAtom() || parameter.children.size() != 2
+					|| !parameter.children.get(0).isAtom()) {
+				throw new IllegalArgumentException("parse error: malformed parameter " + parameter);
+			}
+			names.add(parameter.children.get(0).atom);
+			sorts.add(parseSort(parameter.children.get(1)));
+		}
+	}
+
+
+
+	// Bool, (BitVec w) or (_ BitVec w)
+	private static int parseSort(final SExpression sort) {
+		if (sort.isAtom() && "Bool".equals(sort.atom)) {
+			return BOOL;
+		}
+
+		final int size = sort.isAtom() ? 0 : sort.children.size();
+		if (size >= 2 && sort.children.get(size - 2).isAtom()
+				&& "BitVec".equals(sort.children.get(size - 2).atom)
+				&& (size == 2 || (size == 3 && sort.isApplicationOf("_")))) {
+			final int width = parseIndex(sort.children.get(size - 1), sort);
+			if (width > 0) {
+				return width;
+			}
+		}
+		throw new IllegalArgumentException("unsupported sort " + sort);
+	}
+
+
+
+	private static int parseIndex(final SExpression index, final SExpression term) {
+		if (!index.isAtom()) {
+			throw new IllegalArgumentException("parse error: malformed " + term);
+		}
+		try {
+			return Integer.parseInt(index.atom);
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("parse error: expected number in " + term, e);
+		}
+	}
+
+
+
+	// #x... or #b...
+	private static BitVector parseLiteral(final String literal) {
+		final String digits = literal.substring(Math.min(2, literal.length()));
+		try {
+			if (literal.startsWith("#x") && !digits.isEmpty()) {
+				return new BitVector(4 * digits.length(), new BigInteger(digits, 16));
+			} else if (literal.startsWith("#b") && !digits.isEmpty()) {
+				return new BitVector(digits.length(), new BigInteger(digits, 2));
+			}
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("parse error: malformed literal " + literal, e);
+		}
+		throw new IllegalArgumentException("parse error: malformed literal " + literal);
+	}
+}
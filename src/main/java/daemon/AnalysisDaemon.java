@@ -0,0 +1,589 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package daemon;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import analysis.essential.MultiBitsApproximation;
+import analysis.essential.ShapeFeasibilityChecker;
+import analysis.essential.ZPolyOverApproximation;
+import analysis.essential.ZPolyUnderApproximation;
+import benchmark.Benchmark;
+import benchmark.BenchmarkReader;
+import benchmark.SyGuSReader;
+import smt.BVAst;
+import smt.Builder;
+import synth.ListBasedSynthesizer;
+import synth.Program;
+import synth.SolverType;
+import synth.Specification;
+import synth.SynthesizerSettings;
+import util.Json;
+
+
+
+// Answers analysis requests in a line-delimited JSON protocol, either on the
+// standard streams or on a port of the loopback interface. Each line holds a
+// request like
+//
+//   {"id": 1, "type": "screen", "problem": "(spec 1 8 x (add x x)) (lib shl)"}
+//
+// where the type is screen, approximate, synthesize or cancel. The problem is
+// given in the format of BenchmarkReader or, if "format" is "sygus", in the
+// format of SyGuSReader. A request may set its own "timeout" (in milliseconds)
+// and synthesize requests may choose the "solver". Cancel requests name the
+// id of the request to stop in "target".
+//
+// Every request is answered by a single line with the same id and a "status"
+// of ok, error, timeout or cancelled. Requests are processed concurrently, so
+// their answers may arrive in a different order. Parsed problems and the shape
+// profiles of library functions are kept between requests.
+public class AnalysisDaemon {
+
+	private static final int PROBLEM_CACHE_SIZE = 256;
+
+	private static enum Status {
+		OK,
+		ERROR,
+		TIMEOUT,
+		CANCELLED;
+
+		@Override
+		public String toString() {
+			return this.name().toLowerCase(Locale.ENGLISH);
+		}
+	}
+
+
+
+	// A request that is queued or being processed
+	private static final class Task {
+		private Thread thread;
+		private SynthesizerSettings settings;
+		private Status stopReason;
+		private boolean finished = false;
+
+
+		// Returns false if the task has already finished or been stopped
+		synchronized boolean stop(final Status reason) {
+			if (this.finished || this.stopReason != null) {
+				return false;
+			}
+			this.stopReason = reason;
+			if (this.settings != null) {
+				this.settings.cancel();
+			}
+			if (this.thread != null) {
+				this.thread.interrupt();
+			}
+			return true;
+		}
+
+
+		// Returns false if the task has been stopped before it started
+		synchronized boolean start() {
+			if (this.stopReason != null) {
+				this.finished = true;
+				return false;
+			}
+			this.thread = Thread.currentThread();
+			return true;
+		}
+
+
+		synchronized void setSettings(final SynthesizerSettings settings) {
+			this.settings = settings;
+			if (this.stopReason != null) {
+				settings.cancel();
+			}
+		}
+
+
+		// Returns the reason if the task has been stopped
+		synchronized Optional<Status> finish() {
+			this.finished = true;
+			this.thread = null;
+			// The interrupt must not affect the next task of this thread
+			Thread.interrupted();
+			return Optional.ofNullable(this.stopReason);
+		}
+	}
+
+
+
+	// Allows adding further members in a chain
+	private static final class Response extends LinkedHashMap<String, Object> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Response put(final String key, final Object value) {
+			super.put(key, value);
+			return this;
+		}
+	}
+
+
+
+	private final int timeout;
+	private final SynthesizerSettings settings;
+	private final ExecutorService workers;
+	private final ScheduledExecutorService timeoutScheduler;
+	private final Cache<String, Benchmark> problems = CacheBuilder.newBuilder()
+			.maximumSize(PROBLEM_CACHE_SIZE)
+			.build();
+
+
+
+	// The timeout (in milliseconds) applies to requests that do not set their
+	// own one
+	public AnalysisDaemon(final int timeout, final int numberOfThreads,
+			final SynthesizerSettings settings) {
+
+		if (timeout <= 0 || numberOfThreads <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.timeout = timeout;
+		this.settings = settings;
+		this.workers = Executors.newFixedThreadPool(numberOfThreads);
+		this.timeoutScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "daemon-timeout");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+
+
+	// Answers the requests until the end of the input and waits for the answers
+	// of all pending requests
+	public void serve(final BufferedReader in, final Writer out)
+			throws IOException, InterruptedException {
+
+		// Ids are only unique per client
+		final Map<Object, Task> running = new ConcurrentHashMap<>();
+		final List<Future<?>> pending = new ArrayList<>();
+
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+
+			pending.removeIf(Future::isDone);
+			final Future<?> future = this.handle(line, running, out);
+			if (future != null) {
+				pending.add(future);
+			}
+		}
+
+		for (final Future<?> future : pending) {
+			try {
+				future.get();
+			} catch (final ExecutionException e) {
+				// Failures are reported to the client
+			}
+		}
+	}
+
+
+
+	public void shutdown() {
+		this.workers.shutdownNow();
+		this.timeoutScheduler.shutdownNow();
+	}
+
+
+
+	// Returns the future of requests that are processed in the background
+	private Future<?> handle(final String line, final Map<Object, Task> running, final Writer out) {
+		final Map<String, Object> request;
+		try {
+			final Object parsed = Json.parse(line);
+			if (!(parsed instanceof Map)) {
+				throw new IllegalArgumentException("expected object");
+			}
+			@SuppressWarnings("unchecked")
+			final Map<String, Object> object = (Map<String, Object>) parsed;
+			request = object;
+		} catch (final IllegalArgumentException e) {
+			respond(out, makeResponse(null, Status.ERROR).put("error", e.getMessage()));
+			return null;
+		}
+
+		final Object id = request.get("id");
+		final String type = String.valueOf(request.get("type"));
+		switch (type) {
+			case "cancel": {
+				final Task task = running.get(request.get("target"));
+				respond(out, makeResponse(id, Status.OK)
+						.put("cancelled", task != null && task.stop(Status.CANCELLED)));
+				return null;
+			}
+
+			case "screen":
+			case "approximate":
+			case "synthesize": {
+				final Task task = new Task();
+				if (id != null && running.putIfAbsent(id, task) != null) {
+					respond(out, makeResponse(id, Status.ERROR).put("error", "duplicate id " + id));
+					return null;
+				}
+				return this.workers.submit(() -> {
+					try {
+						respond(out, this.process(type, request, task));
+					} finally {
+						if (id != null) {
+							running.remove(id, task);
+						}
+					}
+				});
+			}
+
+			default:
+				respond(out, makeResponse(id, Status.ERROR).put("error", "unknown type " + type));
+				return null;
+		}
+	}
+
+
+
+	private Map<String, Object> process(final String type, final Map<String, Object> request,
+			final Task task) {
+
+		final Object id = request.get("id");
+		if (!task.start()) {
+			return makeResponse(id, Status.CANCELLED);
+		}
+
+		final long start = System.nanoTime();
+		final Map<String, Object> result = new LinkedHashMap<>();
+		Status status = null;
+		ScheduledFuture<?> timeoutTask = null;
+		try {
+			final int requestTimeout = getInt(request, "timeout", this.timeout);
+			timeoutTask = this.timeoutScheduler.schedule(() -> task.stop(Status.TIMEOUT),
+					requestTimeout, TimeUnit.MILLISECONDS);
+
+			final Benchmark problem = this.getProblem(request);
+			switch (type) {
+				case "screen":
+					result.put("verdict", ShapeFeasibilityChecker.isUnsat(problem.getSpecification(),
+							problem.getLibrary()) ? "infeasible" : "unknown");
+					break;
+
+				case "approximate":
+					approximate(problem.getSpecification(), result);
+					break;
+
+				case "synthesize":
+					this.synthesize(problem, request, requestTimeout, task, result);
+					break;
+
+				default:
+					throw new IllegalStateException();
+			}
+			status = Status.OK;
+		} catch (final CancellationException | TimeoutException e) {
+			// The status depends on the reason
+		} catch (final IOException | RuntimeException e) {
+			status = Status.ERROR;
+			result.put("error", e instanceof IllegalArgumentException
+					? e.getMessage()
+					: String.valueOf(e));
+		} finally {
+			if (timeoutTask != null) {
+				timeoutTask.cancel(false);
+			}
+		}
+
+		// A stopped request does not report results, even if its last phase
+		// could not be interrupted and completed
+		final Optional<Status> stopReason = task.finish();
+		if (stopReason.isPresent()) {
+			status = stopReason.get();
+			result.clear();
+		} else if (status == null) {
+			// Synthesis also stops on its own when the job timeout expires
+			status = Status.TIMEOUT;
+		}
+
+		final Map<String, Object> response = makeResponse(id, status);
+		response.putAll(result);
+		response.put("ms", Math.round((System.nanoTime() - start) / 10000.0) / 100.0);
+		return response;
+	}
+
+
+
+	private Benchmark getProblem(final Map<String, Object> request) throws IOException {
+		final String format = request.containsKey("format") ? getString(request, "format") : "benchmark";
+		final String problem = getString(request, "problem");
+
+		final String key = format + '\n' + problem;
+		Benchmark result = this.problems.getIfPresent(key);
+		if (result == null) {
+			switch (format) {
+				case "benchmark":
+					try (final BenchmarkReader reader = new BenchmarkReader(new StringReader(problem))) {
+						result = reader.read("request");
+					}
+					break;
+
+				case "sygus":
+					try (final SyGuSReader reader = new SyGuSReader(new StringReader(problem))) {
+						result = reader.read("request");
+					}
+					break;
+
+				default:
+					throw new IllegalArgumentException("unknown format " + format);
+			}
+			this.problems.put(key, result);
+		}
+		return result;
+	}
+
+
+
+	private static void approximate(final Specification specification,
+			final Map<String, Object> result) {
+
+		final List<BVAst> inputs = new ArrayList<>();
+		for (int i = 0; i < specification.getNumberOfInputs(); ++i) {
+			inputs.add(Builder.mkBVVar(specification.getInputBitWidth(i), "x" + i));
+		}
+		final BVAst function = specification.getFunction().apply(inputs);
+
+		result.put("over", toList(ZPolyOverApproximation.create(function, inputs)));
+		if (Thread.currentThread().isInterrupted()) {
+			throw new CancellationException();
+		}
+		result.put("under", toList(ZPolyUnderApproximation.create(function, inputs, 2)));
+	}
+
+
+
+	private void synthesize(final Benchmark problem, final Map<String, Object> request,
+			final int requestTimeout, final Task task, final Map<String, Object> result)
+			throws TimeoutException {
+
+		final SynthesizerSettings jobSettings = this.settings.copy();
+		jobSettings.setJobTimeout(requestTimeout);
+		if (request.containsKey("solver")) {
+			final SolverType solverType = parseSolverType(getString(request, "solver"));
+			jobSettings.setGenerateSolverType(solverType);
+			jobSettings.setVerifySolverType(solverType);
+		}
+		task.setSettings(jobSettings);
+
+		final Optional<Program> program = new ListBasedSynthesizer().synthesizeProgram(
+				problem.getSpecification(), problem.getLibrary(), jobSettings);
+		result.put("verdict", program.isPresent() ? "sat" : "unsat");
+		if (program.isPresent()) {
+			result.put("program", program.get().toString());
+		}
+	}
+
+
+
+	private static List<String> toList(final MultiBitsApproximation<?> approximation) {
+		final List<String> result = new ArrayList<>(approximation.bitWidth());
+		for (int i = 0; i < approximation.bitWidth(); ++i) {
+			result.add(String.valueOf(approximation.get(i)));
+		}
+		return result;
+	}
+
+
+
+	private static Response makeResponse(final Object id, final Status status) {
+		final Response result = new Response();
+		result.put("id", id);
+		result.put("status", status.toString());
+		return result;
+	}
+
+
+
+	private static void respond(final Writer out, final Map<String, Object> response) {
+		synchronized (out) {
+			try {
+				out.write(Json.write(response));
+				out.write('\n');
+				out.flush();
+			} catch (final IOException e) {
+				// The client has gone, so there is nobody to answer
+			}
+		}
+	}
+
+
+
+	private static String getString(final Map<String, Object> request, final String key) {
+		final Object value = request.get(key);
+		if (!(value instanceof String)) {
+			throw new IllegalArgumentException("expected string for " + key);
+		}
+		return (String) value;
+	}
+
+
+
+	private static int getInt(final Map<String, Object> request, final String key,
+			final int defaultValue) {
+
+		final Object value = request.get(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		if (!(value instanceof Long) || (Long) value <= 0 || (Long) value > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("expected positive number for " + key);
+		}
+		return ((Long) value).intValue();
+	}
+
+
+
+	private static SolverType parseSolverType(final String name) {
+		switch (name) {
+			case "yices":
+				return SolverType.YICES;
+			case "java":
+				return SolverType.JAVA;
+			default:
+				throw new IllegalArgumentException("unexpected solver " + name);
+		}
+	}
+
+
+
+	private static void printUsage() {
+		System.err.println("Usage: AnalysisDaemon [options]");
+		System.err.println("  -port num            Listens on the loopback interface instead of stdin");
+		System.err.println("  -timeout num         Default timeout per request (in milliseconds, default: 10000)");
+		System.err.println("  -threads num         Number of worker threads (default: number of cores)");
+		System.err.println("  -solver yices|java   Default solver for the synthesis (default: yices)");
+	}
+
+
+
+	public static void main(final String[] args) throws IOException, InterruptedException {
+		int port = -1;
+		int timeout = 10000;
+		int numberOfThreads = Runtime.getRuntime().availableProcessors();
+		final SynthesizerSettings settings = SynthesizerSettings.getDefault();
+
+		try {
+			for (int i = 0; i < args.length; ++i) {
+				if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing argument for " + args[i]);
+				}
+
+				switch (args[i]) {
+					case "-port":
+						port = Integer.parseInt(args[++i]);
+						break;
+
+					case "-timeout":
+						timeout = Integer.parseInt(args[++i]);
+						break;
+
+					case "-threads":
+						numberOfThreads = Integer.parseInt(args[++i]);
+						break;
+
+					case "-solver":
+						final SolverType solverType = parseSolverType(args[++i]);
+						settings.setGenerateSolverType(solverType);
+						settings.setVerifySolverType(solverType);
+						break;
+
+					default:
+						throw new IllegalArgumentException("Unexpected option " + args[i]);
+				}
+			}
+
+			if (timeout <= 0 || numberOfThreads <= 0) {
+				throw new IllegalArgumentException("Timeout and number of threads must be positive");
+			}
+		} catch (final IllegalArgumentException e) {
+			// Also covers NumberFormatException
+			System.err.println(e.getMessage());
+			printUsage();
+			System.exit(1);
+			return;
+		}
+
+		final AnalysisDaemon daemon = new AnalysisDaemon(timeout, numberOfThreads, settings);
+
+		if (port < 0) {
+			daemon.serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+					new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+			daemon.shutdown();
+			return;
+		}
+
+		try (final ServerSocket server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+			while (true) {
+				final Socket client = server.accept();
+				final Thread thread = new Thread(() -> {
+					try (final Socket socket = client) {
+						daemon.serve(
+								new BufferedReader(new InputStreamReader(socket.getInputStream(),
+									StandardCharsets.UTF_8)),
+								new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+					} catch (final IOException | InterruptedException e) {
+						// Only this client is affected
+					}
+				}, "daemon-client");
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+	}
+}
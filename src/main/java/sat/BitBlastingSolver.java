@@ -0,0 +1,313 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+import analysis.essential.ApproximationBuilder;
+import analysis.essential.MultiBitsApproximation;
+import smt.*;
+
+
+
+// Pure Java solver that bit-blasts the constraints into a CNF using the
+// circuits of the ApproximationBuilder and solves them with a CDCL solver.
+public final class BitBlastingSolver implements Solver {
+
+	private final SatSolver solver = new SatSolver();
+	private final Circuit circuit = new Circuit(this.solver);
+	private final ApproximationBuilder<CircuitBit> builder;
+
+	// Bits of the variables by name
+	private final Map<String, List<CircuitBit>> variables = new HashMap<>();
+
+	// One activation literal per pushed scope, which is assumed in each check
+	private final List<Integer> scopes = new ArrayList<>();
+
+	private final OptionalLong timeout;
+	// Absolute deadline in terms of System.nanoTime()
+	private OptionalLong deadline = OptionalLong.empty();
+
+	// Assumptions of the last check and their literals
+	private List<BoolAst> assumptions = Collections.emptyList();
+	private int[] assumptionLiterals = new int[0];
+
+	private SatResult lastResult = SatResult.UNKNOWN;
+	private boolean[] values = null;
+
+	private volatile boolean interrupted = false;
+
+
+
+	public BitBlastingSolver() {
+		this(OptionalLong.empty());
+	}
+
+
+
+	public BitBlastingSolver(final long timeout) {
+		this(OptionalLong.of(timeout));
+		if (timeout <= 0) {
+			throw new IllegalArgumentException();
+		}
+	}
+
+
+
+	private BitBlastingSolver(final OptionalLong timeout) {
+		this.timeout = timeout;
+		this.builder = new ApproximationBuilder<>(
+				value -> new CircuitBit(this.circuit,
+						value == 0 ? this.circuit.falseLiteral : this.circuit.trueLiteral),
+				this::makeVariable);
+	}
+
+
+
+	public void setRandomSeed(final int randomSeed) {
+		this.solver.setRandomSeed(randomSeed);
+	}
+
+
+
+	// Checks after the given point in time (in terms of System.nanoTime())
+	// return UNKNOWN
+	public void setDeadline(final long deadline) {
+		this.deadline = OptionalLong.of(deadline);
+	}
+
+
+
+	public SatSolver getSatSolver() {
+		return this.solver;
+	}
+
+
+
+	private List<CircuitBit> makeVariable(final Ast variable) {
+		final String name;
+		final int width;
+		if (variable instanceof BVVar) {
+			name = ((BVVar) variable).getName();
+			width = ((BVVar) variable).getWidth();
+		} else {
+			name = ((BoolVar) variable).getName();
+			width = 1;
+		}
+
+		final List<CircuitBit> existing = this.variables.get(name);
+		if (existing != null) {
+			if (existing.size() != width) {
+				throw new BitWidthMismatchException();
+			}
+			return existing;
+		}
+
+		final List<CircuitBit> result = new ArrayList<>(width);
+		for (int i = 0; i < width; ++i) {
+			result.add(new CircuitBit(this.circuit, this.circuit.newInput()));
+		}
+		this.variables.put(name, result);
+		return result;
+	}
+
+
+
+	private int translate(final BoolAst tree) {
+		return tree.accept(this.builder).get(0).getLiteral();
+	}
+
+
+
+	@Override
+	public void add(final BoolAst constraint) {
+		final int literal = translate(constraint);
+		if (this.scopes.isEmpty()) {
+			this.solver.addClause(literal);
+		} else {
+			this.solver.addClause(this.scopes.get(this.scopes.size() - 1) ^ 1, literal);
+		}
+	}
+
+
+
+	@Override
+	public SatResult checkSat() {
+		return check(Collections.emptyList());
+	}
+
+
+
+	@Override
+	public SatResult checkSatAssuming(final List<BoolAst> assumptions) {
+		return check(assumptions);
+	}
+
+
+
+	private SatResult check(final List<BoolAst> assumptions) {
+		this.lastResult = SatResult.UNKNOWN;
+		this.values = null;
+		if (this.interrupted) {
+			return SatResult.UNKNOWN;
+		}
+
+		this.assumptions = new ArrayList<>(assumptions);
+		this.assumptionLiterals = new int[assumptions.size()];
+		for (int i = 0; i < this.assumptionLiterals.length; ++i) {
+			this.assumptionLiterals[i] = translate(assumptions.get(i));
+		}
+
+		final int[] literals = new int[this.scopes.size() + this.assumptionLiterals.length];
+		for (int i = 0; i < this.scopes.size(); ++i) {
+			literals[i] = this.scopes.get(i);
+		}
+		System.arraycopy(this.assumptionLiterals, 0, literals, this.scopes.size(),
+				this.assumptionLiterals.length);
+
+		OptionalLong searchDeadline = this.deadline;
+		if (this.timeout.isPresent()) {
+			final long timeoutDeadline = System.nanoTime()
+					+ TimeUnit.MILLISECONDS.toNanos(this.timeout.getAsLong());
+			if (!searchDeadline.isPresent() || timeoutDeadline - searchDeadline.getAsLong() < 0) {
+				searchDeadline = OptionalLong.of(timeoutDeadline);
+			}
+		}
+
+		if (searchDeadline.isPresent()) {
+			if (System.nanoTime() - searchDeadline.getAsLong() >= 0) {
+				return SatResult.UNKNOWN;
+			}
+			this.lastResult = this.solver.solve(literals, searchDeadline.getAsLong());
+		} else {
+			this.lastResult = this.solver.solve(literals);
+		}
+		return this.lastResult;
+	}
+
+
+
+	@Override
+	public List<BoolAst> getUnsatCore() {
+		if (this.lastResult != SatResult.UNSAT) {
+			throw new IllegalStateException("not in UNSAT state");
+		}
+
+		final Map<Integer, BoolAst> literalToAssumption = new HashMap<>();
+		for (int i = 0; i < this.assumptionLiterals.length; ++i) {
+			literalToAssumption.putIfAbsent(this.assumptionLiterals[i], this.assumptions.get(i));
+		}
+
+		// Activation literals of the scopes are not part of the core
+		final List<BoolAst> result = new ArrayList<>();
+		for (final int literal : this.solver.getFailedAssumptions()) {
+			final BoolAst assumption = literalToAssumption.remove(literal);
+			if (assumption != null) {
+				result.add(assumption);
+			}
+		}
+		return result;
+	}
+
+
+
+	@Override
+	public BitVector getBVAssignment(final BVAst tree) {
+		return getBVAssignments(Collections.singletonList(tree)).get(0);
+	}
+
+
+
+	@Override
+	public List<BitVector> getBVAssignments(final List<? extends BVAst> trees) {
+		final List<MultiBitsApproximation<CircuitBit>> bits = new ArrayList<>(trees.size());
+		for (final BVAst tree : trees) {
+			bits.add(tree.accept(this.builder));
+		}
+
+		final boolean[] currentValues = getValues();
+		final List<BitVector> result = new ArrayList<>(trees.size());
+		for (int i = 0; i < trees.size(); ++i) {
+			BigInteger value = BigInteger.ZERO;
+			for (int j = 0; j < bits.get(i).bitWidth(); ++j) {
+				if (Circuit.value(currentValues, bits.get(i).get(j).getLiteral())) {
+					value = value.setBit(j);
+				}
+			}
+			result.add(new BitVector(trees.get(i).getWidth(), value));
+		}
+		return result;
+	}
+
+
+
+	@Override
+	public boolean getBoolAssignment(final BoolAst tree) {
+		final int literal = translate(tree);
+		return Circuit.value(getValues(), literal);
+	}
+
+
+
+	// Must be called after translating the trees to evaluate, since these may
+	// create further gates
+	private boolean[] getValues() {
+		if (this.lastResult != SatResult.SAT) {
+			throw new IllegalStateException("not in SAT state");
+		}
+		if (this.values == null || this.values.length < this.solver.getNumberOfVariables()) {
+			this.values = this.circuit.evaluate();
+		}
+		return this.values;
+	}
+
+
+
+	@Override
+	public void push() {
+		this.scopes.add(this.circuit.newInput());
+	}
+
+
+
+	@Override
+	public void pop() {
+		if (this.scopes.isEmpty()) {
+			throw new IllegalStateException("no scope to pop");
+		}
+		// Permanently disables the constraints of the scope
+		this.solver.addClause(this.scopes.remove(this.scopes.size() - 1) ^ 1);
+	}
+
+
+
+	@Override
+	public void interrupt() {
+		this.interrupted = true;
+		this.solver.interrupt();
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+
+// Creates AND and XOR gates as Tseitin encoded clauses of a SAT solver.
+// Structurally equal gates are only created once.
+final class Circuit {
+
+	private static final byte INPUT = 0;
+	private static final byte AND = 1;
+	private static final byte XOR = 2;
+
+	private final SatSolver solver;
+
+	final int trueLiteral;
+	final int falseLiteral;
+
+	private final Map<Long, Integer> andGates = new HashMap<>();
+	private final Map<Long, Integer> xorGates = new HashMap<>();
+
+	// Definitions of the gates, indexed by variable
+	private byte[] kinds = new byte[16];
+	private int[] lefts = new int[16];
+	private int[] rights = new int[16];
+
+
+
+	Circuit(final SatSolver solver) {
+		this.solver = solver;
+		this.trueLiteral = newInput();
+		this.falseLiteral = this.trueLiteral ^ 1;
+		this.solver.addClause(this.trueLiteral);
+	}
+
+
+
+	int newInput() {
+		return newVariable(INPUT, 0, 0);
+	}
+
+
+
+	int and(final int a, final int b) {
+		if (a == this.falseLiteral || b == this.falseLiteral || a == (b ^ 1)) {
+			return this.falseLiteral;
+		} else if (a == this.trueLiteral || a == b) {
+			return b;
+		} else if (b == this.trueLiteral) {
+			return a;
+		}
+
+		final long key = key(a, b);
+		final Integer cached = this.andGates.get(key);
+		if (cached != null) {
+			return cached;
+		}
+
+		final int gate = newVariable(AND, a, b);
+		this.solver.addClause(gate ^ 1, a);
+		this.solver.addClause(gate ^ 1, b);
+		this.solver.addClause(gate, a ^ 1, b ^ 1);
+		this.andGates.put(key, gate);
+		return gate;
+	}
+
+
+
+	int xor(final int a, final int b) {
+		// Only positive literals are used as inputs of XOR gates
+		final int sign = (a ^ b) & 1;
+		final int left = a & ~1;
+		final int right = b & ~1;
+
+		if (left == right) {
+			return this.falseLiteral ^ sign;
+		} else if (left == this.trueLiteral) {
+			return right ^ 1 ^ sign;
+		} else if (right == this.trueLiteral) {
+			return left ^ 1 ^ sign;
+		}
+
+		final long key = key(left, right);
+		final Integer cached = this.xorGates.get(key);
+		if (cached != null) {
+			return cached ^ sign;
+		}
+
+		final int gate = newVariable(XOR, left, right);
+		this.solver.addClause(gate ^ 1, left, right);
+		this.solver.addClause(gate ^ 1, left ^ 1, right ^ 1);
+		this.solver.addClause(gate, left ^ 1, right);
+		this.solver.addClause(gate, left, right ^ 1);
+		this.xorGates.put(key, gate);
+		return gate ^ sign;
+	}
+
+
+
+	// Computes the values of all literals in the last model of the solver.
+	// Gates created after the model was found are evaluated and inputs
+	// created afterwards are false.
+	boolean[] evaluate() {
+		final int modelSize = this.solver.getModelSize();
+		final int numberOfVariables = this.solver.getNumberOfVariables();
+		final boolean[] result = new boolean[numberOfVariables];
+		for (int v = 0; v < numberOfVariables; ++v) {
+			if (v < modelSize) {
+				result[v] = this.solver.getModelValue(SatSolver.literal(v, false));
+			} else if (this.kinds[v] == AND) {
+				result[v] = value(result, this.lefts[v]) && value(result, this.rights[v]);
+			} else if (this.kinds[v] == XOR) {
+				result[v] = value(result, this.lefts[v]) != value(result, this.rights[v]);
+			}
+		}
+		return result;
+	}
+
+
+
+	static boolean value(final boolean[] values, final int literal) {
+		return values[literal >> 1] != ((literal & 1) != 0);
+	}
+
+
+
+	private int newVariable(final byte kind, final int left, final int right) {
+		final int variable = this.solver.newVariable();
+		if (variable >= this.kinds.length) {
+			final int capacity = Math.max(variable + 1, 2 * this.kinds.length);
+			this.kinds = Arrays.copyOf(this.kinds, capacity);
+			this.lefts = Arrays.copyOf(this.lefts, capacity);
+			this.rights = Arrays.copyOf(this.rights, capacity);
+		}
+		this.kinds[variable] = kind;
+		this.lefts[variable] = left;
+		this.rights[variable] = right;
+		return SatSolver.literal(variable, false);
+	}
+
+
+
+	private static long key(final int a, final int b) {
+		return a < b
+				? ((long) a << 32) | b
+				: ((long) b << 32) | a;
+	}
+}
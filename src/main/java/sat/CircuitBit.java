@@ -0,0 +1,102 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sat;
+
+import analysis.essential.Approximation;
+
+
+
+// A single bit of a bit-blasted term, which allows to reuse the circuits of
+// the ApproximationBuilder. Bits are shared between terms and therefore
+// immutable; the modifying operations return new bits as well.
+final class CircuitBit implements Approximation<CircuitBit> {
+
+	private final Circuit circuit;
+	private final int literal;
+
+
+
+	CircuitBit(final Circuit circuit, final int literal) {
+		this.circuit = circuit;
+		this.literal = literal;
+	}
+
+
+
+	int getLiteral() {
+		return this.literal;
+	}
+
+
+
+	@Override
+	public CircuitBit and(final CircuitBit other) {
+		return new CircuitBit(this.circuit, this.circuit.and(this.literal, other.literal));
+	}
+
+
+
+	@Override
+	public CircuitBit andM(final CircuitBit other) {
+		return and(other);
+	}
+
+
+
+	@Override
+	public CircuitBit xor(final CircuitBit other) {
+		return new CircuitBit(this.circuit, this.circuit.xor(this.literal, other.literal));
+	}
+
+
+
+	@Override
+	public CircuitBit xorM(final CircuitBit other) {
+		return xor(other);
+	}
+
+
+
+	@Override
+	public CircuitBit not() {
+		return new CircuitBit(this.circuit, this.literal ^ 1);
+	}
+
+
+
+	@Override
+	public CircuitBit notM() {
+		return not();
+	}
+
+
+
+	@Override
+	public CircuitBit join(final CircuitBit other) {
+		throw new UnsupportedOperationException();
+	}
+
+
+
+	@Override
+	public boolean isConstant(final int value) {
+		return this.literal == (value == 0 ? this.circuit.falseLiteral : this.circuit.trueLiteral);
+	}
+}
@@ -0,0 +1,874 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import smt.SatResult;
+
+
+
+/**
+ * An incremental CDCL SAT solver with two watched literals, VSIDS, phase
+ * saving, Luby restarts and activity based deletion of learnt clauses.
+ *
+ * Literals are encoded as {@code 2 * variable + sign}, where the sign is 1
+ * for negated literals. Clauses can only be added between calls of
+ * {@link #solve(int[])}. Assumptions are decided before all other variables,
+ * which allows to retrieve the assumptions that failed.
+ */
+public final class SatSolver {
+
+	private static final byte UNDEF = 0;
+	private static final byte TRUE = 1;
+	private static final byte FALSE = -1;
+
+	private static final int FIRST_RESTART = 100;
+	private static final double RESTART_INCREMENT = 2.0;
+	private static final double VARIABLE_DECAY = 0.95;
+	private static final double CLAUSE_DECAY = 0.999;
+	private static final double RANDOM_DECISION_FREQUENCY = 0.01;
+
+	private static final class Clause {
+		final int[] literals;
+		final boolean learnt;
+		double activity = 0.0;
+		boolean removed = false;
+
+		Clause(final int[] literals, final boolean learnt) {
+			this.literals = literals;
+			this.learnt = learnt;
+		}
+	}
+
+	// Watched clauses together with a blocking literal of each clause. If the
+	// blocking literal is true, the clause need not be visited.
+	private static final class WatchList {
+		Clause[] clauses = new Clause[4];
+		int[] blockers = new int[4];
+		int size = 0;
+
+		void add(final Clause clause, final int blocker) {
+			if (this.size == this.clauses.length) {
+				this.clauses = Arrays.copyOf(this.clauses, 2 * this.size);
+				this.blockers = Arrays.copyOf(this.blockers, 2 * this.size);
+			}
+			this.clauses[this.size] = clause;
+			this.blockers[this.size] = blocker;
+			this.size += 1;
+		}
+
+		void removeDeleted() {
+			int j = 0;
+			for (int i = 0; i < this.size; ++i) {
+				if (!this.clauses[i].removed) {
+					this.clauses[j] = this.clauses[i];
+					this.blockers[j] = this.blockers[i];
+					j += 1;
+				}
+			}
+			Arrays.fill(this.clauses, j, this.size, null);
+			this.size = j;
+		}
+	}
+
+	private int numberOfVariables = 0;
+
+	// Indexed by variable
+	private byte[] values = new byte[0];
+	private int[] levels = new int[0];
+	private Clause[] reasons = new Clause[0];
+	private double[] activities = new double[0];
+	private boolean[] phases = new boolean[0];
+	private boolean[] seen = new boolean[0];
+	private int[] heapIndices = new int[0];
+
+	// Indexed by literal; contains the clauses watching the negated literal
+	private WatchList[] watches = new WatchList[0];
+
+	private int[] trail = new int[0];
+	private int trailSize = 0;
+	private int propagationHead = 0;
+	private int[] trailLimits = new int[16];
+	private int decisionLevel = 0;
+
+	// Binary max-heap of variables ordered by activity
+	private int[] heap = new int[0];
+	private int heapSize = 0;
+
+	private final List<Clause> clauses = new ArrayList<>();
+	private final List<Clause> learnts = new ArrayList<>();
+
+	private double variableIncrement = 1.0;
+	private double clauseIncrement = 1.0;
+	private double maxLearnts = 0.0;
+
+	// False once the clauses are unsatisfiable without any assumptions
+	private boolean ok = true;
+
+	private Random random = null;
+
+	private volatile boolean interrupted = false;
+
+	private boolean[] model = null;
+	private final List<Integer> failedAssumptions = new ArrayList<>();
+
+	// Temporary data of the conflict analysis
+	private int[] stack = new int[16];
+	private int[] toClear = new int[16];
+	private int toClearSize = 0;
+
+	private long numberOfConflicts = 0;
+	private long numberOfDecisions = 0;
+	private long numberOfPropagations = 0;
+
+
+
+	public int newVariable() {
+		final int variable = this.numberOfVariables;
+		if (variable == this.values.length) {
+			final int capacity = Math.max(16, 2 * variable);
+			this.values = Arrays.copyOf(this.values, capacity);
+			this.levels = Arrays.copyOf(this.levels, capacity);
+			this.reasons = Arrays.copyOf(this.reasons, capacity);
+			this.activities = Arrays.copyOf(this.activities, capacity);
+			this.phases = Arrays.copyOf(this.phases, capacity);
+			this.seen = Arrays.copyOf(this.seen, capacity);
+			this.heapIndices = Arrays.copyOf(this.heapIndices, capacity);
+			this.heap = Arrays.copyOf(this.heap, capacity);
+			this.trail = Arrays.copyOf(this.trail, capacity);
+			this.watches = Arrays.copyOf(this.watches, 2 * capacity);
+		}
+		this.numberOfVariables += 1;
+
+		this.watches[2 * variable] = new WatchList();
+		this.watches[2 * variable + 1] = new WatchList();
+		if (this.random != null) {
+			this.activities[variable] = this.random.nextDouble() * 0.00001;
+			this.phases[variable] = this.random.nextBoolean();
+		}
+		this.heapIndices[variable] = -1;
+		heapInsert(variable);
+		return variable;
+	}
+
+
+
+	public int getNumberOfVariables() {
+		return this.numberOfVariables;
+	}
+
+
+
+	public static int literal(final int variable, final boolean negated) {
+		return 2 * variable + (negated ? 1 : 0);
+	}
+
+
+
+	public static int variable(final int literal) {
+		return literal >> 1;
+	}
+
+
+
+	// Enables random decisions and initial phases, which diversifies the search
+	public void setRandomSeed(final long seed) {
+		this.random = new Random(seed);
+	}
+
+
+
+	// Stops the current and all further searches, which return UNKNOWN
+	public void interrupt() {
+		this.interrupted = true;
+	}
+
+
+
+	public long getNumberOfConflicts() {
+		return this.numberOfConflicts;
+	}
+
+
+
+	public long getNumberOfDecisions() {
+		return this.numberOfDecisions;
+	}
+
+
+
+	public long getNumberOfPropagations() {
+		return this.numberOfPropagations;
+	}
+
+
+
+	public int getNumberOfClauses() {
+		return this.clauses.size();
+	}
+
+
+
+	public int getNumberOfLearntClauses() {
+		return this.learnts.size();
+	}
+
+
+
+	// Returns false if the clauses became unsatisfiable
+	public boolean addClause(final int... literals) {
+		if (this.decisionLevel != 0) {
+			throw new IllegalStateException();
+		}
+		if (!this.ok) {
+			return false;
+		}
+
+		final int[] sorted = literals.clone();
+		Arrays.sort(sorted);
+		int size = 0;
+		int previous = -1;
+		for (final int literal : sorted) {
+			if (variable(literal) >= this.numberOfVariables || literal < 0) {
+				throw new IllegalArgumentException("unknown variable in literal " + literal);
+			}
+			if (value(literal) == TRUE || literal == (previous ^ 1)) {
+				// Satisfied or tautology
+				return true;
+			}
+			if (value(literal) != FALSE && literal != previous) {
+				sorted[size++] = literal;
+				previous = literal;
+			}
+		}
+
+		if (size == 0) {
+			this.ok = false;
+		} else if (size == 1) {
+			enqueue(sorted[0], null);
+			this.ok = propagate() == null;
+		} else {
+			final Clause clause = new Clause(Arrays.copyOf(sorted, size), false);
+			this.clauses.add(clause);
+			attach(clause);
+		}
+		return this.ok;
+	}
+
+
+
+	public SatResult solve(final int... assumptions) {
+		return solve(assumptions, 0L, false);
+	}
+
+
+
+	// The deadline is given in terms of System.nanoTime()
+	public SatResult solve(final int[] assumptions, final long deadline) {
+		return solve(assumptions, deadline, true);
+	}
+
+
+
+	private SatResult solve(final int[] assumptions, final long deadline, final boolean hasDeadline) {
+		this.model = null;
+		this.failedAssumptions.clear();
+		if (!this.ok) {
+			return SatResult.UNSAT;
+		}
+		for (final int assumption : assumptions) {
+			if (assumption < 0 || variable(assumption) >= this.numberOfVariables) {
+				throw new IllegalArgumentException("unknown variable in literal " + assumption);
+			}
+		}
+
+		this.maxLearnts = Math.max(this.maxLearnts, Math.max(this.clauses.size() / 3.0, 2000.0));
+
+		SatResult result = null;
+		try {
+			for (int restarts = 0; result == null; ++restarts) {
+				final long conflictLimit = (long) (luby(RESTART_INCREMENT, restarts) * FIRST_RESTART);
+				result = search(assumptions, conflictLimit, deadline, hasDeadline);
+				this.maxLearnts *= 1.05;
+			}
+		} finally {
+			cancelUntil(0);
+		}
+		return result;
+	}
+
+
+
+	// Value of the literal in the model found by the last call of solve()
+	public boolean getModelValue(final int literal) {
+		if (this.model == null) {
+			throw new IllegalStateException("not in SAT state");
+		}
+		final int variable = variable(literal);
+		final boolean value = variable < this.model.length && this.model[variable];
+		return value != ((literal & 1) != 0);
+	}
+
+
+
+	// Number of variables that are assigned in the model of the last call of
+	// solve(). Variables created afterwards are unassigned.
+	public int getModelSize() {
+		if (this.model == null) {
+			throw new IllegalStateException("not in SAT state");
+		}
+		return this.model.length;
+	}
+
+
+
+	// Assumptions that are sufficient for the last call of solve() to be
+	// unsatisfiable
+	public List<Integer> getFailedAssumptions() {
+		return Collections.unmodifiableList(this.failedAssumptions);
+	}
+
+
+
+	private SatResult search(final int[] assumptions, final long conflictLimit,
+			final long deadline, final boolean hasDeadline) {
+
+		long conflicts = 0;
+		while (true) {
+			final Clause conflict = propagate();
+			if (conflict != null) {
+				this.numberOfConflicts += 1;
+				conflicts += 1;
+				if (this.decisionLevel == 0) {
+					this.ok = false;
+					return SatResult.UNSAT;
+				}
+
+				final int[] learnt = analyze(conflict);
+				cancelUntil(backtrackLevel(learnt));
+				if (learnt.length == 1) {
+					enqueue(learnt[0], null);
+				} else {
+					final Clause clause = new Clause(learnt, true);
+					this.learnts.add(clause);
+					attach(clause);
+					bumpClause(clause);
+					enqueue(learnt[0], clause);
+				}
+
+				this.variableIncrement /= VARIABLE_DECAY;
+				this.clauseIncrement /= CLAUSE_DECAY;
+
+				if (this.interrupted || (hasDeadline && System.nanoTime() - deadline >= 0)) {
+					return SatResult.UNKNOWN;
+				}
+			} else {
+				if (conflicts >= conflictLimit) {
+					cancelUntil(0);
+					return null;
+				}
+				if (this.learnts.size() - this.trailSize >= this.maxLearnts) {
+					reduceLearnts();
+				}
+
+				int next = -1;
+				while (this.decisionLevel < assumptions.length) {
+					final int assumption = assumptions[this.decisionLevel];
+					if (value(assumption) == TRUE) {
+						// Already implied; use a dummy decision level
+						newDecisionLevel();
+					} else if (value(assumption) == FALSE) {
+						analyzeFinal(assumption);
+						return SatResult.UNSAT;
+					} else {
+						next = assumption;
+						break;
+					}
+				}
+
+				if (next == -1) {
+					next = pickBranchLiteral();
+					if (next == -1) {
+						this.model = new boolean[this.numberOfVariables];
+						for (int v = 0; v < this.numberOfVariables; ++v) {
+							this.model[v] = this.values[v] == TRUE;
+						}
+						return SatResult.SAT;
+					}
+					this.numberOfDecisions += 1;
+				}
+
+				newDecisionLevel();
+				enqueue(next, null);
+			}
+		}
+	}
+
+
+
+	private byte value(final int literal) {
+		final byte value = this.values[literal >> 1];
+		return (literal & 1) == 0 ? value : (byte) -value;
+	}
+
+
+
+	private void enqueue(final int literal, final Clause reason) {
+		final int variable = literal >> 1;
+		this.values[variable] = (literal & 1) == 0 ? TRUE : FALSE;
+		this.levels[variable] = this.decisionLevel;
+		this.reasons[variable] = reason;
+		this.trail[this.trailSize++] = literal;
+	}
+
+
+
+	private void newDecisionLevel() {
+		if (this.decisionLevel == this.trailLimits.length) {
+			this.trailLimits = Arrays.copyOf(this.trailLimits, 2 * this.decisionLevel);
+		}
+		this.trailLimits[this.decisionLevel++] = this.trailSize;
+	}
+
+
+
+	private void cancelUntil(final int level) {
+		if (this.decisionLevel <= level) {
+			return;
+		}
+		for (int i = this.trailSize - 1; i >= this.trailLimits[level]; --i) {
+			final int literal = this.trail[i];
+			final int variable = literal >> 1;
+			this.values[variable] = UNDEF;
+			this.reasons[variable] = null;
+			this.phases[variable] = (literal & 1) == 0;
+			if (this.heapIndices[variable] < 0) {
+				heapInsert(variable);
+			}
+		}
+		this.trailSize = this.trailLimits[level];
+		this.propagationHead = this.trailSize;
+		this.decisionLevel = level;
+	}
+
+
+
+	private void attach(final Clause clause) {
+		this.watches[clause.literals[0] ^ 1].add(clause, clause.literals[1]);
+		this.watches[clause.literals[1] ^ 1].add(clause, clause.literals[0]);
+	}
+
+
+
+	// Returns a conflicting clause or null
+	private Clause propagate() {
+		Clause conflict = null;
+		while (this.propagationHead < this.trailSize) {
+			final int literal = this.trail[this.propagationHead++];
+			final int falseLiteral = literal ^ 1;
+			final WatchList watchList = this.watches[literal];
+			final Clause[] watchers = watchList.clauses;
+			final int[] blockers = watchList.blockers;
+			final int size = watchList.size;
+			this.numberOfPropagations += 1;
+
+			int i = 0;
+			int j = 0;
+			nextClause:
+			while (i < size) {
+				final int blocker = blockers[i];
+				if (value(blocker) == TRUE) {
+					watchers[j] = watchers[i];
+					blockers[j++] = blockers[i++];
+					continue;
+				}
+
+				final Clause clause = watchers[i++];
+				final int[] literals = clause.literals;
+				if (literals[0] == falseLiteral) {
+					literals[0] = literals[1];
+					literals[1] = falseLiteral;
+				}
+
+				final int first = literals[0];
+				if (first != blocker && value(first) == TRUE) {
+					watchers[j] = clause;
+					blockers[j++] = first;
+					continue;
+				}
+
+				for (int k = 2; k < literals.length; ++k) {
+					if (value(literals[k]) != FALSE) {
+						literals[1] = literals[k];
+						literals[k] = falseLiteral;
+						this.watches[literals[1] ^ 1].add(clause, first);
+						continue nextClause;
+					}
+				}
+
+				watchers[j] = clause;
+				blockers[j++] = first;
+				if (value(first) == FALSE) {
+					conflict = clause;
+					this.propagationHead = this.trailSize;
+					while (i < size) {
+						watchers[j] = watchers[i];
+						blockers[j++] = blockers[i++];
+					}
+				} else {
+					enqueue(first, clause);
+				}
+			}
+
+			Arrays.fill(watchers, j, size, null);
+			watchList.size = j;
+			if (conflict != null) {
+				break;
+			}
+		}
+		return conflict;
+	}
+
+
+
+	// First UIP conflict analysis. The asserting literal is the first one.
+	private int[] analyze(final Clause conflict) {
+		final List<Integer> learnt = new ArrayList<>();
+		learnt.add(-1);
+
+		int pathCount = 0;
+		int literal = -1;
+		int index = this.trailSize - 1;
+		Clause reason = conflict;
+
+		do {
+			if (reason.learnt) {
+				bumpClause(reason);
+			}
+			for (int k = literal == -1 ? 0 : 1; k < reason.literals.length; ++k) {
+				final int q = reason.literals[k];
+				final int variable = q >> 1;
+				if (!this.seen[variable] && this.levels[variable] > 0) {
+					this.seen[variable] = true;
+					bumpVariable(variable);
+					if (this.levels[variable] >= this.decisionLevel) {
+						pathCount += 1;
+					} else {
+						learnt.add(q);
+					}
+				}
+			}
+
+			while (!this.seen[this.trail[index] >> 1]) {
+				index -= 1;
+			}
+			literal = this.trail[index];
+			index -= 1;
+			reason = this.reasons[literal >> 1];
+			this.seen[literal >> 1] = false;
+			pathCount -= 1;
+		} while (pathCount > 0);
+		learnt.set(0, literal ^ 1);
+
+		// Remove literals that are implied by the other ones
+		int abstractLevels = 0;
+		for (int k = 1; k < learnt.size(); ++k) {
+			abstractLevels |= abstractLevel(learnt.get(k) >> 1);
+		}
+		this.toClearSize = 0;
+		final int[] result = new int[learnt.size()];
+		int size = 1;
+		result[0] = learnt.get(0);
+		for (int k = 1; k < learnt.size(); ++k) {
+			final int q = learnt.get(k);
+			if (this.reasons[q >> 1] == null || !isRedundant(q, abstractLevels)) {
+				result[size++] = q;
+			}
+		}
+		for (int k = 1; k < learnt.size(); ++k) {
+			this.seen[learnt.get(k) >> 1] = false;
+		}
+		for (int k = 0; k < this.toClearSize; ++k) {
+			this.seen[this.toClear[k] >> 1] = false;
+		}
+
+		return Arrays.copyOf(result, size);
+	}
+
+
+
+	private int abstractLevel(final int variable) {
+		return 1 << (this.levels[variable] & 31);
+	}
+
+
+
+	// Checks whether the literal is implied by the seen literals. Literals
+	// found to be implied are marked as seen as well.
+	private boolean isRedundant(final int literal, final int abstractLevels) {
+		int stackSize = 0;
+		this.stack = push(this.stack, stackSize++, literal);
+		final int top = this.toClearSize;
+
+		while (stackSize > 0) {
+			final Clause reason = this.reasons[this.stack[--stackSize] >> 1];
+			for (int m = 1; m < reason.literals.length; ++m) {
+				final int q = reason.literals[m];
+				final int variable = q >> 1;
+				if (this.seen[variable] || this.levels[variable] == 0) {
+					continue;
+				}
+				if (this.reasons[variable] != null && (abstractLevel(variable) & abstractLevels) != 0) {
+					this.seen[variable] = true;
+					this.stack = push(this.stack, stackSize++, q);
+					this.toClear = push(this.toClear, this.toClearSize++, q);
+				} else {
+					for (int k = top; k < this.toClearSize; ++k) {
+						this.seen[this.toClear[k] >> 1] = false;
+					}
+					this.toClearSize = top;
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+
+
+	private static int[] push(final int[] array, final int index, final int value) {
+		final int[] result = index < array.length ? array : Arrays.copyOf(array, 2 * array.length);
+		result[index] = value;
+		return result;
+	}
+
+
+
+	// Moves the literal with the highest level (except for the asserting one)
+	// to the second position, which makes it the second watch
+	private int backtrackLevel(final int[] learnt) {
+		if (learnt.length == 1) {
+			return 0;
+		}
+		int maxIndex = 1;
+		for (int k = 2; k < learnt.length; ++k) {
+			if (this.levels[learnt[k] >> 1] > this.levels[learnt[maxIndex] >> 1]) {
+				maxIndex = k;
+			}
+		}
+		final int literal = learnt[maxIndex];
+		learnt[maxIndex] = learnt[1];
+		learnt[1] = literal;
+		return this.levels[literal >> 1];
+	}
+
+
+
+	// Collects the assumptions that imply that the given assumption is false
+	private void analyzeFinal(final int assumption) {
+		this.failedAssumptions.add(assumption);
+		if (this.decisionLevel == 0) {
+			return;
+		}
+
+		this.seen[assumption >> 1] = true;
+		for (int i = this.trailSize - 1; i >= this.trailLimits[0]; --i) {
+			final int variable = this.trail[i] >> 1;
+			if (this.seen[variable]) {
+				final Clause reason = this.reasons[variable];
+				if (reason == null) {
+					this.failedAssumptions.add(this.trail[i]);
+				} else {
+					for (int k = 1; k < reason.literals.length; ++k) {
+						if (this.levels[reason.literals[k] >> 1] > 0) {
+							this.seen[reason.literals[k] >> 1] = true;
+						}
+					}
+				}
+				this.seen[variable] = false;
+			}
+		}
+		this.seen[assumption >> 1] = false;
+	}
+
+
+
+	private int pickBranchLiteral() {
+		if (this.random != null && this.heapSize > 0
+				&& this.random.nextDouble() < RANDOM_DECISION_FREQUENCY) {
+			final int variable = this.heap[this.random.nextInt(this.heapSize)];
+			if (this.values[variable] == UNDEF) {
+				return literal(variable, !this.phases[variable]);
+			}
+		}
+
+		while (this.heapSize > 0) {
+			final int variable = heapRemoveMax();
+			if (this.values[variable] == UNDEF) {
+				return literal(variable, !this.phases[variable]);
+			}
+		}
+		return -1;
+	}
+
+
+
+	private void bumpVariable(final int variable) {
+		this.activities[variable] += this.variableIncrement;
+		if (this.activities[variable] > 1e100) {
+			for (int v = 0; v < this.numberOfVariables; ++v) {
+				this.activities[v] *= 1e-100;
+			}
+			this.variableIncrement *= 1e-100;
+		}
+		if (this.heapIndices[variable] >= 0) {
+			heapUp(this.heapIndices[variable]);
+		}
+	}
+
+
+
+	private void bumpClause(final Clause clause) {
+		clause.activity += this.clauseIncrement;
+		if (clause.activity > 1e20) {
+			for (final Clause learnt : this.learnts) {
+				learnt.activity *= 1e-20;
+			}
+			this.clauseIncrement *= 1e-20;
+		}
+	}
+
+
+
+	// Removes half of the learnt clauses with the lowest activity. Binary
+	// clauses and clauses that are reasons for current assignments are kept.
+	private void reduceLearnts() {
+		this.learnts.sort((a, b) -> Double.compare(a.activity, b.activity));
+		final List<Clause> kept = new ArrayList<>(this.learnts.size());
+		final int half = this.learnts.size() / 2;
+		for (int i = 0; i < this.learnts.size(); ++i) {
+			final Clause clause = this.learnts.get(i);
+			if (i < half && clause.literals.length > 2 && !isLocked(clause)) {
+				clause.removed = true;
+			} else {
+				kept.add(clause);
+			}
+		}
+		this.learnts.clear();
+		this.learnts.addAll(kept);
+
+		for (int literal = 0; literal < 2 * this.numberOfVariables; ++literal) {
+			this.watches[literal].removeDeleted();
+		}
+	}
+
+
+
+	private boolean isLocked(final Clause clause) {
+		final int first = clause.literals[0];
+		return this.reasons[first >> 1] == clause && value(first) == TRUE;
+	}
+
+
+
+	// Element of the Luby sequence scaled by powers of y
+	private static double luby(final double y, final int x) {
+		int size = 1;
+		int sequence = 0;
+		while (size < x + 1) {
+			sequence += 1;
+			size = 2 * size + 1;
+		}
+		int remaining = x;
+		while (size - 1 != remaining) {
+			size = (size - 1) >> 1;
+			sequence -= 1;
+			remaining %= size;
+		}
+		return Math.pow(y, sequence);
+	}
+
+
+
+	private void heapInsert(final int variable) {
+		this.heapIndices[variable] = this.heapSize;
+		this.heap[this.heapSize++] = variable;
+		heapUp(this.heapSize - 1);
+	}
+
+
+
+	private int heapRemoveMax() {
+		final int result = this.heap[0];
+		this.heapIndices[result] = -1;
+		this.heapSize -= 1;
+		if (this.heapSize > 0) {
+			this.heap[0] = this.heap[this.heapSize];
+			this.heapIndices[this.heap[0]] = 0;
+			heapDown(0);
+		}
+		return result;
+	}
+
+
+
+	private void heapUp(final int position) {
+		final int variable = this.heap[position];
+		int i = position;
+		while (i > 0) {
+			final int parent = (i - 1) >> 1;
+			if (this.activities[this.heap[parent]] >= this.activities[variable]) {
+				break;
+			}
+			this.heap[i] = this.heap[parent];
+			this.heapIndices[this.heap[i]] = i;
+			i = parent;
+		}
+		this.heap[i] = variable;
+		this.heapIndices[variable] = i;
+	}
+
+
+
+	private void heapDown(final int position) {
+		final int variable = this.heap[position];
+		int i = position;
+		while (2 * i + 1 < this.heapSize) {
+			int child = 2 * i + 1;
+			if (child + 1 < this.heapSize
+					&& this.activities[this.heap[child + 1]] > this.activities[this.heap[child]]) {
+				child += 1;
+			}
+			if (this.activities[this.heap[child]] <= this.activities[variable]) {
+				break;
+			}
+			this.heap[i] = this.heap[child];
+			this.heapIndices[this.heap[i]] = i;
+			i = child;
+		}
+		this.heap[i] = variable;
+		this.heapIndices[variable] = i;
+	}
+}
@@ -161,6 +161,9 @@ public class BVBinary implements BVAst {
 
 	@Override
 	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (obj instanceof BVBinary) {
 			final BVBinary other = (BVBinary) obj;
 
@@ -29,6 +29,7 @@ public class BVExtract implements BVAst {
 	private final int low;
 	private final int high;
 	private final BVAst operand;
+	private final int hashCode;
 
 
 
@@ -39,6 +40,8 @@ public class BVExtract implements BVAst {
 		this.low = low;
 		this.high = high;
 		this.operand = operand;
+
+		this.hashCode = Objects.hash(this.low, this.high, this.operand);
 	}
 
 
@@ -84,13 +87,16 @@ public class BVExtract implements BVAst {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(this.low, this.high, this.operand);
+		return this.hashCode;
 	}
 
 
 
 	@Override
 	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (obj instanceof BVExtract) {
 			final BVExtract other = (BVExtract) obj;
 			return this.low == other.low
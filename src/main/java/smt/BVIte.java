@@ -102,6 +102,9 @@ public class BVIte implements BVAst {
 
 	@Override
 	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (obj instanceof BVIte) {
 			final BVIte other = (BVIte) obj;
 			return this.width == other.width
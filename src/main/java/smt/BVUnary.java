@@ -30,6 +30,7 @@ public class BVUnary implements BVAst {
 	private final int width;
 	private final BVUnaryOp opKind;
 	private final BVAst operand;
+	private final int hashCode;
 
 
 
@@ -37,6 +38,8 @@ public class BVUnary implements BVAst {
 		this.width = operand.getWidth();
 		this.opKind = opKind;
 		this.operand = operand;
+
+		this.hashCode = Objects.hash(this.width, this.opKind, this.operand);
 	}
 
 
@@ -85,13 +88,16 @@ public class BVUnary implements BVAst {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(this.width, this.opKind, this.operand);
+		return this.hashCode;
 	}
 
 
 
 	@Override
 	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (obj instanceof BVUnary) {
 			final BVUnary other = (BVUnary) obj;
 			return this.width == other.width
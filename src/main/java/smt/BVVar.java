@@ -27,12 +27,15 @@ public class BVVar implements BVAst {
 
 	private final int width;
 	private final String name;
+	private final int hashCode;
 
 
 
 	public BVVar(final int width, final String name) {
 		this.width = width;
 		this.name = name;
+
+		this.hashCode = Objects.hash(this.width, this.name);
 	}
 
 
@@ -70,13 +73,16 @@ public class BVVar implements BVAst {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(this.width, this.name);
+		return this.hashCode;
 	}
 
 
 
 	@Override
 	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (obj instanceof BVVar) {
 			final BVVar other = (BVVar) obj;
 			return this.width == other.getWidth()
@@ -0,0 +1,601 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package smt;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+
+/**
+ * Evaluates a tree on 64 input assignments at once.
+ *
+ * Values are bit-sliced: a bit vector of width w is represented by w longs,
+ * where bit j of the i-th long is bit i of the value in lane j. Boolean values
+ * are represented by a single long. The arithmetic mirrors the semantics of
+ * {@link BitVector}.
+ */
+public final class BitSlicedEvaluator implements TreeTransformer<long[]> {
+
+	public static final int LANES = 64;
+
+	private final Map<? extends Ast, long[]> variableSlices;
+	private final Map<Ast, long[]> cache = new HashMap<>();
+
+
+
+	private BitSlicedEvaluator(final Map<? extends Ast, long[]> variableSlices) {
+		this.variableSlices = variableSlices;
+	}
+
+
+
+	public static long[] evaluate(final BVAst tree, final Map<? extends Ast, long[]> variableSlices) {
+		return new BitSlicedEvaluator(variableSlices).get(tree);
+	}
+
+
+
+	public static long evaluate(final BoolAst tree, final Map<? extends Ast, long[]> variableSlices) {
+		return new BitSlicedEvaluator(variableSlices).get(tree)[0];
+	}
+
+
+
+	/**
+	 * Transposes up to 64 values of the given width into the bit-sliced
+	 * representation. Value i is put into lane i; unused lanes are zero.
+	 */
+	public static long[] slice(final int width, final List<BitVector> values) {
+		if (values.size() > LANES) {
+			throw new IllegalArgumentException("At most " + LANES + " values can be sliced");
+		}
+
+		final long[] result = new long[width];
+		for (int j = 0; j < values.size(); ++j) {
+			final BitVector value = values.get(j);
+			if (value.getWidth() != width) {
+				throw new BitWidthMismatchException();
+			}
+			for (int i = 0; i < width; ++i) {
+				if (value.getBit(i)) {
+					result[i] |= 1L << j;
+				}
+			}
+		}
+		return result;
+	}
+
+
+
+	public static BitVector getLane(final long[] slices, final int lane) {
+		final int[] bits = new int[slices.length];
+		for (int i = 0; i < slices.length; ++i) {
+			bits[i] = (int) (slices[i] >>> lane) & 1;
+		}
+		return new BitVector(bits);
+	}
+
+
+
+	private long[] get(final Ast tree) {
+		long[] result = this.cache.get(tree);
+		if (result == null) {
+			result = tree.accept(this);
+			this.cache.put(tree, result);
+		}
+		return result;
+	}
+
+
+
+	@Override
+	public long[] visit(final BoolAllDifferent tree) {
+		final List<BVAst> operands = tree.getOperands();
+		long result = -1L;
+		for (int i = 0; i < operands.size(); ++i) {
+			final long[] ithRes = this.get(operands.get(i));
+			for (int j = i + 1; j < operands.size(); ++j) {
+				result &= ~equal(ithRes, this.get(operands.get(j)));
+			}
+		}
+		return new long[] { result };
+	}
+
+
+
+	@Override
+	public long[] visit(final BoolBinBV tree) {
+		final long[] left = this.get(tree.getLeft());
+		final long[] right = this.get(tree.getRight());
+
+		if (left.length != right.length) {
+			throw new BitWidthMismatchException();
+		}
+
+		final long result;
+		switch (tree.getKind()) {
+			case EQUALS:   result = equal(left, right); break;
+			case DISTINCT: result = ~equal(left, right); break;
+			case UGT:      result = unsignedLess(right, left); break;
+			case UGE:      result = ~unsignedLess(left, right); break;
+			case ULT:      result = unsignedLess(left, right); break;
+			case ULE:      result = ~unsignedLess(right, left); break;
+			case SGT:      result = signedLess(right, left); break;
+			case SGE:      result = ~signedLess(left, right); break;
+			case SLT:      result = signedLess(left, right); break;
+			case SLE:      result = ~signedLess(right, left); break;
+			default:       throw new IllegalStateException();
+		}
+		return new long[] { result };
+	}
+
+
+
+	@Override
+	public long[] visit(final BoolBin tree) {
+		final long left = this.get(tree.getLeft())[0];
+		final long right = this.get(tree.getRight())[0];
+
+		switch (tree.getKind()) {
+			case EQUALS:   return new long[] { ~(left ^ right) };
+			case DISTINCT: return new long[] { left ^ right };
+			case IMPLIES:  return new long[] { ~left | right };
+			case AND:      return new long[] { left & right };
+			case OR:       return new long[] { left | right };
+			default:       throw new IllegalStateException();
+		}
+	}
+
+
+
+	@Override
+	public long[] visit(final BoolConst tree) {
+		return new long[] { tree.getValue() ? -1L : 0L };
+	}
+
+
+
+	@Override
+	public long[] visit(final BoolNegate tree) {
+		return new long[] { ~this.get(tree.getOperand())[0] };
+	}
+
+
+
+	@Override
+	public long[] visit(final BoolVar tree) {
+		return this.getVariable(tree, 1);
+	}
+
+
+
+	@Override
+	public long[] visit(final BVBinary tree) {
+		final long[] left = this.get(tree.getLeft());
+		final long[] right = this.get(tree.getRight());
+
+		if (tree.getKind() == BVBinOp.CONCAT) {
+			final long[] result = Arrays.copyOf(right, right.length + left.length);
+			System.arraycopy(left, 0, result, right.length, left.length);
+			return result;
+		}
+
+		if (left.length != right.length) {
+			throw new BitWidthMismatchException();
+		}
+
+		switch (tree.getKind()) {
+			case PLUS:
+				return add(left, right, 0L);
+
+			case MINUS:
+				return add(left, not(right), -1L);
+
+			case MUL:
+				return multiply(left, right);
+
+			case SDIV:
+				return signedDivide(left, right)[0];
+
+			case UDIV:
+				return unsignedDivide(left, right)[0];
+
+			case SREM:
+				return signedDivide(left, right)[1];
+
+			case UREM:
+			case UMOD:
+				return unsignedDivide(left, right)[1];
+
+			case SMOD:
+				return signedModulo(left, right);
+
+			case AND: {
+				final long[] result = new long[left.length];
+				for (int i = 0; i < result.length; ++i) {
+					result[i] = left[i] & right[i];
+				}
+				return result;
+			}
+
+			case OR: {
+				final long[] result = new long[left.length];
+				for (int i = 0; i < result.length; ++i) {
+					result[i] = left[i] | right[i];
+				}
+				return result;
+			}
+
+			case XOR: {
+				final long[] result = new long[left.length];
+				for (int i = 0; i < result.length; ++i) {
+					result[i] = left[i] ^ right[i];
+				}
+				return result;
+			}
+
+			case SHL:
+				return shiftLeft(left, right);
+
+			case ASHR:
+				return arithmeticShiftRight(left, right);
+
+			case LSHR:
+				return logicalShiftRight(left, right);
+
+			case ROL:
+				return or(shiftLeft(left, right),
+						logicalShiftRight(left, add(constant(left.length, left.length), not(right), -1L)));
+
+			case ROR:
+				return or(logicalShiftRight(left, right),
+						shiftLeft(left, add(constant(left.length, left.length), not(right), -1L)));
+
+			default:
+				throw new IllegalStateException();
+		}
+	}
+
+
+
+	@Override
+	public long[] visit(final BVConst tree) {
+		final BitVector value = tree.getValue();
+		final long[] result = new long[value.getWidth()];
+		for (int i = 0; i < result.length; ++i) {
+			result[i] = value.getBit(i) ? -1L : 0L;
+		}
+		return result;
+	}
+
+
+
+	@Override
+	public long[] visit(final BVExtract tree) {
+		return Arrays.copyOfRange(this.get(tree.getOperand()), tree.getLow(), tree.getHigh() + 1);
+	}
+
+
+
+	@Override
+	public long[] visit(final BVIte tree) {
+		return select(this.get(tree.getCondition())[0],
+				this.get(tree.getThenExpr()),
+				this.get(tree.getElseExpr()));
+	}
+
+
+
+	@Override
+	public long[] visit(final BVUnary tree) {
+		final long[] operand = this.get(tree.getOperand());
+
+		switch (tree.getKind()) {
+			case NOT:
+				return not(operand);
+
+			case NEG:
+				return negate(operand);
+
+			default:
+				throw new IllegalStateException();
+		}
+	}
+
+
+
+	@Override
+	public long[] visit(final BVVar tree) {
+		return this.getVariable(tree, tree.getWidth());
+	}
+
+
+
+	private long[] getVariable(final Ast tree, final int width) {
+		final long[] result = this.variableSlices.get(tree);
+		if (result == null) {
+			throw new IllegalArgumentException("Unbound variable: " + tree);
+		}
+		if (result.length != width) {
+			throw new BitWidthMismatchException();
+		}
+		return result;
+	}
+
+
+
+	private static long[] constant(final int width, final long value) {
+		final long[] result = new long[width];
+		for (int i = 0; i < width && i < 64; ++i) {
+			result[i] = ((value >>> i) & 1) != 0 ? -1L : 0L;
+		}
+		return result;
+	}
+
+
+
+	private static long[] not(final long[] value) {
+		final long[] result = new long[value.length];
+		for (int i = 0; i < result.length; ++i) {
+			result[i] = ~value[i];
+		}
+		return result;
+	}
+
+
+
+	private static long[] or(final long[] left, final long[] right) {
+		final long[] result = new long[left.length];
+		for (int i = 0; i < result.length; ++i) {
+			result[i] = left[i] | right[i];
+		}
+		return result;
+	}
+
+
+
+	private static long[] select(final long condition, final long[] thenValue,
+			final long[] elseValue) {
+
+		final long[] result = new long[thenValue.length];
+		for (int i = 0; i < result.length; ++i) {
+			result[i] = (condition & thenValue[i]) | (~condition & elseValue[i]);
+		}
+		return result;
+	}
+
+
+
+	private static long equal(final long[] left, final long[] right) {
+		long differ = 0L;
+		for (int i = 0; i < left.length; ++i) {
+			differ |= left[i] ^ right[i];
+		}
+		return ~differ;
+	}
+
+
+
+	private static long isZero(final long[] value) {
+		long any = 0L;
+		for (final long slice : value) {
+			any |= slice;
+		}
+		return ~any;
+	}
+
+
+
+	// Ripple-carry adder; a carry of -1L adds one in every lane
+	private static long[] add(final long[] left, final long[] right, final long carryIn) {
+		final long[] result = new long[left.length];
+		long carry = carryIn;
+		for (int i = 0; i < result.length; ++i) {
+			final long halfSum = left[i] ^ right[i];
+			result[i] = halfSum ^ carry;
+			carry = (left[i] & right[i]) | (carry & halfSum);
+		}
+		return result;
+	}
+
+
+
+	private static long[] negate(final long[] value) {
+		return add(not(value), new long[value.length], -1L);
+	}
+
+
+
+	// The carry out of left + ~right + 1 is set iff left >= right (unsigned)
+	private static long unsignedLess(final long[] left, final long[] right) {
+		long carry = -1L;
+		for (int i = 0; i < left.length; ++i) {
+			final long notRight = ~right[i];
+			carry = (left[i] & notRight) | (carry & (left[i] ^ notRight));
+		}
+		return ~carry;
+	}
+
+
+
+	private static long signedLess(final long[] left, final long[] right) {
+		final int top = left.length - 1;
+		final long[] flippedLeft = left.clone();
+		final long[] flippedRight = right.clone();
+		flippedLeft[top] = ~flippedLeft[top];
+		flippedRight[top] = ~flippedRight[top];
+		return unsignedLess(flippedLeft, flippedRight);
+	}
+
+
+
+	// Shift-and-add multiplication
+	private static long[] multiply(final long[] left, final long[] right) {
+		final int width = left.length;
+		final long[] result = new long[width];
+		for (int i = 0; i < width; ++i) {
+			long carry = 0L;
+			for (int j = i; j < width; ++j) {
+				final long partial = left[j - i] & right[i];
+				final long halfSum = result[j] ^ partial;
+				final long sum = halfSum ^ carry;
+				carry = (result[j] & partial) | (carry & halfSum);
+				result[j] = sum;
+			}
+		}
+		return result;
+	}
+
+
+
+	// Restoring division; returns quotient and remainder. Division by zero
+	// yields an all-ones quotient and the dividend as remainder.
+	private static long[][] unsignedDivide(final long[] dividend, final long[] divisor) {
+		final int width = dividend.length;
+		final long[] quotient = new long[width];
+		// One extra bit for the bit shifted out of the partial remainder
+		long[] remainder = new long[width + 1];
+		final long[] extendedDivisor = Arrays.copyOf(divisor, width + 1);
+
+		for (int i = width - 1; i >= 0; --i) {
+			final long[] shifted = new long[width + 1];
+			System.arraycopy(remainder, 0, shifted, 1, width);
+			shifted[0] = dividend[i];
+
+			final long greaterEqual = ~unsignedLess(shifted, extendedDivisor);
+			final long[] difference = add(shifted, not(extendedDivisor), -1L);
+
+			remainder = select(greaterEqual, difference, shifted);
+			quotient[i] = greaterEqual;
+		}
+
+		return new long[][] { quotient, Arrays.copyOf(remainder, width) };
+	}
+
+
+
+	private static long[] absolute(final long[] value) {
+		return select(value[value.length - 1], negate(value), value);
+	}
+
+
+
+	private static long[][] signedDivide(final long[] dividend, final long[] divisor) {
+		final int top = dividend.length - 1;
+		final long[][] unsignedResult = unsignedDivide(absolute(dividend), absolute(divisor));
+
+		final long[] quotient = select(dividend[top] ^ divisor[top],
+				negate(unsignedResult[0]), unsignedResult[0]);
+		final long[] remainder = select(dividend[top],
+				negate(unsignedResult[1]), unsignedResult[1]);
+
+		// Signed division by zero yields -1 regardless of the sign of the dividend
+		final long[] allOnes = new long[dividend.length];
+		Arrays.fill(allOnes, -1L);
+
+		return new long[][] { select(isZero(divisor), allOnes, quotient), remainder };
+	}
+
+
+
+	private static long[] signedModulo(final long[] dividend, final long[] divisor) {
+		final int top = dividend.length - 1;
+		final long[] remainder = signedDivide(dividend, divisor)[1];
+
+		// Adjust the remainder if it is non-zero and its sign differs from the
+		// sign of the divisor
+		final long adjust = ~isZero(remainder) & (remainder[top] ^ divisor[top]);
+		return select(adjust, add(remainder, divisor, 0L), remainder);
+	}
+
+
+
+	// Shift amounts with a set bit k where 2^k >= width shift out all bits.
+	// This includes all amounts that are negative when interpreted as signed
+	// values, which yield zero for all shifts (as in BitVector).
+	private static long overflowingAmount(final long[] amount) {
+		long result = 0L;
+		for (int k = 0; k < amount.length; ++k) {
+			if (k >= 31 || (1 << k) >= amount.length) {
+				result |= amount[k];
+			}
+		}
+		return result;
+	}
+
+
+
+	private static long[] shiftLeft(final long[] value, final long[] amount) {
+		final int width = value.length;
+		long[] result = value;
+		for (int k = 0; k < 31 && (1 << k) < width; ++k) {
+			final int distance = 1 << k;
+			final long[] shifted = new long[width];
+			System.arraycopy(result, 0, shifted, distance, width - distance);
+			result = select(amount[k], shifted, result);
+		}
+		return select(overflowingAmount(amount), new long[width], result);
+	}
+
+
+
+	private static long[] logicalShiftRight(final long[] value, final long[] amount) {
+		final int width = value.length;
+		long[] result = value;
+		for (int k = 0; k < 31 && (1 << k) < width; ++k) {
+			final int distance = 1 << k;
+			final long[] shifted = new long[width];
+			System.arraycopy(result, distance, shifted, 0, width - distance);
+			result = select(amount[k], shifted, result);
+		}
+		return select(overflowingAmount(amount), new long[width], result);
+	}
+
+
+
+	private static long[] arithmeticShiftRight(final long[] value, final long[] amount) {
+		final int width = value.length;
+		final long sign = value[width - 1];
+
+		long[] result = value;
+		for (int k = 0; k < 31 && (1 << k) < width; ++k) {
+			final int distance = 1 << k;
+			final long[] shifted = new long[width];
+			System.arraycopy(result, distance, shifted, 0, width - distance);
+			Arrays.fill(shifted, width - distance, width, sign);
+			result = select(amount[k], shifted, result);
+		}
+
+		// Amounts that are negative or at least 2^30 yield zero (as in
+		// BitVector); other amounts of at least the width fill with the sign.
+		long zero = amount[width - 1];
+		for (int k = 30; k < width; ++k) {
+			zero |= amount[k];
+		}
+		final long[] signFill = new long[width];
+		Arrays.fill(signFill, sign);
+
+		return select(zero, new long[width],
+				select(overflowingAmount(amount), signFill, result));
+	}
+}
@@ -61,6 +61,25 @@ public class BitVector {
 
 
 
+	// Creates a bit vector from 64 bit words, least significant word first
+	public static BitVector fromWords(final int width, final long[] words, final int offset) {
+		if (width <= 64) {
+			return new BitVector(width, words[offset]);
+		}
+
+		final int numWords = (width + 63) >>> 6;
+		final byte[] bytes = new byte[numWords * 8];
+		for (int i = 0; i < numWords; ++i) {
+			final long word = words[offset + i];
+			for (int j = 0; j < 8; ++j) {
+				bytes[bytes.length - 1 - (i * 8 + j)] = (byte) (word >>> (j * 8));
+			}
+		}
+		return new BitVector(width, new BigInteger(1, bytes));
+	}
+
+
+
 	private static BigInteger fromArray(final int[] bits) {
 		BigInteger r = BigInteger.ZERO;
 		for (int i = 0; i < bits.length; ++i) {
@@ -73,19 +92,12 @@ public class BitVector {
 
 
 
+	// Returns the signed value of the lower width bits
 	private static BigInteger constrainToWidth(final int width, final BigInteger data) {
-		BigInteger r;
-		if (!data.testBit(width - 1)) {
-			r = BigInteger.ZERO;
-		} else {
-			r = BigInteger.valueOf(-1);
-		}
-		for (int i = 0; i < width; ++i) {
-			if (data.testBit(i)) {
-				r = r.setBit(i);
-			} else {
-				r = r.clearBit(i);
-			}
+		final BigInteger modulus = BigInteger.ONE.shiftLeft(width);
+		final BigInteger r = data.and(modulus.subtract(BigInteger.ONE));
+		if (r.testBit(width - 1)) {
+			return r.subtract(modulus);
 		}
 		return r;
 	}
@@ -239,7 +251,8 @@ public class BitVector {
 		System.arraycopy(ba, Math.max(0, ba.length - ra.length),
 				ra, Math.max(0, ra.length - ba.length), ba.length);
 
-		return new BigInteger(val.signum() == 0 ? 0 : 1, ra);
+		return new BigInteger(val.signum() == 0 ? 0 : 1, ra)
+				.and(BigInteger.ONE.shiftLeft(width).subtract(BigInteger.ONE));
 	}
 
 
@@ -356,7 +369,7 @@ public class BitVector {
 	public BitVector shl(final BitVector other) {
 		return binaryOp(other,
 				(a, b) -> b.bitCount() >= 31 || b.bitLength() >= 31 || b.signum() < 0
-						|| checkLeftShiftOverflow(a, b)
+						|| b.intValue() >= this.width || checkLeftShiftOverflow(a, b)
 					? BigInteger.ZERO
 					: a.shiftLeft(b.intValue() & 0x7FFFFFFF));
 	}
@@ -31,6 +31,7 @@ import java.util.StringJoiner;
 public class BoolAllDifferent implements BoolAst {
 
 	private final List<BVAst> operands;
+	private final int hashCode;
 
 
 
@@ -39,6 +40,7 @@ public class BoolAllDifferent implements BoolAst {
 		if (this.operands.size() <= 1) {
 			throw new IllegalArgumentException();
 		}
+		this.hashCode = this.operands.hashCode();
 	}
 
 
@@ -48,6 +50,7 @@ public class BoolAllDifferent implements BoolAst {
 		if (this.operands.size() <= 1) {
 			throw new IllegalArgumentException();
 		}
+		this.hashCode = this.operands.hashCode();
 	}
 
 
@@ -86,14 +89,14 @@ public class BoolAllDifferent implements BoolAst {
 
 	@Override
 	public int hashCode() {
-		return this.operands.hashCode();
+		return this.hashCode;
 	}
 
 
 
 	@Override
 	public boolean equals(final Object obj) {
-		return obj instanceof BoolAllDifferent
+		return this == obj || obj instanceof BoolAllDifferent
 				&& this.operands.equals(((BoolAllDifferent) obj).operands);
 	}
 
@@ -29,6 +29,7 @@ public class BoolBin implements BoolAst {
 	private final BoolBinOp opKind;
 	private final BoolAst left;
 	private final BoolAst right;
+	private final int hashCode;
 
 
 
@@ -36,6 +37,8 @@ public class BoolBin implements BoolAst {
 		this.opKind = opKind;
 		this.left = left;
 		this.right= right;
+
+		this.hashCode = Objects.hash(this.opKind, this.left, this.right);
 	}
 
 
@@ -92,13 +95,16 @@ public class BoolBin implements BoolAst {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(this.opKind, this.left, this.right);
+		return this.hashCode;
 	}
 
 
 
 	@Override
 	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (obj instanceof BoolBin) {
 			final BoolBin other = (BoolBin) obj;
 			return this.opKind == other.opKind
@@ -29,6 +29,7 @@ public class BoolBinBV implements BoolAst {
 	private final BoolBVOp opKind;
 	private final BVAst left;
 	private final BVAst right;
+	private final int hashCode;
 
 
 
@@ -40,6 +41,8 @@ public class BoolBinBV implements BoolAst {
 		if (this.left.getWidth() != this.right.getWidth()) {
 			throw new BitWidthMismatchException();
 		}
+
+		this.hashCode = Objects.hash(this.opKind, this.left, this.right);
 	}
 
 
@@ -114,13 +117,16 @@ public class BoolBinBV implements BoolAst {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(this.opKind, this.left, this.right);
+		return this.hashCode;
 	}
 
 
 
 	@Override
 	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (obj instanceof BoolBinBV) {
 			final BoolBinBV other = (BoolBinBV) obj;
 			return this.opKind == other.opKind
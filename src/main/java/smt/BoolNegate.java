@@ -25,11 +25,13 @@ import java.util.Map;
 public class BoolNegate implements BoolAst {
 
 	private final BoolAst operand;
+	private final int hashCode;
 
 
 
 	public BoolNegate(final BoolAst operand) {
 		this.operand = operand;
+		this.hashCode = -operand.hashCode();
 	}
 
 
@@ -56,14 +58,15 @@ public class BoolNegate implements BoolAst {
 
 	@Override
 	public int hashCode() {
-		return -this.operand.hashCode();
+		return this.hashCode;
 	}
 
 
 
 	@Override
 	public boolean equals(final Object obj) {
-		return obj instanceof BoolNegate && this.operand.equals(((BoolNegate) obj).getOperand());
+		return this == obj || obj instanceof BoolNegate
+				&& this.operand.equals(((BoolNegate) obj).getOperand());
 	}
 
 
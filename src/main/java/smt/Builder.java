@@ -21,106 +21,142 @@ package smt;
 
 import java.util.List;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 
 
 public final class Builder {
 
+	// Canonical nodes if hash-consing is enabled. Entries are weakly referenced
+	// and disappear once no tree uses them anymore.
+	private static final Interner<Ast> UNIQUE_TABLE = Interners.newWeakInterner();
+
+	private static volatile boolean hashConsing = false;
+
+
+
 	private Builder() { }
 
 
 
+	// With hash-consing, structurally equal trees that are built from this
+	// point on are the same object, so that equals() and the memo tables that
+	// are keyed by trees mostly get away with an identity comparison.
+	public static void setHashConsing(final boolean enabled) {
+		hashConsing = enabled;
+	}
+
+
+
+	public static boolean isHashConsing() {
+		return hashConsing;
+	}
+
+
+
+	@SuppressWarnings("unchecked")
+	static <T extends Ast> T intern(final T tree) {
+		if (!hashConsing) {
+			return tree;
+		}
+		return (T) UNIQUE_TABLE.intern(tree);
+	}
+
+
+
 	public static BoolAst mkBoolVar(final String name) {
-		return new BoolVar(name);
+		return intern(new BoolVar(name));
 	}
 
 
 
 	public static BoolAst mkBoolConst(final boolean value) {
-		return new BoolConst(value);
+		return intern(new BoolConst(value));
 	}
 
 
 
 	public static BoolAst mkEq(final BVAst left, final BVAst right) {
-		return new BoolBinBV(BoolBVOp.EQUALS, left, right);
+		return intern(new BoolBinBV(BoolBVOp.EQUALS, left, right));
 	}
 
 
 
 	public static BoolAst mkNe(final BVAst left, final BVAst right) {
-		return new BoolBinBV(BoolBVOp.DISTINCT, left, right);
+		return intern(new BoolBinBV(BoolBVOp.DISTINCT, left, right));
 	}
 
 
 
 	public static BoolAst mkUGt(final BVAst left, final BVAst right) {
-		return new BoolBinBV(BoolBVOp.UGT, left, right);
+		return intern(new BoolBinBV(BoolBVOp.UGT, left, right));
 	}
 
 
 
 	public static BoolAst mkUGe(final BVAst left, final BVAst right) {
-		return new BoolBinBV(BoolBVOp.UGE, left, right);
+		return intern(new BoolBinBV(BoolBVOp.UGE, left, right));
 	}
 
 
 
 	public static BoolAst mkULt(final BVAst left, final BVAst right) {
-		return new BoolBinBV(BoolBVOp.ULT, left, right);
+		return intern(new BoolBinBV(BoolBVOp.ULT, left, right));
 	}
 
 
 
 	public static BoolAst mkULe(final BVAst left, final BVAst right) {
-		return new BoolBinBV(BoolBVOp.ULE, left, right);
+		return intern(new BoolBinBV(BoolBVOp.ULE, left, right));
 	}
 
 
 
 	public static BoolAst mkSGt(final BVAst left, final BVAst right) {
-		return new BoolBinBV(BoolBVOp.SGT, left, right);
+		return intern(new BoolBinBV(BoolBVOp.SGT, left, right));
 	}
 
 
 
 	public static BoolAst mkSGe(final BVAst left, final BVAst right) {
-		return new BoolBinBV(BoolBVOp.SGE, left, right);
+		return intern(new BoolBinBV(BoolBVOp.SGE, left, right));
 	}
 
 
 
 	public static BoolAst mkSLt(final BVAst left, final BVAst right) {
-		return new BoolBinBV(BoolBVOp.SLT, left, right);
+		return intern(new BoolBinBV(BoolBVOp.SLT, left, right));
 	}
 
 
 
 	public static BoolAst mkSLe(final BVAst left, final BVAst right) {
-		return new BoolBinBV(BoolBVOp.SLE, left, right);
+		return intern(new BoolBinBV(BoolBVOp.SLE, left, right));
 	}
 
 
 
 	public static BoolAst mkEq(final BoolAst left, final BoolAst right) {
-		return new BoolBin(BoolBinOp.EQUALS, left, right);
+		return intern(new BoolBin(BoolBinOp.EQUALS, left, right));
 	}
 
 
 
 	public static BoolAst mkNe(final BoolAst left, final BoolAst right) {
-		return new BoolBin(BoolBinOp.DISTINCT, left, right);
+		return intern(new BoolBin(BoolBinOp.DISTINCT, left, right));
 	}
 
 
 
 	public static BoolAst mkImplies(final BoolAst left, final BoolAst right) {
-		return new BoolBin(BoolBinOp.IMPLIES, left, right);
+		return intern(new BoolBin(BoolBinOp.IMPLIES, left, right));
 	}
 
 
 
 	public static BoolAst mkAnd(final BoolAst left, final BoolAst right) {
-		return new BoolBin(BoolBinOp.AND, left, right);
+		return intern(new BoolBin(BoolBinOp.AND, left, right));
 	}
 
 
@@ -135,8 +171,18 @@ public final class Builder {
 
 
 
+	public static BoolAst mkAnd(final List<BoolAst> children) {
+		BoolAst result = children.get(0);
+		for (int i = 1; i < children.size(); ++i) {
+			result = mkAnd(result, children.get(i));
+		}
+		return result;
+	}
+
+
+
 	public static BoolAst mkOr(final BoolAst left, final BoolAst right) {
-		return new BoolBin(BoolBinOp.OR, left, right);
+		return intern(new BoolBin(BoolBinOp.OR, left, right));
 	}
 
 
@@ -162,169 +208,169 @@ public final class Builder {
 
 
 	public static BoolAst mkNot(final BoolAst operand) {
-		return new BoolNegate(operand);
+		return intern(new BoolNegate(operand));
 	}
 
 
 
 	public static BoolAst mkAllDifferent(final BVAst ... operands) {
-		return new BoolAllDifferent(operands);
+		return intern(new BoolAllDifferent(operands));
 	}
 
 
 
 	public static BoolAst mkAllDifferent(final List<BVAst> operands) {
-		return new BoolAllDifferent(operands);
+		return intern(new BoolAllDifferent(operands));
 	}
 
 
 
 	public static BVAst mkBVVar(final int width, final String name) {
-		return new BVVar(width, name);
+		return intern(new BVVar(width, name));
 	}
 
 
 
 	public static BVAst mkBVConst(final int width, final long value) {
-		return new BVConst(width, value);
+		return intern(new BVConst(width, value));
 	}
 
 
 
 	public static BVAst mkBVConst(final BitVector value) {
-		return new BVConst(value);
+		return intern(new BVConst(value));
 	}
 
 
 
 	public static BVAst mkAdd(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.PLUS, left, right);
+		return intern(new BVBinary(BVBinOp.PLUS, left, right));
 	}
 
 
 
 	public static BVAst mkSub(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.MINUS, left, right);
+		return intern(new BVBinary(BVBinOp.MINUS, left, right));
 	}
 
 
 
 	public static BVAst mkMul(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.MUL, left, right);
+		return intern(new BVBinary(BVBinOp.MUL, left, right));
 	}
 
 
 
 	public static BVAst mkSDiv(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.SDIV, left, right);
+		return intern(new BVBinary(BVBinOp.SDIV, left, right));
 	}
 
 
 
 	public static BVAst mkUDiv(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.UDIV, left, right);
+		return intern(new BVBinary(BVBinOp.UDIV, left, right));
 	}
 
 
 
 	public static BVAst mkSRem(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.SREM, left, right);
+		return intern(new BVBinary(BVBinOp.SREM, left, right));
 	}
 
 
 
 	public static BVAst mkURem(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.UREM, left, right);
+		return intern(new BVBinary(BVBinOp.UREM, left, right));
 	}
 
 
 
 	public static BVAst mkSMod(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.SMOD, left, right);
+		return intern(new BVBinary(BVBinOp.SMOD, left, right));
 	}
 
 
 
 	public static BVAst mkUMod(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.UMOD, left, right);
+		return intern(new BVBinary(BVBinOp.UMOD, left, right));
 	}
 
 
 
 	public static BVAst mkAnd(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.AND, left, right);
+		return intern(new BVBinary(BVBinOp.AND, left, right));
 	}
 
 
 
 	public static BVAst mkOr(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.OR, left, right);
+		return intern(new BVBinary(BVBinOp.OR, left, right));
 	}
 
 
 
 	public static BVAst mkXor(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.XOR, left, right);
+		return intern(new BVBinary(BVBinOp.XOR, left, right));
 	}
 
 
 
 	public static BVAst mkShl(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.SHL, left, right);
+		return intern(new BVBinary(BVBinOp.SHL, left, right));
 	}
 
 
 
 	public static BVAst mkAshr(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.ASHR, left, right);
+		return intern(new BVBinary(BVBinOp.ASHR, left, right));
 	}
 
 
 
 	public static BVAst mkLshr(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.LSHR, left, right);
+		return intern(new BVBinary(BVBinOp.LSHR, left, right));
 	}
 
 
 
 	public static BVAst mkRol(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.ROL, left, right);
+		return intern(new BVBinary(BVBinOp.ROL, left, right));
 	}
 
 
 
 	public static BVAst mkRor(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.ROR, left, right);
+		return intern(new BVBinary(BVBinOp.ROR, left, right));
 	}
 
 
 
 	public static BVAst mkConcat(final BVAst left, final BVAst right) {
-		return new BVBinary(BVBinOp.CONCAT, left, right);
+		return intern(new BVBinary(BVBinOp.CONCAT, left, right));
 	}
 
 
 
 	public static BVAst mkNot(final BVAst operand) {
-		return new BVUnary(BVUnaryOp.NOT, operand);
+		return intern(new BVUnary(BVUnaryOp.NOT, operand));
 	}
 
 
 
 	public static BVAst mkNeg(final BVAst operand) {
-		return new BVUnary(BVUnaryOp.NEG, operand);
+		return intern(new BVUnary(BVUnaryOp.NEG, operand));
 	}
 
 
 
 	public static BVAst mkIte(final BoolAst condition, final BVAst thenExpr, final BVAst elseExpr) {
-		return new BVIte(condition, thenExpr, elseExpr);
+		return intern(new BVIte(condition, thenExpr, elseExpr));
 	}
 
 
 
 	public static BVAst mkExtract(final int low, final int high, final BVAst operand) {
-		return new BVExtract(low, high, operand);
+		return intern(new BVExtract(low, high, operand));
 	}
 }
 
@@ -0,0 +1,85 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package smt;
+
+import java.util.List;
+
+
+
+/**
+ * A bit vector tree compiled for repeated evaluation on concrete inputs.
+ *
+ * The inputs are given positionally, in the order of the variables passed to
+ * {@link #compile}. For {@link #eval(long...)}, each input occupies one
+ * {@code long} per started 64 bits (least significant word first); bits
+ * beyond the width of an input are ignored.
+ */
+public final class CompiledBVAst {
+
+	private final CompiledCode code;
+	private final int width;
+
+
+
+	private CompiledBVAst(final CompiledCode code, final int width) {
+		this.code = code;
+		this.width = width;
+	}
+
+
+
+	public static CompiledBVAst compile(final BVAst tree, final List<? extends Ast> variables) {
+		return new CompiledBVAst(CompiledCode.compile(tree, variables), tree.getWidth());
+	}
+
+
+
+	public int getWidth() {
+		return this.width;
+	}
+
+
+
+	public int getNumberOfInputs() {
+		return this.code.getNumberOfInputs();
+	}
+
+
+
+	public int getInputLength() {
+		return this.code.getInputLength();
+	}
+
+
+
+	/**
+	 * Evaluates the tree and returns the result zero-extended to 64 bits.
+	 * Only applicable if the result has at most 64 bits.
+	 */
+	public long eval(final long... inputs) {
+		return this.code.runNarrow(inputs);
+	}
+
+
+
+	public BitVector eval(final List<BitVector> inputs) {
+		return this.code.runWide(inputs, this.width);
+	}
+}
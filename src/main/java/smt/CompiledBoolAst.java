@@ -0,0 +1,69 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package smt;
+
+import java.util.List;
+
+
+
+/**
+ * A Boolean tree compiled for repeated evaluation on concrete inputs. The
+ * inputs are laid out as described for {@link CompiledBVAst}.
+ */
+public final class CompiledBoolAst {
+
+	private final CompiledCode code;
+
+
+
+	private CompiledBoolAst(final CompiledCode code) {
+		this.code = code;
+	}
+
+
+
+	public static CompiledBoolAst compile(final BoolAst tree, final List<? extends Ast> variables) {
+		return new CompiledBoolAst(CompiledCode.compile(tree, variables));
+	}
+
+
+
+	public int getNumberOfInputs() {
+		return this.code.getNumberOfInputs();
+	}
+
+
+
+	public int getInputLength() {
+		return this.code.getInputLength();
+	}
+
+
+
+	public boolean eval(final long... inputs) {
+		return this.code.runNarrow(inputs) != 0;
+	}
+
+
+
+	public boolean eval(final List<BitVector> inputs) {
+		return this.code.runNarrow(inputs) != 0;
+	}
+}
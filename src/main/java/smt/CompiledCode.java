@@ -0,0 +1,751 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package smt;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+
+
+
+/**
+ * Straight-line code for evaluating a tree on concrete inputs.
+ *
+ * Every distinct subtree is assigned a register. Values with at most 64 bits
+ * (and Boolean values) are kept in a {@code long[]} frame, zero-extended to 64
+ * bits; wider values are kept as {@link BitVector}s. Registers that only
+ * depend on constants are folded into the initial frame at compile time.
+ */
+final class CompiledCode {
+
+	@FunctionalInterface
+	interface Instruction {
+		void execute(long[] narrow, BitVector[] wide);
+	}
+
+
+
+	private final Instruction[] instructions;
+	private final long[] narrowTemplate;
+	private final BitVector[] wideTemplate;
+
+	private final int[] inputRegisters;
+	private final int[] inputWidths;
+	private final int inputLength;
+
+	private final int resultRegister;
+
+
+
+	private CompiledCode(final Compiler compiler, final int resultRegister) {
+		this.instructions = compiler.instructions.toArray(new Instruction[0]);
+		this.narrowTemplate = Arrays.copyOf(compiler.narrow, compiler.numNarrow);
+		this.wideTemplate = Arrays.copyOf(compiler.wide, compiler.numWide);
+		this.inputRegisters = compiler.inputRegisters;
+		this.inputWidths = compiler.inputWidths;
+
+		int length = 0;
+		for (final int width : this.inputWidths) {
+			length += (width + 63) >>> 6;
+		}
+		this.inputLength = length;
+
+		this.resultRegister = resultRegister;
+	}
+
+
+
+	static CompiledCode compile(final Ast tree, final List<? extends Ast> variables) {
+		final Compiler compiler = new Compiler(variables);
+		return new CompiledCode(compiler, compiler.get(tree));
+	}
+
+
+
+	int getNumberOfInputs() {
+		return this.inputRegisters.length;
+	}
+
+
+
+	int getInputLength() {
+		return this.inputLength;
+	}
+
+
+
+	long runNarrow(final long[] inputs) {
+		if (inputs.length != this.inputLength) {
+			throw new IllegalArgumentException("Expected " + this.inputLength
+					+ " inputs, but got " + inputs.length);
+		}
+
+		final long[] narrow = this.narrowTemplate.clone();
+		final BitVector[] wide = this.wideTemplate.clone();
+
+		for (int i = 0, k = 0; i < this.inputRegisters.length; ++i) {
+			final int width = this.inputWidths[i];
+			if (isWide(this.inputRegisters[i])) {
+				wide[~this.inputRegisters[i]] = BitVector.fromWords(width, inputs, k);
+				k += (width + 63) >>> 6;
+			} else {
+				narrow[this.inputRegisters[i]] = inputs[k] & mask(width);
+				k += 1;
+			}
+		}
+
+		this.run(narrow, wide);
+		return this.getNarrowResult(narrow);
+	}
+
+
+
+	long runNarrow(final List<BitVector> inputs) {
+		final long[] narrow = this.narrowTemplate.clone();
+		final BitVector[] wide = this.wideTemplate.clone();
+
+		this.load(inputs, narrow, wide);
+		this.run(narrow, wide);
+		return this.getNarrowResult(narrow);
+	}
+
+
+
+	BitVector runWide(final List<BitVector> inputs, final int resultWidth) {
+		final long[] narrow = this.narrowTemplate.clone();
+		final BitVector[] wide = this.wideTemplate.clone();
+
+		this.load(inputs, narrow, wide);
+		this.run(narrow, wide);
+
+		if (isWide(this.resultRegister)) {
+			return wide[~this.resultRegister];
+		}
+		return new BitVector(resultWidth, narrow[this.resultRegister]);
+	}
+
+
+
+	private void load(final List<BitVector> inputs, final long[] narrow, final BitVector[] wide) {
+		if (inputs.size() != this.inputRegisters.length) {
+			throw new IllegalArgumentException("Expected " + this.inputRegisters.length
+					+ " inputs, but got " + inputs.size());
+		}
+
+		for (int i = 0; i < this.inputRegisters.length; ++i) {
+			final BitVector input = inputs.get(i);
+			if (input.getWidth() != this.inputWidths[i]) {
+				throw new BitWidthMismatchException();
+			}
+
+			if (isWide(this.inputRegisters[i])) {
+				wide[~this.inputRegisters[i]] = input;
+			} else {
+				narrow[this.inputRegisters[i]] = toLong(input);
+			}
+		}
+	}
+
+
+
+	private long getNarrowResult(final long[] narrow) {
+		if (isWide(this.resultRegister)) {
+			throw new IllegalStateException("Result does not fit into 64 bits");
+		}
+		return narrow[this.resultRegister];
+	}
+
+
+
+	private void run(final long[] narrow, final BitVector[] wide) {
+		for (final Instruction instruction : this.instructions) {
+			instruction.execute(narrow, wide);
+		}
+	}
+
+
+
+	static boolean isWide(final int register) {
+		return register < 0;
+	}
+
+
+
+	static long mask(final int width) {
+		return width >= 64 ? -1L : (1L << width) - 1;
+	}
+
+
+
+	static long signExtend(final long value, final int width) {
+		return (value << (64 - width)) >> (64 - width);
+	}
+
+
+
+	static long toLong(final BitVector value) {
+		return value.toSignedBigInteger().longValue() & mask(value.getWidth());
+	}
+
+
+
+	private static final class Compiler implements TreeTransformer<Integer> {
+
+		private final Map<Ast, Integer> registers = new HashMap<>();
+		private final List<Instruction> instructions = new ArrayList<>();
+
+		private long[] narrow = new long[16];
+		private int numNarrow = 0;
+		private BitVector[] wide = new BitVector[4];
+		private int numWide = 0;
+
+		// Registers whose value is known at compile time
+		private final BitSet constantNarrow = new BitSet();
+		private final BitSet constantWide = new BitSet();
+
+		private final int[] inputRegisters;
+		private final int[] inputWidths;
+
+
+
+		Compiler(final List<? extends Ast> variables) {
+			this.inputRegisters = new int[variables.size()];
+			this.inputWidths = new int[variables.size()];
+
+			for (int i = 0; i < variables.size(); ++i) {
+				final Ast variable = variables.get(i);
+				if (this.registers.containsKey(variable)) {
+					throw new IllegalArgumentException("Duplicate variable: " + variable);
+				}
+
+				final int width;
+				if (variable instanceof BVVar) {
+					width = ((BVVar) variable).getWidth();
+				} else if (variable instanceof BoolVar) {
+					width = 1;
+				} else {
+					throw new IllegalArgumentException("Not a variable: " + variable);
+				}
+
+				final int register = width > 64 ? this.newWide() : this.newNarrow();
+				this.inputRegisters[i] = register;
+				this.inputWidths[i] = width;
+				this.registers.put(variable, register);
+			}
+		}
+
+
+
+		private int newNarrow() {
+			if (this.numNarrow == this.narrow.length) {
+				this.narrow = Arrays.copyOf(this.narrow, 2 * this.narrow.length);
+			}
+			return this.numNarrow++;
+		}
+
+
+
+		private int newWide() {
+			if (this.numWide == this.wide.length) {
+				this.wide = Arrays.copyOf(this.wide, 2 * this.wide.length);
+			}
+			return ~(this.numWide++);
+		}
+
+
+
+		private int newRegister(final int width) {
+			return width > 64 ? this.newWide() : this.newNarrow();
+		}
+
+
+
+		private boolean isConstant(final int register) {
+			return isWide(register)
+					? this.constantWide.get(~register)
+					: this.constantNarrow.get(register);
+		}
+
+
+
+		private void setConstant(final int register) {
+			if (isWide(register)) {
+				this.constantWide.set(~register);
+			} else {
+				this.constantNarrow.set(register);
+			}
+		}
+
+
+
+		private int emit(final int result, final Instruction instruction, final int... operands) {
+			for (final int operand : operands) {
+				if (!this.isConstant(operand)) {
+					this.instructions.add(instruction);
+					return result;
+				}
+			}
+
+			// Constant folding
+			instruction.execute(this.narrow, this.wide);
+			this.setConstant(result);
+			return result;
+		}
+
+
+
+		private int get(final Ast tree) {
+			final Integer register = this.registers.get(tree);
+			if (register != null) {
+				return register;
+			}
+
+			final int result = tree.accept(this);
+			this.registers.put(tree, result);
+			return result;
+		}
+
+
+
+		private int toWide(final int register, final int width) {
+			if (isWide(register)) {
+				return register;
+			}
+
+			final int result = this.newWide();
+			return this.emit(result,
+					(n, w) -> w[~result] = new BitVector(width, n[register]),
+					register);
+		}
+
+
+
+		@Override
+		public Integer visit(final BoolAllDifferent tree) {
+			final List<BVAst> operands = tree.getOperands();
+			final int[] ops = new int[operands.size()];
+			boolean anyWide = false;
+			for (int i = 0; i < ops.length; ++i) {
+				ops[i] = this.get(operands.get(i));
+				anyWide |= isWide(ops[i]);
+			}
+
+			final int result = this.newNarrow();
+			if (anyWide) {
+				for (int i = 0; i < ops.length; ++i) {
+					ops[i] = this.toWide(ops[i], operands.get(i).getWidth());
+				}
+				return this.emit(result, (n, w) -> {
+					for (int i = 0; i < ops.length; ++i) {
+						for (int j = i + 1; j < ops.length; ++j) {
+							if (w[~ops[i]].equals(w[~ops[j]])) {
+								n[result] = 0;
+								return;
+							}
+						}
+					}
+					n[result] = 1;
+				}, ops);
+			}
+
+			return this.emit(result, (n, w) -> {
+				for (int i = 0; i < ops.length; ++i) {
+					for (int j = i + 1; j < ops.length; ++j) {
+						if (n[ops[i]] == n[ops[j]]) {
+							n[result] = 0;
+							return;
+						}
+					}
+				}
+				n[result] = 1;
+			}, ops);
+		}
+
+
+
+		@Override
+		public Integer visit(final BoolBinBV tree) {
+			final int left = this.get(tree.getLeft());
+			final int right = this.get(tree.getRight());
+			final int result = this.newNarrow();
+
+			if (isWide(left) || isWide(right)) {
+				final int l = this.toWide(left, tree.getLeft().getWidth());
+				final int r = this.toWide(right, tree.getRight().getWidth());
+				final Instruction instruction;
+				switch (tree.getKind()) {
+					case EQUALS:   instruction = (n, w) -> n[result] = w[~l].equals(w[~r]) ? 1 : 0; break;
+					case DISTINCT: instruction = (n, w) -> n[result] = w[~l].equals(w[~r]) ? 0 : 1; break;
+					case UGT:      instruction = (n, w) -> n[result] = w[~l].ugt(w[~r]) ? 1 : 0; break;
+					case UGE:      instruction = (n, w) -> n[result] = w[~l].uge(w[~r]) ? 1 : 0; break;
+					case ULT:      instruction = (n, w) -> n[result] = w[~l].ult(w[~r]) ? 1 : 0; break;
+					case ULE:      instruction = (n, w) -> n[result] = w[~l].ule(w[~r]) ? 1 : 0; break;
+					case SGT:      instruction = (n, w) -> n[result] = w[~l].sgt(w[~r]) ? 1 : 0; break;
+					case SGE:      instruction = (n, w) -> n[result] = w[~l].sge(w[~r]) ? 1 : 0; break;
+					case SLT:      instruction = (n, w) -> n[result] = w[~l].slt(w[~r]) ? 1 : 0; break;
+					case SLE:      instruction = (n, w) -> n[result] = w[~l].sle(w[~r]) ? 1 : 0; break;
+					default:       throw new IllegalStateException();
+				}
+				return this.emit(result, instruction, l, r);
+			}
+
+			final int width = tree.getLeft().getWidth();
+			if (width != tree.getRight().getWidth()) {
+				throw new BitWidthMismatchException();
+			}
+
+			final Instruction instruction;
+			switch (tree.getKind()) {
+				case EQUALS:
+					instruction = (n, w) -> n[result] = n[left] == n[right] ? 1 : 0;
+					break;
+				case DISTINCT:
+					instruction = (n, w) -> n[result] = n[left] != n[right] ? 1 : 0;
+					break;
+				case UGT:
+					instruction = (n, w) -> n[result] = Long.compareUnsigned(n[left], n[right]) > 0 ? 1 : 0;
+					break;
+				case UGE:
+					instruction = (n, w) -> n[result] = Long.compareUnsigned(n[left], n[right]) >= 0 ? 1 : 0;
+					break;
+				case ULT:
+					instruction = (n, w) -> n[result] = Long.compareUnsigned(n[left], n[right]) < 0 ? 1 : 0;
+					break;
+				case ULE:
+					instruction = (n, w) -> n[result] = Long.compareUnsigned(n[left], n[right]) <= 0 ? 1 : 0;
+					break;
+				case SGT:
+					instruction = (n, w) -> n[result] =
+							signExtend(n[left], width) > signExtend(n[right], width) ? 1 : 0;
+					break;
+				case SGE:
+					instruction = (n, w) -> n[result] =
+							signExtend(n[left], width) >= signExtend(n[right], width) ? 1 : 0;
+					break;
+				case SLT:
+					instruction = (n, w) -> n[result] =
+							signExtend(n[left], width) < signExtend(n[right], width) ? 1 : 0;
+					break;
+				case SLE:
+					instruction = (n, w) -> n[result] =
+							signExtend(n[left], width) <= signExtend(n[right], width) ? 1 : 0;
+					break;
+				default:
+					throw new IllegalStateException();
+			}
+			return this.emit(result, instruction, left, right);
+		}
+
+
+
+		@Override
+		public Integer visit(final BoolBin tree) {
+			final int left = this.get(tree.getLeft());
+			final int right = this.get(tree.getRight());
+			final int result = this.newNarrow();
+
+			final Instruction instruction;
+			switch (tree.getKind()) {
+				case EQUALS:   instruction = (n, w) -> n[result] = n[left] == n[right] ? 1 : 0; break;
+				case DISTINCT: instruction = (n, w) -> n[result] = n[left] ^ n[right]; break;
+				case IMPLIES:  instruction = (n, w) -> n[result] = (n[left] ^ 1) | n[right]; break;
+				case AND:      instruction = (n, w) -> n[result] = n[left] & n[right]; break;
+				case OR:       instruction = (n, w) -> n[result] = n[left] | n[right]; break;
+				default:       throw new IllegalStateException();
+			}
+			return this.emit(result, instruction, left, right);
+		}
+
+
+
+		@Override
+		public Integer visit(final BoolConst tree) {
+			final int result = this.newNarrow();
+			final long value = tree.getValue() ? 1 : 0;
+			return this.emit(result, (n, w) -> n[result] = value);
+		}
+
+
+
+		@Override
+		public Integer visit(final BoolNegate tree) {
+			final int operand = this.get(tree.getOperand());
+			final int result = this.newNarrow();
+			return this.emit(result, (n, w) -> n[result] = n[operand] ^ 1, operand);
+		}
+
+
+
+		@Override
+		public Integer visit(final BoolVar tree) {
+			throw new IllegalArgumentException("Unbound variable: " + tree);
+		}
+
+
+
+		@Override
+		public Integer visit(final BVBinary tree) {
+			final int left = this.get(tree.getLeft());
+			final int right = this.get(tree.getRight());
+			final int width = tree.getWidth();
+			final int result = this.newRegister(width);
+
+			if (tree.getKind() == BVBinOp.CONCAT) {
+				final int rightWidth = tree.getRight().getWidth();
+				if (isWide(result)) {
+					final int l = this.toWide(left, tree.getLeft().getWidth());
+					final int r = this.toWide(right, rightWidth);
+					return this.emit(result, (n, w) -> w[~result] = w[~l].concat(w[~r]), l, r);
+				}
+				return this.emit(result,
+						(n, w) -> n[result] = (n[left] << rightWidth) | n[right],
+						left, right);
+			}
+
+			if (isWide(result)) {
+				final BinaryOperator<BitVector> op = getWideOperation(tree.getKind());
+				return this.emit(result, (n, w) -> w[~result] = op.apply(w[~left], w[~right]), left, right);
+			}
+
+			final long mask = mask(width);
+			final Instruction instruction;
+			switch (tree.getKind()) {
+				case PLUS:
+					instruction = (n, w) -> n[result] = (n[left] + n[right]) & mask;
+					break;
+				case MINUS:
+					instruction = (n, w) -> n[result] = (n[left] - n[right]) & mask;
+					break;
+				case MUL:
+					instruction = (n, w) -> n[result] = (n[left] * n[right]) & mask;
+					break;
+				case SDIV:
+					instruction = (n, w) -> n[result] = n[right] == 0
+							? mask
+							: (signExtend(n[left], width) / signExtend(n[right], width)) & mask;
+					break;
+				case UDIV:
+					instruction = (n, w) -> n[result] = n[right] == 0
+							? mask
+							: Long.divideUnsigned(n[left], n[right]);
+					break;
+				case SREM:
+					instruction = (n, w) -> n[result] = n[right] == 0
+							? n[left]
+							: (signExtend(n[left], width) % signExtend(n[right], width)) & mask;
+					break;
+				case UREM:
+				case UMOD:
+					instruction = (n, w) -> n[result] = n[right] == 0
+							? n[left]
+							: Long.remainderUnsigned(n[left], n[right]);
+					break;
+				case SMOD:
+					instruction = (n, w) -> n[result] = n[right] == 0
+							? n[left]
+							: Math.floorMod(signExtend(n[left], width), signExtend(n[right], width)) & mask;
+					break;
+				case AND:
+					instruction = (n, w) -> n[result] = n[left] & n[right];
+					break;
+				case OR:
+					instruction = (n, w) -> n[result] = n[left] | n[right];
+					break;
+				case XOR:
+					instruction = (n, w) -> n[result] = n[left] ^ n[right];
+					break;
+				case SHL:
+					instruction = (n, w) -> n[result] = shl(n[left], n[right], width);
+					break;
+				case ASHR:
+					instruction = (n, w) -> n[result] = ashr(n[left], n[right], width);
+					break;
+				case LSHR:
+					instruction = (n, w) -> n[result] = lshr(n[left], n[right], width);
+					break;
+				case ROL:
+					instruction = (n, w) -> n[result] = shl(n[left], n[right], width)
+							| lshr(n[left], (width - n[right]) & mask, width);
+					break;
+				case ROR:
+					instruction = (n, w) -> n[result] = lshr(n[left], n[right], width)
+							| shl(n[left], (width - n[right]) & mask, width);
+					break;
+				default:
+					throw new IllegalStateException();
+			}
+			return this.emit(result, instruction, left, right);
+		}
+
+
+
+		// The shift operations mirror BitVector: a shift amount that is negative
+		// when interpreted as a signed value always yields zero.
+		private static long shl(final long value, final long amount, final int width) {
+			final long signedAmount = signExtend(amount, width);
+			return signedAmount < 0 || signedAmount >= width
+					? 0
+					: (value << signedAmount) & mask(width);
+		}
+
+
+
+		private static long lshr(final long value, final long amount, final int width) {
+			final long signedAmount = signExtend(amount, width);
+			return signedAmount < 0 || signedAmount >= width
+					? 0
+					: value >>> signedAmount;
+		}
+
+
+
+		private static long ashr(final long value, final long amount, final int width) {
+			final long signedAmount = signExtend(amount, width);
+			if (signedAmount < 0 || signedAmount >= (1L << 30)) {
+				return 0;
+			}
+			return (signExtend(value, width) >> Math.min(signedAmount, 63)) & mask(width);
+		}
+
+
+
+		private static BinaryOperator<BitVector> getWideOperation(final BVBinOp op) {
+			switch (op) {
+				case PLUS:  return BitVector::add;
+				case MINUS: return BitVector::sub;
+				case MUL:   return BitVector::mul;
+				case SDIV:  return BitVector::sdiv;
+				case UDIV:  return BitVector::udiv;
+				case SREM:  return BitVector::srem;
+				case UREM:  return BitVector::urem;
+				case SMOD:  return BitVector::smod;
+				case UMOD:  return BitVector::umod;
+				case AND:   return BitVector::and;
+				case OR:    return BitVector::or;
+				case XOR:   return BitVector::xor;
+				case SHL:   return BitVector::shl;
+				case ASHR:  return BitVector::ashr;
+				case LSHR:  return BitVector::lshr;
+				case ROL:   return BitVector::rol;
+				case ROR:   return BitVector::ror;
+				default:    throw new IllegalStateException();
+			}
+		}
+
+
+
+		@Override
+		public Integer visit(final BVConst tree) {
+			final BitVector value = tree.getValue();
+			final int result = this.newRegister(value.getWidth());
+			if (isWide(result)) {
+				return this.emit(result, (n, w) -> w[~result] = value);
+			}
+			final long longValue = toLong(value);
+			return this.emit(result, (n, w) -> n[result] = longValue);
+		}
+
+
+
+		@Override
+		public Integer visit(final BVExtract tree) {
+			final int operand = this.get(tree.getOperand());
+			final int low = tree.getLow();
+			final int high = tree.getHigh();
+			final int result = this.newRegister(tree.getWidth());
+
+			if (isWide(result)) {
+				return this.emit(result, (n, w) -> w[~result] = w[~operand].extract(low, high), operand);
+			}
+
+			final long mask = mask(tree.getWidth());
+			if (isWide(operand)) {
+				return this.emit(result,
+						(n, w) -> n[result] = w[~operand].toSignedBigInteger().shiftRight(low).longValue() & mask,
+						operand);
+			}
+			return this.emit(result, (n, w) -> n[result] = (n[operand] >>> low) & mask, operand);
+		}
+
+
+
+		@Override
+		public Integer visit(final BVIte tree) {
+			final int condition = this.get(tree.getCondition());
+			final int thenExpr = this.get(tree.getThenExpr());
+			final int elseExpr = this.get(tree.getElseExpr());
+
+			if (this.isConstant(condition)) {
+				return this.narrow[condition] != 0 ? thenExpr : elseExpr;
+			}
+
+			final int result = this.newRegister(tree.getWidth());
+			if (isWide(result)) {
+				return this.emit(result,
+						(n, w) -> w[~result] = n[condition] != 0 ? w[~thenExpr] : w[~elseExpr],
+						condition, thenExpr, elseExpr);
+			}
+			return this.emit(result,
+					(n, w) -> n[result] = n[condition] != 0 ? n[thenExpr] : n[elseExpr],
+					condition, thenExpr, elseExpr);
+		}
+
+
+
+		@Override
+		public Integer visit(final BVUnary tree) {
+			final int operand = this.get(tree.getOperand());
+			final int result = this.newRegister(tree.getWidth());
+
+			if (isWide(result)) {
+				switch (tree.getKind()) {
+					case NOT:
+						return this.emit(result, (n, w) -> w[~result] = w[~operand].not(), operand);
+					case NEG:
+						return this.emit(result, (n, w) -> w[~result] = w[~operand].neg(), operand);
+					default:
+						throw new IllegalStateException();
+				}
+			}
+
+			final long mask = mask(tree.getWidth());
+			switch (tree.getKind()) {
+				case NOT:
+					return this.emit(result, (n, w) -> n[result] = ~n[operand] & mask, operand);
+				case NEG:
+					return this.emit(result, (n, w) -> n[result] = -n[operand] & mask, operand);
+				default:
+					throw new IllegalStateException();
+			}
+		}
+
+
+
+		@Override
+		public Integer visit(final BVVar tree) {
+			throw new IllegalArgumentException("Unbound variable: " + tree);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package smt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+
+// Forwards all calls to another solver and writes each check together with
+// the constraints in scope to a QueryDump
+public final class DumpingSolver implements Solver {
+
+	private final Solver solver;
+	private final QueryDump dump;
+	private final int number;
+
+	// The constraints of the base level and of each pushed scope
+	private final List<List<BoolAst>> scopes = new ArrayList<>();
+	private int numberOfQueries = 0;
+
+
+
+	DumpingSolver(final Solver solver, final QueryDump dump, final int number) {
+		this.solver = solver;
+		this.dump = dump;
+		this.number = number;
+		this.scopes.add(new ArrayList<>());
+	}
+
+
+
+	private List<BoolAst> getConstraints() {
+		final List<BoolAst> result = new ArrayList<>();
+		for (final List<BoolAst> scope : this.scopes) {
+			result.addAll(scope);
+		}
+		return result;
+	}
+
+
+
+	@Override
+	public void add(final BoolAst constraint) {
+		this.solver.add(constraint);
+		this.scopes.get(this.scopes.size() - 1).add(constraint);
+	}
+
+
+
+	@Override
+	public SatResult checkSat() {
+		return checkSatAssuming(Collections.emptyList());
+	}
+
+
+
+	@Override
+	public SatResult checkSatAssuming(final List<BoolAst> assumptions) {
+		final long start = System.nanoTime();
+		final SatResult result = assumptions.isEmpty()
+				? this.solver.checkSat()
+				: this.solver.checkSatAssuming(assumptions);
+		final long nanos = System.nanoTime() - start;
+
+		this.dump.write(this.number, this.numberOfQueries, getConstraints(), assumptions, result,
+				nanos);
+		this.numberOfQueries += 1;
+		return result;
+	}
+
+
+
+	@Override
+	public List<BoolAst> getUnsatCore() {
+		return this.solver.getUnsatCore();
+	}
+
+
+
+	@Override
+	public BitVector getBVAssignment(final BVAst tree) {
+		return this.solver.getBVAssignment(tree);
+	}
+
+
+
+	@Override
+	public List<BitVector> getBVAssignments(final List<? extends BVAst> trees) {
+		return this.solver.getBVAssignments(trees);
+	}
+
+
+
+	@Override
+	public boolean getBoolAssignment(final BoolAst tree) {
+		return this.solver.getBoolAssignment(tree);
+	}
+
+
+
+	@Override
+	public void push() {
+		this.solver.push();
+		this.scopes.add(new ArrayList<>());
+	}
+
+
+
+	@Override
+	public void pop() {
+		this.solver.pop();
+		this.scopes.remove(this.scopes.size() - 1);
+	}
+
+
+
+	@Override
+	public void interrupt() {
+		this.solver.interrupt();
+	}
+}
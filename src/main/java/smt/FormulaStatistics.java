@@ -0,0 +1,286 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package smt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.math.LongMath;
+
+
+
+// Size measures of a set of formulas, e.g., the assertions of a query. The
+// formulas are considered as one DAG, in which equal subtrees are the same
+// node.
+public final class FormulaStatistics {
+
+	private static final class Children implements TreeTransformer<List<Ast>> {
+		@Override
+		public List<Ast> visit(final BoolAllDifferent tree) {
+			return new ArrayList<>(tree.getOperands());
+		}
+
+
+
+		@Override
+		public List<Ast> visit(final BoolBinBV tree) {
+			return Arrays.asList(tree.getLeft(), tree.getRight());
+		}
+
+
+
+		@Override
+		public List<Ast> visit(final BoolBin tree) {
+			return Arrays.asList(tree.getLeft(), tree.getRight());
+		}
+
+
+
+		@Override
+		public List<Ast> visit(final BoolConst tree) {
+			return Collections.emptyList();
+		}
+
+
+
+		@Override
+		public List<Ast> visit(final BoolNegate tree) {
+			return Collections.singletonList(tree.getOperand());
+		}
+
+
+
+		@Override
+		public List<Ast> visit(final BoolVar tree) {
+			return Collections.emptyList();
+		}
+
+
+
+		@Override
+		public List<Ast> visit(final BVBinary tree) {
+			return Arrays.asList(tree.getLeft(), tree.getRight());
+		}
+
+
+
+		@Override
+		public List<Ast> visit(final BVConst tree) {
+			return Collections.emptyList();
+		}
+
+
+
+		@Override
+		public List<Ast> visit(final BVExtract tree) {
+			return Collections.singletonList(tree.getOperand());
+		}
+
+
+
+		@Override
+		public List<Ast> visit(final BVIte tree) {
+			return Arrays.asList(tree.getCondition(), tree.getThenExpr(), tree.getElseExpr());
+		}
+
+
+
+		@Override
+		public List<Ast> visit(final BVUnary tree) {
+			return Collections.singletonList(tree.getOperand());
+		}
+
+
+
+		@Override
+		public List<Ast> visit(final BVVar tree) {
+			return Collections.emptyList();
+		}
+	}
+
+
+
+	private static final Children CHILDREN = new Children();
+
+	private final int numberOfNodes;
+	private final int numberOfSharedNodes;
+	private final int maximalDepth;
+	private final int numberOfVariables;
+	private final long treeSize;
+
+
+
+	private FormulaStatistics(final int numberOfNodes, final int numberOfSharedNodes,
+			final int maximalDepth, final int numberOfVariables, final long treeSize) {
+
+		this.numberOfNodes = numberOfNodes;
+		this.numberOfSharedNodes = numberOfSharedNodes;
+		this.maximalDepth = maximalDepth;
+		this.numberOfVariables = numberOfVariables;
+		this.treeSize = treeSize;
+	}
+
+
+
+	public static FormulaStatistics of(final List<? extends Ast> trees) {
+		final List<Ast> nodes = getNodes(trees);
+		final Map<Ast, Integer> parents = countParents(trees);
+
+		int numberOfSharedNodes = 0;
+		int numberOfVariables = 0;
+		int maximalDepth = 0;
+		long treeSize = 0;
+
+		// The nodes are ordered bottom-up, so the children are done before
+		final Map<Ast, Integer> depths = new HashMap<>();
+		final Map<Ast, Long> sizes = new HashMap<>();
+		for (final Ast node : nodes) {
+			int depth = 1;
+			long size = 1;
+			for (final Ast child : getChildren(node)) {
+				depth = Math.max(depth, depths.get(child) + 1);
+				size = LongMath.saturatedAdd(size, sizes.get(child));
+			}
+			depths.put(node, depth);
+			sizes.put(node, size);
+
+			if (parents.get(node) > 1 && !isLeaf(node)) {
+				numberOfSharedNodes += 1;
+			}
+			if (node instanceof BVVar || node instanceof BoolVar) {
+				numberOfVariables += 1;
+			}
+		}
+
+		for (final Ast tree : trees) {
+			maximalDepth = Math.max(maximalDepth, depths.get(tree));
+			treeSize = LongMath.saturatedAdd(treeSize, sizes.get(tree));
+		}
+
+		return new FormulaStatistics(nodes.size(), numberOfSharedNodes, maximalDepth,
+				numberOfVariables, treeSize);
+	}
+
+
+
+	// Number of distinct nodes
+	public int getNumberOfNodes() {
+		return this.numberOfNodes;
+	}
+
+
+
+	// Number of operations (i.e., no variables or constants) with more than
+	// one parent
+	public int getNumberOfSharedNodes() {
+		return this.numberOfSharedNodes;
+	}
+
+
+
+	public int getMaximalDepth() {
+		return this.maximalDepth;
+	}
+
+
+
+	public int getNumberOfVariables() {
+		return this.numberOfVariables;
+	}
+
+
+
+	// Number of nodes if the formulas were printed without sharing; saturates
+	// at Long.MAX_VALUE
+	public long getTreeSize() {
+		return this.treeSize;
+	}
+
+
+
+	@Override
+	public String toString() {
+		return "nodes: " + this.numberOfNodes
+				+ ", shared: " + this.numberOfSharedNodes
+				+ ", depth: " + this.maximalDepth
+				+ ", variables: " + this.numberOfVariables
+				+ ", tree size: " + this.treeSize;
+	}
+
+
+
+	static boolean isLeaf(final Ast tree) {
+		return tree instanceof BVVar || tree instanceof BoolVar
+				|| tree instanceof BVConst || tree instanceof BoolConst;
+	}
+
+
+
+	static List<Ast> getChildren(final Ast tree) {
+		return tree.accept(CHILDREN);
+	}
+
+
+
+	// Returns the distinct nodes of the trees, each after its children
+	static List<Ast> getNodes(final List<? extends Ast> trees) {
+		final Set<Ast> result = new LinkedHashSet<>();
+		for (final Ast tree : trees) {
+			collectNodes(tree, result);
+		}
+		return new ArrayList<>(result);
+	}
+
+
+
+	private static void collectNodes(final Ast tree, final Set<Ast> nodes) {
+		if (nodes.contains(tree)) {
+			return;
+		}
+		for (final Ast child : getChildren(tree)) {
+			collectNodes(child, nodes);
+		}
+		nodes.add(tree);
+	}
+
+
+
+	// Counts the references to each node, including the references from the
+	// list of trees
+	static Map<Ast, Integer> countParents(final List<? extends Ast> trees) {
+		final Map<Ast, Integer> result = new HashMap<>();
+		for (final Ast node : getNodes(trees)) {
+			result.putIfAbsent(node, 0);
+			for (final Ast child : getChildren(node)) {
+				result.merge(child, 1, Integer::sum);
+			}
+		}
+		for (final Ast tree : trees) {
+			result.merge(tree, 1, Integer::sum);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package smt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+
+
+// Writes every check of the solvers created via dump to a directory, one
+// SMT-LIB2 file per check that contains all constraints in scope (assumptions
+// become assertions). The file statistics.csv lists the result, the time and
+// the size of each query, which shows the encodings that explode.
+public final class QueryDump implements Closeable {
+
+	public static final String REPORT_FILE = "statistics.csv";
+
+	private final Path directory;
+	private final PrintWriter report;
+	private final AtomicInteger numberOfSolvers = new AtomicInteger(0);
+
+
+
+	public QueryDump(final Path directory) throws IOException {
+		this.directory = directory;
+		Files.createDirectories(directory);
+		this.report = new PrintWriter(Files.newBufferedWriter(directory.resolve(REPORT_FILE),
+				StandardCharsets.UTF_8));
+		this.report.println(
+				"file,result,milliseconds,assertions,nodes,shared,depth,variables,treesize");
+		this.report.flush();
+	}
+
+
+
+	// Creates a solver via the factory that dumps its queries; can be used as
+	// solver interceptor of SynthesizerSettings
+	public Solver dump(final Supplier<Solver> factory) {
+		return new DumpingSolver(factory.get(), this, this.numberOfSolvers.getAndIncrement());
+	}
+
+
+
+	void write(final int solver, final int query, final List<BoolAst> constraints,
+			final List<BoolAst> assumptions, final SatResult result, final long nanos) {
+
+		final List<BoolAst> assertions = new ArrayList<>(constraints);
+		assertions.addAll(assumptions);
+		final FormulaStatistics statistics = FormulaStatistics.of(assertions);
+		final String name = String.format(Locale.ROOT, "solver%d-query%d.smt2", solver, query);
+		final String milliseconds = String.format(Locale.ROOT, "%.3f", nanos / 1000000.0);
+
+		try (final PrintWriter out = new PrintWriter(
+				Files.newBufferedWriter(this.directory.resolve(name), StandardCharsets.UTF_8))) {
+			out.println("; result: " + result + " (" + milliseconds + " ms)");
+			out.println("; " + statistics);
+			out.println("(set-logic QF_BV)");
+			out.print(SmtLibPrinter.toScript(assertions));
+			out.println("(check-sat)");
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		synchronized (this.report) {
+			this.report.println(String.join(",", name, result.toString(), milliseconds,
+					Integer.toString(assertions.size()),
+					Integer.toString(statistics.getNumberOfNodes()),
+					Integer.toString(statistics.getNumberOfSharedNodes()),
+					Integer.toString(statistics.getMaximalDepth()),
+					Integer.toString(statistics.getNumberOfVariables()),
+					Long.toString(statistics.getTreeSize())));
+			this.report.flush();
+		}
+	}
+
+
+
+	@Override
+	public void close() {
+		synchronized (this.report) {
+			this.report.close();
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package smt;
+
+import java.util.Collections;
+import java.util.List;
+
+import smt.SolverLog.Event;
+import smt.SolverLog.Kind;
+
+
+
+// Forwards all calls to another solver and records them together with their
+// results in a SolverLog
+public final class RecordingSolver implements Solver {
+
+	private final Solver solver;
+	private final SolverLog log;
+
+
+
+	public RecordingSolver(final Solver solver, final SolverLog log) {
+		this.solver = solver;
+		this.log = log;
+	}
+
+
+
+	public SolverLog getLog() {
+		return this.log;
+	}
+
+
+
+	private void record(final Kind kind, final List<? extends Ast> arguments, final Object result,
+			final long start) {
+
+		this.log.add(new Event(kind, arguments, result, System.nanoTime() - start));
+	}
+
+
+
+	@Override
+	public void add(final BoolAst constraint) {
+		final long start = System.nanoTime();
+		this.solver.add(constraint);
+		record(Kind.ADD, Collections.singletonList(constraint), null, start);
+	}
+
+
+
+	@Override
+	public SatResult checkSat() {
+		final long start = System.nanoTime();
+		final SatResult result = this.solver.checkSat();
+		record(Kind.CHECK_SAT, Collections.emptyList(), result, start);
+		return result;
+	}
+
+
+
+	@Override
+	public SatResult checkSatAssuming(final List<BoolAst> assumptions) {
+		final long start = System.nanoTime();
+		final SatResult result = this.solver.checkSatAssuming(assumptions);
+		record(Kind.CHECK_SAT_ASSUMING, assumptions, result, start);
+		return result;
+	}
+
+
+
+	@Override
+	public List<BoolAst> getUnsatCore() {
+		final long start = System.nanoTime();
+		final List<BoolAst> result = this.solver.getUnsatCore();
+		record(Kind.GET_UNSAT_CORE, Collections.emptyList(), result, start);
+		return result;
+	}
+
+
+
+	@Override
+	public BitVector getBVAssignment(final BVAst tree) {
+		final long start = System.nanoTime();
+		final BitVector result = this.solver.getBVAssignment(tree);
+		record(Kind.GET_BV_ASSIGNMENT, Collections.singletonList(tree), result, start);
+		return result;
+	}
+
+
+
+	@Override
+	public List<BitVector> getBVAssignments(final List<? extends BVAst> trees) {
+		final long start = System.nanoTime();
+		final List<BitVector> result = this.solver.getBVAssignments(trees);
+		record(Kind.GET_BV_ASSIGNMENTS, trees, result, start);
+		return result;
+	}
+
+
+
+	@Override
+	public boolean getBoolAssignment(final BoolAst tree) {
+		final long start = System.nanoTime();
+		final boolean result = this.solver.getBoolAssignment(tree);
+		record(Kind.GET_BOOL_ASSIGNMENT, Collections.singletonList(tree), result, start);
+		return result;
+	}
+
+
+
+	@Override
+	public void push() {
+		final long start = System.nanoTime();
+		this.solver.push();
+		record(Kind.PUSH, Collections.emptyList(), null, start);
+	}
+
+
+
+	@Override
+	public void pop() {
+		final long start = System.nanoTime();
+		this.solver.pop();
+		record(Kind.POP, Collections.emptyList(), null, start);
+	}
+
+
+
+	@Override
+	public void interrupt() {
+		this.solver.interrupt();
+	}
+}
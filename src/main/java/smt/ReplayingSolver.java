@@ -0,0 +1,146 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package smt;
+
+import java.util.Collections;
+import java.util.List;
+
+import smt.SolverLog.Event;
+import smt.SolverLog.Kind;
+
+
+
+// Serves the results of a SolverLog back without solving anything. The calls
+// must come in the recorded order; otherwise an IllegalStateException is
+// thrown. If arguments are checked, the constraints, assumptions and queried
+// trees must also equal the recorded ones.
+public final class ReplayingSolver implements Solver {
+
+	private final List<Event> events;
+	private final boolean checkArguments;
+	private int position = 0;
+
+
+
+	public ReplayingSolver(final SolverLog log, final boolean checkArguments) {
+		this.events = log.getEvents();
+		this.checkArguments = checkArguments;
+	}
+
+
+
+	// Whether all recorded calls have been replayed
+	public boolean isFinished() {
+		return this.position == this.events.size();
+	}
+
+
+
+	private Object replay(final Kind kind, final List<? extends Ast> arguments) {
+		if (this.position >= this.events.size()) {
+			throw new IllegalStateException("Replay diverged: " + kind + " after the end of the log");
+		}
+
+		final Event event = this.events.get(this.position);
+		if (event.getKind() != kind) {
+			throw new IllegalStateException("Replay diverged at call " + this.position
+					+ ": expected " + event.getKind() + ", but was " + kind);
+		}
+		if (this.checkArguments && !event.getArguments().equals(arguments)) {
+			throw new IllegalStateException("Replay diverged at call " + this.position
+					+ ": the arguments of " + kind + " differ");
+		}
+
+		this.position += 1;
+		return event.getResult();
+	}
+
+
+
+	@Override
+	public void add(final BoolAst constraint) {
+		replay(Kind.ADD, Collections.singletonList(constraint));
+	}
+
+
+
+	@Override
+	public SatResult checkSat() {
+		return (SatResult) replay(Kind.CHECK_SAT, Collections.emptyList());
+	}
+
+
+
+	@Override
+	public SatResult checkSatAssuming(final List<BoolAst> assumptions) {
+		return (SatResult) replay(Kind.CHECK_SAT_ASSUMING, assumptions);
+	}
+
+
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<BoolAst> getUnsatCore() {
+		return (List<BoolAst>) replay(Kind.GET_UNSAT_CORE, Collections.emptyList());
+	}
+
+
+
+	@Override
+	public BitVector getBVAssignment(final BVAst tree) {
+		return (BitVector) replay(Kind.GET_BV_ASSIGNMENT, Collections.singletonList(tree));
+	}
+
+
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<BitVector> getBVAssignments(final List<? extends BVAst> trees) {
+		return (List<BitVector>) replay(Kind.GET_BV_ASSIGNMENTS, trees);
+	}
+
+
+
+	@Override
+	public boolean getBoolAssignment(final BoolAst tree) {
+		return (Boolean) replay(Kind.GET_BOOL_ASSIGNMENT, Collections.singletonList(tree));
+	}
+
+
+
+	@Override
+	public void push() {
+		replay(Kind.PUSH, Collections.emptyList());
+	}
+
+
+
+	@Override
+	public void pop() {
+		replay(Kind.POP, Collections.emptyList());
+	}
+
+
+
+	@Override
+	public void interrupt() {
+		// Replayed calls return immediately
+	}
+}
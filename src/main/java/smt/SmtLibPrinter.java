@@ -0,0 +1,311 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package smt;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.regex.Pattern;
+
+
+
+// Prints trees in SMT-LIB2 syntax. Subtrees that occur more than once are
+// printed once and referred to by name, either via let (toTerm) or via
+// define-fun (toScript), so DAGs are not unfolded into trees.
+public final class SmtLibPrinter implements TreeTransformer<String> {
+
+	private static final Pattern SIMPLE_SYMBOL = Pattern.compile(
+			"[a-zA-Z~!@$%^&*_+=<>.?/-][a-zA-Z0-9~!@$%^&*_+=<>.?/-]*");
+
+	private static final Set<String> RESERVED_WORDS = new HashSet<>(Arrays.asList(
+			"BINARY", "DECIMAL", "HEXADECIMAL", "NUMERAL", "STRING", "_", "!", "as", "let",
+			"exists", "forall", "match", "par"));
+
+	// Names of the shared subtrees that have been bound already
+	private final Map<Ast, String> names = new HashMap<>();
+	private final String prefix;
+
+
+
+	private SmtLibPrinter(final String prefix) {
+		this.prefix = prefix;
+	}
+
+
+
+	// Returns a term for the tree that binds its shared subtrees with let
+	public static String toTerm(final Ast tree) {
+		final List<Ast> trees = new ArrayList<>();
+		trees.add(tree);
+		final SmtLibPrinter printer = new SmtLibPrinter(getPrefix(trees));
+
+		final StringBuilder bindings = new StringBuilder();
+		int open = 0;
+		for (final Ast shared : getSharedSubtrees(trees)) {
+			final String name = printer.prefix + printer.names.size();
+			bindings.append("(let ((").append(name).append(' ').append(shared.accept(printer))
+					.append(")) ");
+			printer.names.put(shared, name);
+			open += 1;
+		}
+
+		final StringBuilder result = bindings.append(printer.print(tree));
+		for (int i = 0; i < open; ++i) {
+			result.append(')');
+		}
+		return result.toString();
+	}
+
+
+
+	// Returns the declarations of the variables, a define-fun for each
+	// subtree that occurs more than once and an assert for each assertion,
+	// each on its own line
+	public static String toScript(final List<? extends BoolAst> assertions) {
+		final SmtLibPrinter printer = new SmtLibPrinter(getPrefix(assertions));
+		final StringBuilder result = new StringBuilder();
+
+		for (final Map.Entry<String, String> variable : getVariables(assertions).entrySet()) {
+			result.append("(declare-fun ").append(symbol(variable.getKey())).append(" () ")
+					.append(variable.getValue()).append(")\n");
+		}
+
+		for (final Ast shared : getSharedSubtrees(assertions)) {
+			final String name = printer.prefix + printer.names.size();
+			result.append("(define-fun ").append(name).append(" () ").append(getSort(shared))
+					.append(' ').append(shared.accept(printer)).append(")\n");
+			printer.names.put(shared, name);
+		}
+
+		for (final BoolAst assertion : assertions) {
+			result.append("(assert ").append(printer.print(assertion)).append(")\n");
+		}
+		return result.toString();
+	}
+
+
+
+	// Quotes the name if it is not a simple symbol
+	public static String symbol(final String name) {
+		if (SIMPLE_SYMBOL.matcher(name).matches() && !RESERVED_WORDS.contains(name)) {
+			return name;
+		}
+		if (name.indexOf('|') >= 0 || name.indexOf('\\') >= 0) {
+			throw new IllegalArgumentException("Name cannot be printed as a symbol: " + name);
+		}
+		return "|" + name + "|";
+	}
+
+
+
+	public static String getSort(final Ast tree) {
+		return tree instanceof BVAst
+				? "(_ BitVec " + ((BVAst) tree).getWidth() + ")"
+				: "Bool";
+	}
+
+
+
+	// Returns the sorts of the variables by their names in the order of their
+	// first occurrence
+	public static Map<String, String> getVariables(final List<? extends Ast> trees) {
+		final Map<String, String> result = new LinkedHashMap<>();
+		for (final Ast node : FormulaStatistics.getNodes(trees)) {
+			if (node instanceof BVVar) {
+				result.putIfAbsent(((BVVar) node).getName(), getSort(node));
+			} else if (node instanceof BoolVar) {
+				result.putIfAbsent(((BoolVar) node).getName(), getSort(node));
+			}
+		}
+		return result;
+	}
+
+
+
+	// Returns the subtrees with more than one parent that are not variables or
+	// constants, ordered such that each subtree comes after its own shared
+	// subtrees
+	private static List<Ast> getSharedSubtrees(final List<? extends Ast> trees) {
+		final Map<Ast, Integer> parents = FormulaStatistics.countParents(trees);
+		final List<Ast> result = new ArrayList<>();
+		for (final Ast node : FormulaStatistics.getNodes(trees)) {
+			if (parents.get(node) > 1 && !FormulaStatistics.isLeaf(node)) {
+				result.add(node);
+			}
+		}
+		return result;
+	}
+
+
+
+	// Avoids clashes between the names of the shared subtrees and variables
+	private static String getPrefix(final List<? extends Ast> trees) {
+		String result = "_s";
+		for (final String name : getVariables(trees).keySet()) {
+			while (name.startsWith(result)) {
+				result = "_" + result;
+			}
+		}
+		return result;
+	}
+
+
+
+	private String print(final Ast tree) {
+		final String name = this.names.get(tree);
+		return name != null ? name : tree.accept(this);
+	}
+
+
+
+	private String apply(final Object function, final Ast... operands) {
+		final StringJoiner result = new StringJoiner(" ", "(", ")");
+		result.add(function.toString());
+		for (final Ast operand : operands) {
+			result.add(print(operand));
+		}
+		return result.toString();
+	}
+
+
+
+	@Override
+	public String visit(final BoolAllDifferent tree) {
+		return apply("distinct", tree.getOperands().toArray(new Ast[0]));
+	}
+
+
+
+	@Override
+	public String visit(final BoolBinBV tree) {
+		return apply(tree.getKind(), tree.getLeft(), tree.getRight());
+	}
+
+
+
+	@Override
+	public String visit(final BoolBin tree) {
+		return apply(tree.getKind(), tree.getLeft(), tree.getRight());
+	}
+
+
+
+	@Override
+	public String visit(final BoolConst tree) {
+		return tree.toString();
+	}
+
+
+
+	@Override
+	public String visit(final BoolNegate tree) {
+		return apply("not", tree.getOperand());
+	}
+
+
+
+	@Override
+	public String visit(final BoolVar tree) {
+		return symbol(tree.getName());
+	}
+
+
+
+	// UMOD and the rotations have no SMT-LIB2 function of their own. The
+	// rotations are expanded like BitVector.rol and ror, which only agree with
+	// rotate_left and rotate_right for amounts up to the width.
+	@Override
+	public String visit(final BVBinary tree) {
+		switch (tree.getKind()) {
+			case UMOD:
+				return apply("bvurem", tree.getLeft(), tree.getRight());
+
+			case ROL:
+				return rotate("rotate_left", "bvshl", "bvlshr", tree);
+
+			case ROR:
+				return rotate("rotate_right", "bvlshr", "bvshl", tree);
+
+			default:
+				return apply(tree.getKind(), tree.getLeft(), tree.getRight());
+		}
+	}
+
+
+
+	private String rotate(final String rotation, final String shift, final String backShift,
+			final BVBinary tree) {
+
+		final int width = tree.getWidth();
+		if (tree.getRight() instanceof BVConst) {
+			final BigInteger amount = ((BVConst) tree.getRight()).getValue().toUnsignedBigInteger();
+			if (amount.compareTo(BigInteger.valueOf(width)) <= 0) {
+				return apply("(_ " + rotation + " " + amount + ")", tree.getLeft());
+			}
+		}
+
+		final String left = print(tree.getLeft());
+		final String right = print(tree.getRight());
+		return "(bvor (" + shift + " " + left + " " + right + ") (" + backShift + " " + left
+				+ " (bvsub " + Builder.mkBVConst(width, width) + " " + right + ")))";
+	}
+
+
+
+	@Override
+	public String visit(final BVConst tree) {
+		return tree.toString();
+	}
+
+
+
+	@Override
+	public String visit(final BVExtract tree) {
+		return apply("(_ extract " + tree.getHigh() + " " + tree.getLow() + ")", tree.getOperand());
+	}
+
+
+
+	@Override
+	public String visit(final BVIte tree) {
+		return apply("ite", tree.getCondition(), tree.getThenExpr(), tree.getElseExpr());
+	}
+
+
+
+	@Override
+	public String visit(final BVUnary tree) {
+		return apply(tree.getKind(), tree.getOperand());
+	}
+
+
+
+	@Override
+	public String visit(final BVVar tree) {
+		return symbol(tree.getName());
+	}
+}
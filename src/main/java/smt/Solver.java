@@ -19,14 +19,39 @@
  */
 package smt;
 
+import java.util.ArrayList;
+import java.util.List;
+
 
 
 public interface Solver {
 	void add(BoolAst constraint);
 	SatResult checkSat();
+
+	// Checks satisfiability as if the assumptions were added temporarily
+	SatResult checkSatAssuming(List<BoolAst> assumptions);
+
+	// Returns a subset of the assumptions of the last check, which must have
+	// returned UNSAT, that suffices for unsatisfiability
+	List<BoolAst> getUnsatCore();
+
 	BitVector getBVAssignment(BVAst tree);
+
+	// Retrieves several values of the same model at once
+	default List<BitVector> getBVAssignments(final List<? extends BVAst> trees) {
+		final List<BitVector> result = new ArrayList<>(trees.size());
+		for (final BVAst tree : trees) {
+			result.add(getBVAssignment(tree));
+		}
+		return result;
+	}
+
 	boolean getBoolAssignment(BoolAst tree);
 	void push();
 	void pop();
+
+	// Stops a running (or the next) call of checkSat, which then returns
+	// UNKNOWN. May be called from another thread.
+	void interrupt();
 }
 
@@ -0,0 +1,120 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package smt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+
+// The calls of one solver together with their results and durations, as
+// recorded by RecordingSolver and served back by ReplayingSolver
+public final class SolverLog {
+
+	public static enum Kind {
+		ADD,
+		CHECK_SAT,
+		CHECK_SAT_ASSUMING,
+		GET_UNSAT_CORE,
+		GET_BV_ASSIGNMENT,
+		GET_BV_ASSIGNMENTS,
+		GET_BOOL_ASSIGNMENT,
+		PUSH,
+		POP;
+	}
+
+
+
+	// The result is null for ADD, PUSH and POP, a SatResult for the checks, a
+	// list of BoolAsts for GET_UNSAT_CORE, a BitVector or a list of BitVectors
+	// for the BV assignments and a Boolean for GET_BOOL_ASSIGNMENT
+	public static final class Event {
+		private final Kind kind;
+		private final List<Ast> arguments;
+		private final Object result;
+		private final long nanos;
+
+
+
+		public Event(final Kind kind, final List<? extends Ast> arguments, final Object result,
+				final long nanos) {
+
+			this.kind = kind;
+			this.arguments = Collections.unmodifiableList(new ArrayList<>(arguments));
+			this.result = result;
+			this.nanos = nanos;
+		}
+
+
+
+		public Kind getKind() {
+			return this.kind;
+		}
+
+
+
+		public List<Ast> getArguments() {
+			return this.arguments;
+		}
+
+
+
+		public Object getResult() {
+			return this.result;
+		}
+
+
+
+		// Time spent in the recorded solver
+		public long getNanos() {
+			return this.nanos;
+		}
+
+
+
+		@Override
+		public String toString() {
+			return this.kind + (this.result == null ? "" : " -> " + this.result);
+		}
+	}
+
+
+
+	private final List<Event> events = new ArrayList<>();
+
+
+
+	public synchronized void add(final Event event) {
+		this.events.add(event);
+	}
+
+
+
+	public synchronized List<Event> getEvents() {
+		return new ArrayList<>(this.events);
+	}
+
+
+
+	public synchronized int size() {
+		return this.events.size();
+	}
+}
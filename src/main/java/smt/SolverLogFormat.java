@@ -0,0 +1,534 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package smt;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+import smt.SolverLog.Event;
+import smt.SolverLog.Kind;
+
+
+
+// Text format of solver recordings. A file is an SMT-LIB2 script that repeats
+// the calls of all recorded solvers, separated by (reset), so it can be passed
+// to other solvers; SmtLibPrinter binds shared subtrees with let. Comments
+// starting with ";@" contain the compact form that is read back: the nodes of
+// the formulas, numbered per solver so that shared subtrees are written once,
+// and the events with their results and durations.
+//
+//   ;@solver
+//   ;@node 0 bvvar 8 x
+//   ;@node 1 bvconst 00000011
+//   ;@node 2 compare ULT 0 1
+//   ;@event ADD 1520 2
+//   ;@event CHECK_SAT 84210 SAT
+//   ;@event GET_BV_ASSIGNMENT 3100 0 00000001
+final class SolverLogFormat {
+
+	static final String HEADER = "; bitdep solver recording 1";
+
+
+
+	private SolverLogFormat() {
+	}
+
+
+
+	// Numbers the nodes of the formulas and writes their definitions and the
+	// declarations of new variables
+	private static final class NodeWriter implements TreeTransformer<Integer> {
+
+		private final PrintWriter out;
+		private final Map<Ast, Integer> ids = new HashMap<>();
+		private final Set<String> declared = new HashSet<>();
+		private int next = 0;
+
+
+
+		NodeWriter(final PrintWriter out) {
+			this.out = out;
+		}
+
+
+
+		int write(final Ast tree) {
+			Integer result = this.ids.get(tree);
+			if (result == null) {
+				result = tree.accept(this);
+				this.ids.put(tree, result);
+			}
+			return result;
+		}
+
+
+
+		// The operands are written before, so the definitions are ordered
+		// bottom-up
+		private int define(final String definition) {
+			final int id = this.next++;
+			this.out.println(";@node " + id + " " + definition);
+			return id;
+		}
+
+
+
+		private void declare(final String name, final String sort) {
+			if (this.declared.add(name)) {
+				this.out.println("(declare-fun " + SmtLibPrinter.symbol(name) + " () "
+						+ sort + ")");
+			}
+		}
+
+
+
+		@Override
+		public Integer visit(final BoolAllDifferent tree) {
+			final StringJoiner operands = new StringJoiner(" ");
+			for (final BVAst operand : tree.getOperands()) {
+				operands.add(Integer.toString(write(operand)));
+			}
+			return define("distinct " + operands);
+		}
+
+
+
+		@Override
+		public Integer visit(final BoolBinBV tree) {
+			return define("compare " + tree.getKind().name() + " " + write(tree.getLeft())
+					+ " " + write(tree.getRight()));
+		}
+
+
+
+		@Override
+		public Integer visit(final BoolBin tree) {
+			return define("logic " + tree.getKind().name() + " " + write(tree.getLeft())
+					+ " " + write(tree.getRight()));
+		}
+
+
+
+		@Override
+		public Integer visit(final BoolConst tree) {
+			return define("boolconst " + tree.getValue());
+		}
+
+
+
+		@Override
+		public Integer visit(final BoolNegate tree) {
+			return define("not " + write(tree.getOperand()));
+		}
+
+
+
+		@Override
+		public Integer visit(final BoolVar tree) {
+			checkName(tree.getName());
+			declare(tree.getName(), "Bool");
+			return define("boolvar " + tree.getName());
+		}
+
+
+
+		@Override
+		public Integer visit(final BVBinary tree) {
+			return define("bvbinary " + tree.getKind().name() + " " + write(tree.getLeft())
+					+ " " + write(tree.getRight()));
+		}
+
+
+
+		@Override
+		public Integer visit(final BVConst tree) {
+			return define("bvconst " + tree.getValue().toBinaryString());
+		}
+
+
+
+		@Override
+		public Integer visit(final BVExtract tree) {
+			return define("extract " + tree.getLow() + " " + tree.getHigh() + " "
+					+ write(tree.getOperand()));
+		}
+
+
+
+		@Override
+		public Integer visit(final BVIte tree) {
+			return define("ite " + write(tree.getCondition()) + " " + write(tree.getThenExpr())
+					+ " " + write(tree.getElseExpr()));
+		}
+
+
+
+		@Override
+		public Integer visit(final BVUnary tree) {
+			return define("bvunary " + tree.getKind().name() + " " + write(tree.getOperand()));
+		}
+
+
+
+		@Override
+		public Integer visit(final BVVar tree) {
+			checkName(tree.getName());
+			declare(tree.getName(), "(_ BitVec " + tree.getWidth() + ")");
+			return define("bvvar " + tree.getWidth() + " " + tree.getName());
+		}
+
+
+
+		private static void checkName(final String name) {
+			if (name.isEmpty() || name.indexOf('\n') >= 0 || name.indexOf('\r') >= 0) {
+				throw new IllegalArgumentException("Variable name cannot be recorded: " + name);
+			}
+		}
+	}
+
+
+
+	static void write(final List<SolverLog> logs, final PrintWriter out) {
+		out.println(HEADER);
+		boolean first = true;
+		for (final SolverLog log : logs) {
+			if (!first) {
+				out.println("(reset)");
+			}
+			first = false;
+
+			out.println(";@solver");
+			out.println("(set-option :produce-models true)");
+			out.println("(set-option :produce-unsat-assumptions true)");
+			out.println("(set-logic QF_BV)");
+
+			final NodeWriter nodes = new NodeWriter(out);
+			for (final Event event : log.getEvents()) {
+				writeEvent(event, nodes, out);
+			}
+		}
+		out.flush();
+	}
+
+
+
+	@SuppressWarnings("unchecked")
+	private static void writeEvent(final Event event, final NodeWriter nodes,
+			final PrintWriter out) {
+
+		final StringJoiner line = new StringJoiner(" ");
+		line.add(";@event").add(event.getKind().name()).add(Long.toString(event.getNanos()));
+		for (final Ast argument : event.getArguments()) {
+			line.add(Integer.toString(nodes.write(argument)));
+		}
+
+		final String command;
+		switch (event.getKind()) {
+			case ADD:
+				command = "(assert " + SmtLibPrinter.toTerm(event.getArguments().get(0)) + ")";
+				break;
+
+			case CHECK_SAT:
+				line.add(event.getResult().toString());
+				command = "(check-sat)";
+				break;
+
+			case CHECK_SAT_ASSUMING:
+				line.add(event.getResult().toString());
+				command = "(check-sat-assuming " + join(event.getArguments()) + ")";
+				break;
+
+			case GET_UNSAT_CORE: {
+				final List<BoolAst> core = (List<BoolAst>) event.getResult();
+				line.add(Integer.toString(core.size()));
+				for (final BoolAst assumption : core) {
+					line.add(Integer.toString(nodes.write(assumption)));
+				}
+				command = "(get-unsat-assumptions)";
+				break;
+			}
+
+			case GET_BV_ASSIGNMENT:
+				line.add(((BitVector) event.getResult()).toBinaryString());
+				command = "(get-value " + join(event.getArguments()) + ")";
+				break;
+
+			case GET_BV_ASSIGNMENTS:
+				for (final BitVector value : (List<BitVector>) event.getResult()) {
+					line.add(value.toBinaryString());
+				}
+				command = "(get-value " + join(event.getArguments()) + ")";
+				break;
+
+			case GET_BOOL_ASSIGNMENT:
+				line.add(event.getResult().toString());
+				command = "(get-value " + join(event.getArguments()) + ")";
+				break;
+
+			case PUSH:
+				command = "(push 1)";
+				break;
+
+			case POP:
+				command = "(pop 1)";
+				break;
+
+			default:
+				throw new IllegalStateException();
+		}
+
+		out.println(line);
+		out.println(command);
+	}
+
+
+
+	private static String join(final List<? extends Ast> trees) {
+		final StringJoiner result = new StringJoiner(" ", "(", ")");
+		for (final Ast tree : trees) {
+			result.add(SmtLibPrinter.toTerm(tree));
+		}
+		return result.toString();
+	}
+
+
+
+	static List<SolverLog> read(final BufferedReader in) throws IOException {
+		final String header = in.readLine();
+		if (!HEADER.equals(header)) {
+			throw new IllegalArgumentException("Not a solver recording");
+		}
+
+		final List<SolverLog> result = new ArrayList<>();
+		final List<Ast> nodes = new ArrayList<>();
+		int lineNumber = 1;
+		for (String line = in.readLine(); line != null; line = in.readLine()) {
+			lineNumber += 1;
+			if (!line.startsWith(";@")) {
+				continue;
+			}
+
+			try {
+				if (line.equals(";@solver")) {
+					result.add(new SolverLog());
+					nodes.clear();
+				} else if (line.startsWith(";@node ")) {
+					readNode(line.substring(";@node ".length()), nodes);
+				} else if (line.startsWith(";@event ") && !result.isEmpty()) {
+					result.get(result.size() - 1).add(
+							readEvent(line.substring(";@event ".length()).split(" "), nodes));
+				} else {
+					throw new IllegalArgumentException("Unexpected line");
+				}
+			} catch (final RuntimeException e) {
+				throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+			}
+		}
+		return result;
+	}
+
+
+
+	private static void readNode(final String line, final List<Ast> nodes) {
+		// Variable names may contain spaces, so they are the rest of the line
+		final String[] tokens = line.split(" ", 4);
+		if (Integer.parseInt(tokens[0]) != nodes.size()) {
+			throw new IllegalArgumentException("Unexpected node number " + tokens[0]);
+		}
+
+		final Ast node;
+		switch (tokens[1]) {
+			case "bvvar":
+				node = new BVVar(Integer.parseInt(tokens[2]), tokens[3]);
+				break;
+
+			case "boolvar":
+				node = new BoolVar(line.split(" ", 3)[2]);
+				break;
+
+			case "bvconst":
+				node = new BVConst(new BitVector(tokens[2]));
+				break;
+
+			case "boolconst":
+				node = new BoolConst(Boolean.parseBoolean(tokens[2]));
+				break;
+
+			default:
+				node = readOperation(line.split(" "), nodes);
+		}
+		nodes.add(Builder.intern(node));
+	}
+
+
+
+	private static Ast readOperation(final String[] tokens, final List<Ast> nodes) {
+		switch (tokens[1]) {
+			case "bvunary":
+				return new BVUnary(BVUnaryOp.valueOf(tokens[2]), getBV(nodes, tokens[3]));
+
+			case "bvbinary":
+				return new BVBinary(BVBinOp.valueOf(tokens[2]),
+						getBV(nodes, tokens[3]), getBV(nodes, tokens[4]));
+
+			case "extract":
+				return new BVExtract(Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3]),
+						getBV(nodes, tokens[4]));
+
+			case "ite":
+				return new BVIte(getBool(nodes, tokens[2]),
+						getBV(nodes, tokens[3]), getBV(nodes, tokens[4]));
+
+			case "compare":
+				return new BoolBinBV(BoolBVOp.valueOf(tokens[2]),
+						getBV(nodes, tokens[3]), getBV(nodes, tokens[4]));
+
+			case "logic":
+				return new BoolBin(BoolBinOp.valueOf(tokens[2]),
+						getBool(nodes, tokens[3]), getBool(nodes, tokens[4]));
+
+			case "not":
+				return new BoolNegate(getBool(nodes, tokens[2]));
+
+			case "distinct": {
+				final List<BVAst> operands = new ArrayList<>();
+				for (int i = 2; i < tokens.length; ++i) {
+					operands.add(getBV(nodes, tokens[i]));
+				}
+				return new BoolAllDifferent(operands);
+			}
+
+			default:
+				throw new IllegalArgumentException("Unexpected node type " + tokens[1]);
+		}
+	}
+
+
+
+	private static Ast getNode(final List<Ast> nodes, final String id) {
+		final int index = Integer.parseInt(id);
+		if (index < 0 || index >= nodes.size()) {
+			throw new IllegalArgumentException("Undefined node " + id);
+		}
+		return nodes.get(index);
+	}
+
+
+
+	private static BVAst getBV(final List<Ast> nodes, final String id) {
+		final Ast node = getNode(nodes, id);
+		if (!(node instanceof BVAst)) {
+			throw new IllegalArgumentException("Node " + id + " is not a bit vector");
+		}
+		return (BVAst) node;
+	}
+
+
+
+	private static BoolAst getBool(final List<Ast> nodes, final String id) {
+		final Ast node = getNode(nodes, id);
+		if (!(node instanceof BoolAst)) {
+			throw new IllegalArgumentException("Node " + id + " is not a boolean");
+		}
+		return (BoolAst) node;
+	}
+
+
+
+	private static Event readEvent(final String[] tokens, final List<Ast> nodes) {
+		final Kind kind = Kind.valueOf(tokens[0]);
+		final long nanos = Long.parseLong(tokens[1]);
+
+		final int numberOfArguments;
+		switch (kind) {
+			case ADD:
+			case GET_BV_ASSIGNMENT:
+			case GET_BOOL_ASSIGNMENT:
+				numberOfArguments = 1;
+				break;
+
+			case CHECK_SAT_ASSUMING:
+			case GET_BV_ASSIGNMENTS:
+				// The results follow the arguments, their number is known for
+				// the assignments only
+				numberOfArguments = kind == Kind.GET_BV_ASSIGNMENTS
+						? (tokens.length - 2) / 2
+						: tokens.length - 3;
+				break;
+
+			default:
+				numberOfArguments = 0;
+		}
+
+		final List<Ast> arguments = new ArrayList<>();
+		for (int i = 0; i < numberOfArguments; ++i) {
+			arguments.add(getNode(nodes, tokens[2 + i]));
+		}
+
+		final int resultStart = 2 + numberOfArguments;
+		final Object result;
+		switch (kind) {
+			case CHECK_SAT:
+			case CHECK_SAT_ASSUMING:
+				result = SatResult.valueOf(tokens[resultStart]);
+				break;
+
+			case GET_UNSAT_CORE: {
+				final List<BoolAst> core = new ArrayList<>();
+				final int size = Integer.parseInt(tokens[resultStart]);
+				for (int i = 0; i < size; ++i) {
+					core.add(getBool(nodes, tokens[resultStart + 1 + i]));
+				}
+				result = core;
+				break;
+			}
+
+			case GET_BV_ASSIGNMENT:
+				result = new BitVector(tokens[resultStart]);
+				break;
+
+			case GET_BV_ASSIGNMENTS: {
+				final List<BitVector> values = new ArrayList<>();
+				for (int i = resultStart; i < tokens.length; ++i) {
+					values.add(new BitVector(tokens[i]));
+				}
+				result = values;
+				break;
+			}
+
+			case GET_BOOL_ASSIGNMENT:
+				result = Boolean.parseBoolean(tokens[resultStart]);
+				break;
+
+			default:
+				result = null;
+		}
+
+		return new Event(kind, arguments, result, nanos);
+	}
+}
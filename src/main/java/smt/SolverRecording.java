@@ -0,0 +1,107 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package smt;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+
+
+// The logs of all solvers of a run (e.g., a synthesis run) in the order in
+// which the solvers were created. A run can be recorded and repeated without
+// the original solvers, as long as it creates and uses its solvers in the same
+// order again. Recordings can be saved, e.g., to replay the solver calls of a
+// synthesis run without the native solver.
+public final class SolverRecording {
+
+	private final List<SolverLog> logs = new ArrayList<>();
+
+
+
+	public SolverRecording() {
+	}
+
+
+
+	private SolverRecording(final List<SolverLog> logs) {
+		this.logs.addAll(logs);
+	}
+
+
+
+	public synchronized List<SolverLog> getLogs() {
+		return new ArrayList<>(this.logs);
+	}
+
+
+
+	// Creates a solver via the factory and records its calls in a new log
+	public Solver record(final Supplier<Solver> factory) {
+		final SolverLog log = new SolverLog();
+		synchronized (this) {
+			this.logs.add(log);
+		}
+		return new RecordingSolver(factory.get(), log);
+	}
+
+
+
+	// Returns a function that ignores the factory and hands out replaying
+	// solvers for the recorded logs in order
+	public Function<Supplier<Solver>, Solver> replay(final boolean checkArguments) {
+		final List<SolverLog> recorded = getLogs();
+		final AtomicInteger next = new AtomicInteger(0);
+		return factory -> {
+			final int index = next.getAndIncrement();
+			if (index >= recorded.size()) {
+				throw new IllegalStateException("Replay diverged: more than " + recorded.size()
+						+ " solvers created");
+			}
+			return new ReplayingSolver(recorded.get(index), checkArguments);
+		};
+	}
+
+
+
+	// Writes the recording as an SMT-LIB2 script; see SolverLogFormat
+	public void write(final Path file) throws IOException {
+		try (final PrintWriter out = new PrintWriter(
+				Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+			SolverLogFormat.write(getLogs(), out);
+		}
+	}
+
+
+
+	public static SolverRecording read(final Path file) throws IOException {
+		try (final BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return new SolverRecording(SolverLogFormat.read(in));
+		}
+	}
+}
@@ -20,6 +20,7 @@
 package smt;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -28,6 +29,8 @@ import java.util.Map;
 public class VarReplacer implements TreeTransformer<Ast> {
 
 	private final Map<? extends Ast, Ast> replacements;
+	// Results for shared subtrees, so that DAGs are not unfolded into trees
+	private final Map<Ast, Ast> cache = new IdentityHashMap<>();
 
 
 
@@ -37,31 +40,42 @@ public class VarReplacer implements TreeTransformer<Ast> {
 
 
 
+	private Ast transform(final Ast tree) {
+		Ast result = this.cache.get(tree);
+		if (result == null) {
+			result = tree.accept(this);
+			this.cache.put(tree, result);
+		}
+		return result;
+	}
+
+
+
 	@Override
 	public Ast visit(final BoolAllDifferent tree) {
 		final List<BVAst> operandsNew = new ArrayList<>();
 		for (final BVAst operand : tree.getOperands()) {
-			operandsNew.add((BVAst) operand.accept(this));
+			operandsNew.add((BVAst) this.transform(operand));
 		}
-		return new BoolAllDifferent(operandsNew);
+		return Builder.intern(new BoolAllDifferent(operandsNew));
 	}
 
 
 
 	@Override
 	public Ast visit(final BoolBinBV tree) {
-		return new BoolBinBV(tree.getKind(),
-				(BVAst) tree.getLeft().accept(this),
-				(BVAst) tree.getRight().accept(this));
+		return Builder.intern(new BoolBinBV(tree.getKind(),
+				(BVAst) this.transform(tree.getLeft()),
+				(BVAst) this.transform(tree.getRight())));
 	}
 
 
 
 	@Override
 	public Ast visit(final BoolBin tree) {
-		return new BoolBin(tree.getKind(),
-				(BoolAst) tree.getLeft().accept(this),
-				(BoolAst) tree.getRight().accept(this));
+		return Builder.intern(new BoolBin(tree.getKind(),
+				(BoolAst) this.transform(tree.getLeft()),
+				(BoolAst) this.transform(tree.getRight())));
 	}
 
 
@@ -75,7 +89,7 @@ public class VarReplacer implements TreeTransformer<Ast> {
 
 	@Override
 	public Ast visit(final BoolNegate tree) {
-		return new BoolNegate((BoolAst) tree.getOperand().accept(this));
+		return Builder.intern(new BoolNegate((BoolAst) this.transform(tree.getOperand())));
 	}
 
 
@@ -89,9 +103,9 @@ public class VarReplacer implements TreeTransformer<Ast> {
 
 	@Override
 	public Ast visit(final BVBinary tree) {
-		return new BVBinary(tree.getKind(),
-				(BVAst) tree.getLeft().accept(this),
-				(BVAst) tree.getRight().accept(this));
+		return Builder.intern(new BVBinary(tree.getKind(),
+				(BVAst) this.transform(tree.getLeft()),
+				(BVAst) this.transform(tree.getRight())));
 	}
 
 
@@ -105,24 +119,25 @@ public class VarReplacer implements TreeTransformer<Ast> {
 
 	@Override
 	public Ast visit(final BVExtract tree) {
-		return new BVExtract(tree.getLow(), tree.getHigh(), (BVAst) tree.getOperand().accept(this));
+		return Builder.intern(new BVExtract(tree.getLow(), tree.getHigh(),
+				(BVAst) this.transform(tree.getOperand())));
 	}
 
 
 
 	@Override
 	public Ast visit(final BVIte tree) {
-		return new BVIte(
-				(BoolAst) tree.getCondition().accept(this),
-				(BVAst) tree.getThenExpr().accept(this),
-				(BVAst) tree.getElseExpr().accept(this));
+		return Builder.intern(new BVIte(
+				(BoolAst) this.transform(tree.getCondition()),
+				(BVAst) this.transform(tree.getThenExpr()),
+				(BVAst) this.transform(tree.getElseExpr())));
 	}
 
 
 
 	@Override
 	public Ast visit(final BVUnary tree) {
-		return new BVUnary(tree.getKind(), (BVAst) tree.getOperand().accept(this));
+		return Builder.intern(new BVUnary(tree.getKind(), (BVAst) this.transform(tree.getOperand())));
 	}
 
 
@@ -30,27 +30,36 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.Queue;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 
 import com.google.common.collect.ContiguousSet;
 import com.google.common.collect.DiscreteDomain;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Range;
 import com.google.common.math.IntMath;
 import com.google.common.primitives.Booleans;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import static smt.Builder.*;
 
+import smt.Ast;
+import smt.BitSlicedEvaluator;
 import smt.BitVector;
 import smt.BitWidthMismatchException;
 import smt.BoolAst;
-import smt.Builder;
 import smt.BVAst;
 import smt.SatResult;
 import smt.Solver;
+import util.Pair;
 
 
 
@@ -61,8 +70,16 @@ abstract class AbstractBVSynthesizer implements Synthesizer {
 	private static final int SAME_CEX_THRESHOLD = 16;
 	private static final int SAME_CEX_HARD_THRESHOLD = 128;
 
+	private static final ExecutorService PIPELINE_EXECUTOR = Executors.newCachedThreadPool(
+			runnable -> {
+				final Thread thread = new Thread(runnable, "pipelined-generate");
+				thread.setDaemon(true);
+				return thread;
+			});
 
 
+
+	@Override
 	public Optional<SynthesisStatistics> getStatistics() {
 		return this.statistics;
 	}
@@ -78,6 +95,8 @@ abstract class AbstractBVSynthesizer implements Synthesizer {
 			throw new IllegalArgumentException();
 		}
 
+		settings.startJob();
+
 		final Library library = removeUnusableOperations(spec, originalLibrary);
 		if (library.isEmpty()) {
 			return Optional.empty();
@@ -100,74 +119,210 @@ abstract class AbstractBVSynthesizer implements Synthesizer {
 		final Collection<Integer> inputs = ContiguousSet.create(
 				Range.closedOpen(library.size(), library.size() + inputSize), DiscreteDomain.integers());
 
-		final Solver generateSolver = settings.makeGenerateSolver();
+		// With incremental verification, one verify solver is used for all
+		// candidates, which are passed as assumptions
+		final Solver incrementalVerifySolver;
+		if (settings.isIncrementalVerification()) {
+			incrementalVerifySolver = settings.makeVerifySolver(true);
+			assertVerificationConstraint(incrementalVerifySolver, spec, library, outputs, inputs);
+		} else {
+			incrementalVerifySolver = null;
+		}
+
+		// With an example limit, examples are guarded so that they can be dropped
+		// from the generate solver again
+		final OptionalInt exampleLimit = settings.getGenerateExampleLimit();
+		final Solver generateSolver = exampleLimit.isPresent()
+				? new GuardedSolver(settings::makeGenerateSolver, settings::freeSolver)
+				: settings.makeGenerateSolver();
 		assertWellFormednessConstraint(generateSolver, spec, library, outputs, inputs);
 
-		final List<List<BitVector>> runningExamples = new ArrayList<>();
+		final ExampleStore runningExamples = new ExampleStore(spec);
 		final List<int[]> tempPrograms = new ArrayList<>();
 
 		int exampleNumber = 0;
 		for (final List<BitVector> example : examples) {
-			assertExample(generateSolver, spec, library, outputs, inputs, exampleNumber, example);
-			runningExamples.add(example);
+			final BitVector output = runningExamples.add(example);
+			addExample(generateSolver, spec, library, outputs, inputs, exampleNumber, example, output);
 			exampleNumber += 1;
 		}
 		
 		int iterationNumber = 0;
+
+		// Candidate found by a speculative generate step that is still valid
+		int[] pendingProgram = null;
+		List<BitVector> pendingAuxVars = null;
+
+		// The most recently refuted candidates, whose refuting examples are
+		// kept when rebuilding. A candidate that is refuted again lost its
+		// refuting examples, so more candidates are remembered from then on.
+		final Queue<Pair<int[], List<BitVector>>> refutedCandidates = new ArrayDeque<>();
+		final Set<List<Object>> everRefutedCandidates = new HashSet<>();
+		int refutedCandidateLimit = exampleLimit.orElse(0);
+		int rebuildThreshold = exampleLimit.orElse(0);
+
 		while (true) {
-			switch (generateSolver.checkSat()) {
+			if (settings.isCancelled() || settings.isDeadlineExceeded()) {
+				this.setStatistics(iterationNumber, runningExamples, tempPrograms);
+				settings.freeSolvers();
+				throw new TimeoutException();
+			}
+
+			if (exampleLimit.isPresent() && pendingProgram == null
+					&& ((GuardedSolver) generateSolver).getNumberOfGroups() > rebuildThreshold) {
+				final int kept = minimizeExamples((GuardedSolver) generateSolver, spec, library,
+						refutedCandidates, exampleNumber - exampleLimit.getAsInt() / 2, exampleNumber);
+				// Avoid rebuilding in every iteration if many examples are needed
+				rebuildThreshold = Math.max(exampleLimit.getAsInt(), 2 * kept);
+			}
+
+			final SatResult generateResult = pendingProgram != null
+					? SatResult.SAT
+					: generateSolver.checkSat();
+
+			switch (generateResult) {
 				case SAT: {
-					final int[] program = getProgram(generateSolver, spec, library, outputs, inputs);
+					final int[] program = pendingProgram != null
+							? pendingProgram
+							: getProgram(generateSolver, spec, library, outputs, inputs);
 					tempPrograms.add(program);
 
-					final List<BitVector> auxVars = getAuxiliaryVariableValues(generateSolver, library);
+					final List<BitVector> auxVars = pendingAuxVars != null
+							? pendingAuxVars
+							: getAuxiliaryVariableValues(generateSolver, library);
+
+					pendingProgram = null;
+					pendingAuxVars = null;
 
 					// Optimization: If the last SAME_CEX_THRESHOLD counter examples
 					// resulted in the same output, try to force a different output
-					final Optional<BitVector> sameOutput = checkSameOutputOptimization(spec,
-							runningExamples);
+					final Optional<BitVector> sameOutput = runningExamples.getLastSameOutput(
+							SAME_CEX_THRESHOLD);
+
+					final Solver verifySolver;
+					final List<BoolAst> candidateAssumptions;
+					if (incrementalVerifySolver != null) {
+						verifySolver = incrementalVerifySolver;
+						candidateAssumptions = mkCandidateEqualities(spec, library, program, auxVars);
+					} else {
+						verifySolver = settings.makeVerifySolver(sameOutput.isPresent()
+								|| settings.getCounterExampleBatchSize() > 1);
+						candidateAssumptions = Collections.emptyList();
+					}
 
-					final Solver verifySolver = settings.makeVerifySolver(sameOutput.isPresent());
+					// Pipelining: While the candidate is verified, search for the next
+					// one. Blocking the candidate is sound because it is either correct
+					// (and returned) or refuted by the counter example.
+					Future<SatResult> speculation = null;
+					if (settings.isPipelined()) {
+						blockCandidate(generateSolver, spec, library, program, auxVars);
+						speculation = PIPELINE_EXECUTOR.submit(generateSolver::checkSat);
+					}
 
-					switch (verify(verifySolver, spec, library, outputs, inputs, program, auxVars)) {
+					final SatResult verifyResult = incrementalVerifySolver != null
+							? verifySolver.checkSatAssuming(candidateAssumptions)
+							: verify(verifySolver, spec, library, outputs, inputs, program, auxVars);
+
+					switch (verifyResult) {
 						case SAT: {
-							final List<BitVector> counterExample = getCounterExample(verifySolver, spec,
-									sameOutput);
-
-							assert !runningExamples.contains(counterExample);
-
-							// Optimization: If not all inputs are used and all used inputs
-							// already occur in runningExamples, the synthesis problem is
-							// unsatisfiable.
-							if (notAllInputsUsable
-									&& containsMasked(runningExamples, counterExample, inputUsable)) {
-								// -> unsat
-								this.setStatistics(iterationNumber, runningExamples, tempPrograms);
-								settings.freeSolvers();
-								return Optional.empty();
+							if (exampleLimit.isPresent()) {
+								if (!everRefutedCandidates.add(Arrays.asList(Ints.asList(program), auxVars))) {
+									refutedCandidateLimit *= 2;
+								}
+								refutedCandidates.add(new Pair<>(program, auxVars));
+								while (refutedCandidates.size() > refutedCandidateLimit) {
+									refutedCandidates.remove();
+								}
+							}
+
+							final List<Pair<List<BitVector>, BitVector>> counterExamples = getCounterExamples(
+									verifySolver, candidateAssumptions, spec, sameOutput,
+									settings.getCounterExampleBatchSize());
+
+							final List<List<BitVector>> activeExamples = getActiveExamples(generateSolver,
+									runningExamples);
+							for (final Pair<List<BitVector>, BitVector> counterExample : counterExamples) {
+								assert !activeExamples.contains(counterExample.getFirst());
+
+								// Optimization: If not all inputs are used and all used inputs
+								// already occur in the active examples, the synthesis problem is
+								// unsatisfiable.
+								if (notAllInputsUsable
+										&& containsMasked(activeExamples, counterExample.getFirst(),
+												inputUsable)) {
+									// -> unsat
+									cancelSpeculation(generateSolver, speculation);
+									this.setStatistics(iterationNumber, runningExamples, tempPrograms);
+									settings.freeSolvers();
+									return Optional.empty();
+								}
+							}
+
+							if (speculation != null) {
+								switch (awaitSpeculation(speculation)) {
+									case SAT: {
+										// Keep the next candidate if it also handles the counter examples
+										final int[] nextProgram = getProgram(generateSolver, spec, library,
+												outputs, inputs);
+										final List<BitVector> nextAuxVars = getAuxiliaryVariableValues(
+												generateSolver, library);
+										final Program nextResult = makeResult(library, spec.getNumberOfInputs(),
+												numberOfStatements, nextProgram, nextAuxVars);
+										if (counterExamples.stream().allMatch(counterExample -> nextResult
+												.execute(counterExample.getFirst()).equals(counterExample.getSecond()))) {
+											pendingProgram = nextProgram;
+											pendingAuxVars = nextAuxVars;
+										}
+										break;
+									}
+
+									case UNSAT: {
+										// -> no program other than the refuted one satisfies the examples
+										this.setStatistics(iterationNumber, runningExamples, tempPrograms);
+										settings.freeSolvers();
+										return Optional.empty();
+									}
+
+									default: {
+										if (Thread.currentThread().isInterrupted()) {
+											// The speculative check may still be running
+											cancelSpeculation(generateSolver, speculation);
+											this.setStatistics(iterationNumber, runningExamples, tempPrograms);
+											settings.freeSolvers();
+											throw new TimeoutException();
+										}
+										// -> the generate step is repeated with the counter examples
+										break;
+									}
+								}
 							}
 
-							assertExample(generateSolver, spec, library, outputs, inputs, exampleNumber,
-									counterExample);
-							runningExamples.add(counterExample);
-							exampleNumber += 1;
+							for (final Pair<List<BitVector>, BitVector> counterExample : counterExamples) {
+								addExample(generateSolver, spec, library, outputs, inputs, exampleNumber,
+										counterExample.getFirst(), counterExample.getSecond());
+								runningExamples.add(counterExample.getFirst(), counterExample.getSecond());
+								exampleNumber += 1;
+							}
 
 							// Optimization: If there are more than SAME_CEX_HARD_THRESHOLD
 							// examples and all yield the same result, check whether the
 							// specification describes a constant function.
 							if (runningExamples.size() > SAME_CEX_HARD_THRESHOLD) {
-								final Optional<BitVector> allSameOutput = checkAllSameOutputOptimization(spec,
-										runningExamples);
+								final Optional<BitVector> allSameOutput = runningExamples.getAllSameOutput();
 								if (allSameOutput.isPresent()) {
+									// The pending candidate does not know about the new constraints
+									pendingProgram = null;
+									pendingAuxVars = null;
+
 									try {
 										final Optional<List<BitVector>> newExample = constantFunctionOptimization(
 												settings, spec, allSameOutput.get());
 
 										if (newExample.isPresent()) {
 											// -> non-constant function
-											assertExample(generateSolver, spec, library, outputs, inputs, exampleNumber,
-													newExample.get());
-											runningExamples.add(newExample.get());
+											final BitVector output = runningExamples.add(newExample.get());
+											addExample(generateSolver, spec, library, outputs, inputs, exampleNumber,
+													newExample.get(), output);
 											exampleNumber += 1;
 										} else {
 											// -> constant function; forbid using inputs
@@ -184,6 +339,7 @@ abstract class AbstractBVSynthesizer implements Synthesizer {
 						}
 
 						case UNSAT: {
+							cancelSpeculation(generateSolver, speculation);
 							this.setStatistics(iterationNumber, runningExamples, tempPrograms);
 							settings.freeSolvers();
 							return Optional.of(makeResult(
@@ -195,6 +351,7 @@ abstract class AbstractBVSynthesizer implements Synthesizer {
 						}
 
 						default: {
+							cancelSpeculation(generateSolver, speculation);
 							this.setStatistics(iterationNumber, runningExamples, tempPrograms);
 							settings.freeSolvers();
 							throw new TimeoutException();
@@ -230,7 +387,8 @@ abstract class AbstractBVSynthesizer implements Synthesizer {
 
 	protected abstract void assertExample(final Solver generateSolver, final Specification spec,
 			final Library library, final Collection<Integer> outputs,
-			final Collection<Integer> inputs, final int exampleNumber, final List<BitVector> example);
+			final Collection<Integer> inputs, final int exampleNumber, final List<BitVector> example,
+			final BitVector output);
 
 
 
@@ -245,6 +403,111 @@ abstract class AbstractBVSynthesizer implements Synthesizer {
 
 
 
+	// Forbids the given candidate (including the values of its auxiliary
+	// variables) in all further generate steps
+	protected void blockCandidate(final Solver generateSolver, final Specification spec,
+			final Library library, final int[] program, final List<BitVector> auxiliaryVariables) {
+
+		generateSolver.add(mkNot(mkAnd(mkCandidateEqualities(spec, library, program,
+				auxiliaryVariables))));
+	}
+
+
+
+	// Returns equalities that hold iff the given candidate was chosen
+	protected List<BoolAst> mkCandidateEqualities(final Specification spec, final Library library,
+			final int[] program, final List<BitVector> auxiliaryVariables) {
+
+		final int lbw = IntMath.log2(library.size() + spec.getNumberOfInputs() + 1, RoundingMode.UP);
+
+		final List<BoolAst> equalities = new ArrayList<>();
+		for (int i = 0; i < program.length; ++i) {
+			equalities.add(mkEq(mkBVVar(lbw, "l_" + i), mkBVConst(lbw, program[i])));
+		}
+		for (int i = 0, k = 0; i < library.size() && k < auxiliaryVariables.size(); ++i) {
+			for (int j = 0; j < library.get(i).getNumberOfAuxiliaryVariables(); ++j) {
+				equalities.add(mkEq(
+						getAuxiliaryVariable(library, i, j),
+						mkBVConst(auxiliaryVariables.get(k))));
+				k += 1;
+			}
+		}
+
+		return equalities;
+	}
+
+
+
+	private void addExample(final Solver generateSolver, final Specification spec,
+			final Library library, final Collection<Integer> outputs,
+			final Collection<Integer> inputs, final int exampleNumber, final List<BitVector> example,
+			final BitVector output) {
+
+		if (generateSolver instanceof GuardedSolver) {
+			((GuardedSolver) generateSolver).beginGroup(exampleNumber);
+		}
+		try {
+			assertExample(generateSolver, spec, library, outputs, inputs, exampleNumber, example, output);
+		} finally {
+			if (generateSolver instanceof GuardedSolver) {
+				((GuardedSolver) generateSolver).endGroup();
+			}
+		}
+	}
+
+
+
+	// Rebuilds the generate solver with the examples that refute one of the
+	// given candidates (according to unsat cores) and all examples starting
+	// in [firstRecentExample, numberOfExamples). Returns the number of kept
+	// examples.
+	private int minimizeExamples(final GuardedSolver generateSolver, final Specification spec,
+			final Library library, final Collection<Pair<int[], List<BitVector>>> refutedCandidates,
+			final int firstRecentExample, final int numberOfExamples) {
+
+		final Set<Integer> keep = new HashSet<>();
+		for (final Pair<int[], List<BitVector>> candidate : refutedCandidates) {
+			final List<BoolAst> candidateEqualities = mkCandidateEqualities(spec, library,
+					candidate.getFirst(), candidate.getSecond());
+
+			switch (generateSolver.checkSatAssuming(candidateEqualities)) {
+				case UNSAT:
+					keep.addAll(generateSolver.getCoreGroups());
+					break;
+
+				default:
+					// Timeout; keep all examples
+					return generateSolver.getNumberOfGroups();
+			}
+		}
+
+		for (int i = Math.max(0, firstRecentExample); i < numberOfExamples; ++i) {
+			keep.add(i);
+		}
+
+		generateSolver.rebuild(keep);
+		return generateSolver.getNumberOfGroups();
+	}
+
+
+
+	// The examples in the generate solver, which every candidate satisfies.
+	// With an example limit, examples that have been dropped are not included.
+	private static List<List<BitVector>> getActiveExamples(final Solver generateSolver,
+			final ExampleStore runningExamples) {
+
+		if (!(generateSolver instanceof GuardedSolver)) {
+			return runningExamples.getExamples();
+		}
+		final List<List<BitVector>> result = new ArrayList<>();
+		for (final int exampleNumber : ((GuardedSolver) generateSolver).getGroups()) {
+			result.add(runningExamples.getExample(exampleNumber));
+		}
+		return result;
+	}
+
+
+
 	protected SatResult verify(final Solver solver, final Specification spec,
 			final Library library, final Collection<Integer> outputs,
 			final Collection<Integer> inputs, final int[] program,
@@ -416,53 +679,107 @@ abstract class AbstractBVSynthesizer implements Synthesizer {
 
 
 	protected List<BitVector> getAuxiliaryVariableValues(final Solver solver, final Library library) {
-		final List<BitVector> result = new ArrayList<>();
+		final List<BVAst> auxiliaryVariables = new ArrayList<>();
 
 		for (int i = 0; i < library.size(); ++i) {
 			final LibraryFunction libFunc = library.get(i);
 			for (int j = 0; j < libFunc.getNumberOfAuxiliaryVariables(); ++j) {
-				result.add(solver.getBVAssignment(getAuxiliaryVariable(library, i, j)));
+				auxiliaryVariables.add(getAuxiliaryVariable(library, i, j));
 			}
 		}
 
-		return result;
+		if (auxiliaryVariables.isEmpty()) {
+			return new ArrayList<>();
+		}
+		return solver.getBVAssignments(auxiliaryVariables);
 	}
 
 
 
 	protected List<BitVector> getCounterExample(final Solver verifySolver, final Specification spec) {
-		final List<BitVector> result = new ArrayList<>();
+		final List<BVAst> invs = new ArrayList<>();
 		for (int i = 0; i < spec.getNumberOfInputs(); ++i) {
-			result.add(verifySolver.getBVAssignment(
-					mkBVVar(spec.getInputBitWidth(i), "in_" + i)));
+			invs.add(mkBVVar(spec.getInputBitWidth(i), "in_" + i));
 		}
-		return result;
+		return verifySolver.getBVAssignments(invs);
 	}
 
 
 
-	private List<BitVector> getCounterExample(final Solver verifySolver, final Specification spec,
+	// Returns the counter example together with its specified output. The
+	// assumptions select the candidate in an incremental verify solver.
+	private Pair<List<BitVector>, BitVector> getCounterExample(final Solver verifySolver,
+			final List<BoolAst> assumptions, final Specification spec,
 			final Optional<BitVector> sameOutput) {
 
 		final List<BitVector> oldCounterExample = getCounterExample(verifySolver, spec);
+		final BitVector curOutput = evalSpec(spec, oldCounterExample);
 
 		if (sameOutput.isPresent()) {
-			final BitVector curOutput = evalSpec(spec, oldCounterExample);
 			if (curOutput.equals(sameOutput.get())) {
-				// Try to assert that outputs differ
+				// Try to assume that outputs differ
 				final List<BVAst> invs = new ArrayList<>();
 				for (int i = 0; i < spec.getNumberOfInputs(); ++i) {
 					invs.add(mkBVVar(spec.getInputBitWidth(i), "in_" + i));
 				}
-				verifySolver.add(mkNe(mkBVConst(curOutput), spec.getFunction().apply(invs)));
+				final List<BoolAst> differentOutput = new ArrayList<>(assumptions);
+				differentOutput.add(mkNe(mkBVConst(curOutput), spec.getFunction().apply(invs)));
 
-				if (verifySolver.checkSat() == SatResult.SAT) {
-					return getCounterExample(verifySolver, spec);
+				if (verifySolver.checkSatAssuming(differentOutput) == SatResult.SAT) {
+					final List<BitVector> newCounterExample = getCounterExample(verifySolver, spec);
+					return new Pair<>(newCounterExample, evalSpec(spec, newCounterExample));
 				}
 			}
 		}
 
-		return oldCounterExample;
+		return new Pair<>(oldCounterExample, curOutput);
+	}
+
+
+
+	// Returns up to batchSize distinct counter examples for the same candidate.
+	// Counter examples whose outputs differ from all previous ones in the
+	// batch are preferred. Requires an incremental solver if batchSize is
+	// greater than one.
+	List<Pair<List<BitVector>, BitVector>> getCounterExamples(final Solver verifySolver,
+			final List<BoolAst> assumptions, final Specification spec,
+			final Optional<BitVector> sameOutput, final int batchSize) {
+
+		final List<Pair<List<BitVector>, BitVector>> result = new ArrayList<>();
+		result.add(getCounterExample(verifySolver, assumptions, spec, sameOutput));
+
+		final List<BVAst> invs = new ArrayList<>();
+		for (int i = 0; i < spec.getNumberOfInputs(); ++i) {
+			invs.add(mkBVVar(spec.getInputBitWidth(i), "in_" + i));
+		}
+		final BVAst specOutput = spec.getFunction().apply(invs);
+
+		// The inputs of the batch are only blocked for this candidate. The verify
+		// solver may be shared by all candidates, and with an example limit an
+		// input can be dropped from the generate solver and be needed again.
+		final List<BoolAst> otherInputs = new ArrayList<>(assumptions);
+		final List<BoolAst> differentOutputs = new ArrayList<>(assumptions);
+		while (result.size() < batchSize) {
+			final Pair<List<BitVector>, BitVector> last = result.get(result.size() - 1);
+
+			final List<BoolAst> differences = new ArrayList<>();
+			for (int i = 0; i < invs.size(); ++i) {
+				differences.add(mkNe(invs.get(i), mkBVConst(last.getFirst().get(i))));
+			}
+			otherInputs.add(mkOr(differences));
+			differentOutputs.add(mkOr(differences));
+			differentOutputs.add(mkNe(mkBVConst(last.getSecond()), specOutput));
+
+			if (verifySolver.checkSatAssuming(differentOutputs) != SatResult.SAT
+					&& verifySolver.checkSatAssuming(otherInputs) != SatResult.SAT) {
+				break;
+			}
+
+			final List<BitVector> counterExample = getCounterExample(verifySolver, spec);
+			result.add(new Pair<>(counterExample, evalSpec(spec, counterExample)));
+		}
+
+		return result;
 	}
 
 
@@ -615,10 +932,39 @@ abstract class AbstractBVSynthesizer implements Synthesizer {
 
 
 	private void setStatistics(final int iterationNumber,
-			final List<List<BitVector>> runningExamples, final List<int[]> tempPrograms) {
+			final ExampleStore runningExamples, final List<int[]> tempPrograms) {
 
 		this.statistics = Optional.of(new SynthesisStatistics(
-				iterationNumber + 1, runningExamples, tempPrograms));
+				iterationNumber + 1, runningExamples.getExamples(), tempPrograms));
+	}
+
+
+
+	private static SatResult awaitSpeculation(final Future<SatResult> speculation) {
+		try {
+			return speculation.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return SatResult.UNKNOWN;
+		} catch (final ExecutionException e) {
+			return SatResult.UNKNOWN;
+		}
+	}
+
+
+
+	// The generate solver must not be used while a speculative check is running
+	private static void cancelSpeculation(final Solver generateSolver,
+			final Future<SatResult> speculation) {
+
+		if (speculation != null) {
+			generateSolver.interrupt();
+			try {
+				Uninterruptibles.getUninterruptibly(speculation);
+			} catch (final ExecutionException e) {
+				// The check is over either way
+			}
+		}
 	}
 
 
@@ -633,7 +979,7 @@ abstract class AbstractBVSynthesizer implements Synthesizer {
 
 
 
-	private Library removeUnusableOperations(final Specification spec, final Library library) {
+	Library removeUnusableOperations(final Specification spec, final Library library) {
 
 		if (!spec.getSizeRestriction().isPresent() || library.hasUniformCosts()) {
 			return library;
@@ -728,52 +1074,8 @@ abstract class AbstractBVSynthesizer implements Synthesizer {
 
 
 
-	private static Optional<BitVector> checkSameOutputOptimization(final Specification spec,
-			final List<List<BitVector>> runningExamples) {
-
-		final int numExamples = runningExamples.size();
-		if (numExamples < SAME_CEX_THRESHOLD) {
-			return Optional.empty();
-		}
-
-		final BitVector firstOutput = evalSpec(spec, runningExamples
-				.get(numExamples - SAME_CEX_THRESHOLD));
-
-		for (int i = numExamples - SAME_CEX_THRESHOLD + 1; i < numExamples; ++i) {
-			final BitVector curOutput = evalSpec(spec, runningExamples.get(i));
-
-			if (!firstOutput.equals(curOutput)) {
-				return Optional.empty();
-			}
-		}
-
-		return Optional.of(firstOutput);
-	}
-
-
-
-	private static Optional<BitVector> checkAllSameOutputOptimization(final Specification spec,
-			final List<List<BitVector>> runningExamples) {
-
-		final BitVector firstOutput = evalSpec(spec, runningExamples.get(0));
-
-		final int numExamples = runningExamples.size();
-		for (int i = 1; i < numExamples; ++i) {
-			final BitVector curOutput = evalSpec(spec, runningExamples.get(i));
-
-			if (!firstOutput.equals(curOutput)) {
-				return Optional.empty();
-			}
-		}
-
-		return Optional.of(firstOutput);
-	}
-
-
-
 	protected static BitVector evalSpec(final Specification spec, final List<BitVector> inputs) {
-		return spec.getFunction().apply(Lists.transform(inputs, Builder::mkBVConst))
-				.eval(Collections.emptyMap());
+		return spec.evaluate(inputs);
 	}
 
 
@@ -781,6 +1083,13 @@ abstract class AbstractBVSynthesizer implements Synthesizer {
 	private Optional<List<BitVector>> constantFunctionOptimization(final SynthesizerSettings settings,
 			final Specification spec, final BitVector output) throws TimeoutException {
 
+		// Random inputs often suffice to show that the function is not constant
+		final Optional<List<BitVector>> sampledExample = sampleDifferentOutput(spec, output,
+				new Random(settings.getRandomSeed().orElse(0)));
+		if (sampledExample.isPresent()) {
+			return sampledExample;
+		}
+
 		final Solver checkConstSolver = settings.makeVerifySolver();
 
 		final List<BVAst> invs = new ArrayList<>();
@@ -809,5 +1118,44 @@ abstract class AbstractBVSynthesizer implements Synthesizer {
 			}
 		}
 	}
-}
 
+
+
+	private static Optional<List<BitVector>> sampleDifferentOutput(final Specification spec,
+			final BitVector output, final Random random) {
+
+		final List<BVAst> invs = new ArrayList<>();
+		final Map<Ast, long[]> inputSlices = new HashMap<>();
+		for (int i = 0; i < spec.getNumberOfInputs(); ++i) {
+			final BVAst inv = mkBVVar(spec.getInputBitWidth(i), "in_" + i);
+			final long[] slices = new long[spec.getInputBitWidth(i)];
+			for (int j = 0; j < slices.length; ++j) {
+				slices[j] = random.nextLong();
+			}
+			invs.add(inv);
+			inputSlices.put(inv, slices);
+		}
+
+		// Lanes that satisfy all preconditions and yield a different output
+		long lanes = 0L;
+		final long[] outputSlices = BitSlicedEvaluator.evaluate(spec.getFunction().apply(invs),
+				inputSlices);
+		for (int i = 0; i < outputSlices.length; ++i) {
+			lanes |= outputSlices[i] ^ (output.getBit(i) ? -1L : 0L);
+		}
+		for (final Function<List<BVAst>, BoolAst> precondition : spec.getPreconditions()) {
+			lanes &= BitSlicedEvaluator.evaluate(precondition.apply(invs), inputSlices);
+		}
+
+		if (lanes == 0L) {
+			return Optional.empty();
+		}
+
+		final int lane = Long.numberOfTrailingZeros(lanes);
+		final List<BitVector> result = new ArrayList<>();
+		for (final BVAst inv : invs) {
+			result.add(BitSlicedEvaluator.getLane(inputSlices.get(inv), lane));
+		}
+		return Optional.of(result);
+	}
+}
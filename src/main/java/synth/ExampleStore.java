@@ -0,0 +1,119 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package synth;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import smt.BitVector;
+
+
+
+/**
+ * The examples of a CEGIS run together with the output of the specification
+ * for each of them. Each output is computed exactly once.
+ */
+final class ExampleStore {
+
+	private final Specification spec;
+
+	private final List<List<BitVector>> examples = new ArrayList<>();
+	private final List<BitVector> outputs = new ArrayList<>();
+
+	// Whether all examples yield the same output
+	private boolean allSameOutput = true;
+
+	// Number of trailing examples that yield the same output as the last one
+	private int sameOutputRunLength = 0;
+
+
+
+	ExampleStore(final Specification spec) {
+		this.spec = spec;
+	}
+
+
+
+	BitVector add(final List<BitVector> example) {
+		final BitVector output = this.spec.evaluate(example);
+		this.add(example, output);
+		return output;
+	}
+
+
+
+	void add(final List<BitVector> example, final BitVector output) {
+		if (this.outputs.isEmpty()) {
+			this.sameOutputRunLength = 1;
+		} else if (output.equals(this.outputs.get(this.outputs.size() - 1))) {
+			this.sameOutputRunLength += 1;
+		} else {
+			this.sameOutputRunLength = 1;
+			this.allSameOutput = false;
+		}
+
+		this.examples.add(example);
+		this.outputs.add(output);
+	}
+
+
+
+	int size() {
+		return this.examples.size();
+	}
+
+
+
+	List<BitVector> getExample(final int index) {
+		return this.examples.get(index);
+	}
+
+
+
+	BitVector getOutput(final int index) {
+		return this.outputs.get(index);
+	}
+
+
+
+	List<List<BitVector>> getExamples() {
+		return Collections.unmodifiableList(this.examples);
+	}
+
+
+
+	Optional<BitVector> getAllSameOutput() {
+		if (this.outputs.isEmpty() || !this.allSameOutput) {
+			return Optional.empty();
+		}
+		return Optional.of(this.outputs.get(0));
+	}
+
+
+
+	Optional<BitVector> getLastSameOutput(final int count) {
+		if (this.sameOutputRunLength < count) {
+			return Optional.empty();
+		}
+		return Optional.of(this.outputs.get(this.outputs.size() - 1));
+	}
+}
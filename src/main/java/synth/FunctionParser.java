@@ -25,6 +25,7 @@ import java.io.StringReader;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -43,7 +44,37 @@ import smt.BVAst;
 
 public class FunctionParser {
 
+	// Names that are visible in an expression
+	private static final class Environment {
+		final Map<String, Integer> varMap;
+		final List<BVAst> inputs;
+		final Map<String, BVAst> bindings;
+		final Map<String, Function<List<BVAst>, BVAst>> definitions;
+
+		Environment(final Map<String, Integer> varMap, final List<BVAst> inputs,
+				final Map<String, BVAst> bindings,
+				final Map<String, Function<List<BVAst>, BVAst>> definitions) {
+			this.varMap = varMap;
+			this.inputs = inputs;
+			this.bindings = bindings;
+			this.definitions = definitions;
+		}
+	}
+
+
+
 	public static Function<List<BVAst>, BVAst> parse(final String functionString) {
+		return parse(functionString, Collections.emptyMap());
+	}
+
+
+
+	// Expressions may use (let ((n1 e1) ... (nk ek)) e) to bind the values of
+	// e1, ..., ek to the names n1, ..., nk in e. Each bound value is built only
+	// once, so that its uses share the same subtree. Furthermore, expressions
+	// may apply the given functions as (name e1 ... ek).
+	public static Function<List<BVAst>, BVAst> parse(final String functionString,
+			final Map<String, Function<List<BVAst>, BVAst>> definitions) {
 
 		try {
 			final List<String> tokens = tokenize(new StringReader(functionString));
@@ -55,7 +86,8 @@ public class FunctionParser {
 				throw new IllegalArgumentException("parse error");
 			}
 
-			return inputs -> parseExpression(tokens, idx + 1, varMap, inputs);
+			return inputs -> parseExpression(tokens, idx + 1,
+					new Environment(varMap, inputs, Collections.emptyMap(), definitions));
 		} catch (final IOException e) {
 			throw new IllegalStateException(e);
 		}
@@ -64,6 +96,13 @@ public class FunctionParser {
 
 
 	public static Function<List<BVAst>, BoolAst> parseBool(final String functionString) {
+		return parseBool(functionString, Collections.emptyMap());
+	}
+
+
+
+	public static Function<List<BVAst>, BoolAst> parseBool(final String functionString,
+			final Map<String, Function<List<BVAst>, BVAst>> definitions) {
 
 		try {
 			final List<String> tokens = tokenize(new StringReader(functionString));
@@ -75,7 +114,8 @@ public class FunctionParser {
 				throw new IllegalArgumentException("parse error");
 			}
 
-			return inputs -> parseBoolExpression(tokens, idx + 1, varMap, inputs);
+			return inputs -> parseBoolExpression(tokens, idx + 1,
+					new Environment(varMap, inputs, Collections.emptyMap(), definitions));
 		} catch (final IOException e) {
 			throw new IllegalStateException(e);
 		}
@@ -203,16 +243,16 @@ public class FunctionParser {
 
 
 	private static BVAst parseExpression(final List<String> tokens, final int idx,
-			final Map<String, Integer> varMap, final List<BVAst> inputs) {
+			final Environment environment) {
 
 		final int[] idxContainer = { idx };
-		return parseExpression(tokens, idxContainer, varMap, inputs);
+		return parseExpression(tokens, idxContainer, environment);
 	}
 
 
 
 	private static BVAst parseExpression(final List<String> tokens, final int[] idx,
-			final Map<String, Integer> varMap, final List<BVAst> inputs) {
+			final Environment environment) {
 
 		if (idx[0] >= tokens.size()) {
 			throw new IllegalArgumentException("parse error: reached end of String: " + idx[0]);
@@ -230,20 +270,25 @@ public class FunctionParser {
 			switch (tokens.get(idx[0])) {
 				case "not":
 					idx[0] += 1;
-					result = mkNot(parseExpression(tokens, idx, varMap, inputs));
+					result = mkNot(parseExpression(tokens, idx, environment));
 					break;
 
 				case "neg":
 					idx[0] += 1;
-					result = mkNeg(parseExpression(tokens, idx, varMap, inputs));
+					result = mkNeg(parseExpression(tokens, idx, environment));
 					break;
 
 				case "ite":
 					idx[0] += 1;
 					result = mkIte(
-							parseBoolExpression(tokens, idx, varMap, inputs),
-							parseExpression(tokens, idx, varMap, inputs),
-							parseExpression(tokens, idx, varMap, inputs));
+							parseBoolExpression(tokens, idx, environment),
+							parseExpression(tokens, idx, environment),
+							parseExpression(tokens, idx, environment));
+					break;
+
+				case "let":
+					idx[0] += 1;
+					result = parseExpression(tokens, idx, parseBindings(tokens, idx, environment));
 					break;
 
 				case "extract": {
@@ -257,7 +302,7 @@ public class FunctionParser {
 						throw new IllegalArgumentException("parse error", e);
 					}
 					idx[0] += 2;
-					result = mkExtract(low, high, parseExpression(tokens, idx, varMap, inputs));
+					result = mkExtract(low, high, parseExpression(tokens, idx, environment));
 					break;
 				}
 
@@ -314,13 +359,27 @@ public class FunctionParser {
 							operator = Builder::mkConcat;
 							break;
 						default:
-							throw new IllegalArgumentException("parse error: unexpected " + tokens.get(idx[0]));
+							if (!environment.definitions.containsKey(tokens.get(idx[0]))) {
+								throw new IllegalArgumentException("parse error: unexpected " + tokens.get(idx[0]));
+							}
 					}
-					idx[0] += 1;
 
-					result = operator.apply(
-							parseExpression(tokens, idx, varMap, inputs),
-							parseExpression(tokens, idx, varMap, inputs));
+					if (operator != null) {
+						idx[0] += 1;
+						result = operator.apply(
+								parseExpression(tokens, idx, environment),
+								parseExpression(tokens, idx, environment));
+					} else {
+						final Function<List<BVAst>, BVAst> definition
+								= environment.definitions.get(tokens.get(idx[0]));
+						idx[0] += 1;
+
+						final List<BVAst> arguments = new ArrayList<>();
+						while (idx[0] < tokens.size() && !")".equals(tokens.get(idx[0]))) {
+							arguments.add(parseExpression(tokens, idx, environment));
+						}
+						result = definition.apply(arguments);
+					}
 				}
 			}
 
@@ -350,27 +409,70 @@ public class FunctionParser {
 				throw new IllegalArgumentException("parse error", e);
 			}
 		} else {
-			if (!varMap.containsKey(tokens.get(idx[0]))) {
+			final BVAst bound = environment.bindings.get(tokens.get(idx[0]));
+			if (bound != null) {
+				idx[0] += 1;
+				return bound;
+			}
+
+			if (!environment.varMap.containsKey(tokens.get(idx[0]))) {
 				throw new IllegalArgumentException("parse error: variable not found: " + tokens.get(idx[0]));
 			}
 
-			return inputs.get(varMap.get(tokens.get(idx[0]++)));
+			return environment.inputs.get(environment.varMap.get(tokens.get(idx[0]++)));
 		}
 	}
 
 
 
+	// Parses ((n1 e1) ... (nk ek)) and returns the environment for the body.
+	// As in SMT-LIB, all ei are evaluated in the outer environment.
+	private static Environment parseBindings(final List<String> tokens, final int[] idx,
+			final Environment environment) {
+
+		if (idx[0] >= tokens.size() || !"(".equals(tokens.get(idx[0]))) {
+			throw new IllegalArgumentException("parse error: expected ( at index " + idx[0]);
+		}
+		idx[0] += 1;
+
+		final Map<String, BVAst> bindings = new HashMap<>(environment.bindings);
+		while (idx[0] < tokens.size() && "(".equals(tokens.get(idx[0]))) {
+			if (idx[0] + 1 >= tokens.size()) {
+				throw new IllegalArgumentException("parse error: reached end of String: " + idx[0]);
+			}
+			final String name = tokens.get(idx[0] + 1);
+			idx[0] += 2;
+
+			bindings.put(name, parseExpression(tokens, idx, environment));
+
+			if (idx[0] >= tokens.size() || !")".equals(tokens.get(idx[0]))) {
+				throw new IllegalArgumentException("parse error: expected ) at index " + idx[0]);
+			}
+			idx[0] += 1;
+		}
+
+		if (idx[0] >= tokens.size() || !")".equals(tokens.get(idx[0]))) {
+			throw new IllegalArgumentException("parse error: expected ) at index " + idx[0]);
+		}
+		idx[0] += 1;
+
+		return new Environment(environment.varMap, environment.inputs, bindings,
+				environment.definitions);
+	}
+
+
+
 	private static BoolAst parseBoolExpression(final List<String> tokens, final int idx,
-			final Map<String, Integer> varMap, final List<BVAst> inputs) {
+			final Environment environment) {
 
 		final int[] idxContainer = { idx };
-		return parseBoolExpression(tokens, idxContainer, varMap, inputs);
+		return parseBoolExpression(tokens, idxContainer, environment);
 	}
 
 
 
 	private static BoolAst parseBoolExpression(final List<String> tokens, final int[] idx,
-			final Map<String, Integer> varMap, final List<BVAst> inputs) {
+			final Environment environment) {
 
 		if (idx[0] >= tokens.size()) {
 			throw new IllegalArgumentException("parse error");
@@ -396,8 +498,8 @@ public class FunctionParser {
 					case "and": {
 						idx[0] += 1;
 						final BoolAst result = mkAnd(
-								parseBoolExpression(tokens, idx, varMap, inputs),
-								parseBoolExpression(tokens, idx, varMap, inputs));
+								parseBoolExpression(tokens, idx, environment),
+								parseBoolExpression(tokens, idx, environment));
 
 						if (idx[0] >= tokens.size() || !")".equals(tokens.get(idx[0]))) {
 							throw new IllegalArgumentException("parse error: expected ) at index " + idx[0]);
@@ -410,8 +512,21 @@ public class FunctionParser {
 					case "or": {
 						idx[0] += 1;
 						final BoolAst result = mkOr(
-								parseBoolExpression(tokens, idx, varMap, inputs),
-								parseBoolExpression(tokens, idx, varMap, inputs));
+								parseBoolExpression(tokens, idx, environment),
+								parseBoolExpression(tokens, idx, environment));
+
+						if (idx[0] >= tokens.size() || !")".equals(tokens.get(idx[0]))) {
+							throw new IllegalArgumentException("parse error: expected ) at index " + idx[0]);
+						}
+						idx[0] += 1;
+
+						return result;
+					}
+
+					case "let": {
+						idx[0] += 1;
+						final BoolAst result = parseBoolExpression(tokens, idx,
+								parseBindings(tokens, idx, environment));
 
 						if (idx[0] >= tokens.size() || !")".equals(tokens.get(idx[0]))) {
 							throw new IllegalArgumentException("parse error: expected ) at index " + idx[0]);
@@ -423,7 +538,7 @@ public class FunctionParser {
 
 					case "not": {
 						idx[0] += 1;
-						final BoolAst result = mkNot(parseBoolExpression(tokens, idx, varMap, inputs));
+						final BoolAst result = mkNot(parseBoolExpression(tokens, idx, environment));
 
 						if (idx[0] >= tokens.size() || !")".equals(tokens.get(idx[0]))) {
 							throw new IllegalArgumentException("parse error: expected ) at index " + idx[0]);
@@ -483,8 +598,8 @@ public class FunctionParser {
 
 						idx[0] += 1;
 						final BoolAst result = operator.apply(
-								parseExpression(tokens, idx, varMap, inputs),
-								parseExpression(tokens, idx, varMap, inputs));
+								parseExpression(tokens, idx, environment),
+								parseExpression(tokens, idx, environment));
 
 						if (idx[0] >= tokens.size() || !")".equals(tokens.get(idx[0]))) {
 							throw new IllegalArgumentException("parse error: expected ) at index " + idx[0]);
@@ -0,0 +1,221 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package synth;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static smt.Builder.*;
+
+import smt.BitVector;
+import smt.BoolAst;
+import smt.BVAst;
+import smt.SatResult;
+import smt.Solver;
+
+
+
+// Solver that guards groups of constraints (e.g., all constraints of one
+// example) by indicator literals. Groups can later be dropped by rebuilding
+// the underlying solver from the remaining constraints.
+final class GuardedSolver implements Solver {
+
+	private final Supplier<Solver> solverFactory;
+	// Frees a solver that has been replaced by a rebuild
+	private final Consumer<Solver> solverReleaser;
+	private volatile Solver solver;
+
+	private final List<BoolAst> permanentConstraints = new ArrayList<>();
+	private final Map<Integer, List<BoolAst>> groups = new LinkedHashMap<>();
+	private final Map<Integer, BoolAst> guards = new LinkedHashMap<>();
+	private final Map<BoolAst, Integer> guardToGroup = new HashMap<>();
+
+	private Integer currentGroup = null;
+
+
+
+	GuardedSolver(final Supplier<Solver> solverFactory) {
+		this(solverFactory, solver -> { });
+	}
+
+
+
+	GuardedSolver(final Supplier<Solver> solverFactory, final Consumer<Solver> solverReleaser) {
+		this.solverFactory = solverFactory;
+		this.solverReleaser = solverReleaser;
+		this.solver = solverFactory.get();
+	}
+
+
+
+	void beginGroup(final int group) {
+		if (this.currentGroup != null || this.groups.containsKey(group)) {
+			throw new IllegalStateException();
+		}
+		final BoolAst guard = mkBoolVar("ex_" + group);
+		this.groups.put(group, new ArrayList<>());
+		this.guards.put(group, guard);
+		this.guardToGroup.put(guard, group);
+		this.currentGroup = group;
+	}
+
+
+
+	void endGroup() {
+		this.currentGroup = null;
+	}
+
+
+
+	int getNumberOfGroups() {
+		return this.groups.size();
+	}
+
+
+
+	Set<Integer> getGroups() {
+		return Collections.unmodifiableSet(this.groups.keySet());
+	}
+
+
+
+	// Groups whose guards occur in the unsat core of the last check
+	Set<Integer> getCoreGroups() {
+		final Set<Integer> result = new TreeSet<>();
+		for (final BoolAst literal : this.solver.getUnsatCore()) {
+			final Integer group = this.guardToGroup.get(literal);
+			if (group != null) {
+				result.add(group);
+			}
+		}
+		return result;
+	}
+
+
+
+	// Replaces the underlying solver by a new one that only contains the
+	// permanent constraints and the given groups, and releases the old one
+	void rebuild(final Collection<Integer> keptGroups) {
+		this.groups.keySet().retainAll(keptGroups);
+		this.guards.keySet().retainAll(keptGroups);
+		this.guardToGroup.values().retainAll(keptGroups);
+
+		final Solver newSolver = this.solverFactory.get();
+		for (final BoolAst constraint : this.permanentConstraints) {
+			newSolver.add(constraint);
+		}
+		for (final Map.Entry<Integer, List<BoolAst>> group : this.groups.entrySet()) {
+			final BoolAst guard = this.guards.get(group.getKey());
+			for (final BoolAst constraint : group.getValue()) {
+				newSolver.add(mkImplies(guard, constraint));
+			}
+		}
+		final Solver oldSolver = this.solver;
+		this.solver = newSolver;
+		this.solverReleaser.accept(oldSolver);
+	}
+
+
+
+	@Override
+	public void add(final BoolAst constraint) {
+		if (this.currentGroup == null) {
+			this.permanentConstraints.add(constraint);
+			this.solver.add(constraint);
+		} else {
+			this.groups.get(this.currentGroup).add(constraint);
+			this.solver.add(mkImplies(this.guards.get(this.currentGroup), constraint));
+		}
+	}
+
+
+
+	@Override
+	public SatResult checkSat() {
+		return this.solver.checkSatAssuming(new ArrayList<>(this.guards.values()));
+	}
+
+
+
+	@Override
+	public SatResult checkSatAssuming(final List<BoolAst> assumptions) {
+		final List<BoolAst> allAssumptions = new ArrayList<>(this.guards.values());
+		allAssumptions.addAll(assumptions);
+		return this.solver.checkSatAssuming(allAssumptions);
+	}
+
+
+
+	@Override
+	public List<BoolAst> getUnsatCore() {
+		return this.solver.getUnsatCore();
+	}
+
+
+
+	@Override
+	public BitVector getBVAssignment(final BVAst tree) {
+		return this.solver.getBVAssignment(tree);
+	}
+
+
+
+	@Override
+	public List<BitVector> getBVAssignments(final List<? extends BVAst> trees) {
+		return this.solver.getBVAssignments(trees);
+	}
+
+
+
+	@Override
+	public boolean getBoolAssignment(final BoolAst tree) {
+		return this.solver.getBoolAssignment(tree);
+	}
+
+
+
+	@Override
+	public void push() {
+		throw new UnsupportedOperationException();
+	}
+
+
+
+	@Override
+	public void pop() {
+		throw new UnsupportedOperationException();
+	}
+
+
+
+	@Override
+	public void interrupt() {
+		this.solver.interrupt();
+	}
+}
@@ -22,6 +22,7 @@ package synth;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Function;
 
 import smt.BitVector;
@@ -474,7 +475,7 @@ public class LibraryFunction extends AbstractInOut {
 
 
 	public static LibraryFunction getEqBV(final int width) {
-		return new LibraryFunction("eq", 2, inputs -> Builder.mkIte(
+		return new LibraryFunction("eq", Collections.nCopies(2, width), width, inputs -> Builder.mkIte(
 				Builder.mkEq(inputs.get(0), inputs.get(1)),
 				Builder.mkBVConst(width, 1),
 				Builder.mkBVConst(width, 0)));
@@ -492,7 +493,7 @@ public class LibraryFunction extends AbstractInOut {
 
 
 	public static LibraryFunction getNeqBV(final int width) {
-		return new LibraryFunction("neq", 2, inputs -> Builder.mkIte(
+		return new LibraryFunction("neq", Collections.nCopies(2, width), width, inputs -> Builder.mkIte(
 				Builder.mkNe(inputs.get(0), inputs.get(1)),
 				Builder.mkBVConst(width, 1),
 				Builder.mkBVConst(width, 0)));
@@ -510,7 +511,7 @@ public class LibraryFunction extends AbstractInOut {
 
 
 	public static LibraryFunction getUGtBV(final int width) {
-		return new LibraryFunction("ugt", 2, inputs -> Builder.mkIte(
+		return new LibraryFunction("ugt", Collections.nCopies(2, width), width, inputs -> Builder.mkIte(
 				Builder.mkUGt(inputs.get(0), inputs.get(1)),
 				Builder.mkBVConst(width, 1),
 				Builder.mkBVConst(width, 0)));
@@ -528,7 +529,7 @@ public class LibraryFunction extends AbstractInOut {
 
 
 	public static LibraryFunction getUGeBV(final int width) {
-		return new LibraryFunction("uge", 2, inputs -> Builder.mkIte(
+		return new LibraryFunction("uge", Collections.nCopies(2, width), width, inputs -> Builder.mkIte(
 				Builder.mkUGe(inputs.get(0), inputs.get(1)),
 				Builder.mkBVConst(width, 1),
 				Builder.mkBVConst(width, 0)));
@@ -546,7 +547,7 @@ public class LibraryFunction extends AbstractInOut {
 
 
 	public static LibraryFunction getULtBV(final int width) {
-		return new LibraryFunction("ult", 2, inputs -> Builder.mkIte(
+		return new LibraryFunction("ult", Collections.nCopies(2, width), width, inputs -> Builder.mkIte(
 				Builder.mkULt(inputs.get(0), inputs.get(1)),
 				Builder.mkBVConst(width, 1),
 				Builder.mkBVConst(width, 0)));
@@ -564,7 +565,7 @@ public class LibraryFunction extends AbstractInOut {
 
 
 	public static LibraryFunction getULeBV(final int width) {
-		return new LibraryFunction("ule", 2, inputs -> Builder.mkIte(
+		return new LibraryFunction("ule", Collections.nCopies(2, width), width, inputs -> Builder.mkIte(
 				Builder.mkULe(inputs.get(0), inputs.get(1)),
 				Builder.mkBVConst(width, 1),
 				Builder.mkBVConst(width, 0)));
@@ -582,7 +583,7 @@ public class LibraryFunction extends AbstractInOut {
 
 
 	public static LibraryFunction getSGtBV(final int width) {
-		return new LibraryFunction("sgt", 2, inputs -> Builder.mkIte(
+		return new LibraryFunction("sgt", Collections.nCopies(2, width), width, inputs -> Builder.mkIte(
 				Builder.mkSGt(inputs.get(0), inputs.get(1)),
 				Builder.mkBVConst(width, 1),
 				Builder.mkBVConst(width, 0)));
@@ -600,7 +601,7 @@ public class LibraryFunction extends AbstractInOut {
 
 
 	public static LibraryFunction getSGeBV(final int width) {
-		return new LibraryFunction("sge", 2, inputs -> Builder.mkIte(
+		return new LibraryFunction("sge", Collections.nCopies(2, width), width, inputs -> Builder.mkIte(
 				Builder.mkSGe(inputs.get(0), inputs.get(1)),
 				Builder.mkBVConst(width, 1),
 				Builder.mkBVConst(width, 0)));
@@ -618,7 +619,7 @@ public class LibraryFunction extends AbstractInOut {
 
 
 	public static LibraryFunction getSLtBV(final int width) {
-		return new LibraryFunction("slt", 2, inputs -> Builder.mkIte(
+		return new LibraryFunction("slt", Collections.nCopies(2, width), width, inputs -> Builder.mkIte(
 				Builder.mkSLt(inputs.get(0), inputs.get(1)),
 				Builder.mkBVConst(width, 1),
 				Builder.mkBVConst(width, 0)));
@@ -636,10 +637,80 @@ public class LibraryFunction extends AbstractInOut {
 
 
 	public static LibraryFunction getSLeBV(final int width) {
-		return new LibraryFunction("sle", 2, inputs -> Builder.mkIte(
+		return new LibraryFunction("sle", Collections.nCopies(2, width), width, inputs -> Builder.mkIte(
 				Builder.mkSLe(inputs.get(0), inputs.get(1)),
 				Builder.mkBVConst(width, 1),
 				Builder.mkBVConst(width, 0)));
 	}
-}
 
+
+
+	// The predefined library functions by the names used in the shell and in
+	// the benchmark files
+	public static Optional<LibraryFunction> forName(final String name, final int width) {
+		switch (name) {
+			case "add":
+				return Optional.of(getAdd(width));
+			case "sub":
+				return Optional.of(getSub(width));
+			case "mul":
+				return Optional.of(getMul(width));
+			case "sdiv":
+				return Optional.of(getSDiv(width));
+			case "udiv":
+				return Optional.of(getUDiv(width));
+			case "srem":
+				return Optional.of(getSRem(width));
+			case "urem":
+				return Optional.of(getURem(width));
+			case "smod":
+				return Optional.of(getSMod(width));
+			case "umod":
+				return Optional.of(getUMod(width));
+			case "and":
+				return Optional.of(getAnd(width));
+			case "or":
+				return Optional.of(getOr(width));
+			case "xor":
+				return Optional.of(getXor(width));
+			case "shl":
+				return Optional.of(getShl(width));
+			case "ashr":
+				return Optional.of(getAshr(width));
+			case "lshr":
+				return Optional.of(getLshr(width));
+			case "shljava":
+				return Optional.of(getShlJava(width));
+			case "ashrjava":
+				return Optional.of(getAshrJava(width));
+			case "lshrjava":
+				return Optional.of(getLshrJava(width));
+			case "not":
+				return Optional.of(getNot(width));
+			case "neg":
+				return Optional.of(getNeg(width));
+			case "eq":
+				return Optional.of(getEqBV(width));
+			case "neq":
+				return Optional.of(getNeqBV(width));
+			case "ugt":
+				return Optional.of(getUGtBV(width));
+			case "uge":
+				return Optional.of(getUGeBV(width));
+			case "ult":
+				return Optional.of(getULtBV(width));
+			case "ule":
+				return Optional.of(getULeBV(width));
+			case "sgt":
+				return Optional.of(getSGtBV(width));
+			case "sge":
+				return Optional.of(getSGeBV(width));
+			case "slt":
+				return Optional.of(getSLtBV(width));
+			case "sle":
+				return Optional.of(getSLeBV(width));
+			default:
+				return Optional.empty();
+		}
+	}
+}
@@ -136,7 +136,8 @@ public class ListBasedSynthesizer extends AbstractBVSynthesizer {
 	@Override
 	protected void assertExample(final Solver generateSolver, final Specification spec,
 			final Library library, final Collection<Integer> outputs,
-			final Collection<Integer> inputs, final int exampleNumber, final List<BitVector> example) {
+			final Collection<Integer> inputs, final int exampleNumber, final List<BitVector> example,
+			final BitVector output) {
 
 		if (example.size() != spec.getNumberOfInputs()) {
 			throw new IllegalArgumentException();
@@ -166,15 +167,11 @@ public class ListBasedSynthesizer extends AbstractBVSynthesizer {
 
 		// Specification
 		//   * inputs
-		final List<BVAst> arguments = new ArrayList<>();
 		for (int i = 0; i < example.size(); ++i) {
-			final BVAst arg = mkBVConst(example.get(i));
-			generateSolver.add(mkEq(invs.get(i), arg));
-			arguments.add(arg);
+			generateSolver.add(mkEq(invs.get(i), mkBVConst(example.get(i))));
 		}
 		//   * output
-		generateSolver.add(mkEq(outv,
-				mkBVConst(spec.getFunction().apply(arguments).eval(Collections.emptyMap()))));
+		generateSolver.add(mkEq(outv, mkBVConst(output)));
 	}
 
 
@@ -186,9 +183,14 @@ public class ListBasedSynthesizer extends AbstractBVSynthesizer {
 
 		final int[] result = new int[outputs.size() + inputs.size()];
 		final int lbw = IntMath.log2(library.size() + spec.getNumberOfInputs() + 1, RoundingMode.UP);
+		final List<BVAst> ls = new ArrayList<>();
+		for (int i = 0; i < result.length; ++i) {
+			ls.add(mkBVVar(lbw, "l_" + i));
+		}
+
+		final List<BitVector> values = generateSolver.getBVAssignments(ls);
 		for (int i = 0; i < result.length; ++i) {
-			result[i] = generateSolver.getBVAssignment(mkBVVar(lbw, "l_" + i)).toUnsignedBigInteger()
-					.intValue();
+			result[i] = values.get(i).toUnsignedBigInteger().intValue();
 		}
 
 		return result;
@@ -0,0 +1,256 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package synth;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import smt.BitVector;
+
+
+
+// Runs several diversified synthesizers concurrently and returns the first
+// definitive result. The members differ in their random seeds and in their
+// initial examples.
+public final class PortfolioSynthesizer implements Synthesizer {
+
+	private static final int RANDOM_EXAMPLE_ATTEMPTS = 64;
+	private static final long CANCEL_POLL_INTERVAL = 10;
+
+	private final int size;
+	private final Supplier<? extends Synthesizer> synthesizerFactory;
+
+	private Optional<SynthesisStatistics> statistics = Optional.empty();
+
+
+
+	public PortfolioSynthesizer(final int size) {
+		this(size, ListBasedSynthesizer::new);
+	}
+
+
+
+	public PortfolioSynthesizer(final int size,
+			final Supplier<? extends Synthesizer> synthesizerFactory) {
+		if (size <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.size = size;
+		this.synthesizerFactory = synthesizerFactory;
+	}
+
+
+
+	public int getSize() {
+		return this.size;
+	}
+
+
+
+	@Override
+	public Optional<SynthesisStatistics> getStatistics() {
+		return this.statistics;
+	}
+
+
+
+	@Override
+	public Optional<Program> synthesizeProgramWith(final Specification spec,
+			final Library library, final List<List<BitVector>> examples,
+			final SynthesizerSettings settings) throws TimeoutException {
+
+		if (examples.isEmpty()) {
+			throw new IllegalArgumentException();
+		}
+
+		this.statistics = Optional.empty();
+
+		final List<Synthesizer> members = new ArrayList<>();
+		final List<SynthesizerSettings> memberSettings = new ArrayList<>();
+		final int baseSeed = settings.getRandomSeed().orElse(0);
+		for (int i = 0; i < this.size; ++i) {
+			final SynthesizerSettings copy = settings.copy();
+			copy.setRandomSeed(baseSeed + i);
+
+			members.add(this.synthesizerFactory.get());
+			memberSettings.add(copy);
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(this.size, runnable -> {
+			final Thread thread = new Thread(runnable, "portfolio-synthesizer");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		final List<Future<Optional<Program>>> futures = new ArrayList<>();
+		try {
+			final CompletionService<Optional<Program>> completionService
+					= new ExecutorCompletionService<>(executor);
+			for (int i = 0; i < this.size; ++i) {
+				final Synthesizer member = members.get(i);
+				final SynthesizerSettings memberSetting = memberSettings.get(i);
+				final List<List<BitVector>> memberExamples = makeInitialExamples(spec, examples, i,
+						new Random(baseSeed + i));
+
+				futures.add(completionService.submit(() -> member.synthesizeProgramWith(
+						spec, library, memberExamples, memberSetting)));
+			}
+
+			RuntimeException failure = null;
+			int running = this.size;
+			while (running > 0) {
+				final Future<Optional<Program>> future = completionService.poll(CANCEL_POLL_INTERVAL,
+						TimeUnit.MILLISECONDS);
+				if (future == null) {
+					// The members use copies of the settings, which are not cancelled
+					// together with the given settings
+					if (settings.isCancelled()) {
+						cancelAll(memberSettings);
+						awaitAll(futures);
+						throw new TimeoutException();
+					}
+					continue;
+				}
+
+				running -= 1;
+				try {
+					final Optional<Program> result = future.get();
+
+					// First definitive result; stop all other members
+					cancelAll(memberSettings);
+					awaitAll(futures);
+					this.statistics = members.get(futures.indexOf(future)).getStatistics();
+					return result;
+				} catch (final ExecutionException e) {
+					if (e.getCause() instanceof RuntimeException && failure == null) {
+						failure = (RuntimeException) e.getCause();
+					} else if (e.getCause() instanceof Error) {
+						cancelAll(memberSettings);
+						awaitAll(futures);
+						throw (Error) e.getCause();
+					}
+				}
+			}
+
+			if (failure != null) {
+				throw failure;
+			}
+			throw new TimeoutException();
+		} catch (final InterruptedException e) {
+			cancelAll(memberSettings);
+			awaitAllUninterruptibly(futures);
+			Thread.currentThread().interrupt();
+			throw new TimeoutException();
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+
+
+	private static void cancelAll(final List<SynthesizerSettings> memberSettings) {
+		for (final SynthesizerSettings memberSetting : memberSettings) {
+			memberSetting.cancel();
+		}
+	}
+
+
+
+	// Members free their own solvers when they stop, so no solver outlives the
+	// portfolio run
+	private static void awaitAll(final List<Future<Optional<Program>>> futures)
+			throws InterruptedException {
+
+		for (final Future<Optional<Program>> future : futures) {
+			try {
+				future.get();
+			} catch (final ExecutionException e) {
+				// Cancelled members end with a TimeoutException
+			}
+		}
+	}
+
+
+
+	// Used when the portfolio itself was interrupted, so that it still only
+	// returns after every member has stopped and freed its solvers
+	private static void awaitAllUninterruptibly(final List<Future<Optional<Program>>> futures) {
+		for (final Future<Optional<Program>> future : futures) {
+			try {
+				Uninterruptibles.getUninterruptibly(future);
+			} catch (final ExecutionException e) {
+				// Cancelled members end with a TimeoutException
+			}
+		}
+	}
+
+
+
+	// The first member uses the given examples, the second one additionally
+	// uses the all-ones input and all further ones use a random input that
+	// satisfies the preconditions.
+	private static List<List<BitVector>> makeInitialExamples(final Specification spec,
+			final List<List<BitVector>> examples, final int memberNumber, final Random random) {
+
+		if (memberNumber == 0) {
+			return examples;
+		}
+
+		for (int attempt = 0; attempt < RANDOM_EXAMPLE_ATTEMPTS; ++attempt) {
+			final List<BitVector> example = new ArrayList<>();
+			for (int i = 0; i < spec.getNumberOfInputs(); ++i) {
+				final int width = spec.getInputBitWidth(i);
+				if (memberNumber == 1) {
+					example.add(new BitVector(width, -1));
+				} else {
+					example.add(new BitVector(width, new BigInteger(width, random)));
+				}
+			}
+
+			if (examples.contains(example)) {
+				return examples;
+			}
+			if (spec.satisfiesPreconditions(example)) {
+				final List<List<BitVector>> result = new ArrayList<>(examples);
+				result.add(example);
+				return result;
+			}
+			if (memberNumber == 1) {
+				break;
+			}
+		}
+
+		return examples;
+	}
+}
@@ -22,6 +22,7 @@ package synth;
 
 
 public enum SolverType {
-	YICES;
+	YICES,
+	JAVA;
 }
 
@@ -24,8 +24,15 @@ import java.util.List;
 import java.util.OptionalInt;
 import java.util.function.Function;
 
+import com.google.common.primitives.Ints;
+
+import static smt.Builder.*;
+
+import smt.BitVector;
 import smt.BoolAst;
 import smt.BVAst;
+import smt.CompiledBoolAst;
+import smt.CompiledBVAst;
 
 
 
@@ -35,6 +42,10 @@ public class Specification extends AbstractInOut {
 	private final Function<List<BVAst>, BVAst> function;
 	private final List<Function<List<BVAst>, BoolAst>> preconditions = new ArrayList<>();
 
+	// Compiled lazily on first evaluation
+	private volatile CompiledBVAst compiledFunction;
+	private volatile List<CompiledBoolAst> compiledPreconditions;
+
 
 
 	public Specification(final int numberOfInputs, final Function<List<BVAst>, BVAst> function) {
@@ -82,6 +93,17 @@ public class Specification extends AbstractInOut {
 
 
 
+	// Returns a specification with the same function and preconditions to which
+	// further preconditions can be added independently
+	public Specification copy() {
+		final Specification result = new Specification(Ints.asList(this.inputBitWidths),
+				this.outputBitWidth, this.sizeRestriction, this.function);
+		result.preconditions.addAll(this.preconditions);
+		return result;
+	}
+
+
+
 	public OptionalInt getSizeRestriction() {
 		return this.sizeRestriction;
 	}
@@ -96,6 +118,7 @@ public class Specification extends AbstractInOut {
 
 	public void addPrecondition(final Function<List<BVAst>, BoolAst> precondition) {
 		this.preconditions.add(precondition);
+		this.compiledPreconditions = null;
 	}
 
 
@@ -103,5 +126,47 @@ public class Specification extends AbstractInOut {
 	public List<Function<List<BVAst>, BoolAst>> getPreconditions() {
 		return this.preconditions;
 	}
-}
 
+
+
+	public BitVector evaluate(final List<BitVector> inputs) {
+		CompiledBVAst compiled = this.compiledFunction;
+		if (compiled == null) {
+			final List<BVAst> variables = this.makeInputVariables();
+			compiled = CompiledBVAst.compile(this.function.apply(variables), variables);
+			this.compiledFunction = compiled;
+		}
+		return compiled.eval(inputs);
+	}
+
+
+
+	public boolean satisfiesPreconditions(final List<BitVector> inputs) {
+		List<CompiledBoolAst> compiled = this.compiledPreconditions;
+		if (compiled == null) {
+			final List<BVAst> variables = this.makeInputVariables();
+			compiled = new ArrayList<>(this.preconditions.size());
+			for (final Function<List<BVAst>, BoolAst> precondition : this.preconditions) {
+				compiled.add(CompiledBoolAst.compile(precondition.apply(variables), variables));
+			}
+			this.compiledPreconditions = compiled;
+		}
+
+		for (final CompiledBoolAst precondition : compiled) {
+			if (!precondition.eval(inputs)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+
+	private List<BVAst> makeInputVariables() {
+		final List<BVAst> result = new ArrayList<>(this.getNumberOfInputs());
+		for (int i = 0; i < this.getNumberOfInputs(); ++i) {
+			result.add(mkBVVar(this.getInputBitWidth(i), "x_" + i));
+		}
+		return result;
+	}
+}
@@ -32,7 +32,13 @@ import smt.BitVector;
 public interface Synthesizer {
 	Optional<Program> synthesizeProgramWith(Specification spec, Library library,
 			List<List<BitVector>> examples, SynthesizerSettings settings) throws TimeoutException;
-	
+
+
+
+	default Optional<SynthesisStatistics> getStatistics() {
+		return Optional.empty();
+	}
+
 
 
 	default Optional<Program> synthesizeProgram(final Specification spec,
@@ -19,7 +19,17 @@
  */
 package synth;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import smt.Solver;
 
@@ -29,16 +39,55 @@ public class SynthesizerSettings {
 
 	private OptionalInt randomSeed;
 	private OptionalInt timeout;
+	private OptionalInt jobTimeout;
 	private SolverType generateSolver;
 	private SolverType verifySolver;
+	private boolean pipelined;
+	private int counterExampleBatchSize;
+	private OptionalInt generateExampleLimit;
+	private boolean incrementalVerification;
+	private Function<Supplier<Solver>, Solver> solverInterceptor;
+
+	private final List<Solver> activeSolvers = new CopyOnWriteArrayList<>();
+	// The created solvers behind each solver returned by makeSolver, which
+	// differ if the interceptor wraps or replaces them
+	private final Map<Solver, List<Solver>> createdSolvers = new ConcurrentHashMap<>();
+	// Absolute deadline of the current synthesis run in terms of System.nanoTime()
+	private volatile OptionalLong deadline = OptionalLong.empty();
+	private volatile boolean cancelled = false;
 
 
 
 	private SynthesizerSettings() {
 		this.randomSeed = OptionalInt.empty();
 		this.timeout = OptionalInt.empty();
+		this.jobTimeout = OptionalInt.empty();
 		this.generateSolver = SolverType.YICES;
 		this.verifySolver = SolverType.YICES;
+		this.pipelined = false;
+		this.counterExampleBatchSize = 1;
+		this.generateExampleLimit = OptionalInt.empty();
+		this.incrementalVerification = false;
+		this.solverInterceptor = Supplier::get;
+	}
+
+
+
+	// Returns a copy with the same configuration that is neither cancelled nor
+	// shares any solvers with this object
+	public SynthesizerSettings copy() {
+		final SynthesizerSettings result = new SynthesizerSettings();
+		result.randomSeed = this.randomSeed;
+		result.timeout = this.timeout;
+		result.jobTimeout = this.jobTimeout;
+		result.generateSolver = this.generateSolver;
+		result.verifySolver = this.verifySolver;
+		result.pipelined = this.pipelined;
+		result.counterExampleBatchSize = this.counterExampleBatchSize;
+		result.generateExampleLimit = this.generateExampleLimit;
+		result.incrementalVerification = this.incrementalVerification;
+		result.solverInterceptor = this.solverInterceptor;
+		return result;
 	}
 
 
@@ -70,6 +119,120 @@ public class SynthesizerSettings {
 
 
 
+	public OptionalInt getJobTimeout() {
+		return this.jobTimeout;
+	}
+
+
+
+	// Limits the total time (in milliseconds) of a synthesis run. Contrary to
+	// the timeout, which applies to each solver call, all solver calls of a run
+	// share this time.
+	public void setJobTimeout(final int jobTimeout) {
+		if (jobTimeout <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.jobTimeout = OptionalInt.of(jobTimeout);
+	}
+
+
+
+	// Called by synthesizers at the beginning of each synthesis run
+	public void startJob() {
+		if (this.jobTimeout.isPresent()) {
+			this.deadline = OptionalLong.of(System.nanoTime()
+					+ TimeUnit.MILLISECONDS.toNanos(this.jobTimeout.getAsInt()));
+		} else {
+			this.deadline = OptionalLong.empty();
+		}
+	}
+
+
+
+	public boolean isDeadlineExceeded() {
+		final OptionalLong currentDeadline = this.deadline;
+		return currentDeadline.isPresent() && System.nanoTime() - currentDeadline.getAsLong() >= 0;
+	}
+
+
+
+	public boolean isPipelined() {
+		return this.pipelined;
+	}
+
+
+
+	// If enabled, the next candidate is searched for while the current one is
+	// verified
+	public void setPipelined(final boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+
+
+
+	public int getCounterExampleBatchSize() {
+		return this.counterExampleBatchSize;
+	}
+
+
+
+	// Maximal number of counter examples that are added per verification
+	public void setCounterExampleBatchSize(final int counterExampleBatchSize) {
+		if (counterExampleBatchSize <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.counterExampleBatchSize = counterExampleBatchSize;
+	}
+
+
+
+	public OptionalInt getGenerateExampleLimit() {
+		return this.generateExampleLimit;
+	}
+
+
+
+	// If the generate solver contains more examples than this limit, it is
+	// rebuilt with the examples that were required to refute previous
+	// candidates
+	public void setGenerateExampleLimit(final int generateExampleLimit) {
+		if (generateExampleLimit <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.generateExampleLimit = OptionalInt.of(generateExampleLimit);
+	}
+
+
+
+	public boolean isIncrementalVerification() {
+		return this.incrementalVerification;
+	}
+
+
+
+	// If enabled, a single verify solver is reused for all candidates
+	public void setIncrementalVerification(final boolean incrementalVerification) {
+		this.incrementalVerification = incrementalVerification;
+	}
+
+
+
+	public Function<Supplier<Solver>, Solver> getSolverInterceptor() {
+		return this.solverInterceptor;
+	}
+
+
+
+	// Every solver is created by passing a factory for the configured solver to
+	// this function, which may wrap the solver (e.g., smt.SolverRecording) or
+	// replace it altogether. Only solvers returned by the factory are freed
+	// by freeSolvers.
+	public void setSolverInterceptor(final Function<Supplier<Solver>, Solver> solverInterceptor) {
+		this.solverInterceptor = solverInterceptor;
+	}
+
+
+
 	public SolverType getGenerateSolverType() {
 		return this.generateSolver;
 	}
@@ -112,26 +275,113 @@ public class SynthesizerSettings {
 
 
 
+	// Frees the solvers created via these settings. Solvers created via other
+	// settings, e.g., by concurrently running synthesizers, remain usable.
 	public void freeSolvers() {
-		if (this.generateSolver == SolverType.YICES || this.verifySolver == SolverType.YICES) {
-			yices.YicesSolver.freeAll();
+		final List<Solver> solvers = new ArrayList<>(this.activeSolvers);
+		this.activeSolvers.clear();
+		this.createdSolvers.clear();
+		yices.YicesSolverManager.free(solvers);
+	}
+
+
+
+	// Frees a single solver returned by makeGenerateSolver or makeVerifySolver
+	// before the end of the run
+	public void freeSolver(final Solver solver) {
+		final List<Solver> solvers = this.createdSolvers.remove(solver);
+		if (solvers != null) {
+			this.activeSolvers.removeAll(solvers);
+			yices.YicesSolverManager.free(solvers);
 		}
 	}
 
 
 
+	// The solvers created via these settings that have not been freed yet
+	List<Solver> getActiveSolvers() {
+		return Collections.unmodifiableList(this.activeSolvers);
+	}
+
+
+
+	// Interrupts all solvers created via these settings. Synthesizers using
+	// these settings stop with a TimeoutException.
+	public void cancel() {
+		this.cancelled = true;
+		for (final Solver solver : this.activeSolvers) {
+			solver.interrupt();
+		}
+	}
+
+
+
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+
+
 	private Solver makeSolver(final SolverType solverType, final boolean incremental) {
+		final List<Solver> solvers = new CopyOnWriteArrayList<>();
+		final Solver result = this.solverInterceptor.apply(() -> {
+			final Solver solver = createSolver(solverType, incremental);
+			solvers.add(solver);
+			return solver;
+		});
+		this.createdSolvers.put(result, solvers);
+		return result;
+	}
+
+
+
+	private Solver createSolver(final SolverType solverType, final boolean incremental) {
+		final Solver solver;
 		switch (solverType) {
-			case YICES:
+			case YICES: {
+				final yices.YicesSolver yicesSolver;
+				if (this.timeout.isPresent()) {
+					yicesSolver = new yices.YicesSolver(this.timeout.getAsInt(), incremental);
+				} else {
+					yicesSolver = new yices.YicesSolver(incremental);
+				}
+				if (this.randomSeed.isPresent()) {
+					yicesSolver.setRandomSeed(this.randomSeed.getAsInt());
+				}
+				if (this.deadline.isPresent()) {
+					yicesSolver.setDeadline(this.deadline.getAsLong());
+				}
+				solver = yicesSolver;
+				break;
+			}
+
+			case JAVA: {
+				final sat.BitBlastingSolver javaSolver;
 				if (this.timeout.isPresent()) {
-					return new yices.YicesSolver(this.timeout.getAsInt(), incremental);
+					javaSolver = new sat.BitBlastingSolver(this.timeout.getAsInt());
 				} else {
-					return new yices.YicesSolver(incremental);
+					javaSolver = new sat.BitBlastingSolver();
+				}
+				if (this.randomSeed.isPresent()) {
+					javaSolver.setRandomSeed(this.randomSeed.getAsInt());
 				}
+				if (this.deadline.isPresent()) {
+					javaSolver.setDeadline(this.deadline.getAsLong());
+				}
+				solver = javaSolver;
+				break;
+			}
 
 			default:
 				throw new IllegalStateException();
 		}
+
+		this.activeSolvers.add(solver);
+		if (this.cancelled) {
+			// cancel() may have missed this solver
+			solver.interrupt();
+		}
+		return solver;
 	}
 
 
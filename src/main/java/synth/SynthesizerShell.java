@@ -19,20 +19,34 @@
  */
 package synth;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import smt.BitVector;
-import smt.BoolAst;
-import smt.BVAst;
-import smt.BVConst;
+import smt.QueryDump;
+import smt.Solver;
+import smt.SolverRecording;
 
 
 
@@ -43,15 +57,79 @@ public class SynthesizerShell {
 		Specification specification;
 		List<BitVector> inputs;
 		SynthesizerSettings settings;
+		Supplier<Synthesizer> algorithm;
 		boolean logRunTime;
 		boolean printStatistics;
 		int bitWidth = 32;
-
-
-		ShellState() {
+		// Files to record the solver calls of each synthesis run to or to
+		// replay them from
+		Path recordFile;
+		Path replayFile;
+		// Directory to write the queries of each synthesis run to, each run
+		// into its own subdirectory
+		Path dumpDirectory;
+		int numberOfDumpedRuns = 0;
+
+		// Commands print into the buffer in script mode and into the console
+		// otherwise
+		final boolean script;
+		final PrintStream console;
+		final ByteArrayOutputStream buffer;
+		PrintStream out;
+
+		// Output of commands and background jobs that has not been printed yet,
+		// in the order of the commands
+		final List<Future<String>> pendingOutput = new ArrayList<>();
+		ExecutorService jobExecutor;
+		int numberOfJobs = Runtime.getRuntime().availableProcessors();
+		int numberOfStartedJobs = 0;
+
+
+		ShellState(final PrintStream console, final boolean script) {
 			this.settings = SynthesizerSettings.getDefault();
+			this.algorithm = ListBasedSynthesizer::new;
 			this.logRunTime = false;
 			this.printStatistics = false;
+			this.script = script;
+			this.console = console;
+			this.buffer = script ? new ByteArrayOutputStream() : null;
+			this.out = script ? new PrintStream(this.buffer, true) : console;
+		}
+
+
+		// A snapshot for a background job, which prints into its own buffer
+		ShellState(final ShellState other, final ByteArrayOutputStream buffer) {
+			this.library = other.library;
+			this.specification = other.specification.copy();
+			this.inputs = other.inputs == null ? null : new ArrayList<>(other.inputs);
+			this.settings = other.settings.copy();
+			this.algorithm = other.algorithm;
+			this.logRunTime = other.logRunTime;
+			this.printStatistics = other.printStatistics;
+			this.bitWidth = other.bitWidth;
+			this.recordFile = other.recordFile;
+			this.replayFile = other.replayFile;
+			this.dumpDirectory = other.dumpDirectory;
+			this.script = other.script;
+			this.console = other.console;
+			this.buffer = buffer;
+			this.out = new PrintStream(buffer, true);
+		}
+
+
+		// Returns the subdirectory for the queries of the next synthesis run, or
+		// null if queries are not dumped. Subdirectories of earlier sessions are
+		// skipped.
+		Path nextDumpDirectory() {
+			if (this.dumpDirectory == null) {
+				return null;
+			}
+			Path result;
+			do {
+				this.numberOfDumpedRuns += 1;
+				result = this.dumpDirectory.resolve("run" + this.numberOfDumpedRuns);
+			} while (Files.exists(result));
+			return result;
 		}
 	}
 
@@ -66,20 +144,28 @@ public class SynthesizerShell {
 	private static class HelpCommand implements Command {
 		@Override
 		public boolean execute(final ShellState state) {
-			System.out.println("Available commands:");
-			System.out.println("  algo list         Sets the synthesizer algorithm");
-			System.out.println("  bitwidth num      Sets the default bit width");
-			System.out.println("  inputs i1,i2,...  Sets the initial inputs");
-			System.out.println("  help              Prints this help message");
-			System.out.println("  lib l1,l2,...     Sets the library functions");
-			System.out.println("  precond pf        Adds a precondition");
-			System.out.println("  quit              Quits this shell");
-			System.out.println("  solver yices      Sets the underlying solver");
-			System.out.println("  spec ni [ns] sf   Sets the specification");
-			System.out.println("  stats             Gather statistics");
-			System.out.println("  synth             Starts the synthesis");
-			System.out.println("  timeout num       Sets the timeout (in milliseconds)");
-			System.out.println("  timing            Gather running time information");
+			state.out.println("Available commands:");
+			state.out.println("  algo list|portfolio  Sets the synthesizer algorithm");
+			state.out.println("  bitwidth num         Sets the default bit width");
+			state.out.println("  cexbatch num         Sets the number of counter examples per round");
+			state.out.println("  dump dir|off         Writes the solver queries of each synthesis to dir/runN");
+			state.out.println("  inputs i1,i2,...     Sets the initial inputs");
+			state.out.println("  help                 Prints this help message");
+			state.out.println("  jobs num             Sets the number of synthesis jobs running in parallel");
+			state.out.println("  jobtimeout num       Sets the timeout of a whole synthesis (in milliseconds)");
+			state.out.println("  lib l1,l2,...        Sets the library functions");
+			state.out.println("  pipeline             Overlaps generation and verification");
+			state.out.println("  precond pf           Adds a precondition");
+			state.out.println("  quit                 Quits this shell");
+			state.out.println("  record file|off      Records the solver calls of each synthesis to file");
+			state.out.println("  replay file|off      Replays recorded solver calls instead of solving");
+			state.out.println("  solver yices|java    Sets the underlying solver");
+			state.out.println("  spec ni [ns] sf      Sets the specification");
+			state.out.println("  stats                Gather statistics");
+			state.out.println("  synth [async]        Starts the synthesis, in the background if async");
+			state.out.println("  timeout num          Sets the timeout (in milliseconds)");
+			state.out.println("  timing               Gather running time information");
+			state.out.println("  wait                 Waits for and prints the results of background jobs");
 			return true;
 		}
 	}
@@ -98,7 +184,7 @@ public class SynthesizerShell {
 
 		@Override
 		public boolean execute(final ShellState state) {
-			System.out.println(output);
+			state.out.println(output);
 			return true;
 		}
 	}
@@ -147,10 +233,15 @@ public class SynthesizerShell {
 		public boolean execute(final ShellState state) {
 			switch (this.argument) {
 				case "list":
-					// Do nothing
+					state.algorithm = ListBasedSynthesizer::new;
+					break;
+				case "portfolio":
+					state.algorithm = () -> new PortfolioSynthesizer(
+							Runtime.getRuntime().availableProcessors());
 					break;
 				default:
-					System.out.println("Unexpected argument " + this.argument + ". Expected list");
+					state.out.println("Unexpected argument " + this.argument
+							+ ". Expected list or portfolio");
 			}
 			return true;
 		}
@@ -195,11 +286,39 @@ public class SynthesizerShell {
 					state.bitWidth = bitWidth;
 
 					if (state.specification != null) {
-						System.out.println("Warning: Specification already set!");
+						state.out.println("Warning: Specification already set!");
 					}
 				}
 			} catch (final NumberFormatException e) {
-				System.out.println("Invalid bit width " + this.argument + ". Expected number");
+				state.out.println("Invalid bit width " + this.argument + ". Expected number");
+			}
+			return true;
+		}
+	}
+
+
+
+	private static class SetCounterExampleBatchSizeCommand implements Command {
+
+		private final String argument;
+
+
+		SetCounterExampleBatchSizeCommand(final String argument) {
+			this.argument = argument;
+		}
+
+
+		@Override
+		public boolean execute(final ShellState state) {
+			try {
+				final int batchSize = Integer.parseInt(this.argument);
+				if (batchSize > 0) {
+					state.settings.setCounterExampleBatchSize(batchSize);
+				} else {
+					state.out.println("Batch size must be positive");
+				}
+			} catch (final NumberFormatException e) {
+				state.out.println("Unexpected argument " + this.argument + ". Expected number");
 			}
 			return true;
 		}
@@ -227,7 +346,7 @@ public class SynthesizerShell {
 				try {
 				result.add(new BitVector(state.bitWidth, Long.parseLong(parts[i])));
 				} catch (final NumberFormatException e) {
-					System.out.println("Unexpected input number " + parts[i] + ". Expected number");
+					state.out.println("Unexpected input number " + parts[i] + ". Expected number");
 					return true;
 				}
 			}
@@ -268,7 +387,7 @@ public class SynthesizerShell {
 					for (; end < parts.length && !parts[end].endsWith(")"); ++end) ;
 
 					if (end >= parts.length) {
-						System.out.println("Function specification ended unexpectedly");
+						state.out.println("Function specification ended unexpectedly");
 						return true;
 					}
 
@@ -276,7 +395,7 @@ public class SynthesizerShell {
 					try {
 						numInputs = Integer.parseInt(parts[i + 1]);
 					} catch (final NumberFormatException e) {
-						System.out.println("Unexpected input number " + parts[i + 1] + ". Expected number");
+						state.out.println("Unexpected input number " + parts[i + 1] + ". Expected number");
 						return true;
 					}
 
@@ -293,7 +412,7 @@ public class SynthesizerShell {
 								state.bitWidth,
 								FunctionParser.parse(functionBuilder.toString())));
 					} catch (final IllegalArgumentException e) {
-						System.out.println("Library function invalid: " + e.getMessage());
+						state.out.println("Library function invalid: " + e.getMessage());
 						return true;
 					}
 
@@ -304,19 +423,19 @@ public class SynthesizerShell {
 					int bitWidth = -1;
 
 					if (splitted.length != 2 && splitted.length != 3) {
-						System.out.println("Expected 1 or 2 arguments to const, but got " + (splitted.length - 1));
+						state.out.println("Expected 1 or 2 arguments to const, but got " + (splitted.length - 1));
 						return true;
 					}
 
 					try {
 						bitWidth = Integer.parseInt(splitted[1]);
 					} catch (final NumberFormatException e) {
-						System.out.println("Unexpected bit width " + splitted[1] + ". Expected number");
+						state.out.println("Unexpected bit width " + splitted[1] + ". Expected number");
 						return true;
 					}
 
 					if (bitWidth <= 0) {
-						System.out.println("Bit width must be positive");
+						state.out.println("Bit width must be positive");
 						return true;
 					}
 
@@ -331,7 +450,7 @@ public class SynthesizerShell {
 								constValue = Long.parseLong(splitted[2]);
 							}
 						} catch (final NumberFormatException e) {
-							System.out.println("Unexpected constant value " + splitted[2] + ". Expected number");
+							state.out.println("Unexpected constant value " + splitted[2] + ". Expected number");
 							return true;
 						}
 
@@ -431,7 +550,7 @@ public class SynthesizerShell {
 							result.add(LibraryFunction.getSLeBV(state.bitWidth));
 							break;
 						default:
-							System.out.println("Unexpected library function " + part);
+							state.out.println("Unexpected library function " + part);
 							return true;
 					}
 				}
@@ -462,17 +581,17 @@ public class SynthesizerShell {
 			try {
 				numInputs = Integer.parseInt(this.numInputsArgument);
 			} catch (final NumberFormatException e) {
-				System.out.println("Unexpected argument " + this.numInputsArgument + ". Expected number");
+				state.out.println("Unexpected argument " + this.numInputsArgument + ". Expected number");
 				return true;
 			}
 
 			if (numInputs < 0) {
-				System.out.println("Number of inputs must not be negative");
+				state.out.println("Number of inputs must not be negative");
 				return true;
 			}
 
 			if (this.specFuncArgument.isEmpty()) {
-				System.out.println("No specification function given");
+				state.out.println("No specification function given");
 				return true;
 			}
 
@@ -481,7 +600,7 @@ public class SynthesizerShell {
 			if (Character.isDigit(this.specFuncArgument.charAt(0))) {
 				final int sepIndex = this.specFuncArgument.indexOf(' ');
 				if (sepIndex < 0) {
-					System.out.println("No specification function given");
+					state.out.println("No specification function given");
 					return true;
 				}
 
@@ -498,7 +617,7 @@ public class SynthesizerShell {
 				} else {
 					final int numStmts = Integer.parseInt(numStmtsArg);
 					if (numStmts <= 0) {
-						System.out.println("Number of statements must be positive");
+						state.out.println("Number of statements must be positive");
 					} else {
 						state.specification = new Specification(
 								Collections.nCopies(numInputs, state.bitWidth),
@@ -509,9 +628,65 @@ public class SynthesizerShell {
 					}
 				}
 			} catch (final NumberFormatException e) {
-				System.out.println("Unexpected argument " + numStmtsArg + ". Expected number");
+				state.out.println("Unexpected argument " + numStmtsArg + ". Expected number");
 			} catch (final IllegalArgumentException e) {
-				System.out.println("Specification function invalid: " + e.getMessage());
+				state.out.println("Specification function invalid: " + e.getMessage());
+			}
+			return true;
+		}
+	}
+
+
+
+	private static class SetPipelinedCommand implements Command {
+		@Override
+		public boolean execute(final ShellState state) {
+			state.settings.setPipelined(true);
+			return true;
+		}
+	}
+
+
+
+	private static class SetDumpCommand implements Command {
+
+		private final String argument;
+
+
+		SetDumpCommand(final String argument) {
+			this.argument = argument;
+		}
+
+
+		@Override
+		public boolean execute(final ShellState state) {
+			state.dumpDirectory = "off".equals(this.argument) ? null : Paths.get(this.argument);
+			state.numberOfDumpedRuns = 0;
+			return true;
+		}
+	}
+
+
+
+	private static class SetRecordingCommand implements Command {
+
+		private final boolean replay;
+		private final String argument;
+
+
+		SetRecordingCommand(final boolean replay, final String argument) {
+			this.replay = replay;
+			this.argument = argument;
+		}
+
+
+		@Override
+		public boolean execute(final ShellState state) {
+			final Path file = "off".equals(this.argument) ? null : Paths.get(this.argument);
+			if (this.replay) {
+				state.replayFile = file;
+			} else {
+				state.recordFile = file;
 			}
 			return true;
 		}
@@ -537,8 +712,14 @@ public class SynthesizerShell {
 					state.settings.setVerifySolverType(SolverType.YICES);
 					break;
 
+				case "java":
+					state.settings.setGenerateSolverType(SolverType.JAVA);
+					state.settings.setVerifySolverType(SolverType.JAVA);
+					break;
+
 				default: {
-					System.out.println("Unexpected argument " + this.argument + ". Expected yices");
+					state.out.println("Unexpected argument " + this.argument
+							+ ". Expected yices or java");
 				}
 			}
 			return true;
@@ -574,10 +755,72 @@ public class SynthesizerShell {
 				if (timeout > 0) {
 					state.settings.setTimeout(timeout);
 				} else {
-					System.out.println("Timeout must be positive");
+					state.out.println("Timeout must be positive");
 				}
 			} catch (final NumberFormatException e) {
-				System.out.println("Unexpected argument " + this.argument + ". Expected number");
+				state.out.println("Unexpected argument " + this.argument + ". Expected number");
+			}
+			return true;
+		}
+	}
+
+
+
+	private static class SetJobsCommand implements Command {
+
+		private final String argument;
+
+
+		SetJobsCommand(final String argument) {
+			this.argument = argument;
+		}
+
+
+		@Override
+		public boolean execute(final ShellState state) {
+			try {
+				final int numberOfJobs = Integer.parseInt(this.argument);
+				if (numberOfJobs <= 0) {
+					state.out.println("Number of jobs must be positive");
+				} else if (state.jobExecutor != null && !state.pendingOutput.isEmpty()) {
+					state.out.println("Jobs are still running");
+				} else {
+					if (state.jobExecutor != null) {
+						state.jobExecutor.shutdown();
+						state.jobExecutor = null;
+					}
+					state.numberOfJobs = numberOfJobs;
+				}
+			} catch (final NumberFormatException e) {
+				state.out.println("Unexpected argument " + this.argument + ". Expected number");
+			}
+			return true;
+		}
+	}
+
+
+
+	private static class SetJobTimeoutCommand implements Command {
+
+		private final String argument;
+
+
+		SetJobTimeoutCommand(final String argument) {
+			this.argument = argument;
+		}
+
+
+		@Override
+		public boolean execute(final ShellState state) {
+			try {
+				final int timeout = Integer.parseInt(this.argument);
+				if (timeout > 0) {
+					state.settings.setJobTimeout(timeout);
+				} else {
+					state.out.println("Timeout must be positive");
+				}
+			} catch (final NumberFormatException e) {
+				state.out.println("Unexpected argument " + this.argument + ". Expected number");
 			}
 			return true;
 		}
@@ -596,85 +839,232 @@ public class SynthesizerShell {
 
 
 	private static class SynthesizeCommand implements Command {
+
+		private final boolean async;
+
+
+		SynthesizeCommand(final boolean async) {
+			this.async = async;
+		}
+
+
 		@Override
 		public boolean execute(final ShellState state) {
 			if (state.specification == null) {
-				System.out.println("Specification not set");
+				state.out.println("Specification not set");
 			} else if (state.library == null) {
-				System.out.println("Library not set");
+				state.out.println("Library not set");
+			} else if (this.async || state.script) {
+				// Scripts run all synthesis jobs in the background
+				startJob(state);
 			} else {
-				final long startTime = System.nanoTime();
+				synthesize(state, state.nextDumpDirectory());
+			}
+			return true;
+		}
 
-				final AbstractBVSynthesizer synthesizer = new ListBasedSynthesizer();
 
-				try {
-					final Optional<Program> result;
-					
-					if (state.inputs == null) {
-						for (final Function<List<BVAst>, BoolAst> p : state.specification.getPreconditions()) {
-							if (!checkPrecond(p, Collections.nCopies(state.specification.getNumberOfInputs(),
-										new BitVector(state.bitWidth, 0)))) {
-								System.out.println("Precondition incompatible with inputs");
-								return true;
-							}
-						}
+		private static void startJob(final ShellState state) {
+			final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			final ShellState job = new ShellState(state, buffer);
+			// Assigned here so that the runs are numbered in the order of the commands
+			final Path dumpDirectory = state.nextDumpDirectory();
+			final int number = ++state.numberOfStartedJobs;
+			if (!state.script) {
+				job.out.println("Job " + number + ":");
+				state.out.println("Started job " + number);
+			}
 
-						result = synthesizer.synthesizeProgram(
-								state.specification,
-								state.library,
-								state.settings);
-					} else {
-						for (final Function<List<BVAst>, BoolAst> p : state.specification.getPreconditions()) {
-							if (!checkPrecond(p, state.inputs)) {
-								System.out.println("Precondition incompatible with inputs");
-								return true;
-							}
-						}
+			if (state.jobExecutor == null) {
+				state.jobExecutor = Executors.newFixedThreadPool(state.numberOfJobs);
+			}
+			state.pendingOutput.add(state.jobExecutor.submit(() -> {
+				synthesize(job, dumpDirectory);
+				return buffer.toString();
+			}));
+		}
+
+
+		private static void synthesize(final ShellState state, final Path dumpDirectory) {
+			final long startTime = System.nanoTime();
+
+			final Synthesizer synthesizer = state.algorithm.get();
+
+			final SynthesizerSettings settings = state.settings.copy();
+			final SolverRecording recording = new SolverRecording();
+			try {
+				if (state.replayFile != null) {
+					settings.setSolverInterceptor(SolverRecording.read(state.replayFile).replay(true));
+				} else if (state.recordFile != null) {
+					settings.setSolverInterceptor(recording::record);
+				}
+			} catch (final IOException | IllegalArgumentException e) {
+				state.out.println("Cannot read recording: " + e.getMessage());
+				return;
+			}
 
-						result = synthesizer.synthesizeProgramWith(
-								state.specification,
-								state.library,
-								Collections.singletonList(state.inputs),
-								state.settings);
+			QueryDump dump = null;
+			if (dumpDirectory != null) {
+				try {
+					dump = new QueryDump(dumpDirectory);
+				} catch (final IOException e) {
+					state.out.println("Cannot write queries: " + e.getMessage());
+					return;
+				}
+				// Dumps the queries of the replayed or recorded solvers
+				final QueryDump queryDump = dump;
+				final Function<Supplier<Solver>, Solver> interceptor = settings.getSolverInterceptor();
+				settings.setSolverInterceptor(factory -> queryDump.dump(() -> interceptor.apply(factory)));
+			}
+
+			try {
+				final Optional<Program> result;
+				
+				if (state.inputs == null) {
+					if (!state.specification.satisfiesPreconditions(Collections.nCopies(
+								state.specification.getNumberOfInputs(), new BitVector(state.bitWidth, 0)))) {
+						state.out.println("Precondition incompatible with inputs");
+						return;
 					}
-					
-					if (result.isPresent()) {
-						System.out.println("sat");
-						System.out.println(result.get());
-					} else {
-						System.out.println("unsat");
+
+					result = synthesizer.synthesizeProgram(
+							state.specification,
+							state.library,
+							settings);
+				} else {
+					if (!state.specification.satisfiesPreconditions(state.inputs)) {
+						state.out.println("Precondition incompatible with inputs");
+						return;
 					}
-				} catch (final TimeoutException e) {
-					System.out.println("timeout");
+
+					result = synthesizer.synthesizeProgramWith(
+							state.specification,
+							state.library,
+							Collections.singletonList(state.inputs),
+							settings);
 				}
-				if (state.printStatistics) {
-					System.out.println(synthesizer.getStatistics().get());
+				
+				if (result.isPresent()) {
+					state.out.println("sat");
+					state.out.println(result.get());
+				} else {
+					state.out.println("unsat");
 				}
+			} catch (final TimeoutException e) {
+				state.out.println("timeout");
+			} catch (final IllegalStateException e) {
+				if (state.replayFile == null) {
+					throw e;
+				}
+				// The run differs from the replayed one
+				state.out.println(e.getMessage());
+			} catch (final UncheckedIOException e) {
+				state.out.println("Cannot write queries: " + e.getCause().getMessage());
+			} finally {
+				if (dump != null) {
+					dump.close();
+				}
+			}
 
-				if (state.logRunTime) {
-					System.out.printf("(%.2f ms)%n", (System.nanoTime() - startTime) / 1000000.0);
+			if (state.replayFile == null && state.recordFile != null) {
+				try {
+					recording.write(state.recordFile);
+				} catch (final IOException | IllegalArgumentException e) {
+					state.out.println("Cannot write recording: " + e.getMessage());
 				}
 			}
+
+			if (state.printStatistics) {
+				synthesizer.getStatistics().ifPresent(state.out::println);
+			}
+
+			if (state.logRunTime) {
+				state.out.printf("(%.2f ms)%n", (System.nanoTime() - startTime) / 1000000.0);
+			}
+		}
+	}
+
+
+
+	private static class WaitCommand implements Command {
+		@Override
+		public boolean execute(final ShellState state) {
+			printPendingOutput(state, true);
 			return true;
 		}
+	}
 
 
-		private static boolean checkPrecond(final Function<List<BVAst>, BoolAst> precond,
-				final List<BitVector> inputs) {
 
-			final List<BVAst> inputASTs = new ArrayList<>();
-			for (final BitVector input : inputs) {
-				inputASTs.add(new BVConst(input));
+	// Prints the pending output in order. Unless waiting is requested, this
+	// stops at the first background job that has not finished yet.
+	private static void printPendingOutput(final ShellState state, final boolean wait) {
+		if (state.buffer != null && state.buffer.size() > 0) {
+			state.pendingOutput.add(CompletableFuture.completedFuture(state.buffer.toString()));
+			state.buffer.reset();
+		}
+
+		final Iterator<Future<String>> iterator = state.pendingOutput.iterator();
+		while (iterator.hasNext()) {
+			final Future<String> output = iterator.next();
+			if (!wait && !output.isDone()) {
+				break;
 			}
 
-			return precond.apply(inputASTs).eval(Collections.emptyMap());
+			try {
+				state.console.print(output.get());
+			} catch (final ExecutionException e) {
+				state.console.println("error: " + e.getCause());
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			iterator.remove();
 		}
+		state.console.flush();
+	}
+
+
+
+	// Runs the commands of a script with the given number of parallel jobs
+	static void runScript(final Scanner scanner, final int numberOfJobs, final PrintStream console) {
+		final ShellState state = new ShellState(console, true);
+		state.numberOfJobs = numberOfJobs;
+		run(scanner, state);
+	}
+
+
+
+	// Executes the commands until the end of the input or a quit command and
+	// prints the results of all background jobs before returning
+	private static void run(final Scanner scanner, final ShellState state) {
+		try {
+			boolean quit = false;
+			while (!quit) {
+				quit = !parseCommand(scanner, !state.script).execute(state);
+				printPendingOutput(state, false);
+			}
+			printPendingOutput(state, true);
+		} finally {
+			if (state.jobExecutor != null) {
+				state.jobExecutor.shutdownNow();
+			}
+		}
+	}
+
+
+
+	// The last line of a script may lack the line break
+	private static String restOfLine(final Scanner scanner) {
+		return scanner.hasNextLine() ? scanner.nextLine().trim() : "";
 	}
 
 
 
-	private static Command parseCommand(final Scanner scanner) {
-		System.out.print("> ");
+	private static Command parseCommand(final Scanner scanner, final boolean prompt) {
+		if (prompt) {
+			System.out.print("> ");
+		}
 
 		try {
 			Command result = null;
@@ -691,22 +1081,42 @@ public class SynthesizerShell {
 					result = new SetBitWidthCommand(scanner.next());
 					break;
 
+				case "cexbatch":
+					result = new SetCounterExampleBatchSizeCommand(scanner.next());
+					break;
+
+				case "dump":
+					result = new SetDumpCommand(scanner.next());
+					break;
+
 				case "help":
 					result = new HelpCommand();
 					break;
 
 				case "inputs":
-					result = new SetInputsCommand(scanner.nextLine().trim());
+					result = new SetInputsCommand(restOfLine(scanner));
 					searchForTrailingArguments = false;
 					break;
 
+				case "jobs":
+					result = new SetJobsCommand(scanner.next());
+					break;
+
+				case "jobtimeout":
+					result = new SetJobTimeoutCommand(scanner.next());
+					break;
+
 				case "lib":
-					result = new SetLibraryCommand(scanner.nextLine().trim());
+					result = new SetLibraryCommand(restOfLine(scanner));
 					searchForTrailingArguments = false;
 					break;
 
+				case "pipeline":
+					result = new SetPipelinedCommand();
+					break;
+
 				case "precond":
-					result = new PreconditionCommand(scanner.nextLine().trim());
+					result = new PreconditionCommand(restOfLine(scanner));
 					searchForTrailingArguments = false;
 					break;
 
@@ -714,12 +1124,20 @@ public class SynthesizerShell {
 					result = new QuitCommand();
 					break;
 
+				case "record":
+					result = new SetRecordingCommand(false, scanner.next());
+					break;
+
+				case "replay":
+					result = new SetRecordingCommand(true, scanner.next());
+					break;
+
 				case "solver":
 					result = new SetSolverCommand(scanner.next());
 					break;
 
 				case "spec":
-					result = new SetSpecificationCommand(scanner.next(), scanner.nextLine().trim());
+					result = new SetSpecificationCommand(scanner.next(), restOfLine(scanner));
 					searchForTrailingArguments = false;
 					break;
 
@@ -727,9 +1145,18 @@ public class SynthesizerShell {
 					result = new SetStatisticsCommand();
 					break;
 
-				case "synth":
-					result = new SynthesizeCommand();
+				case "synth": {
+					final String argument = restOfLine(scanner);
+					searchForTrailingArguments = false;
+					if (argument.isEmpty()) {
+						result = new SynthesizeCommand(false);
+					} else if ("async".equals(argument)) {
+						result = new SynthesizeCommand(true);
+					} else {
+						return new InvalidCommand("Unexpected argument " + argument + ". Expected async");
+					}
 					break;
+				}
 
 				case "timeout":
 					result = new SetTimeoutCommand(scanner.next());
@@ -739,12 +1166,16 @@ public class SynthesizerShell {
 					result = new SetTimingCommand();
 					break;
 
+				case "wait":
+					result = new WaitCommand();
+					break;
+
 				default:
-					scanner.nextLine();
+					restOfLine(scanner);
 					return new InvalidCommand("Invalid command " + commandName);
 			}
 
-			if (searchForTrailingArguments && !scanner.nextLine().isEmpty()) {
+			if (searchForTrailingArguments && !restOfLine(scanner).isEmpty()) {
 				return new InvalidCommand("Too many arguments given");
 			}
 
@@ -756,16 +1187,39 @@ public class SynthesizerShell {
 
 
 
-	public static void main(String[] args) {
-		final ShellState state = new ShellState();
-
-		final Scanner scanner = new Scanner(System.in);
+	// Without arguments, this reads commands interactively. Otherwise, it runs
+	// the commands of the given script file, where synth commands are executed
+	// in parallel on the given number of jobs. The output is the same as if the
+	// commands had been executed one after another.
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			final ShellState state = new ShellState(System.out, false);
+			System.out.println(); // Skip the line containing gradle output
+			run(new Scanner(System.in), state);
+			return;
+		}
 
-		System.out.println(); // Skip the line containing gradle output
+		final String script = args[args.length - 1];
+		int numberOfJobs = Runtime.getRuntime().availableProcessors();
+		try {
+			if (args.length == 3 && "-jobs".equals(args[0])) {
+				numberOfJobs = Integer.parseInt(args[1]);
+			} else if (args.length != 1) {
+				throw new IllegalArgumentException("Unexpected arguments");
+			}
+			if (numberOfJobs <= 0) {
+				throw new IllegalArgumentException("Number of jobs must be positive");
+			}
+		} catch (final IllegalArgumentException e) {
+			// Also covers NumberFormatException
+			System.err.println(e.getMessage());
+			System.err.println("Usage: SynthesizerShell [-jobs num] [script]");
+			System.exit(1);
+			return;
+		}
 
-		boolean quit = false;
-		while (!quit) {
-			quit = !parseCommand(scanner).execute(state);
+		try (final Scanner scanner = new Scanner(Paths.get(script), "UTF-8")) {
+			runScript(scanner, numberOfJobs, System.out);
 		}
 	}
 }
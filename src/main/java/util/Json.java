@@ -0,0 +1,323 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+
+// A minimal reader and writer for JSON. Objects are represented as maps that
+// keep the order of their members, arrays as lists, numbers as Long or Double
+// and null as null.
+public final class Json {
+
+	private final String text;
+	private int position = 0;
+
+
+
+	private Json(final String text) {
+		this.text = text;
+	}
+
+
+
+	public static Object parse(final String text) {
+		final Json reader = new Json(text);
+		final Object result = reader.readValue();
+		reader.skipWhitespace();
+		if (reader.position != text.length()) {
+			throw reader.error("end of input");
+		}
+		return result;
+	}
+
+
+
+	public static String write(final Object value) {
+		final StringBuilder result = new StringBuilder();
+		write(value, result);
+		return result.toString();
+	}
+
+
+
+	private static void write(final Object value, final StringBuilder result) {
+		if (value == null || value instanceof Boolean || value instanceof Number) {
+			result.append(value);
+		} else if (value instanceof Map) {
+			result.append('{');
+			boolean first = true;
+			for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				if (!first) {
+					result.append(", ");
+				}
+				writeString(String.valueOf(entry.getKey()), result);
+				result.append(": ");
+				write(entry.getValue(), result);
+				first = false;
+			}
+			result.append('}');
+		} else if (value instanceof Collection) {
+			result.append('[');
+			boolean first = true;
+			for (final Object element : (Collection<?>) value) {
+				if (!first) {
+					result.append(", ");
+				}
+				write(element, result);
+				first = false;
+			}
+			result.append(']');
+		} else {
+			writeString(value.toString(), result);
+		}
+	}
+
+
+
+	private static void writeString(final String value, final StringBuilder result) {
+		result.append('"');
+		for (int i = 0; i < value.length(); ++i) {
+			final char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					result.append("\\\"");
+					break;
+				case '\\':
+					result.append("\\\\");
+					break;
+				case '\n':
+					result.append("\\n");
+					break;
+				case '\t':
+					result.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						result.append(String.format("\\u%04x", (int) c));
+					} else {
+						result.append(c);
+					}
+			}
+		}
+		result.append('"');
+	}
+
+
+
+	private Object readValue() {
+		this.skipWhitespace();
+		if (this.position >= this.text.length()) {
+			throw this.error("value");
+		}
+
+		final char c = this.text.charAt(this.position);
+		switch (c) {
+			case '{':
+				return this.readObject();
+			case '[':
+				return this.readArray();
+			case '"':
+				return this.readString();
+			default:
+				if (c == '-' || (c >= '0' && c <= '9')) {
+					return this.readNumber();
+				} else if (this.text.startsWith("true", this.position)) {
+					this.position += 4;
+					return Boolean.TRUE;
+				} else if (this.text.startsWith("false", this.position)) {
+					this.position += 5;
+					return Boolean.FALSE;
+				} else if (this.text.startsWith("null", this.position)) {
+					this.position += 4;
+					return null;
+				}
+				throw this.error("value");
+		}
+	}
+
+
+
+	private Map<String, Object> readObject() {
+		final Map<String, Object> result = new LinkedHashMap<>();
+		this.expect('{');
+		this.skipWhitespace();
+		if (this.tryRead('}')) {
+			return result;
+		}
+
+		do {
+			this.skipWhitespace();
+			if (this.position >= this.text.length() || this.text.charAt(this.position) != '"') {
+				throw this.error("string");
+			}
+			final String key = this.readString();
+			this.skipWhitespace();
+			this.expect(':');
+			result.put(key, this.readValue());
+			this.skipWhitespace();
+		} while (this.tryRead(','));
+
+		this.expect('}');
+		return result;
+	}
+
+
+
+	private List<Object> readArray() {
+		final List<Object> result = new ArrayList<>();
+		this.expect('[');
+		this.skipWhitespace();
+		if (this.tryRead(']')) {
+			return result;
+		}
+
+		do {
+			result.add(this.readValue());
+			this.skipWhitespace();
+		} while (this.tryRead(','));
+
+		this.expect(']');
+		return result;
+	}
+
+
+
+	private String readString() {
+		this.expect('"');
+		final StringBuilder result = new StringBuilder();
+		while (true) {
+			if (this.position >= this.text.length()) {
+				throw this.error("\"");
+			}
+
+			final char c = this.text.charAt(this.position++);
+			if (c == '"') {
+				return result.toString();
+			} else if (c != '\\') {
+				result.append(c);
+				continue;
+			}
+
+			if (this.position >= this.text.length()) {
+				throw this.error("escape sequence");
+			}
+			final char escaped = this.text.charAt(this.position++);
+			switch (escaped) {
+				case '"':
+				case '\\':
+				case '/':
+					result.append(escaped);
+					break;
+				case 'b':
+					result.append('\b');
+					break;
+				case 'f':
+					result.append('\f');
+					break;
+				case 'n':
+					result.append('\n');
+					break;
+				case 'r':
+					result.append('\r');
+					break;
+				case 't':
+					result.append('\t');
+					break;
+				case 'u':
+					if (this.position + 4 > this.text.length()) {
+						throw this.error("escape sequence");
+					}
+					try {
+						result.append((char) Integer.parseInt(
+								this.text.substring(this.position, this.position + 4), 16));
+					} catch (final NumberFormatException e) {
+						throw this.error("escape sequence");
+					}
+					this.position += 4;
+					break;
+				default:
+					throw this.error("escape sequence");
+			}
+		}
+	}
+
+
+
+	private Number readNumber() {
+		final int start = this.position;
+		boolean isInteger = true;
+		while (this.position < this.text.length()) {
+			final char c = this.text.charAt(this.position);
+			if (c == '.' || c == 'e' || c == 'E') {
+				isInteger = false;
+			} else if (c != '-' && c != '+' && (c < '0' || c > '9')) {
+				break;
+			}
+			++this.position;
+		}
+
+		final String number = this.text.substring(start, this.position);
+		try {
+			return isInteger ? (Number) Long.parseLong(number) : (Number) Double.parseDouble(number);
+		} catch (final NumberFormatException e) {
+			throw this.error("number");
+		}
+	}
+
+
+
+	private void skipWhitespace() {
+		while (this.position < this.text.length()
+				&& Character.isWhitespace(this.text.charAt(this.position))) {
+			++this.position;
+		}
+	}
+
+
+
+	private boolean tryRead(final char c) {
+		if (this.position < this.text.length() && this.text.charAt(this.position) == c) {
+			++this.position;
+			return true;
+		}
+		return false;
+	}
+
+
+
+	private void expect(final char c) {
+		if (!this.tryRead(c)) {
+			throw this.error("'" + c + "'");
+		}
+	}
+
+
+
+	private IllegalArgumentException error(final String expected) {
+		return new IllegalArgumentException("parse error: expected " + expected
+				+ " at position " + this.position);
+	}
+}
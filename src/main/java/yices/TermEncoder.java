@@ -0,0 +1,447 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package yices;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import smt.*;
+
+
+
+// Encodes a tree as a sequence of instructions that yices_build_terms turns
+// into Yices terms with a single JNI call. Every instruction creates one term,
+// operands refer to the terms of previous instructions by their index.
+// Constants are passed as 64 bit words (least significant word first).
+//
+// The opcodes must match the ones in yicesjni.c.
+final class TermEncoder implements TreeTransformer<Integer> {
+
+	static final int OP_TERM = 0;        // term id
+	static final int OP_TRUE = 1;
+	static final int OP_FALSE = 2;
+	static final int OP_BOOL_VAR = 3;
+	static final int OP_BV_VAR = 4;      // width
+	static final int OP_BV_CONST = 5;    // width, word offset
+	static final int OP_NOT = 6;         // a
+	static final int OP_EQ = 7;          // a, b
+	static final int OP_NEQ = 8;
+	static final int OP_IMPLIES = 9;
+	static final int OP_AND = 10;
+	static final int OP_OR = 11;
+	static final int OP_DISTINCT = 12;   // n, a_1, ..., a_n
+	static final int OP_BV_EQ = 13;      // a, b
+	static final int OP_BV_NEQ = 14;
+	static final int OP_BV_UGT = 15;
+	static final int OP_BV_UGE = 16;
+	static final int OP_BV_ULT = 17;
+	static final int OP_BV_ULE = 18;
+	static final int OP_BV_SGT = 19;
+	static final int OP_BV_SGE = 20;
+	static final int OP_BV_SLT = 21;
+	static final int OP_BV_SLE = 22;
+	static final int OP_BV_ADD = 23;
+	static final int OP_BV_SUB = 24;
+	static final int OP_BV_MUL = 25;
+	static final int OP_BV_SDIV = 26;
+	static final int OP_BV_UDIV = 27;
+	static final int OP_BV_SREM = 28;
+	static final int OP_BV_UREM = 29;
+	static final int OP_BV_SMOD = 30;
+	static final int OP_BV_AND = 31;
+	static final int OP_BV_OR = 32;
+	static final int OP_BV_XOR = 33;
+	static final int OP_BV_SHL = 34;
+	static final int OP_BV_ASHR = 35;
+	static final int OP_BV_LSHR = 36;
+	static final int OP_BV_ROL = 37;
+	static final int OP_BV_ROR = 38;
+	static final int OP_BV_CONCAT = 39;
+	static final int OP_BV_NOT = 40;     // a
+	static final int OP_BV_NEG = 41;
+	static final int OP_BV_EXTRACT = 42; // a, low, high
+	static final int OP_ITE = 43;        // c, t, e
+
+	private final Map<Ast, Integer> termCache;
+	private final Map<String, Integer> variableCache;
+
+	private final Map<Ast, Integer> instructionIndices = new IdentityHashMap<>();
+	private final Map<String, Integer> newVariables = new HashMap<>();
+	private final List<Ast> instructionTrees = new ArrayList<>();
+
+	private int[] code = new int[64];
+	private int codeLength = 0;
+	private long[] words = new long[8];
+	private int wordsLength = 0;
+
+	private int cacheHits = 0;
+
+
+
+	TermEncoder(final Map<Ast, Integer> termCache, final Map<String, Integer> variableCache) {
+		this.termCache = termCache;
+		this.variableCache = variableCache;
+	}
+
+
+
+	// Returns the index of the instruction that creates the term of the tree
+	int encode(final Ast tree) {
+		final Integer index = this.instructionIndices.get(tree);
+		if (index != null) {
+			return index;
+		}
+
+		final Integer term = this.termCache.get(tree);
+		final int result;
+		if (term != null) {
+			this.cacheHits += 1;
+			result = emit(null, OP_TERM, term);
+		} else {
+			result = tree.accept(this);
+		}
+		this.instructionIndices.put(tree, result);
+		return result;
+	}
+
+
+
+	int[] getCode() {
+		return this.code;
+	}
+
+
+
+	int getCodeLength() {
+		return this.codeLength;
+	}
+
+
+
+	long[] getWords() {
+		return Arrays.copyOf(this.words, this.wordsLength);
+	}
+
+
+
+	int getNumberOfInstructions() {
+		return this.instructionTrees.size();
+	}
+
+
+
+	int getCacheHits() {
+		return this.cacheHits;
+	}
+
+
+
+	// Stores the created terms in the caches. Every encoded tree is stored,
+	// including variables that reuse the instruction of an equally named one.
+	void store(final int[] terms) {
+		for (final Map.Entry<Ast, Integer> tree : this.instructionIndices.entrySet()) {
+			this.termCache.put(tree.getKey(), terms[tree.getValue()]);
+		}
+		storeVariables(terms);
+	}
+
+
+
+	// Stores only the terms of new variables, which must be reused by all later
+	// trees, but none of the encoded trees
+	void storeVariables(final int[] terms) {
+		for (final Map.Entry<String, Integer> variable : this.newVariables.entrySet()) {
+			this.variableCache.put(variable.getKey(), terms[variable.getValue()]);
+		}
+	}
+
+
+
+	private int emit(final Ast tree, final int opcode, final int ... operands) {
+		if (this.codeLength + operands.length + 1 > this.code.length) {
+			this.code = Arrays.copyOf(this.code,
+					Math.max(2 * this.code.length, this.codeLength + operands.length + 1));
+		}
+		this.code[this.codeLength++] = opcode;
+		for (final int operand : operands) {
+			this.code[this.codeLength++] = operand;
+		}
+
+		this.instructionTrees.add(tree);
+		return this.instructionTrees.size() - 1;
+	}
+
+
+
+	private int emitVariable(final Ast tree, final String name, final int opcode,
+			final int ... operands) {
+
+		final Integer term = this.variableCache.get(name);
+		if (term != null) {
+			this.cacheHits += 1;
+			return emit(tree, OP_TERM, term);
+		}
+
+		final Integer index = this.newVariables.get(name);
+		if (index != null) {
+			return index;
+		}
+
+		final int result = emit(tree, opcode, operands);
+		this.newVariables.put(name, result);
+		return result;
+	}
+
+
+
+	@Override
+	public Integer visit(final BoolAllDifferent tree) {
+		final int[] operands = new int[tree.getOperands().size() + 1];
+		operands[0] = operands.length - 1;
+		for (int i = 1; i < operands.length; ++i) {
+			operands[i] = encode(tree.getOperands().get(i - 1));
+		}
+		return emit(tree, OP_DISTINCT, operands);
+	}
+
+
+
+	@Override
+	public Integer visit(final BoolBinBV tree) {
+		final int left = encode(tree.getLeft());
+		final int right = encode(tree.getRight());
+
+		switch (tree.getKind()) {
+			case EQUALS:
+				return emit(tree, OP_BV_EQ, left, right);
+
+			case DISTINCT:
+				return emit(tree, OP_BV_NEQ, left, right);
+
+			case UGT:
+				return emit(tree, OP_BV_UGT, left, right);
+
+			case UGE:
+				return emit(tree, OP_BV_UGE, left, right);
+
+			case ULT:
+				return emit(tree, OP_BV_ULT, left, right);
+
+			case ULE:
+				return emit(tree, OP_BV_ULE, left, right);
+
+			case SGT:
+				return emit(tree, OP_BV_SGT, left, right);
+
+			case SGE:
+				return emit(tree, OP_BV_SGE, left, right);
+
+			case SLT:
+				return emit(tree, OP_BV_SLT, left, right);
+
+			case SLE:
+				return emit(tree, OP_BV_SLE, left, right);
+
+			default:
+				throw new IllegalStateException();
+		}
+	}
+
+
+
+	@Override
+	public Integer visit(final BoolBin tree) {
+		final int left = encode(tree.getLeft());
+		final int right = encode(tree.getRight());
+
+		switch (tree.getKind()) {
+			case EQUALS:
+				return emit(tree, OP_EQ, left, right);
+
+			case DISTINCT:
+				return emit(tree, OP_NEQ, left, right);
+
+			case IMPLIES:
+				return emit(tree, OP_IMPLIES, left, right);
+
+			case AND:
+				return emit(tree, OP_AND, left, right);
+
+			case OR:
+				return emit(tree, OP_OR, left, right);
+
+			default:
+				throw new IllegalStateException();
+		}
+	}
+
+
+
+	@Override
+	public Integer visit(final BoolConst tree) {
+		return emit(tree, tree.getValue() ? OP_TRUE : OP_FALSE);
+	}
+
+
+
+	@Override
+	public Integer visit(final BoolNegate tree) {
+		return emit(tree, OP_NOT, encode(tree.getOperand()));
+	}
+
+
+
+	@Override
+	public Integer visit(final BoolVar tree) {
+		return emitVariable(tree, tree.getName(), OP_BOOL_VAR);
+	}
+
+
+
+	@Override
+	public Integer visit(final BVBinary tree) {
+		final int left = encode(tree.getLeft());
+		final int right = encode(tree.getRight());
+
+		switch (tree.getKind()) {
+			case PLUS:
+				return emit(tree, OP_BV_ADD, left, right);
+
+			case MINUS:
+				return emit(tree, OP_BV_SUB, left, right);
+
+			case MUL:
+				return emit(tree, OP_BV_MUL, left, right);
+
+			case SDIV:
+				return emit(tree, OP_BV_SDIV, left, right);
+
+			case UDIV:
+				return emit(tree, OP_BV_UDIV, left, right);
+
+			case SREM:
+				return emit(tree, OP_BV_SREM, left, right);
+
+			case UREM:
+			case UMOD:
+				return emit(tree, OP_BV_UREM, left, right);
+
+			case SMOD:
+				return emit(tree, OP_BV_SMOD, left, right);
+
+			case AND:
+				return emit(tree, OP_BV_AND, left, right);
+
+			case OR:
+				return emit(tree, OP_BV_OR, left, right);
+
+			case XOR:
+				return emit(tree, OP_BV_XOR, left, right);
+
+			case SHL:
+				return emit(tree, OP_BV_SHL, left, right);
+
+			case ASHR:
+				return emit(tree, OP_BV_ASHR, left, right);
+
+			case LSHR:
+				return emit(tree, OP_BV_LSHR, left, right);
+
+			case ROL:
+				return emit(tree, OP_BV_ROL, left, right);
+
+			case ROR:
+				return emit(tree, OP_BV_ROR, left, right);
+
+			case CONCAT:
+				return emit(tree, OP_BV_CONCAT, left, right);
+
+			default:
+				throw new IllegalStateException();
+		}
+	}
+
+
+
+	@Override
+	public Integer visit(final BVConst tree) {
+		final int width = tree.getWidth();
+		final int numberOfWords = (width + 63) / 64;
+		if (this.wordsLength + numberOfWords > this.words.length) {
+			this.words = Arrays.copyOf(this.words,
+					Math.max(2 * this.words.length, this.wordsLength + numberOfWords));
+		}
+
+		final int offset = this.wordsLength;
+		final BigInteger value = tree.getValue().toUnsignedBigInteger();
+		for (int i = 0; i < numberOfWords; ++i) {
+			this.words[this.wordsLength++] = value.shiftRight(64 * i).longValue();
+		}
+
+		return emit(tree, OP_BV_CONST, width, offset);
+	}
+
+
+
+	@Override
+	public Integer visit(final BVExtract tree) {
+		return emit(tree, OP_BV_EXTRACT, encode(tree.getOperand()), tree.getLow(), tree.getHigh());
+	}
+
+
+
+	@Override
+	public Integer visit(final BVIte tree) {
+		return emit(tree, OP_ITE,
+				encode(tree.getCondition()),
+				encode(tree.getThenExpr()),
+				encode(tree.getElseExpr()));
+	}
+
+
+
+	@Override
+	public Integer visit(final BVUnary tree) {
+		final int operand = encode(tree.getOperand());
+
+		switch (tree.getKind()) {
+			case NOT:
+				return emit(tree, OP_BV_NOT, operand);
+
+			case NEG:
+				return emit(tree, OP_BV_NEG, operand);
+
+			default:
+				throw new IllegalStateException();
+		}
+	}
+
+
+
+	@Override
+	public Integer visit(final BVVar tree) {
+		return emitVariable(tree, tree.getName(), OP_BV_VAR, tree.getWidth());
+	}
+}
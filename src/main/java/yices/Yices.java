@@ -36,6 +36,7 @@ final class Yices {
 	native static void yices_init();
 	native static void yices_exit();
 	native static void yices_reset();
+	native static void yices_garbage_collect(int[] terms, int[] types, int keep_named);
 	native static int yices_error_code();
 	native static String yices_error_string();
 	native static int yices_bool_type();
@@ -102,6 +103,9 @@ final class Yices {
 	native static int yices_context_disable_option(long ctx, String option);
 	native static int yices_assert_formula(long ctx, int t);
 	native static int yices_check_context(long ctx, long params);
+	native static int yices_check_context_with_assumptions(long ctx, long params, int[] t);
+	native static int[] yices_get_unsat_core(long ctx);
+	native static int yices_build_terms(int[] code, int length, long[] words, int[] terms);
 	native static void yices_stop_search(long ctx);
 	native static long yices_new_param_record();
 	native static void yices_default_params_for_context(long ctx, long params);
@@ -111,5 +115,6 @@ final class Yices {
 	native static void yices_free_model(long mdl);
 	native static int yices_get_bool_value(long mdl, int t, int[] val);
 	native static int yices_get_bv_value(long mdl, int t, int[] val);
+	native static int yices_get_bv_values(long mdl, int[] t, long[] words);
 }
 
@@ -21,9 +21,17 @@ package yices;
 
 import static yices.Yices.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.OptionalInt;
 import java.util.OptionalLong;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import smt.*;
 
@@ -31,309 +39,349 @@ import smt.*;
 
 public final class YicesSolver implements Solver {
 
+	// Stops searches whose timeout or deadline expired. A single thread for all
+	// solvers suffices since stopping a search only sets a flag.
+	private static final ScheduledThreadPoolExecutor TIMEOUT_SCHEDULER;
+
 	private final long context;
 	private final OptionalLong timeout;
 	private final boolean incremental;
+	private OptionalInt randomSeed = OptionalInt.empty();
+	// Absolute deadline in terms of System.nanoTime()
+	private OptionalLong deadline = OptionalLong.empty();
 	private long model;
 
-	private final Map<String, Integer> variableCache = new HashMap<>();
-
+	// Assumptions of the last check and their Yices terms
+	private List<BoolAst> assumptions = Collections.emptyList();
+	private int[] assumptionTerms = new int[0];
 
+	// Yices ignores a stop request for a context that is not searching yet,
+	// so a stop is repeated at this interval until the check returns
+	private static final long STOP_RETRY_INTERVAL = 10;
 
-	private final class YicesTransformer implements TreeTransformer<Integer> {
+	private volatile boolean interrupted = false;
 
-		@Override
-		public Integer visit(BoolAllDifferent tree) {
-			final int[] convOperands = new int[tree.getOperands().size()];
-			for (int i = 0; i < convOperands.length; ++i) {
-				convOperands[i] = tree.getOperands().get(i).accept(this);
-			}
-			return yices_distinct(convOperands);
-		}
+	// Set while a check runs; guarded by this solver's monitor like the task
+	// that repeats a stop request during that check
+	private boolean checking = false;
+	private ScheduledFuture<?> stopRetryTask = null;
 
+	// Set while holding both the manager's lock and this solver's monitor, so
+	// that interrupt() never stops the search of a context that has been freed
+	private boolean freed = false;
 
-		@Override
-		public Integer visit(BoolBinBV tree) {
-			switch (tree.getKind()) {
-				case EQUALS:
-					return yices_bveq_atom(tree.getLeft().accept(this), tree.getRight().accept(this));
+	private final Map<String, Integer> variableCache = new HashMap<>();
 
-				case DISTINCT:
-					return yices_bvneq_atom(tree.getLeft().accept(this), tree.getRight().accept(this));
+	// Yices terms of already translated trees. They are used as roots for the
+	// garbage collection as long as this solver is live.
+	private final Map<Ast, Integer> termCache = new IdentityHashMap<>();
+	private long termCacheHits = 0;
+	private long termCacheMisses = 0;
 
-				case UGT:
-					return yices_bvgt_atom(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case UGE:
-					return yices_bvge_atom(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case ULT:
-					return yices_bvlt_atom(tree.getLeft().accept(this), tree.getRight().accept(this));
+	static {
+		yices_init();
 
-				case ULE:
-					return yices_bvle_atom(tree.getLeft().accept(this), tree.getRight().accept(this));
+		TIMEOUT_SCHEDULER = new ScheduledThreadPoolExecutor(1, runnable -> {
+			final Thread thread = new Thread(runnable, "yices-timeout");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// Most checks finish long before their timeout
+		TIMEOUT_SCHEDULER.setRemoveOnCancelPolicy(true);
+	}
 
-				case SGT:
-					return yices_bvsgt_atom(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case SGE:
-					return yices_bvsge_atom(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case SLT:
-					return yices_bvslt_atom(tree.getLeft().accept(this), tree.getRight().accept(this));
+	public YicesSolver() {
+		this(true);
+	}
 
-				case SLE:
-					return yices_bvsle_atom(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				default:
-					throw new IllegalStateException();
-			}
-		}
 
+	public YicesSolver(final boolean incremental) {
+		this(OptionalLong.empty(), incremental);
+	}
 
-		@Override
-		public Integer visit(BoolBin tree) {
-			switch (tree.getKind()) {
-				case EQUALS:
-					return yices_eq(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case DISTINCT:
-					return yices_neq(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case IMPLIES:
-					return yices_implies(tree.getLeft().accept(this), tree.getRight().accept(this));
+	public YicesSolver(final long timeout) {
+		this(timeout, true);
+	}
 
-				case AND:
-					return yices_and2(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case OR:
-					return yices_or2(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				default:
-					throw new IllegalStateException();
-			}
+	public YicesSolver(final long timeout, final boolean incremental) {
+		this(OptionalLong.of(timeout), incremental);
+		if (timeout <= 0) {
+			throw new IllegalArgumentException();
 		}
+	}
+
 
 
-		@Override
-		public Integer visit(BoolConst tree) {
-			if (tree.getValue()) {
-				return yices_true();
+	private YicesSolver(final OptionalLong timeout, final boolean incremental) {
+		synchronized (YicesSolverManager.LOCK) {
+			final long config = yices_new_config();
+			yices_default_config_for_logic(config, "QF_BV");
+			if (incremental) {
+				yices_set_config(config, "mode", "multi-checks");
 			} else {
-				return yices_false();
+				yices_set_config(config, "mode", "one-shot");
 			}
+			this.incremental = incremental;
+			this.context = yices_new_context(config);
+			yices_free_config(config);
+			this.timeout = timeout;
+			YicesSolverManager.register(this);
 		}
+	}
 
 
-		@Override
-		public Integer visit(BoolNegate tree) {
-			return yices_not(tree.getOperand().accept(this));
-		}
 
+	public static void freeAll() {
+		YicesSolverManager.freeAll();
+	}
 
-		@Override
-		public Integer visit(BoolVar tree) {
-			return variableCache.computeIfAbsent(tree.getName(),
-					name -> yices_new_uninterpreted_term(yices_bool_type()));
-		}
 
 
-		@Override
-		public Integer visit(BVBinary tree) {
-			switch (tree.getKind()) {
-				case PLUS:
-					return yices_bvadd(tree.getLeft().accept(this), tree.getRight().accept(this));
+	public void free() {
+		YicesSolverManager.free(Collections.singletonList(this));
+	}
 
-				case MINUS:
-					return yices_bvsub(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case MUL:
-					return yices_bvmul(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case SDIV:
-					return yices_bvsdiv(tree.getLeft().accept(this), tree.getRight().accept(this));
+	// Must be called by the manager while holding its lock
+	void freeContext() {
+		releaseModel();
+		synchronized (this) {
+			yices_free_context(this.context);
+			this.freed = true;
+		}
+		this.termCache.clear();
+		this.variableCache.clear();
+	}
 
-				case UDIV:
-					return yices_bvdiv(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case SREM:
-					return yices_bvsrem(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case UREM:
-					return yices_bvrem(tree.getLeft().accept(this), tree.getRight().accept(this));
+	// Must be called by the manager while holding its lock
+	void addCachedTerms(final List<Integer> terms) {
+		terms.addAll(this.termCache.values());
+		terms.addAll(this.variableCache.values());
+		// The unsat core refers to the uncached terms of the last assumptions
+		for (final int term : this.assumptionTerms) {
+			terms.add(term);
+		}
+	}
 
-				case SMOD:
-					return yices_bvsmod(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case UMOD:
-					return yices_bvrem(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case AND:
-					return yices_bvand2(tree.getLeft().accept(this), tree.getRight().accept(this));
+	private void checkLive() {
+		if (this.freed) {
+			throw new IllegalStateException("solver has been freed");
+		}
+	}
 
-				case OR:
-					return yices_bvor2(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case XOR:
-					return yices_bvxor2(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case SHL:
-					return yices_bvshl(tree.getLeft().accept(this), tree.getRight().accept(this));
+	public long getTermCacheHits() {
+		return this.termCacheHits;
+	}
 
-				case ASHR:
-					return yices_bvashr(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case LSHR:
-					return yices_bvlshr(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				case ROL: {
-					final int value = tree.getLeft().accept(this);
-					final int count = tree.getRight().accept(this);
-					return yices_bvor2(yices_bvshl(value, count), yices_bvlshr(value,
-							yices_bvsub(yices_bvconst_int32(tree.getWidth(), tree.getWidth()), count)));
-				}
+	public long getTermCacheMisses() {
+		return this.termCacheMisses;
+	}
 
-				case ROR: {
-					final int value = tree.getLeft().accept(this);
-					final int count = tree.getRight().accept(this);
-					return yices_bvor2(yices_bvlshr(value, count), yices_bvshl(value,
-							yices_bvsub(yices_bvconst_int32(tree.getWidth(), tree.getWidth()), count)));
-				}
 
-				case CONCAT:
-					return yices_bvconcat2(tree.getLeft().accept(this), tree.getRight().accept(this));
 
-				default:
-					throw new IllegalStateException();
-			}
-		}
+	// Must be called while holding YicesSolverManager.LOCK
+	private int translate(final Ast tree) {
+		return translate(Collections.singletonList(tree), true)[0];
+	}
 
 
-		@Override
-		public Integer visit(BVConst tree) {
-			return yices_parse_bvbin(tree.getValue().toBinaryString());
-		}
 
+	// Must be called while holding YicesSolverManager.LOCK. Only the trees of
+	// asserted constraints are worth caching. Assumptions and queries are
+	// mostly built anew for every check, so caching them would only make the
+	// cache and the roots of the garbage collection grow with every check.
+	private int[] translate(final List<? extends Ast> trees, final boolean cache) {
+		checkLive();
 
-		@Override
-		public Integer visit(BVExtract tree) {
-			return yices_bvextract(tree.getOperand().accept(this), tree.getLow(), tree.getHigh());
+		final int[] result = new int[trees.size()];
+		final boolean[] encoded = new boolean[result.length];
+		TermEncoder encoder = null;
+		for (int i = 0; i < result.length; ++i) {
+			final Integer cached = this.termCache.get(trees.get(i));
+			if (cached != null) {
+				this.termCacheHits += 1;
+				result[i] = cached;
+			} else {
+				if (encoder == null) {
+					encoder = new TermEncoder(this.termCache, this.variableCache);
+				}
+				// Instruction index for now
+				result[i] = encoder.encode(trees.get(i));
+				encoded[i] = true;
+			}
 		}
-
-
-		@Override
-		public Integer visit(BVIte tree) {
-			return yices_ite(
-					tree.getCondition().accept(this),
-					tree.getThenExpr().accept(this),
-					tree.getElseExpr().accept(this));
+		if (encoder == null) {
+			return result;
 		}
 
-
-		@Override
-		public Integer visit(BVUnary tree) {
-			switch (tree.getKind()) {
-				case NOT:
-					return yices_bvnot(tree.getOperand().accept(this));
-
-				case NEG:
-					return yices_bvneg(tree.getOperand().accept(this));
-
-				default:
-					throw new IllegalStateException();
-			}
+		// Translate all uncached subtrees with a single JNI call
+		final int[] terms = new int[encoder.getNumberOfInstructions()];
+		if (yices_build_terms(encoder.getCode(), encoder.getCodeLength(), encoder.getWords(),
+				terms) != 0) {
+			throw new IllegalStateException(yices_error_string());
 		}
-
-
-		@Override
-		public Integer visit(BVVar tree) {
-			return variableCache.computeIfAbsent(tree.getName(),
-					name -> yices_new_uninterpreted_term(yices_bv_type(tree.getWidth())));
+		if (cache) {
+			encoder.store(terms);
+		} else {
+			encoder.storeVariables(terms);
 		}
-	}
-
 
+		this.termCacheHits += encoder.getCacheHits();
+		this.termCacheMisses += encoder.getNumberOfInstructions() - encoder.getCacheHits();
 
-	static {
-		yices_init();
+		for (int i = 0; i < result.length; ++i) {
+			if (encoded[i]) {
+				result[i] = terms[result[i]];
+			}
+		}
+		return result;
 	}
 
 
 
-	public YicesSolver() {
-		this(true);
+	public void setRandomSeed(final int randomSeed) {
+		this.randomSeed = OptionalInt.of(randomSeed);
 	}
 
 
 
-	public YicesSolver(final boolean incremental) {
-		this(OptionalLong.empty(), incremental);
+	// Checks after the given point in time (in terms of System.nanoTime())
+	// return UNKNOWN. Searches running at that point in time are stopped.
+	public void setDeadline(final long deadline) {
+		this.deadline = OptionalLong.of(deadline);
 	}
 
 
 
-	public YicesSolver(final long timeout) {
-		this(timeout, true);
+	// Time (in milliseconds) until the current search has to be stopped
+	private OptionalLong getSearchTimeout() {
+		if (!this.deadline.isPresent()) {
+			return this.timeout;
+		}
+		final long remaining = TimeUnit.NANOSECONDS.toMillis(
+				this.deadline.getAsLong() - System.nanoTime());
+		if (this.timeout.isPresent()) {
+			return OptionalLong.of(Math.min(this.timeout.getAsLong(), remaining));
+		}
+		return OptionalLong.of(remaining);
 	}
 
 
 
-	public YicesSolver(final long timeout, final boolean incremental) {
-		this(OptionalLong.of(timeout), incremental);
-		if (timeout <= 0) {
-			throw new IllegalArgumentException();
+	@Override
+	public void add(final BoolAst constraint) {
+		synchronized (YicesSolverManager.LOCK) {
+			yices_assert_formula(this.context, translate(constraint));
 		}
 	}
 
 
 
-	private YicesSolver(final OptionalLong timeout, final boolean incremental) {
-		final long config = yices_new_config();
-		yices_default_config_for_logic(config, "QF_BV");
-		if (incremental) {
-			yices_set_config(config, "mode", "multi-checks");
-		} else {
-			yices_set_config(config, "mode", "one-shot");
-		}
-		this.incremental = incremental;
-		this.context = yices_new_context(config);
-		yices_free_config(config);
-		this.timeout = timeout;
+	@Override
+	public SatResult checkSat() {
+		return check(Collections.emptyList());
 	}
 
 
 
-	public static void freeAll() {
-		yices_reset();
+	@Override
+	public SatResult checkSatAssuming(final List<BoolAst> assumptions) {
+		return check(assumptions);
 	}
 
 
 
 	@Override
-	public void add(final BoolAst constraint) {
-		yices_assert_formula(this.context, constraint.accept(new YicesTransformer()));
-	}
+	public List<BoolAst> getUnsatCore() {
+		final int[] core;
+		synchronized (YicesSolverManager.LOCK) {
+			checkLive();
+			core = yices_get_unsat_core(this.context);
+		}
+		if (core == null) {
+			throw new IllegalStateException("not in UNSAT state");
+		}
 
+		final Map<Integer, BoolAst> termToAssumption = new HashMap<>();
+		for (int i = 0; i < this.assumptionTerms.length; ++i) {
+			termToAssumption.putIfAbsent(this.assumptionTerms[i], this.assumptions.get(i));
+		}
 
+		final List<BoolAst> result = new ArrayList<>(core.length);
+		for (final int term : core) {
+			result.add(termToAssumption.get(term));
+		}
+		return result;
+	}
 
-	@Override
-	public SatResult checkSat() {
-		releaseModel();
 
-		Thread timeoutThread = null;
-		if (this.timeout.isPresent()) {
-			timeoutThread = startTimeoutThread(this.timeout.getAsLong());
+
+	private SatResult check(final List<BoolAst> assumptions) {
+		final OptionalLong searchTimeout = getSearchTimeout();
+		if (this.interrupted || (searchTimeout.isPresent() && searchTimeout.getAsLong() <= 0)) {
+			return SatResult.UNKNOWN;
 		}
 
-		long params = 0;
-		if (this.incremental) {
-			params = yices_new_param_record();
-			yices_default_params_for_context(this.context, params);
-			yices_set_param(params, "var-decay", "0.91");
+		final long params;
+		synchronized (YicesSolverManager.LOCK) {
+			checkLive();
+			releaseModel();
+
+			this.assumptions = new ArrayList<>(assumptions);
+			this.assumptionTerms = translate(assumptions, false);
+
+			if (this.incremental || this.randomSeed.isPresent()) {
+				params = yices_new_param_record();
+				yices_default_params_for_context(this.context, params);
+				if (this.incremental) {
+					yices_set_param(params, "var-decay", "0.91");
+				}
+				if (this.randomSeed.isPresent()) {
+					yices_set_param(params, "random-seed", Integer.toString(this.randomSeed.getAsInt()));
+				}
+			} else {
+				params = 0;
+			}
+			YicesSolverManager.beginSearch();
 		}
 
+		ScheduledFuture<?> timeoutTask = null;
 		try {
-			switch (yices_check_context(this.context, params)) {
+			synchronized (this) {
+				this.checking = true;
+			}
+			// An interrupt before this point did not see the check
+			if (this.interrupted) {
+				return SatResult.UNKNOWN;
+			}
+			if (searchTimeout.isPresent()) {
+				timeoutTask = TIMEOUT_SCHEDULER.schedule(this::stopSearch, searchTimeout.getAsLong(),
+						TimeUnit.MILLISECONDS);
+			}
+
+			final int status = this.assumptionTerms.length == 0
+					? yices_check_context(this.context, params)
+					: yices_check_context_with_assumptions(this.context, params, this.assumptionTerms);
+
+			switch (status) {
 				case 3:
 					return SatResult.SAT;
 
@@ -344,11 +392,21 @@ public final class YicesSolver implements Solver {
 					return SatResult.UNKNOWN;
 			}
 		} finally {
-			if (params != 0) {
-				yices_free_param_record(params);
+			if (timeoutTask != null) {
+				timeoutTask.cancel(false);
+			}
+			synchronized (this) {
+				this.checking = false;
+				if (this.stopRetryTask != null) {
+					this.stopRetryTask.cancel(false);
+					this.stopRetryTask = null;
+				}
 			}
-			if (timeoutThread != null && timeoutThread.isAlive()) {
-				timeoutThread.interrupt();
+			synchronized (YicesSolverManager.LOCK) {
+				if (params != 0) {
+					yices_free_param_record(params);
+				}
+				YicesSolverManager.endSearch();
 			}
 		}
 	}
@@ -357,27 +415,53 @@ public final class YicesSolver implements Solver {
 
 	@Override
 	public BitVector getBVAssignment(final BVAst tree) {
-		if (this.model == 0) {
-			this.model = yices_get_model(this.context, 1);
-			if (this.model == 0) {
-				throw new IllegalStateException("not in SAT state");
-			}
+		return getBVAssignments(Collections.singletonList(tree)).get(0);
+	}
+
+
+
+	@Override
+	public List<BitVector> getBVAssignments(final List<? extends BVAst> trees) {
+		final int[] offsets = new int[trees.size() + 1];
+		for (int i = 0; i < trees.size(); ++i) {
+			offsets[i + 1] = offsets[i] + (trees.get(i).getWidth() + 63) / 64;
 		}
+		final long[] words = new long[offsets[trees.size()]];
 
-		final int convertedTree = tree.accept(new YicesTransformer());
-		final int[] data = new int[yices_term_bitsize(convertedTree)];
+		synchronized (YicesSolverManager.LOCK) {
+			checkLive();
+			if (this.model == 0) {
+				this.model = yices_get_model(this.context, 1);
+				if (this.model == 0) {
+					throw new IllegalStateException("not in SAT state");
+				}
+			}
 
-		if (yices_get_bv_value(this.model, convertedTree, data) != 0) {
-			throw new IllegalArgumentException();
+			if (yices_get_bv_values(this.model, translate(trees, false), words) != 0) {
+				throw new IllegalArgumentException();
+			}
 		}
 
-		return new BitVector(data);
+		final List<BitVector> result = new ArrayList<>(trees.size());
+		for (int i = 0; i < trees.size(); ++i) {
+			result.add(BitVector.fromWords(trees.get(i).getWidth(), words, offsets[i]));
+		}
+		return result;
 	}
 
 
 
 	@Override
 	public boolean getBoolAssignment(final BoolAst tree) {
+		synchronized (YicesSolverManager.LOCK) {
+			return getBoolAssignmentLocked(tree);
+		}
+	}
+
+
+
+	private boolean getBoolAssignmentLocked(final BoolAst tree) {
+		checkLive();
 		if (this.model == 0) {
 			this.model = yices_get_model(this.context, 1);
 			if (this.model == 0) {
@@ -385,7 +469,7 @@ public final class YicesSolver implements Solver {
 			}
 		}
 
-		final int convertedTree = tree.accept(new YicesTransformer());
+		final int convertedTree = translate(Collections.singletonList(tree), false)[0];
 		final int[] data = new int[1];
 
 		if (yices_get_bool_value(this.model, convertedTree, data) != 0) {
@@ -399,40 +483,61 @@ public final class YicesSolver implements Solver {
 
 	@Override
 	public void push() {
-		yices_push(this.context);
+		synchronized (YicesSolverManager.LOCK) {
+			checkLive();
+			yices_push(this.context);
+		}
 	}
 
 
 
 	@Override
 	public void pop() {
-		yices_pop(this.context);
+		synchronized (YicesSolverManager.LOCK) {
+			checkLive();
+			yices_pop(this.context);
+		}
 	}
 
 
 
-	private void releaseModel() {
-		if (this.model != 0) {
-			yices_free_model(this.model);
-			this.model = 0;
+	@Override
+	public void interrupt() {
+		this.interrupted = true;
+		stopSearch();
+	}
+
+
+
+	// The check may not have entered the native search yet, in which case
+	// yices_stop_search has no effect; the stop is therefore repeated until
+	// the check returns
+	private synchronized void stopSearch() {
+		if (!this.checking || this.freed) {
+			return;
+		}
+		yices_stop_search(this.context);
+		if (this.stopRetryTask == null) {
+			this.stopRetryTask = TIMEOUT_SCHEDULER.scheduleWithFixedDelay(this::repeatStopSearch,
+					STOP_RETRY_INTERVAL, STOP_RETRY_INTERVAL, TimeUnit.MILLISECONDS);
 		}
 	}
 
 
 
-	private Thread startTimeoutThread(final long timeoutValue) {
-		final Thread timeoutThread = new Thread() {
-			@Override
-			public void run() {
-				try {
-					Thread.sleep(timeoutValue);
-					yices_stop_search(YicesSolver.this.context);
-				} catch (final InterruptedException e) { }
-			}
-		};
-		timeoutThread.setDaemon(true);
-		timeoutThread.start();
-		return timeoutThread;
+	private synchronized void repeatStopSearch() {
+		if (this.checking && !this.freed) {
+			yices_stop_search(this.context);
+		}
+	}
+
+
+
+	private void releaseModel() {
+		if (this.model != 0) {
+			yices_free_model(this.model);
+			this.model = 0;
+		}
 	}
 }
 
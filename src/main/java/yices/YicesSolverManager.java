@@ -0,0 +1,132 @@
+/*
+ * This file is part of bitdep.
+ *
+ * Copyright (c) 2020 Lehrstuhl fuer Informatik 2,
+ * Friedrich-Alexander-Universität Erlangen-Nürnberg (FAU)
+ *
+ * bitdep is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * bitdep is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with bitdep.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package yices;
+
+import static yices.Yices.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import smt.Solver;
+
+
+
+// Keeps track of all live Yices contexts. Contexts are freed individually and
+// unused terms are reclaimed by Yices' garbage collection, using the terms
+// cached by the remaining solvers as roots, so freeing the solvers of one
+// synthesizer does not affect other synthesizers running concurrently.
+public final class YicesSolverManager {
+
+	// Yices' global term table is not thread-safe. All API calls except for
+	// the search itself (and stopping it) are serialized using this lock, which
+	// allows contexts to search concurrently.
+	static final Object LOCK = new Object();
+
+	private static final Set<YicesSolver> liveSolvers
+			= Collections.newSetFromMap(new IdentityHashMap<>());
+
+	// The garbage collection is postponed while a search is running, since the
+	// search is not protected by the lock
+	private static int runningSearches = 0;
+	private static boolean collectionPending = false;
+
+
+
+	private YicesSolverManager() {
+	}
+
+
+
+	// Must be called while holding LOCK
+	static void register(final YicesSolver solver) {
+		liveSolvers.add(solver);
+	}
+
+
+
+	// Must be called while holding LOCK
+	static void beginSearch() {
+		runningSearches += 1;
+	}
+
+
+
+	// Must be called while holding LOCK
+	static void endSearch() {
+		runningSearches -= 1;
+		if (runningSearches == 0 && collectionPending) {
+			collectGarbage();
+		}
+	}
+
+
+
+	public static void free(final Collection<? extends Solver> solvers) {
+		synchronized (LOCK) {
+			boolean freedAny = false;
+			for (final Solver solver : solvers) {
+				if (solver instanceof YicesSolver && liveSolvers.remove(solver)) {
+					((YicesSolver) solver).freeContext();
+					freedAny = true;
+				}
+			}
+			if (freedAny) {
+				collectGarbage();
+			}
+		}
+	}
+
+
+
+	public static void freeAll() {
+		synchronized (LOCK) {
+			free(new ArrayList<>(liveSolvers));
+		}
+	}
+
+
+
+	public static int getNumberOfLiveSolvers() {
+		synchronized (LOCK) {
+			return liveSolvers.size();
+		}
+	}
+
+
+
+	// Must be called while holding LOCK
+	private static void collectGarbage() {
+		if (runningSearches > 0) {
+			collectionPending = true;
+			return;
+		}
+		collectionPending = false;
+
+		final List<Integer> roots = new ArrayList<>();
+		for (final YicesSolver solver : liveSolvers) {
+			solver.addCachedTerms(roots);
+		}
+		yices_garbage_collect(roots.stream().mapToInt(Integer::intValue).toArray(), new int[0], 0);
+	}
+}
@@ -1,5 +1,6 @@
 package analysis.essential;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -13,6 +14,7 @@ import static org.junit.Assert.assertEquals;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import smt.BitVector;
 import smt.BoolAst;
 import smt.Builder;
 import smt.BVAst;
@@ -24,40 +26,56 @@ public class ApproximationBuilderTest {
 
 	private static class PseudoApproximation implements Approximation<PseudoApproximation> {
 		private boolean value;
+		// Immutable approximations return new objects from the modifying operations
+		private final boolean immutable;
 
 		PseudoApproximation(final boolean value) {
+			this(value, false);
+		}
+
+		PseudoApproximation(final boolean value, final boolean immutable) {
 			this.value = value;
+			this.immutable = immutable;
 		}
 
 		@Override
 		public PseudoApproximation and(final PseudoApproximation other) {
-			return new PseudoApproximation(this.value & other.value);
+			return new PseudoApproximation(this.value & other.value, this.immutable);
 		}
 
 		@Override
 		public PseudoApproximation andM(final PseudoApproximation other) {
+			if (this.immutable) {
+				return and(other);
+			}
 			this.value &= other.value;
 			return this;
 		}
 
 		@Override
 		public PseudoApproximation xor(final PseudoApproximation other) {
-			return new PseudoApproximation(this.value != other.value);
+			return new PseudoApproximation(this.value != other.value, this.immutable);
 		}
 
 		@Override
 		public PseudoApproximation xorM(final PseudoApproximation other) {
+			if (this.immutable) {
+				return xor(other);
+			}
 			this.value = this.value != other.value;
 			return this;
 		}
 
 		@Override
 		public PseudoApproximation not() {
-			return new PseudoApproximation(!this.value);
+			return new PseudoApproximation(!this.value, this.immutable);
 		}
 
 		@Override
 		public PseudoApproximation notM() {
+			if (this.immutable) {
+				return not();
+			}
 			this.value = !this.value;
 			return this;
 		}
@@ -84,6 +102,14 @@ public class ApproximationBuilderTest {
 			return new MultiBitsApproximation<>(result);
 		}
 
+		static MultiBitsApproximation<PseudoApproximation> ofImmutable(final int value) {
+			final List<PseudoApproximation> result = new ArrayList<>();
+			for (int i = 0, v = value; i < 32; ++i, v >>>= 1) {
+				result.add(new PseudoApproximation((v & 1) != 0, true));
+			}
+			return new MultiBitsApproximation<>(result);
+		}
+
 		static int toInt(final MultiBitsApproximation<PseudoApproximation> approximation) {
 			int v = 0;
 			for (int i = 31; i >= 0; --i) {
@@ -96,6 +122,17 @@ public class ApproximationBuilderTest {
 		static boolean toBool(final MultiBitsApproximation<PseudoApproximation> approximation) {
 			return approximation.get(0).value;
 		}
+
+		static BitVector toBitVector(final MultiBitsApproximation<PseudoApproximation> approximation) {
+			BigInteger v = BigInteger.ZERO;
+			for (int i = approximation.bitWidth() - 1; i >= 0; --i) {
+				v = v.shiftLeft(1);
+				if (approximation.get(i).value) {
+					v = v.setBit(0);
+				}
+			}
+			return new BitVector(approximation.bitWidth(), v);
+		}
 	}
 
 
@@ -139,6 +176,17 @@ public class ApproximationBuilderTest {
 
 
 
+	// Operands of width 6, which is not a power of two, so the shift amounts 6
+	// and 7 exceed the width but not the next power of two
+	@DataProvider(format = "%m(%p[0], %p[1])")
+	public static Object[][] smallNumbers2() {
+		final Object[][] lefts = { { 0 }, { 1 }, { 21 }, { 31 }, { 32 }, { 42 }, { 63 } };
+		final Object[][] rights = { { 0 }, { 1 }, { 5 }, { 6 }, { 7 }, { 8 }, { 63 } };
+		return DataProviders.crossProduct(lefts, rights);
+	}
+
+
+
 	@Test(timeout = 3000)
 	@UseDataProvider("integerNumbers2")
 	public void testAddConst(final int left, final int right) {
@@ -514,5 +562,95 @@ public class ApproximationBuilderTest {
 
 		assertEquals("Error for " + tree, left <= right, PseudoApproximation.toBool(result));
 	}
-}
 
+
+
+	@Test(timeout = 3000)
+	@UseDataProvider("smallNumbers2")
+	public void testAshrFakeNoConstNonPowerOfTwo(final int left, final int right) {
+		final BVAst tree = Builder.mkAshr(Builder.mkBVConst(6, left),
+				Builder.mkNot(Builder.mkNot(Builder.mkBVConst(6, right))));
+
+		final MultiBitsApproximation<PseudoApproximation> result
+				= tree.accept(new ApproximationBuilder<PseudoApproximation>(
+						PseudoApproximation::ofBit, null, Collections.emptyList()));
+
+		final int signedLeft = (left << 26) >> 26;
+		assertEquals("Error for " + tree,
+				new BitVector(6, right >= 6 ? (signedLeft < 0 ? -1 : 0) : signedLeft >> right),
+				PseudoApproximation.toBitVector(result));
+	}
+
+
+
+	@Test(timeout = 3000)
+	@UseDataProvider("integerNumbers2")
+	public void testRolConst(final int left, final int right) {
+		final BVAst tree = Builder.mkRol(Builder.mkBVConst(32, left), Builder.mkBVConst(32, right));
+
+		final MultiBitsApproximation<PseudoApproximation> result
+				= tree.accept(new ApproximationBuilder<PseudoApproximation>(
+						PseudoApproximation::ofBit, null, Collections.emptyList()));
+
+		assertEquals("Error for " + tree,
+				new BitVector(32, left).rol(new BitVector(32, right)),
+				PseudoApproximation.toBitVector(result));
+	}
+
+
+
+	@Test(timeout = 3000)
+	@UseDataProvider("integerNumbers2")
+	public void testRorConst(final int left, final int right) {
+		final BVAst tree = Builder.mkRor(Builder.mkBVConst(32, left), Builder.mkBVConst(32, right));
+
+		final MultiBitsApproximation<PseudoApproximation> result
+				= tree.accept(new ApproximationBuilder<PseudoApproximation>(
+						PseudoApproximation::ofBit, null, Collections.emptyList()));
+
+		assertEquals("Error for " + tree,
+				new BitVector(32, left).ror(new BitVector(32, right)),
+				PseudoApproximation.toBitVector(result));
+	}
+
+
+
+	@Test(timeout = 3000)
+	public void testAllDifferentConst() {
+		final int[][] operands = { { 1, 2, 3, 4 }, { 1, 1, 2, 3 }, { 1, 2, 2, 3 }, { 1, 2, 3, 3 },
+				{ 1, 2, 1, 3 }, { 1, 2, 3, 1 } };
+
+		for (final int[] values : operands) {
+			final List<BVAst> constants = new ArrayList<>();
+			for (final int value : values) {
+				constants.add(Builder.mkBVConst(32, value));
+			}
+			final BoolAst tree = Builder.mkAllDifferent(constants);
+
+			final MultiBitsApproximation<PseudoApproximation> result
+					= tree.accept(new ApproximationBuilder<PseudoApproximation>(
+							PseudoApproximation::ofBit, null, Collections.emptyList()));
+
+			assertEquals("Error for " + tree, values == operands[0],
+					PseudoApproximation.toBool(result));
+		}
+	}
+
+
+
+	@Test(timeout = 3000)
+	@UseDataProvider("integerNumbers2")
+	public void testModifyingOperationsImmutable(final int left, final int right) {
+		final MultiBitsApproximation<PseudoApproximation> and = PseudoApproximation.ofImmutable(left);
+		and.andM(PseudoApproximation.ofImmutable(right));
+		assertEquals(left & right, PseudoApproximation.toInt(and));
+
+		final MultiBitsApproximation<PseudoApproximation> xor = PseudoApproximation.ofImmutable(left);
+		xor.xorM(PseudoApproximation.ofImmutable(right));
+		assertEquals(left ^ right, PseudoApproximation.toInt(xor));
+
+		final MultiBitsApproximation<PseudoApproximation> not = PseudoApproximation.ofImmutable(left);
+		not.notM();
+		assertEquals(~left, PseudoApproximation.toInt(not));
+	}
+}
@@ -0,0 +1,138 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import smt.BitVector;
+import synth.Library;
+
+
+
+public class BenchmarkReaderTest {
+
+	private static Benchmark read(final String text) throws IOException {
+		try (final BenchmarkReader reader = new BenchmarkReader(new StringReader(text))) {
+			return reader.read("test");
+		}
+	}
+
+
+
+	@Test
+	public void testRead() throws IOException {
+		final Benchmark benchmark = read(
+				"; Comment\n"
+				+ "(spec 2 8 x y (ite (slt x y) (add x -1:8) (concat 0:4 (extract 0 3 y))))\n\n"
+				+ "(lib add eq (const 8) (const 8 0x7F)\n"
+				+ "     (fun max x y (ite (ugt x y) x y)) (fun low x (extract 0 3 x)))\n");
+
+		assertEquals("test", benchmark.getName());
+		assertEquals(2, benchmark.getSpecification().getNumberOfInputs());
+		assertEquals(8, benchmark.getSpecification().getInputBitWidth(1));
+		assertEquals(8, benchmark.getSpecification().getOutputBitWidth());
+		assertEquals(new BitVector(8, 1), benchmark.getSpecification().evaluate(
+				Arrays.asList(new BitVector(8, 2), new BitVector(8, 3))));
+		assertEquals(new BitVector(8, 0x0F), benchmark.getSpecification().evaluate(
+				Arrays.asList(new BitVector(8, 3), new BitVector(8, -1))));
+
+		final Library library = benchmark.getLibrary();
+		assertEquals(6, library.size());
+		assertEquals("add", library.get(0).getName());
+		assertEquals(8, library.get(1).getOutputBitWidth());
+		assertEquals(8, library.get(1).getInputBitWidth(0));
+		assertEquals(1, library.get(2).getNumberOfAuxiliaryVariables());
+		assertEquals(0, library.get(3).getNumberOfInputs());
+		assertEquals("max", library.get(4).getName());
+		assertEquals(2, library.get(4).getNumberOfInputs());
+		assertEquals(4, library.get(5).getOutputBitWidth());
+	}
+
+
+
+	@Test
+	public void testDefinitions() throws IOException {
+		final Benchmark benchmark = read(
+				"(define sext (x) (concat (ite (slt x 0:8) -1:8 0:8) x))\n"
+				+ "(define twice (x) (let ((s (sext x))) (add s s)))\n"
+				+ "(spec 1 8 x (extract 1 8 (twice x)))\n"
+				+ "(lib (fun wide x (sext x)))\n");
+
+		assertEquals(8, benchmark.getSpecification().getOutputBitWidth());
+		assertEquals(new BitVector(8, -3), benchmark.getSpecification().evaluate(
+				Arrays.asList(new BitVector(8, -3))));
+		assertEquals(16, benchmark.getLibrary().get(0).getOutputBitWidth());
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRecursiveDefinition() throws IOException {
+		read("(define f (x) (f x)) (spec 1 8 x (f x)) (lib add)");
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDefinitionArity() throws IOException {
+		read("(define f (x y) (add x y)) (spec 1 8 x (f x)) (lib add)");
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLibraryBeforeSpecification() throws IOException {
+		read("(lib add) (spec 1 8 x x)");
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownLibraryFunction() throws IOException {
+		read("(spec 1 8 x x) (lib foo)");
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidExpression() throws IOException {
+		read("(spec 1 8 x (add x z)) (lib add)");
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnbalancedParentheses() throws IOException {
+		read("(spec 1 8 x (add x x) (lib add)");
+	}
+
+
+
+	@Test
+	public void testReadBenchmarkDirectory() throws IOException {
+		final Path directory = Paths.get("benchmark");
+		assumeTrue(Files.isDirectory(directory));
+
+		final List<Path> files;
+		try (final Stream<Path> stream = Files.list(directory)) {
+			files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+		}
+		assertFalse(files.isEmpty());
+
+		for (final Path file : files) {
+			final Benchmark benchmark = BenchmarkReader.read(file);
+			assertFalse(file.toString(), benchmark.getLibrary().isEmpty());
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import synth.SynthesizerSettings;
+import util.Json;
+
+
+
+public class BenchmarkRunnerTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+
+
+	private Path write(final String name, final String text) throws IOException {
+		final Path result = this.folder.getRoot().toPath().resolve(name);
+		Files.write(result, text.getBytes(StandardCharsets.UTF_8));
+		return result;
+	}
+
+
+
+	@Test(timeout = 10000)
+	public void testScreening() throws IOException, InterruptedException {
+		final List<Path> files = Arrays.asList(
+				write("infeasible", "(spec 1 32 x (and x (sub x 1:32)))\n(lib and (const 32 1))\n"),
+				write("unknown", "(spec 1 32 x (and x (sub x 1:32)))\n(lib and sub (const 32 1))\n"),
+				write("broken", "(spec 1 32 x (and x y))\n(lib and)\n"));
+
+		final List<BenchmarkRunner.Result> reported = new ArrayList<>();
+		final List<BenchmarkRunner.Result> results = new BenchmarkRunner(
+				BenchmarkRunner.Mode.SCREEN, 5000, 2, SynthesizerSettings.getDefault())
+				.run(files, reported::add);
+
+		assertEquals(results, reported);
+		assertEquals(3, results.size());
+
+		assertEquals("infeasible", results.get(0).getName());
+		assertEquals(BenchmarkRunner.Verdict.INFEASIBLE, results.get(0).getScreeningVerdict().get());
+		assertFalse(results.get(0).getSynthesisVerdict().isPresent());
+
+		assertEquals(BenchmarkRunner.Verdict.UNKNOWN, results.get(1).getScreeningVerdict().get());
+
+		assertFalse(results.get(2).getScreeningVerdict().isPresent());
+		assertTrue(results.get(2).getError().isPresent());
+
+		assertTrue(BenchmarkRunner.toCsv(results.get(0)).startsWith("infeasible,infeasible,"));
+		assertTrue(BenchmarkRunner.toJson(results.get(1)).startsWith(
+				"{\"name\": \"unknown\", \"screening\": \"unknown\", \"screening_ms\": "));
+		assertTrue(BenchmarkRunner.toJson(results.get(2)).contains("\"screening\": null"));
+
+		// The error message is written as a valid JSON string
+		final Map<?, ?> json = (Map<?, ?>) Json.parse(BenchmarkRunner.toJson(results.get(2)));
+		assertEquals(results.get(2).getError().get(), json.get("error"));
+	}
+}
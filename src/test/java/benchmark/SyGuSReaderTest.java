@@ -0,0 +1,189 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import analysis.essential.ShapeFeasibilityChecker;
+import smt.BitVector;
+import synth.Library;
+import synth.Specification;
+
+
+
+public class SyGuSReaderTest {
+
+	private static Benchmark read(final String text) throws IOException {
+		try (final SyGuSReader reader = new SyGuSReader(new StringReader(text))) {
+			return reader.read("test");
+		}
+	}
+
+
+
+	@Test
+	public void testReadVersion1() throws IOException {
+		final Benchmark benchmark = read(
+				"; hd-01\n"
+				+ "(set-logic BV)\n"
+				+ "(define-fun hd01 ((x (BitVec 32))) (BitVec 32) (bvand x (bvsub x #x00000001)))\n"
+				+ "(synth-fun f ((x (BitVec 32))) (BitVec 32)\n"
+				+ "  ((Start (BitVec 32) ((bvand Start Start) (bvsub Start Start) (bvor Start Start)\n"
+				+ "                       (bvadd Start Start) (bvxor Start Start) x\n"
+				+ "                       #x00000000 #xFFFFFFFF #x00000001))))\n"
+				+ "(declare-var x (BitVec 32))\n"
+				+ "(constraint (= (hd01 x) (f x)))\n"
+				+ "(check-synth)\n");
+
+		final Specification specification = benchmark.getSpecification();
+		assertEquals(1, specification.getNumberOfInputs());
+		assertEquals(32, specification.getOutputBitWidth());
+		assertTrue(specification.getPreconditions().isEmpty());
+		assertEquals(new BitVector(32, 8), specification.evaluate(Arrays.asList(new BitVector(32, 12))));
+
+		final Library library = benchmark.getLibrary();
+		assertEquals(8, library.size());
+		assertEquals("(bvand Start Start)", library.get(0).getName());
+		assertEquals(2, library.get(0).getNumberOfInputs());
+		assertEquals(32, library.get(0).getOutputBitWidth());
+		assertEquals(0, library.get(7).getNumberOfInputs());
+		assertEquals(new BitVector(32, 1), library.get(7).getFunction().apply(Arrays.asList())
+				.eval(null));
+	}
+
+
+
+	@Test
+	public void testReadVersion2() throws IOException {
+		final Benchmark benchmark = read(
+				"(set-logic BV)\n"
+				+ "(synth-fun max ((a (_ BitVec 8)) (b (_ BitVec 8))) (_ BitVec 8)\n"
+				+ "  ((Start (_ BitVec 8)) (Cond Bool))\n"
+				+ "  ((Start (_ BitVec 8) (a b (ite Cond Start Start) (bvadd Start #x01)\n"
+				+ "                        (Constant (_ BitVec 8))))\n"
+				+ "   (Cond Bool ((bvult Start Start) (not Cond)))))\n"
+				+ "(declare-var x (_ BitVec 8))\n"
+				+ "(declare-var y (_ BitVec 8))\n"
+				+ "(constraint (= (max y x) (ite (bvugt x y) x y)))\n"
+				+ "(check-synth)\n");
+
+		final Specification specification = benchmark.getSpecification();
+		assertEquals(new BitVector(8, 7), specification.evaluate(
+				Arrays.asList(new BitVector(8, 7), new BitVector(8, 3))));
+
+		final Library library = benchmark.getLibrary();
+		assertEquals(5, library.size());
+		assertEquals(Arrays.asList(1, 8, 8), Arrays.asList(library.get(0).getInputBitWidth(0),
+				library.get(0).getInputBitWidth(1), library.get(0).getInputBitWidth(2)));
+		assertEquals(1, library.get(1).getNumberOfInputs());
+		assertEquals(1, library.get(2).getNumberOfAuxiliaryVariables());
+		assertEquals(1, library.get(3).getOutputBitWidth());
+		assertEquals(1, library.get(4).getInputBitWidth(0));
+	}
+
+
+
+	@Test
+	public void testGuardedConstraints() throws IOException {
+		final Benchmark benchmark = read(
+				"(synth-fun f ((x (BitVec 8))) (BitVec 8))\n"
+				+ "(declare-var x (BitVec 8))\n"
+				+ "(constraint (=> (bvslt x #x00) (= (f x) (bvneg x))))\n"
+				+ "(constraint (=> (= x #x00) (= (f x) x)))\n");
+
+		final Specification specification = benchmark.getSpecification();
+		assertEquals(1, specification.getPreconditions().size());
+		assertTrue(specification.satisfiesPreconditions(Arrays.asList(new BitVector(8, -3))));
+		assertTrue(specification.satisfiesPreconditions(Arrays.asList(new BitVector(8, 0))));
+		assertFalse(specification.satisfiesPreconditions(Arrays.asList(new BitVector(8, 3))));
+		assertEquals(new BitVector(8, 3), specification.evaluate(Arrays.asList(new BitVector(8, -3))));
+
+		// Without a grammar, the library contains the standard operators
+		assertEquals(16, benchmark.getLibrary().size());
+	}
+
+
+
+	@Test
+	public void testDefinitionsAndIndexedOperators() throws IOException {
+		final Benchmark benchmark = read(
+				"(define-fun low ((x (BitVec 16))) (BitVec 8) ((_ extract 7 0) x))\n"
+				+ "(define-fun isNeg ((x (BitVec 8))) Bool (bvslt x #x00))\n"
+				+ "(synth-fun f ((x (BitVec 16))) (BitVec 16)\n"
+				+ "  ((Start (BitVec 16) (((_ sign_extend 8) (low Start)) ((_ rotate_left 4) Start)))))\n"
+				+ "(declare-var x (BitVec 16))\n"
+				+ "(constraint (= (f x) (let ((l (low x))) (ite (isNeg l) ((_ zero_extend 8) l)\n"
+				+ "                                          (concat l (_ bv3 8))))))\n");
+
+		final Specification specification = benchmark.getSpecification();
+		assertEquals(new BitVector(16, 0x00F0), specification.evaluate(
+				Arrays.asList(new BitVector(16, 0x12F0))));
+		assertEquals(new BitVector(16, 0x7003), specification.evaluate(
+				Arrays.asList(new BitVector(16, 0x1270))));
+
+		final Library library = benchmark.getLibrary();
+		assertEquals(2, library.size());
+		assertEquals(16, library.get(0).getOutputBitWidth());
+	}
+
+
+
+	@Test
+	public void testScreening() throws IOException {
+		final String problem =
+				"(synth-fun f ((x (BitVec 8)) (y (BitVec 8))) (BitVec 8)\n"
+				+ "  ((Start (BitVec 8) ((bvand Start Start) (bvor Start Start) x y))))\n"
+				+ "(declare-var x (BitVec 8))\n"
+				+ "(declare-var y (BitVec 8))\n";
+
+		final Benchmark infeasible = read(problem + "(constraint (= (f x y) (bvadd x y)))");
+		assertTrue(ShapeFeasibilityChecker.isUnsat(infeasible.getSpecification(),
+				infeasible.getLibrary()));
+
+		final Benchmark feasible = read(problem + "(constraint (= (f x y) (bvand x (bvor x y))))");
+		assertFalse(ShapeFeasibilityChecker.isUnsat(feasible.getSpecification(),
+				feasible.getLibrary()));
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedConstraint() throws IOException {
+		read("(synth-fun f ((x (BitVec 8))) (BitVec 8))\n"
+				+ "(declare-var x (BitVec 8))\n"
+				+ "(constraint (= (f (bvadd x #x01)) x))\n");
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFreeVariable() throws IOException {
+		read("(synth-fun f ((x (BitVec 8))) (BitVec 8))\n"
+				+ "(declare-var x (BitVec 8))\n"
+				+ "(declare-var y (BitVec 8))\n"
+				+ "(constraint (= (f x) (bvadd x y)))\n");
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSortMismatch() throws IOException {
+		read("(synth-fun f ((x (BitVec 8))) (BitVec 8))\n"
+				+ "(declare-var x (BitVec 8))\n"
+				+ "(constraint (= (f x) (bvadd x #x0001)))\n");
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRecursiveDefinition() throws IOException {
+		read("(define-fun g ((x (BitVec 8))) (BitVec 8) (g x))\n"
+				+ "(synth-fun f ((x (BitVec 8))) (BitVec 8))\n"
+				+ "(declare-var x (BitVec 8))\n"
+				+ "(constraint (= (f x) (g x)))\n");
+	}
+}
@@ -0,0 +1,142 @@
+package daemon;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import synth.SynthesizerSettings;
+import util.Json;
+
+
+
+public class AnalysisDaemonTest {
+
+	private AnalysisDaemon daemon;
+
+
+
+	@Before
+	public void startDaemon() {
+		this.daemon = new AnalysisDaemon(10000, 2, SynthesizerSettings.getDefault());
+	}
+
+
+
+	@After
+	public void stopDaemon() {
+		this.daemon.shutdown();
+	}
+
+
+
+	// Returns the responses by their id
+	private Map<Object, Map<?, ?>> serve(final String... requests)
+			throws IOException, InterruptedException {
+
+		final StringWriter out = new StringWriter();
+		this.daemon.serve(new BufferedReader(new StringReader(String.join("\n", requests))), out);
+
+		final Map<Object, Map<?, ?>> result = new HashMap<>();
+		for (final String line : out.toString().split("\n")) {
+			final Map<?, ?> response = (Map<?, ?>) Json.parse(line);
+			assertNull("Duplicate response " + line, result.put(response.get("id"), response));
+		}
+		assertEquals(requests.length, result.size());
+		return result;
+	}
+
+
+
+	@Test(timeout = 10000)
+	public void testScreen() throws IOException, InterruptedException {
+		final Map<Object, Map<?, ?>> responses = this.serve(
+				"{\"id\": 1, \"type\": \"screen\", \"problem\": \"(spec 2 8 x y (add x y)) (lib and or)\"}",
+				"{\"id\": 2, \"type\": \"screen\", \"problem\": \"(spec 2 8 x y (and x y)) (lib and or)\"}",
+				"{\"id\": 3, \"type\": \"screen\", \"problem\": \"(spec 2 8 x y (add x y)) (lib and or)\"}",
+				"{\"id\": \"sygus\", \"type\": \"screen\", \"format\": \"sygus\", \"problem\": "
+						+ "\"(synth-fun f ((x (BitVec 8))) (BitVec 8) ((S (BitVec 8) ((bvand S S) x))))"
+						+ " (declare-var x (BitVec 8)) (constraint (= (f x) (bvneg x)))\"}");
+
+		assertEquals("ok", responses.get(1L).get("status"));
+		assertEquals("infeasible", responses.get(1L).get("verdict"));
+		assertEquals("unknown", responses.get(2L).get("verdict"));
+		assertEquals("infeasible", responses.get(3L).get("verdict"));
+		assertEquals("infeasible", responses.get("sygus").get("verdict"));
+	}
+
+
+
+	@Test(timeout = 10000)
+	public void testApproximate() throws IOException, InterruptedException {
+		final Map<Object, Map<?, ?>> responses = this.serve(
+				"{\"id\": 1, \"type\": \"approximate\", \"problem\": \"(spec 1 4 x (not x)) (lib)\"}");
+
+		assertEquals("ok", responses.get(1L).get("status"));
+		assertEquals(4, ((List<?>) responses.get(1L).get("over")).size());
+		assertEquals(4, ((List<?>) responses.get(1L).get("under")).size());
+	}
+
+
+
+	// The approximations themselves cannot be interrupted, but a request that
+	// exceeds its timeout must not be answered with ok
+	@Test(timeout = 60000)
+	public void testApproximateTimeout() throws IOException, InterruptedException {
+		final Map<Object, Map<?, ?>> responses = this.serve(
+				"{\"id\": 1, \"type\": \"approximate\", \"timeout\": 1, "
+						+ "\"problem\": \"(spec 2 64 x y (mul (mul x y) (mul y x))) (lib)\"}");
+
+		assertEquals("timeout", responses.get(1L).get("status"));
+		assertNull(responses.get(1L).get("over"));
+	}
+
+
+
+	@Test(timeout = 10000)
+	public void testErrors() throws IOException, InterruptedException {
+		final Map<Object, Map<?, ?>> responses = this.serve(
+				"{\"id\": 1, \"type\": \"screen\", \"problem\": \"(spec 1 8 x (add x x))\"}",
+				"{\"id\": 2, \"type\": \"unknown\"}",
+				"{\"id\": 3, \"type\": \"screen\", \"timeout\": -1, \"problem\": \"(spec 1 8 x x) (lib)\"}",
+				"{\"id\": 4, \"type\": \"cancel\", \"target\": 42}",
+				"not json");
+
+		assertEquals("error", responses.get(1L).get("status"));
+		assertEquals("parse error: expected spec and lib", responses.get(1L).get("error"));
+		assertEquals("error", responses.get(2L).get("status"));
+		assertEquals("error", responses.get(3L).get("status"));
+		assertEquals("ok", responses.get(4L).get("status"));
+		assertEquals(false, responses.get(4L).get("cancelled"));
+		assertEquals("error", responses.get(null).get("status"));
+	}
+
+
+
+	@Test
+	public void testJson() {
+		final String text = "{\"a\": [1, -2.5, true, false, null], \"b\": \"x\\\"\\n\\u0041\", \"c\": {}}";
+		final Object parsed = Json.parse(text);
+
+		assertEquals("x\"\nA", ((Map<?, ?>) parsed).get("b"));
+		assertEquals(1L, ((List<?>) ((Map<?, ?>) parsed).get("a")).get(0));
+		assertEquals(-2.5, ((List<?>) ((Map<?, ?>) parsed).get("a")).get(1));
+		assertEquals(parsed, Json.parse(Json.write(parsed)));
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testJsonTrailingInput() {
+		Json.parse("{} {}");
+	}
+}
@@ -0,0 +1,200 @@
+package sat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.DataProviders;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import smt.*;
+
+import static smt.Builder.*;
+
+
+
+@RunWith(DataProviderRunner.class)
+public class BitBlastingSolverTest {
+
+	private static final Map<String, BiFunction<BVAst, BVAst, Ast>> OPERATIONS = new HashMap<>();
+
+	static {
+		OPERATIONS.put("add", Builder::mkAdd);
+		OPERATIONS.put("sub", Builder::mkSub);
+		OPERATIONS.put("mul", Builder::mkMul);
+		OPERATIONS.put("sdiv", Builder::mkSDiv);
+		OPERATIONS.put("udiv", Builder::mkUDiv);
+		OPERATIONS.put("srem", Builder::mkSRem);
+		OPERATIONS.put("urem", Builder::mkURem);
+		OPERATIONS.put("smod", Builder::mkSMod);
+		OPERATIONS.put("umod", Builder::mkUMod);
+		OPERATIONS.put("and", Builder::mkAnd);
+		OPERATIONS.put("or", Builder::mkOr);
+		OPERATIONS.put("xor", Builder::mkXor);
+		OPERATIONS.put("shl", Builder::mkShl);
+		OPERATIONS.put("ashr", Builder::mkAshr);
+		OPERATIONS.put("lshr", Builder::mkLshr);
+		OPERATIONS.put("rol", Builder::mkRol);
+		OPERATIONS.put("ror", Builder::mkRor);
+		OPERATIONS.put("concat", Builder::mkConcat);
+		OPERATIONS.put("not", (x, y) -> mkNot(x));
+		OPERATIONS.put("neg", (x, y) -> mkNeg(x));
+		OPERATIONS.put("extract", (x, y) -> mkExtract(x.getWidth() / 3, x.getWidth() - 1, x));
+		OPERATIONS.put("ite", (x, y) -> mkIte(mkOr(mkSLt(x, y), mkEq(x, y)), mkAdd(x, y), y));
+		OPERATIONS.put("eq", Builder::mkEq);
+		OPERATIONS.put("ne", Builder::mkNe);
+		OPERATIONS.put("ugt", Builder::mkUGt);
+		OPERATIONS.put("uge", Builder::mkUGe);
+		OPERATIONS.put("ult", Builder::mkULt);
+		OPERATIONS.put("ule", Builder::mkULe);
+		OPERATIONS.put("sgt", Builder::mkSGt);
+		OPERATIONS.put("sge", Builder::mkSGe);
+		OPERATIONS.put("slt", Builder::mkSLt);
+		OPERATIONS.put("sle", Builder::mkSLe);
+		OPERATIONS.put("bool", (x, y) -> mkImplies(mkNot(mkUGe(x, y)),
+				mkAnd(mkNe(mkEq(x, y), mkBoolConst(true)), mkAllDifferent(x, y, mkNeg(y)))));
+	}
+
+
+
+	@DataProvider(format = "%m(%p[0], %p[1])")
+	public static Object[][] operations() {
+		final Object[][] names = OPERATIONS.keySet().stream().sorted()
+				.map(n -> new Object[] { n }).toArray(Object[][]::new);
+		final Object[][] widths = new Object[][] {
+			{ 1 }, { 2 }, { 3 }, { 7 }, { 8 }, { 32 }
+		};
+		return DataProviders.crossProduct(names, widths);
+	}
+
+
+
+	private static List<BitVector> values(final int width, final Random random) {
+		final List<BitVector> result = new ArrayList<>();
+		result.add(new BitVector(width, 0));
+		result.add(new BitVector(width, 1));
+		result.add(new BitVector(width, -1));
+		result.add(new BitVector(width, width));
+		result.add(new BitVector(width, BigInteger.ONE.shiftLeft(width - 1)));
+		for (int i = 0; i < 4; ++i) {
+			result.add(new BitVector(width, random.nextInt(width + 2)));
+			result.add(new BitVector(width, new BigInteger(width, random)));
+		}
+		return result;
+	}
+
+
+
+	// BitVector deviates from SMT-LIB, which the solver implements, for these
+	// operands
+	private static boolean isSmtLibSemantics(final String name, final BitVector x,
+			final BitVector y) {
+
+		switch (name) {
+			case "sdiv":
+				return !y.toSignedBigInteger().equals(BigInteger.ZERO)
+						|| x.toSignedBigInteger().signum() >= 0;
+			case "ashr":
+				return y.toSignedBigInteger().signum() >= 0 && y.toSignedBigInteger().bitLength() < 31;
+			default:
+				return true;
+		}
+	}
+
+
+
+	@Test(timeout = 20000)
+	@UseDataProvider("operations")
+	public void testOperation(final String name, final int width) {
+		final Random random = new Random(name.hashCode() + width);
+		final BVAst x = mkBVVar(width, "x");
+		final BVAst y = mkBVVar(width, "y");
+		final Ast tree = OPERATIONS.get(name).apply(x, y);
+
+		final BitBlastingSolver solver = new BitBlastingSolver();
+		if (tree instanceof BVAst) {
+			solver.add(mkEq(mkBVVar(((BVAst) tree).getWidth(), "r"), (BVAst) tree));
+		} else {
+			solver.add(mkEq(mkBoolVar("r"), (BoolAst) tree));
+		}
+
+		for (final BitVector xValue : values(width, random)) {
+			for (final BitVector yValue : values(width, random)) {
+				if (!isSmtLibSemantics(name, xValue, yValue)) {
+					continue;
+				}
+				final Map<String, Ast> assignment = new HashMap<>();
+				assignment.put("x", mkBVConst(xValue));
+				assignment.put("y", mkBVConst(yValue));
+
+				assertEquals(SatResult.SAT, solver.checkSatAssuming(Arrays.asList(
+						mkEq(x, mkBVConst(xValue)), mkEq(y, mkBVConst(yValue)))));
+				if (tree instanceof BVAst) {
+					assertEquals("Error for " + xValue + ", " + yValue, ((BVAst) tree).eval(assignment),
+							solver.getBVAssignment(mkBVVar(((BVAst) tree).getWidth(), "r")));
+				} else {
+					assertEquals("Error for " + xValue + ", " + yValue, ((BoolAst) tree).eval(assignment),
+							solver.getBoolAssignment(mkBoolVar("r")));
+				}
+			}
+		}
+	}
+
+
+
+	@Test(timeout = 5000)
+	public void testPushPop() {
+		final BVAst x = mkBVVar(8, "x");
+		final BitBlastingSolver solver = new BitBlastingSolver();
+		solver.add(mkULt(x, mkBVConst(8, 10)));
+
+		solver.push();
+		solver.add(mkUGt(x, mkBVConst(8, 20)));
+		assertEquals(SatResult.UNSAT, solver.checkSat());
+		solver.pop();
+
+		solver.push();
+		solver.add(mkEq(mkMul(x, x), mkBVConst(8, 49)));
+		assertEquals(SatResult.SAT, solver.checkSat());
+		assertEquals(new BitVector(8, 7), solver.getBVAssignment(x));
+		solver.pop();
+
+		assertEquals(SatResult.SAT, solver.checkSatAssuming(Arrays.asList(mkEq(x, mkBVConst(8, 3)))));
+		assertEquals(new BitVector(8, 6), solver.getBVAssignment(mkAdd(x, x)));
+	}
+
+
+
+	@Test(timeout = 5000)
+	public void testUnsatCore() {
+		final BVAst x = mkBVVar(16, "x");
+		final BVAst y = mkBVVar(16, "y");
+		final BitBlastingSolver solver = new BitBlastingSolver();
+		solver.add(mkEq(mkAdd(x, y), mkBVConst(16, 100)));
+
+		final BoolAst small = mkULt(x, mkBVConst(16, 10));
+		final BoolAst large = mkUGt(y, mkBVConst(16, 95));
+		final BoolAst odd = mkEq(mkExtract(0, 0, y), mkBVConst(1, 1));
+		final BoolAst even = mkEq(mkExtract(0, 0, x), mkBVConst(1, 0));
+
+		assertEquals(SatResult.SAT, solver.checkSatAssuming(Arrays.asList(small, large)));
+		assertEquals(SatResult.UNSAT, solver.checkSatAssuming(Arrays.asList(small, odd, even, large)));
+
+		final List<BoolAst> core = solver.getUnsatCore();
+		assertTrue(core.contains(odd));
+		assertTrue(core.contains(even));
+		assertEquals(SatResult.UNSAT, solver.checkSatAssuming(core));
+	}
+}
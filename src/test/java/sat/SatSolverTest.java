@@ -0,0 +1,180 @@
+package sat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import smt.SatResult;
+
+
+
+@RunWith(DataProviderRunner.class)
+public class SatSolverTest {
+
+	@DataProvider(format = "%m(%p[0])")
+	public static Object[][] seeds() {
+		final Object[][] result = new Object[40][1];
+		for (int i = 0; i < result.length; ++i) {
+			result[i][0] = i;
+		}
+		return result;
+	}
+
+
+
+	private static List<int[]> randomClauses(final int numberOfVariables, final int numberOfClauses,
+			final Random random) {
+
+		final List<int[]> result = new ArrayList<>();
+		for (int i = 0; i < numberOfClauses; ++i) {
+			final int[] clause = new int[1 + random.nextInt(3)];
+			for (int j = 0; j < clause.length; ++j) {
+				clause[j] = SatSolver.literal(random.nextInt(numberOfVariables), random.nextBoolean());
+			}
+			result.add(clause);
+		}
+		return result;
+	}
+
+
+
+	private static boolean isSatisfied(final List<int[]> clauses, final int assignment,
+			final int[] assumptions) {
+
+		for (final int assumption : assumptions) {
+			if (((assignment >> SatSolver.variable(assumption)) & 1) == (assumption & 1)) {
+				return false;
+			}
+		}
+		for (final int[] clause : clauses) {
+			boolean satisfied = false;
+			for (final int literal : clause) {
+				satisfied |= ((assignment >> SatSolver.variable(literal)) & 1) != (literal & 1);
+			}
+			if (!satisfied) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+
+	private static boolean isSatisfiable(final List<int[]> clauses, final int numberOfVariables,
+			final int[] assumptions) {
+
+		for (int assignment = 0; assignment < (1 << numberOfVariables); ++assignment) {
+			if (isSatisfied(clauses, assignment, assumptions)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+
+	@Test(timeout = 5000)
+	@UseDataProvider("seeds")
+	public void testIncrementalRandomClauses(final int seed) {
+		final Random random = new Random(seed);
+		final int numberOfVariables = 12;
+
+		final SatSolver solver = new SatSolver();
+		if (seed % 2 == 1) {
+			solver.setRandomSeed(seed);
+		}
+		for (int i = 0; i < numberOfVariables; ++i) {
+			solver.newVariable();
+		}
+
+		final List<int[]> clauses = new ArrayList<>();
+		for (int round = 0; round < 10; ++round) {
+			for (final int[] clause : randomClauses(numberOfVariables, 6, random)) {
+				clauses.add(clause);
+				solver.addClause(clause);
+			}
+
+			final int[] assumptions = new int[random.nextInt(4)];
+			for (int i = 0; i < assumptions.length; ++i) {
+				assumptions[i] = SatSolver.literal(random.nextInt(numberOfVariables), random.nextBoolean());
+			}
+
+			final SatResult result = solver.solve(assumptions);
+			assertEquals(isSatisfiable(clauses, numberOfVariables, assumptions)
+					? SatResult.SAT
+					: SatResult.UNSAT, result);
+
+			if (result == SatResult.SAT) {
+				int assignment = 0;
+				for (int v = 0; v < numberOfVariables; ++v) {
+					if (solver.getModelValue(SatSolver.literal(v, false))) {
+						assignment |= 1 << v;
+					}
+				}
+				assertTrue(isSatisfied(clauses, assignment, assumptions));
+			} else {
+				// The failed assumptions alone have to be unsatisfiable
+				final int[] core = solver.getFailedAssumptions().stream()
+						.mapToInt(Integer::intValue).toArray();
+				assertFalse(isSatisfiable(clauses, numberOfVariables, core));
+			}
+		}
+	}
+
+
+
+	private static SatSolver makePigeonHole(final int pigeons, final int holes) {
+		final SatSolver solver = new SatSolver();
+		final int[][] variables = new int[pigeons][holes];
+		for (int p = 0; p < pigeons; ++p) {
+			for (int h = 0; h < holes; ++h) {
+				variables[p][h] = solver.newVariable();
+			}
+		}
+
+		for (int p = 0; p < pigeons; ++p) {
+			final int[] clause = new int[holes];
+			for (int h = 0; h < holes; ++h) {
+				clause[h] = SatSolver.literal(variables[p][h], false);
+			}
+			solver.addClause(clause);
+		}
+		for (int h = 0; h < holes; ++h) {
+			for (int p = 0; p < pigeons; ++p) {
+				for (int q = p + 1; q < pigeons; ++q) {
+					solver.addClause(SatSolver.literal(variables[p][h], true),
+							SatSolver.literal(variables[q][h], true));
+				}
+			}
+		}
+		return solver;
+	}
+
+
+
+	@Test(timeout = 5000)
+	public void testPigeonHole() {
+		assertEquals(SatResult.SAT, makePigeonHole(6, 6).solve());
+
+		final SatSolver solver = makePigeonHole(7, 6);
+		assertEquals(SatResult.UNSAT, solver.solve());
+		assertTrue(solver.getNumberOfConflicts() > 0);
+	}
+
+
+
+	@Test(timeout = 1000)
+	public void testExpiredDeadline() {
+		final SatSolver solver = makePigeonHole(7, 6);
+		assertEquals(SatResult.UNKNOWN, solver.solve(new int[0], System.nanoTime() - 1));
+	}
+}
@@ -0,0 +1,166 @@
+package smt;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.DataProviders;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static smt.Builder.*;
+
+
+
+@RunWith(DataProviderRunner.class)
+public class BitSlicedEvaluatorTest {
+
+	private static final Map<String, BiFunction<BVAst, BVAst, Ast>> OPERATIONS = new HashMap<>();
+
+	static {
+		OPERATIONS.put("add", Builder::mkAdd);
+		OPERATIONS.put("sub", Builder::mkSub);
+		OPERATIONS.put("mul", Builder::mkMul);
+		OPERATIONS.put("sdiv", Builder::mkSDiv);
+		OPERATIONS.put("udiv", Builder::mkUDiv);
+		OPERATIONS.put("srem", Builder::mkSRem);
+		OPERATIONS.put("urem", Builder::mkURem);
+		OPERATIONS.put("smod", Builder::mkSMod);
+		OPERATIONS.put("umod", Builder::mkUMod);
+		OPERATIONS.put("and", Builder::mkAnd);
+		OPERATIONS.put("or", Builder::mkOr);
+		OPERATIONS.put("xor", Builder::mkXor);
+		OPERATIONS.put("shl", Builder::mkShl);
+		OPERATIONS.put("ashr", Builder::mkAshr);
+		OPERATIONS.put("lshr", Builder::mkLshr);
+		OPERATIONS.put("rol", Builder::mkRol);
+		OPERATIONS.put("ror", Builder::mkRor);
+		OPERATIONS.put("concat", Builder::mkConcat);
+		OPERATIONS.put("not", (x, y) -> mkNot(x));
+		OPERATIONS.put("neg", (x, y) -> mkNeg(x));
+		OPERATIONS.put("extract", (x, y) -> mkExtract(x.getWidth() / 3, x.getWidth() - 1, x));
+		OPERATIONS.put("ite", (x, y) -> mkIte(mkOr(mkSLt(x, y), mkEq(x, y)), mkAdd(x, y), y));
+		OPERATIONS.put("eq", Builder::mkEq);
+		OPERATIONS.put("ne", Builder::mkNe);
+		OPERATIONS.put("ugt", Builder::mkUGt);
+		OPERATIONS.put("uge", Builder::mkUGe);
+		OPERATIONS.put("ult", Builder::mkULt);
+		OPERATIONS.put("ule", Builder::mkULe);
+		OPERATIONS.put("sgt", Builder::mkSGt);
+		OPERATIONS.put("sge", Builder::mkSGe);
+		OPERATIONS.put("slt", Builder::mkSLt);
+		OPERATIONS.put("sle", Builder::mkSLe);
+		OPERATIONS.put("bool", (x, y) -> mkImplies(mkNot(mkUGe(x, y)),
+				mkAnd(mkNe(mkEq(x, y), mkBoolConst(true)), mkAllDifferent(x, y, mkNeg(y)))));
+	}
+
+
+
+	@DataProvider(format = "%m(%p[0], %p[1])")
+	public static Object[][] operations() {
+		final Object[][] names = OPERATIONS.keySet().stream().sorted()
+				.map(n -> new Object[] { n }).toArray(Object[][]::new);
+		final Object[][] widths = new Object[][] {
+			{ 1 }, { 2 }, { 3 }, { 7 }, { 8 }, { 32 }, { 33 }, { 64 }, { 100 }
+		};
+		return DataProviders.crossProduct(names, widths);
+	}
+
+
+
+	private static List<BitVector> randomValues(final int width, final Random random) {
+		final List<BitVector> result = new ArrayList<>();
+		result.add(new BitVector(width, 0));
+		result.add(new BitVector(width, 1));
+		result.add(new BitVector(width, -1));
+		result.add(new BitVector(width, width));
+		result.add(new BitVector(width, BigInteger.ONE.shiftLeft(width - 1)));
+		while (result.size() < BitSlicedEvaluator.LANES) {
+			if (random.nextBoolean()) {
+				result.add(new BitVector(width, random.nextInt(width + 2)));
+			} else {
+				result.add(new BitVector(width, new BigInteger(width, random)));
+			}
+		}
+		return result;
+	}
+
+
+
+	@Test(timeout = 5000)
+	@UseDataProvider("operations")
+	public void testOperation(final String name, final int width) {
+		final Random random = new Random(name.hashCode() + width);
+		final BVAst x = mkBVVar(width, "x");
+		final BVAst y = mkBVVar(width, "y");
+		final Ast tree = OPERATIONS.get(name).apply(x, y);
+
+		for (int round = 0; round < 4; ++round) {
+			final List<BitVector> xs = randomValues(width, random);
+			final List<BitVector> ys = randomValues(width, random);
+			if (round % 2 == 1) {
+				// Also pair the fixed values with random ones
+				Collections.shuffle(ys, random);
+			}
+
+			final Map<Ast, long[]> slices = new HashMap<>();
+			slices.put(x, BitSlicedEvaluator.slice(width, xs));
+			slices.put(y, BitSlicedEvaluator.slice(width, ys));
+
+			final long[] bvResult = tree instanceof BVAst
+					? BitSlicedEvaluator.evaluate((BVAst) tree, slices)
+					: null;
+			final long boolResult = tree instanceof BoolAst
+					? BitSlicedEvaluator.evaluate((BoolAst) tree, slices)
+					: 0L;
+
+			for (int lane = 0; lane < BitSlicedEvaluator.LANES; ++lane) {
+				final Map<String, Ast> assignment = new HashMap<>();
+				assignment.put("x", mkBVConst(xs.get(lane)));
+				assignment.put("y", mkBVConst(ys.get(lane)));
+
+				if (tree instanceof BVAst) {
+					assertEquals("Error for " + xs.get(lane) + ", " + ys.get(lane),
+							((BVAst) tree).eval(assignment), BitSlicedEvaluator.getLane(bvResult, lane));
+				} else {
+					assertEquals("Error for " + xs.get(lane) + ", " + ys.get(lane),
+							((BoolAst) tree).eval(assignment), ((boolResult >>> lane) & 1) != 0);
+				}
+			}
+		}
+	}
+
+
+
+	@Test(timeout = 1000)
+	public void testSliceRoundTrip() {
+		final List<BitVector> values = Arrays.asList(
+				new BitVector(5, 3), new BitVector(5, -1), new BitVector(5, 16));
+		final long[] slices = BitSlicedEvaluator.slice(5, values);
+
+		for (int lane = 0; lane < values.size(); ++lane) {
+			assertEquals(values.get(lane), BitSlicedEvaluator.getLane(slices, lane));
+		}
+		assertEquals(new BitVector(5, 0), BitSlicedEvaluator.getLane(slices, values.size()));
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnboundVariable() {
+		BitSlicedEvaluator.evaluate(mkAdd(mkBVVar(8, "x"), mkBVVar(8, "y")),
+				new HashMap<Ast, long[]>());
+	}
+}
@@ -1,5 +1,7 @@
 package smt;
 
+import java.math.BigInteger;
+
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 import com.tngtech.java.junit.dataprovider.UseDataProvider;
@@ -182,5 +184,18 @@ public class BitVectorTest {
 	public void testSLe(final Integer a, final Integer b) {
 		assertEquals(a <= b, new BitVector(32, a).sle(new BitVector(32, b)));
 	}
-}
 
+
+
+	@Test(timeout = 1000)
+	public void testFromWords() {
+		final long[] words = { 0L, -1L, 5L, 1L << 35 };
+
+		assertEquals(new BitVector(64, -1), BitVector.fromWords(64, words, 1));
+		assertEquals(new BitVector(3, 5), BitVector.fromWords(3, words, 2));
+		assertEquals(new BitVector(100, BigInteger.ONE.shiftLeft(99).or(BigInteger.valueOf(5))),
+				BitVector.fromWords(100, words, 2));
+		assertEquals(new BitVector(128, BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE.shiftLeft(64))),
+				BitVector.fromWords(128, words, 0));
+	}
+}
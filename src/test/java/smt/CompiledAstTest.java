@@ -0,0 +1,286 @@
+package smt;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.DataProviders;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static smt.Builder.*;
+
+
+
+@RunWith(DataProviderRunner.class)
+public class CompiledAstTest {
+
+	private static final Map<String, BiFunction<BVAst, BVAst, BVAst>> BINARY_OPERATIONS
+			= new HashMap<>();
+
+	private static final Map<String, BiFunction<BVAst, BVAst, BoolAst>> COMPARISONS
+			= new HashMap<>();
+
+	static {
+		BINARY_OPERATIONS.put("add", Builder::mkAdd);
+		BINARY_OPERATIONS.put("sub", Builder::mkSub);
+		BINARY_OPERATIONS.put("mul", Builder::mkMul);
+		BINARY_OPERATIONS.put("sdiv", Builder::mkSDiv);
+		BINARY_OPERATIONS.put("udiv", Builder::mkUDiv);
+		BINARY_OPERATIONS.put("srem", Builder::mkSRem);
+		BINARY_OPERATIONS.put("urem", Builder::mkURem);
+		BINARY_OPERATIONS.put("smod", Builder::mkSMod);
+		BINARY_OPERATIONS.put("umod", Builder::mkUMod);
+		BINARY_OPERATIONS.put("and", Builder::mkAnd);
+		BINARY_OPERATIONS.put("or", Builder::mkOr);
+		BINARY_OPERATIONS.put("xor", Builder::mkXor);
+		BINARY_OPERATIONS.put("shl", Builder::mkShl);
+		BINARY_OPERATIONS.put("ashr", Builder::mkAshr);
+		BINARY_OPERATIONS.put("lshr", Builder::mkLshr);
+		BINARY_OPERATIONS.put("rol", Builder::mkRol);
+		BINARY_OPERATIONS.put("ror", Builder::mkRor);
+		BINARY_OPERATIONS.put("concat", Builder::mkConcat);
+
+		COMPARISONS.put("eq", Builder::mkEq);
+		COMPARISONS.put("ne", Builder::mkNe);
+		COMPARISONS.put("ugt", Builder::mkUGt);
+		COMPARISONS.put("uge", Builder::mkUGe);
+		COMPARISONS.put("ult", Builder::mkULt);
+		COMPARISONS.put("ule", Builder::mkULe);
+		COMPARISONS.put("sgt", Builder::mkSGt);
+		COMPARISONS.put("sge", Builder::mkSGe);
+		COMPARISONS.put("slt", Builder::mkSLt);
+		COMPARISONS.put("sle", Builder::mkSLe);
+	}
+
+
+
+	@DataProvider(format = "%m(%p[0])")
+	public static Object[][] widths() {
+		return new Object[][] {
+			{ 1 }, { 2 }, { 3 }, { 7 }, { 8 }, { 31 }, { 32 }, { 33 }, { 63 }, { 64 }, { 65 }, { 100 }
+		};
+	}
+
+
+
+	@DataProvider(format = "%m(%p[0], %p[1])")
+	public static Object[][] binaryOperations() {
+		final Object[][] names = BINARY_OPERATIONS.keySet().stream().sorted()
+				.map(n -> new Object[] { n }).toArray(Object[][]::new);
+		return DataProviders.crossProduct(names, widths());
+	}
+
+
+
+	@DataProvider(format = "%m(%p[0], %p[1])")
+	public static Object[][] comparisons() {
+		final Object[][] names = COMPARISONS.keySet().stream().sorted()
+				.map(n -> new Object[] { n }).toArray(Object[][]::new);
+		return DataProviders.crossProduct(names, widths());
+	}
+
+
+
+	private static List<BitVector> interestingValues(final int width, final Random random) {
+		final List<BitVector> result = new ArrayList<>();
+		result.add(new BitVector(width, 0));
+		result.add(new BitVector(width, 1));
+		result.add(new BitVector(width, 2));
+		result.add(new BitVector(width, -1));
+		result.add(new BitVector(width, width));
+		result.add(new BitVector(width, width - 1));
+		result.add(new BitVector(width, BigInteger.ONE.shiftLeft(width - 1)));
+		result.add(new BitVector(width, BigInteger.ONE.shiftLeft(width - 1).subtract(BigInteger.ONE)));
+		for (int i = 0; i < 24; ++i) {
+			result.add(new BitVector(width, new BigInteger(width, random)));
+		}
+		for (int i = 0; i < 8; ++i) {
+			result.add(new BitVector(width, random.nextInt(width + 2)));
+		}
+		return result;
+	}
+
+
+
+	private static Map<String, Ast> assignment(final List<BitVector> values) {
+		final Map<String, Ast> result = new HashMap<>();
+		for (int i = 0; i < values.size(); ++i) {
+			result.put("x" + i, mkBVConst(values.get(i)));
+		}
+		return result;
+	}
+
+
+
+	private static long[] toWords(final List<BitVector> values) {
+		final List<Long> result = new ArrayList<>();
+		for (final BitVector value : values) {
+			final BigInteger unsigned = value.toUnsignedBigInteger();
+			for (int i = 0; i < value.getWidth(); i += 64) {
+				result.add(unsigned.shiftRight(i).longValue());
+			}
+		}
+		return result.stream().mapToLong(Long::longValue).toArray();
+	}
+
+
+
+	private static void assertSameResult(final BVAst tree, final List<BVAst> variables,
+			final List<BitVector> values) {
+
+		final CompiledBVAst compiled = CompiledBVAst.compile(tree, variables);
+		final BitVector expected = tree.eval(assignment(values));
+
+		assertEquals("Error for " + tree + " on " + values, expected, compiled.eval(values));
+		if (tree.getWidth() <= 64) {
+			assertEquals("Error for " + tree + " on " + values,
+					expected.toUnsignedBigInteger().longValue(), compiled.eval(toWords(values)));
+		}
+	}
+
+
+
+	@Test(timeout = 10000)
+	@UseDataProvider("binaryOperations")
+	public void testBinaryOperation(final String name, final int width) {
+		final Random random = new Random(width);
+		final List<BVAst> variables = Arrays.asList(mkBVVar(width, "x0"), mkBVVar(width, "x1"));
+		final BVAst tree = BINARY_OPERATIONS.get(name).apply(variables.get(0), variables.get(1));
+		final CompiledBVAst compiled = CompiledBVAst.compile(tree, variables);
+
+		for (final BitVector a : interestingValues(width, random)) {
+			for (final BitVector b : interestingValues(width, random)) {
+				final List<BitVector> values = Arrays.asList(a, b);
+				final BitVector expected = tree.eval(assignment(values));
+
+				assertEquals("Error for " + a + ", " + b, expected, compiled.eval(values));
+				if (tree.getWidth() <= 64) {
+					assertEquals("Error for " + a + ", " + b,
+							expected.toUnsignedBigInteger().longValue(), compiled.eval(toWords(values)));
+				}
+			}
+		}
+	}
+
+
+
+	@Test(timeout = 10000)
+	@UseDataProvider("comparisons")
+	public void testComparison(final String name, final int width) {
+		final Random random = new Random(width);
+		final List<BVAst> variables = Arrays.asList(mkBVVar(width, "x0"), mkBVVar(width, "x1"));
+		final BoolAst tree = COMPARISONS.get(name).apply(variables.get(0), variables.get(1));
+		final CompiledBoolAst compiled = CompiledBoolAst.compile(tree, variables);
+
+		for (final BitVector a : interestingValues(width, random)) {
+			for (final BitVector b : interestingValues(width, random)) {
+				final List<BitVector> values = Arrays.asList(a, b);
+				final boolean expected = tree.eval(assignment(values));
+
+				assertEquals("Error for " + a + ", " + b, expected, compiled.eval(values));
+				assertEquals("Error for " + a + ", " + b, expected, compiled.eval(toWords(values)));
+			}
+		}
+	}
+
+
+
+	@Test(timeout = 10000)
+	@UseDataProvider("widths")
+	public void testUnaryAndStructural(final int width) {
+		final Random random = new Random(width);
+		final BVAst x = mkBVVar(width, "x0");
+		final BVAst y = mkBVVar(width, "x1");
+		final List<BVAst> variables = Arrays.asList(x, y);
+
+		final List<BVAst> trees = Arrays.asList(
+				mkNot(x),
+				mkNeg(x),
+				mkExtract(0, 0, x),
+				mkExtract(width - 1, width - 1, x),
+				mkExtract(width / 2, width - 1, x),
+				mkExtract(0, width - 1, mkConcat(x, y)),
+				mkExtract(width / 2, width + width / 2, mkConcat(x, y)),
+				mkIte(mkULt(x, y), mkAdd(x, y), mkSub(x, y)),
+				mkIte(mkAnd(mkSLe(x, y), mkNot(mkEq(x, y))), x, mkNot(y)),
+				mkIte(mkImplies(mkUGt(x, y), mkNe(mkEq(x, y), mkSGe(x, y))), x, y),
+				mkIte(mkAllDifferent(x, y, mkBVConst(width, 1)), x, y),
+				mkIte(mkOr(mkBoolConst(false), mkEq(x, mkBVConst(width, 0))), y, x));
+
+		for (final BVAst tree : trees) {
+			for (final BitVector a : interestingValues(width, random)) {
+				assertSameResult(tree, variables, Arrays.asList(a, new BitVector(width, new BigInteger(width, random))));
+			}
+		}
+	}
+
+
+
+	@Test(timeout = 1000)
+	public void testConstantFolding() {
+		final BVAst x = mkBVVar(8, "x0");
+		final BVAst constant = mkMul(mkAdd(mkBVConst(8, 3), mkBVConst(8, 4)), mkBVConst(8, 5));
+		final BVAst tree = mkIte(mkEq(constant, mkBVConst(8, 35)), mkAdd(x, constant), x);
+
+		final CompiledBVAst compiled = CompiledBVAst.compile(tree, Arrays.asList(x));
+		for (int i = 0; i < 256; ++i) {
+			assertEquals((i + 35) & 0xFF, compiled.eval(i));
+		}
+	}
+
+
+
+	@Test(timeout = 1000)
+	public void testSharedSubtrees() {
+		final BVAst x = mkBVVar(32, "x0");
+		BVAst tree = x;
+		for (int i = 0; i < 64; ++i) {
+			// Without sharing, evaluating this tree takes 2^64 steps
+			tree = mkAdd(tree, tree);
+		}
+
+		final CompiledBVAst compiled = CompiledBVAst.compile(tree, Arrays.asList(x));
+		assertEquals(0, compiled.eval(12345));
+		assertEquals(new BitVector(32, 0), compiled.eval(Arrays.asList(new BitVector(32, 7))));
+	}
+
+
+
+	@Test(timeout = 1000)
+	public void testInputLayout() {
+		final BVAst x = mkBVVar(100, "x0");
+		final BVAst y = mkBVVar(8, "x1");
+		final BVAst tree = mkExtract(60, 75, mkAdd(x, mkConcat(mkBVConst(92, 0), y)));
+
+		final CompiledBVAst compiled = CompiledBVAst.compile(tree, Arrays.asList(x, y));
+		assertEquals(2, compiled.getNumberOfInputs());
+		assertEquals(3, compiled.getInputLength());
+
+		final BitVector xValue = new BitVector(100, BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE));
+		final BitVector yValue = new BitVector(8, 1);
+		final BitVector expected = tree.eval(assignment(Arrays.asList(xValue, yValue)));
+
+		assertEquals(expected.toUnsignedBigInteger().longValue(), compiled.eval(-1L, 0L, 0x101L));
+		assertEquals(expected, compiled.eval(Arrays.asList(xValue, yValue)));
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnboundVariable() {
+		CompiledBVAst.compile(mkAdd(mkBVVar(8, "x0"), mkBVVar(8, "x1")),
+				Arrays.asList(mkBVVar(8, "x0")));
+	}
+}
@@ -0,0 +1,98 @@
+package smt;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static smt.Builder.*;
+
+
+
+public class HashConsingTest {
+
+	@Before
+	public void enableHashConsing() {
+		setHashConsing(true);
+	}
+
+
+
+	@After
+	public void disableHashConsing() {
+		setHashConsing(false);
+	}
+
+
+
+	private static BoolAst buildTree() {
+		final BVAst x = mkBVVar(8, "x");
+		final BVAst y = mkBVVar(8, "y");
+		final BVAst sum = mkAdd(mkExtract(0, 7, mkConcat(x, y)), mkNeg(y));
+		return mkAnd(
+				mkNot(mkEq(mkIte(mkULt(x, y), sum, x), mkBVConst(8, 3))),
+				mkOr(mkBoolVar("b"), mkAllDifferent(x, y, sum)));
+	}
+
+
+
+	@Test
+	public void testSharing() {
+		final BoolAst first = buildTree();
+		final BoolAst second = buildTree();
+
+		assertSame(first, second);
+		assertSame(mkBVVar(8, "x"), mkBVVar(8, "x"));
+		assertNotSame(mkBVVar(8, "x"), mkBVVar(16, "x"));
+		assertNotSame(mkAdd(mkBVVar(8, "x"), mkBVVar(8, "y")), mkAdd(mkBVVar(8, "y"), mkBVVar(8, "x")));
+	}
+
+
+
+	@Test
+	public void testDisabled() {
+		setHashConsing(false);
+		final BoolAst first = buildTree();
+		final BoolAst second = buildTree();
+
+		assertNotSame(first, second);
+		assertEquals(first, second);
+		assertEquals(first.hashCode(), second.hashCode());
+	}
+
+
+
+	@Test
+	public void testMixedWithUnsharedTrees() {
+		setHashConsing(false);
+		final BoolAst unshared = buildTree();
+		setHashConsing(true);
+		final BoolAst shared = buildTree();
+
+		assertEquals(unshared, shared);
+		assertEquals(shared, unshared);
+		assertEquals(unshared.hashCode(), shared.hashCode());
+	}
+
+
+
+	@Test
+	public void testVarReplacer() {
+		final Map<Ast, Ast> replacements = new HashMap<>();
+		replacements.put(mkBVVar(8, "z"), mkBVVar(8, "x"));
+
+		final BVAst replaced = (BVAst) mkMul(mkBVVar(8, "z"), mkBVVar(8, "y"))
+				.accept(new VarReplacer(replacements));
+		assertSame(mkMul(mkBVVar(8, "x"), mkBVVar(8, "y")), replaced);
+
+		setHashConsing(false);
+		final Ast unshared = buildTree();
+		setHashConsing(true);
+		assertSame(buildTree(), unshared.accept(new VarReplacer(Collections.emptyMap())));
+	}
+}
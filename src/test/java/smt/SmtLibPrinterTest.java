@@ -0,0 +1,156 @@
+package smt;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static smt.Builder.*;
+
+import sat.BitBlastingSolver;
+
+
+
+public class SmtLibPrinterTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+
+
+	// A chain of squarings, whose tree grows exponentially with the length
+	private static BVAst buildChain(final int length) {
+		BVAst result = mkBVVar(8, "x");
+		for (int i = 0; i < length; ++i) {
+			result = mkMul(mkAdd(result, mkBVConst(8, 1)), mkAdd(result, mkBVConst(8, 1)));
+		}
+		return result;
+	}
+
+
+
+	@Test
+	public void testTree() {
+		final BoolAst tree = mkAnd(mkULt(mkBVVar(8, "x"), mkBVConst(8, 3)),
+				mkNot(mkEq(mkExtract(0, 3, mkBVVar(8, "y")), mkBVConst(4, 5))));
+		assertEquals(tree.toString(), SmtLibPrinter.toTerm(tree));
+	}
+
+
+
+	@Test
+	public void testOperatorsWithoutSmtLibFunction() {
+		final BVAst x = mkBVVar(8, "x");
+		final BVAst n = mkBVVar(8, "n");
+
+		assertEquals("(bvurem x n)", SmtLibPrinter.toTerm(mkUMod(x, n)));
+		assertEquals("((_ rotate_left 3) x)", SmtLibPrinter.toTerm(mkRol(x, mkBVConst(8, 3))));
+		assertEquals("((_ rotate_right 8) x)", SmtLibPrinter.toTerm(mkRor(x, mkBVConst(8, 8))));
+		assertEquals("(bvor (bvshl x n) (bvlshr x (bvsub #x08 n)))",
+				SmtLibPrinter.toTerm(mkRol(x, n)));
+		assertEquals("(bvor (bvlshr x n) (bvshl x (bvsub #x08 n)))",
+				SmtLibPrinter.toTerm(mkRor(x, n)));
+		// Rotating by more than the width does not wrap around
+		assertEquals("(bvor (bvshl x #x09) (bvlshr x (bvsub #x08 #x09)))",
+				SmtLibPrinter.toTerm(mkRol(x, mkBVConst(8, 9))));
+	}
+
+
+
+	@Test
+	public void testLet() {
+		final BoolAst tree = mkEq(buildChain(2), mkBVConst(8, 0));
+		assertEquals("(let ((_s0 (bvadd x #x01))) "
+				+ "(let ((_s1 (bvadd (bvmul _s0 _s0) #x01))) "
+				+ "(= (bvmul _s1 _s1) #x00)))",
+				SmtLibPrinter.toTerm(tree));
+	}
+
+
+
+	@Test
+	public void testScript() {
+		final BVAst chain = buildChain(1);
+		final List<BoolAst> assertions = Arrays.asList(
+				mkULt(chain, mkBVVar(8, "y")),
+				mkOr(mkBoolVar("let"), mkEq(chain, mkBVVar(8, "|y"))));
+		try {
+			SmtLibPrinter.toScript(assertions);
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+
+		final List<BoolAst> valid = Arrays.asList(
+				mkULt(chain, mkBVVar(8, "y")),
+				mkOr(mkBoolVar("let"), mkEq(chain, mkBVVar(8, "_s0"))));
+		assertEquals(String.join("\n",
+				"(declare-fun x () (_ BitVec 8))",
+				"(declare-fun y () (_ BitVec 8))",
+				"(declare-fun |let| () Bool)",
+				"(declare-fun _s0 () (_ BitVec 8))",
+				"(define-fun __s0 () (_ BitVec 8) (bvadd x #x01))",
+				"(define-fun __s1 () (_ BitVec 8) (bvmul __s0 __s0))",
+				"(assert (bvult __s1 y))",
+				"(assert (or |let| (= __s1 _s0)))",
+				""),
+				SmtLibPrinter.toScript(valid));
+	}
+
+
+
+	@Test
+	public void testStatistics() {
+		final FormulaStatistics statistics = FormulaStatistics.of(Arrays.asList(
+				mkEq(buildChain(70), mkBVConst(8, 0)),
+				mkULt(mkBVVar(8, "x"), mkBVVar(8, "y"))));
+
+		// x, #x01, 70 additions and multiplications, #x00, =, y and bvult
+		assertEquals(146, statistics.getNumberOfNodes());
+		assertEquals(70, statistics.getNumberOfSharedNodes());
+		assertEquals(142, statistics.getMaximalDepth());
+		assertEquals(2, statistics.getNumberOfVariables());
+		assertEquals(Long.MAX_VALUE, statistics.getTreeSize());
+
+		final FormulaStatistics small = FormulaStatistics.of(Collections.singletonList(
+				mkEq(buildChain(1), mkBVConst(8, 0))));
+		assertEquals(9, small.getTreeSize());
+	}
+
+
+
+	@Test
+	public void testDump() throws IOException {
+		final Path directory = this.folder.getRoot().toPath().resolve("queries");
+		try (final QueryDump dump = new QueryDump(directory)) {
+			final Solver solver = dump.dump(BitBlastingSolver::new);
+			solver.add(mkEq(buildChain(3), mkBVConst(8, 1)));
+			solver.push();
+			solver.add(mkULt(mkBVVar(8, "x"), mkBVConst(8, 3)));
+			assertEquals(SatResult.UNSAT, solver.checkSat());
+			solver.pop();
+			solver.checkSatAssuming(Collections.singletonList(mkEq(mkBVVar(8, "x"), mkBVConst(8, 7))));
+		}
+
+		final List<String> report = Files.readAllLines(directory.resolve(QueryDump.REPORT_FILE));
+		assertEquals(3, report.size());
+		assertTrue(report.get(1).startsWith("solver0-query0.smt2,UNSAT,"));
+		// The constant 1 of the equality is shared with the chain
+		assertTrue(report.get(1).endsWith(",2,11,3,8,1,48"));
+
+		final String query = new String(Files.readAllBytes(directory.resolve("solver0-query1.smt2")),
+				StandardCharsets.UTF_8);
+		assertTrue(query.contains("(assert (= x #x07))"));
+		assertFalse(query.contains("(bvult x #x03)"));
+		assertTrue(query.endsWith("(check-sat)\n"));
+	}
+}
@@ -0,0 +1,196 @@
+package smt;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static smt.Builder.*;
+
+import sat.BitBlastingSolver;
+import synth.Library;
+import synth.ListBasedSynthesizer;
+import synth.Program;
+import synth.SolverType;
+import synth.SynthesizerSettings;
+import synth.TestCase;
+import synth.TestData;
+
+
+
+public class SolverRecordingTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+
+	private static SatResult solve(final Solver solver) {
+		final BVAst x = mkBVVar(8, "x");
+		final BVAst y = mkBVVar(8, "y");
+		solver.add(mkEq(mkAdd(x, y), mkBVConst(8, 10)));
+		solver.push();
+		solver.add(mkULt(x, mkBVConst(8, 3)));
+		assertEquals(SatResult.SAT, solver.checkSat());
+		final List<BitVector> values = solver.getBVAssignments(Arrays.asList(x, y));
+		assertEquals(new BitVector(8, 10), values.get(0).add(values.get(1)));
+		solver.pop();
+		return solver.checkSatAssuming(Collections.singletonList(mkEq(x, y)));
+	}
+
+
+
+	@Test
+	public void testRecordAndReplay() {
+		final SolverLog log = new SolverLog();
+		final SatResult result = solve(new RecordingSolver(new BitBlastingSolver(), log));
+		assertEquals(7, log.size());
+		assertEquals(SolverLog.Kind.ADD, log.getEvents().get(0).getKind());
+		assertEquals(SolverLog.Kind.CHECK_SAT_ASSUMING, log.getEvents().get(6).getKind());
+
+		final ReplayingSolver replaying = new ReplayingSolver(log, true);
+		assertFalse(replaying.isFinished());
+		assertEquals(result, solve(replaying));
+		assertTrue(replaying.isFinished());
+	}
+
+
+
+	@Test
+	public void testDivergence() {
+		final SolverLog log = new SolverLog();
+		final Solver recording = new RecordingSolver(new BitBlastingSolver(), log);
+		recording.add(mkBoolVar("a"));
+		recording.checkSat();
+
+		final Solver wrongArguments = new ReplayingSolver(log, true);
+		try {
+			wrongArguments.add(mkBoolVar("b"));
+			fail();
+		} catch (final IllegalStateException e) {
+			// expected
+		}
+
+		// Without checking the arguments, only the order of the calls matters
+		final Solver unchecked = new ReplayingSolver(log, false);
+		unchecked.add(mkBoolVar("b"));
+		try {
+			unchecked.push();
+			fail();
+		} catch (final IllegalStateException e) {
+			// expected
+		}
+		unchecked.checkSat();
+		try {
+			unchecked.checkSat();
+			fail();
+		} catch (final IllegalStateException e) {
+			// expected
+		}
+	}
+
+
+
+	// Uses all kinds of calls and some shared subtrees
+	private static void solveWithCore(final Solver solver) {
+		final BVAst x = mkBVVar(16, "x");
+		final BVAst sum = mkAdd(x, mkBVVar(16, "y y"));
+		final BoolAst a = mkBoolVar("a");
+		solver.add(mkImplies(a, mkEq(mkMul(sum, sum), mkBVConst(16, 4))));
+		solver.add(mkNot(mkEq(mkExtract(0, 3, sum), mkExtract(4, 7, mkIte(a, mkNeg(x), mkNot(x))))));
+		solver.add(mkAllDifferent(x, sum, mkConcat(mkExtract(0, 7, x), mkBVConst(8, 1))));
+		solver.checkSatAssuming(Collections.singletonList(a));
+		solver.getBVAssignment(x);
+		solver.getBoolAssignment(a);
+		assertEquals(SatResult.UNSAT, solver.checkSatAssuming(Arrays.asList(a, mkNot(a))));
+		assertFalse(solver.getUnsatCore().isEmpty());
+	}
+
+
+
+	@Test
+	public void testWriteAndRead() throws IOException {
+		final SolverRecording recording = new SolverRecording();
+		final SatResult result = solve(recording.record(BitBlastingSolver::new));
+		solveWithCore(recording.record(BitBlastingSolver::new));
+
+		final Path file = this.folder.getRoot().toPath().resolve("recording.smt2");
+		recording.write(file);
+		final String script = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		assertTrue(script.contains("(declare-fun x () (_ BitVec 8))"));
+		assertTrue(script.contains("(check-sat-assuming ((= x y)))"));
+		assertTrue(script.contains("(reset)"));
+
+		final SolverRecording read = SolverRecording.read(file);
+		assertEquals(2, read.getLogs().size());
+		for (int i = 0; i < 2; ++i) {
+			final List<SolverLog.Event> expected = recording.getLogs().get(i).getEvents();
+			final List<SolverLog.Event> actual = read.getLogs().get(i).getEvents();
+			assertEquals(expected.size(), actual.size());
+			for (int j = 0; j < expected.size(); ++j) {
+				assertEquals(expected.get(j).getKind(), actual.get(j).getKind());
+				assertEquals(expected.get(j).getArguments(), actual.get(j).getArguments());
+				assertEquals(expected.get(j).getResult(), actual.get(j).getResult());
+				assertEquals(expected.get(j).getNanos(), actual.get(j).getNanos());
+			}
+		}
+
+		final Function<Supplier<Solver>, Solver> replay = read.replay(true);
+		assertEquals(result, solve(replay.apply(BitBlastingSolver::new)));
+		solveWithCore(replay.apply(BitBlastingSolver::new));
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReadInvalid() throws IOException {
+		final Path file = this.folder.getRoot().toPath().resolve("invalid.smt2");
+		Files.write(file, Arrays.asList(SolverLogFormat.HEADER, ";@solver", ";@node 0 bvvar 8 x",
+				";@node 1 not 0"));
+		SolverRecording.read(file);
+	}
+
+
+
+	@Test(timeout = 90000)
+	public void testReplaySynthesis() throws TimeoutException {
+		final TestCase testCase = TestData.getFastSatTestCases().get(1);
+		final Library library = Library.of(testCase.getLibrary());
+
+		final SynthesizerSettings settings = SynthesizerSettings.getDefault();
+		settings.setGenerateSolverType(SolverType.JAVA);
+		settings.setVerifySolverType(SolverType.JAVA);
+
+		final SolverRecording recording = new SolverRecording();
+		settings.setSolverInterceptor(recording::record);
+		final Optional<Program> expected = new ListBasedSynthesizer().synthesizeProgram(
+				testCase.getSpecification(), library, settings);
+		assertTrue(expected.isPresent());
+		assertFalse(recording.getLogs().isEmpty());
+
+		final SynthesizerSettings replaySettings = settings.copy();
+		replaySettings.setSolverInterceptor(recording.replay(true));
+		final Optional<Program> replayed = new ListBasedSynthesizer().synthesizeProgram(
+				testCase.getSpecification(), library, replaySettings);
+		assertEquals(expected.get().toString(), replayed.get().toString());
+	}
+
+
+
+	@Test(expected = IllegalStateException.class)
+	public void testTooManySolvers() {
+		new SolverRecording().replay(false).apply(BitBlastingSolver::new);
+	}
+}
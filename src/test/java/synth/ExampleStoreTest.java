@@ -0,0 +1,75 @@
+package synth;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import smt.BitVector;
+
+
+
+public class ExampleStoreTest {
+
+	private static ExampleStore makeStore() {
+		// Output is the input divided by 4
+		return new ExampleStore(new Specification(
+				Collections.singletonList(8), 8, FunctionParser.parse("x -> (udiv x 4:8)")));
+	}
+
+
+
+	@Test(timeout = 1000)
+	public void testOutputs() {
+		final ExampleStore store = makeStore();
+
+		assertEquals(new BitVector(8, 2), store.add(Arrays.asList(new BitVector(8, 9))));
+		store.add(Arrays.asList(new BitVector(8, 20)), new BitVector(8, 5));
+
+		assertEquals(2, store.size());
+		assertEquals(new BitVector(8, 2), store.getOutput(0));
+		assertEquals(new BitVector(8, 5), store.getOutput(1));
+		assertEquals(Arrays.asList(new BitVector(8, 20)), store.getExample(1));
+	}
+
+
+
+	@Test(timeout = 1000)
+	public void testAllSameOutput() {
+		final ExampleStore store = makeStore();
+		assertFalse(store.getAllSameOutput().isPresent());
+
+		store.add(Arrays.asList(new BitVector(8, 0)));
+		store.add(Arrays.asList(new BitVector(8, 1)));
+		store.add(Arrays.asList(new BitVector(8, 3)));
+		assertEquals(Optional.of(new BitVector(8, 0)), store.getAllSameOutput());
+
+		store.add(Arrays.asList(new BitVector(8, 4)));
+		store.add(Arrays.asList(new BitVector(8, 2)));
+		assertFalse(store.getAllSameOutput().isPresent());
+	}
+
+
+
+	@Test(timeout = 1000)
+	public void testLastSameOutput() {
+		final ExampleStore store = makeStore();
+
+		store.add(Arrays.asList(new BitVector(8, 0)));
+		store.add(Arrays.asList(new BitVector(8, 4)));
+		store.add(Arrays.asList(new BitVector(8, 5)));
+		assertEquals(Optional.of(new BitVector(8, 1)), store.getLastSameOutput(2));
+		assertFalse(store.getLastSameOutput(3).isPresent());
+
+		store.add(Arrays.asList(new BitVector(8, 7)));
+		assertEquals(Optional.of(new BitVector(8, 1)), store.getLastSameOutput(3));
+
+		store.add(Arrays.asList(new BitVector(8, 8)));
+		assertFalse(store.getLastSameOutput(2).isPresent());
+		assertEquals(Optional.of(new BitVector(8, 2)), store.getLastSameOutput(1));
+	}
+}
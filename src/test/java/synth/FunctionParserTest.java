@@ -0,0 +1,132 @@
+package synth;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import static smt.Builder.*;
+
+import smt.Ast;
+import smt.BitVector;
+import smt.BoolAst;
+import smt.BVAst;
+import smt.BVBinary;
+import smt.BVIte;
+import smt.VarReplacer;
+
+
+
+public class FunctionParserTest {
+
+	private static final List<BVAst> INPUTS = Arrays.asList(mkBVVar(8, "a"), mkBVVar(8, "b"));
+
+
+
+	// (let ((t1 (add t0 t0))) (let ((t2 (add t1 t1))) ... tn))
+	private static String doublings(final int n) {
+		final StringBuilder result = new StringBuilder("x -> ");
+		for (int i = 1; i <= n; ++i) {
+			result.append("(let ((t").append(i).append(" (add ")
+					.append(i == 1 ? "x" : "t" + (i - 1)).append(' ')
+					.append(i == 1 ? "x" : "t" + (i - 1)).append("))) ");
+		}
+		result.append('t').append(n);
+		for (int i = 1; i <= n; ++i) {
+			result.append(')');
+		}
+		return result.toString();
+	}
+
+
+
+	@Test
+	public void testLet() {
+		final BVAst result = FunctionParser.parse(
+				"x y -> (let ((s (add x y)) (d (sub x y))) (ite (ult s d) (mul s s) d))").apply(INPUTS);
+
+		assertEquals(mkIte(
+				mkULt(mkAdd(INPUTS.get(0), INPUTS.get(1)), mkSub(INPUTS.get(0), INPUTS.get(1))),
+				mkMul(mkAdd(INPUTS.get(0), INPUTS.get(1)), mkAdd(INPUTS.get(0), INPUTS.get(1))),
+				mkSub(INPUTS.get(0), INPUTS.get(1))), result);
+		final BVAst sum = ((BVBinary) ((BVIte) result).getThenExpr()).getLeft();
+		assertSame(sum, ((BVBinary) ((BVIte) result).getThenExpr()).getRight());
+	}
+
+
+
+	@Test
+	public void testLetScoping() {
+		// Bindings are parallel and shadow inputs
+		final BVAst result = FunctionParser.parse(
+				"x y -> (let ((x y) (y x)) (let ((x (sub x y))) (concat x y)))").apply(INPUTS);
+
+		assertEquals(mkConcat(mkSub(INPUTS.get(1), INPUTS.get(0)), INPUTS.get(0)), result);
+	}
+
+
+
+	@Test
+	public void testLetInBoolExpression() {
+		final BoolAst result = FunctionParser.parseBool(
+				"x y -> (let ((m (and x y))) (or (eq m x) (eq m y)))").apply(INPUTS);
+
+		assertEquals(mkOr(
+				mkEq(mkAnd(INPUTS.get(0), INPUTS.get(1)), INPUTS.get(0)),
+				mkEq(mkAnd(INPUTS.get(0), INPUTS.get(1)), INPUTS.get(1))), result);
+	}
+
+
+
+	@Test(timeout = 5000)
+	public void testSharing() {
+		final BVAst result = FunctionParser.parse(doublings(64)).apply(INPUTS.subList(0, 1));
+
+		final BVBinary root = (BVBinary) result;
+		assertSame(root.getLeft(), root.getRight());
+
+		// Would take 2^64 steps on the unfolded tree
+		final Specification specification = new Specification(
+				Collections.singletonList(8), 8, FunctionParser.parse(doublings(64)));
+		assertEquals(new BitVector(8, 0), specification.evaluate(
+				Collections.singletonList(new BitVector(8, 0xFF))));
+
+		final Map<Ast, Ast> replacements = new HashMap<>();
+		replacements.put(INPUTS.get(0), INPUTS.get(1));
+		final BVBinary replaced = (BVBinary) result.accept(new VarReplacer(replacements));
+		assertSame(replaced.getLeft(), replaced.getRight());
+	}
+
+
+
+	@Test
+	public void testDefinitions() {
+		final Map<String, Function<List<BVAst>, BVAst>> definitions = new HashMap<>();
+		definitions.put("avg", FunctionParser.parse("x y -> (add (and x y) (lshr (xor x y) 1:8))"));
+
+		final BVAst result = FunctionParser.parse("x y -> (avg (not x) y)", definitions).apply(INPUTS);
+		final BVAst notA = mkNot(INPUTS.get(0));
+		assertEquals(mkAdd(mkAnd(notA, INPUTS.get(1)),
+				mkLshr(mkXor(notA, INPUTS.get(1)), mkBVConst(8, 1))), result);
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnboundName() {
+		FunctionParser.parse("x -> (let ((t x)) (add t u))").apply(INPUTS.subList(0, 1));
+	}
+
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMalformedLet() {
+		FunctionParser.parse("x -> (let (t x) t)").apply(INPUTS.subList(0, 1));
+	}
+}
@@ -0,0 +1,161 @@
+package synth;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import static smt.Builder.*;
+
+import smt.BitVector;
+import smt.BoolAst;
+import smt.BVAst;
+import smt.SatResult;
+import smt.Solver;
+
+
+
+public class GuardedSolverTest {
+
+	private static final class RecordingSolver implements Solver {
+
+		final List<BoolAst> constraints = new ArrayList<>();
+		List<BoolAst> lastAssumptions = Collections.emptyList();
+		List<BoolAst> unsatCore = Collections.emptyList();
+
+
+		@Override
+		public void add(final BoolAst constraint) {
+			this.constraints.add(constraint);
+		}
+
+
+		@Override
+		public SatResult checkSat() {
+			return checkSatAssuming(Collections.emptyList());
+		}
+
+
+		@Override
+		public SatResult checkSatAssuming(final List<BoolAst> assumptions) {
+			this.lastAssumptions = assumptions;
+			return SatResult.UNSAT;
+		}
+
+
+		@Override
+		public List<BoolAst> getUnsatCore() {
+			return this.unsatCore;
+		}
+
+
+		@Override
+		public BitVector getBVAssignment(final BVAst tree) {
+			throw new IllegalStateException();
+		}
+
+
+		@Override
+		public boolean getBoolAssignment(final BoolAst tree) {
+			throw new IllegalStateException();
+		}
+
+
+		@Override
+		public void push() { }
+
+
+		@Override
+		public void pop() { }
+
+
+		@Override
+		public void interrupt() { }
+	}
+
+
+
+	private static final BoolAst A = mkEq(mkBVVar(8, "a"), mkBVConst(8, 1));
+	private static final BoolAst B = mkEq(mkBVVar(8, "b"), mkBVConst(8, 2));
+	private static final BoolAst C = mkEq(mkBVVar(8, "c"), mkBVConst(8, 3));
+
+
+
+	@Test(timeout = 1000)
+	public void testGuards() {
+		final List<RecordingSolver> solvers = new ArrayList<>();
+		final GuardedSolver solver = new GuardedSolver(() -> {
+			solvers.add(new RecordingSolver());
+			return solvers.get(solvers.size() - 1);
+		});
+
+		solver.add(A);
+		solver.beginGroup(0);
+		solver.add(B);
+		solver.endGroup();
+		solver.beginGroup(1);
+		solver.add(C);
+		solver.endGroup();
+
+		assertEquals(1, solvers.size());
+		assertEquals(Arrays.asList(A, mkImplies(mkBoolVar("ex_0"), B), mkImplies(mkBoolVar("ex_1"), C)),
+				solvers.get(0).constraints);
+
+		solver.checkSatAssuming(Collections.singletonList(A));
+		assertEquals(Arrays.asList(mkBoolVar("ex_0"), mkBoolVar("ex_1"), A), solvers.get(0).lastAssumptions);
+		assertEquals(2, solver.getNumberOfGroups());
+	}
+
+
+
+	@Test(timeout = 1000)
+	public void testRebuild() {
+		final List<RecordingSolver> solvers = new ArrayList<>();
+		final List<Solver> released = new ArrayList<>();
+		final GuardedSolver solver = new GuardedSolver(() -> {
+			solvers.add(new RecordingSolver());
+			return solvers.get(solvers.size() - 1);
+		}, released::add);
+
+		solver.add(A);
+		for (int i = 0; i < 3; ++i) {
+			solver.beginGroup(i);
+			solver.add(mkEq(mkBVVar(8, "x"), mkBVConst(8, i)));
+			solver.endGroup();
+		}
+
+		solver.checkSat();
+		solvers.get(0).unsatCore = Arrays.asList(solvers.get(0).lastAssumptions.get(2));
+		assertEquals(Collections.singleton(2), solver.getCoreGroups());
+
+		solver.rebuild(Arrays.asList(0, 2));
+		assertEquals(2, solvers.size());
+		assertEquals(Collections.singletonList(solvers.get(0)), released);
+		assertEquals(2, solver.getNumberOfGroups());
+		assertEquals(new HashSet<>(Arrays.asList(0, 2)), solver.getGroups());
+		assertEquals(Arrays.asList(
+				A,
+				mkImplies(mkBoolVar("ex_0"), mkEq(mkBVVar(8, "x"), mkBVConst(8, 0))),
+				mkImplies(mkBoolVar("ex_2"), mkEq(mkBVVar(8, "x"), mkBVConst(8, 2)))),
+				solvers.get(1).constraints);
+
+		solver.checkSat();
+		assertEquals(Arrays.asList(mkBoolVar("ex_0"), mkBoolVar("ex_2")), solvers.get(1).lastAssumptions);
+		assertEquals(4, solvers.get(0).constraints.size());
+	}
+
+
+
+	@Test(expected = IllegalStateException.class)
+	public void testDuplicateGroup() {
+		final GuardedSolver solver = new GuardedSolver(RecordingSolver::new);
+		solver.beginGroup(0);
+		solver.endGroup();
+		solver.beginGroup(0);
+	}
+}
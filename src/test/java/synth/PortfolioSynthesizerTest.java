@@ -0,0 +1,205 @@
+package synth;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import smt.BitVector;
+import smt.BoolAst;
+import smt.BVAst;
+import smt.SatResult;
+import smt.Solver;
+
+
+
+public class PortfolioSynthesizerTest {
+
+	private static final int SIZE = 3;
+
+
+
+	// Checks never finish until the underlying solver is interrupted
+	private static final class BlockingSolver implements Solver {
+
+		private final Solver solver;
+
+
+		BlockingSolver(final Solver solver) {
+			this.solver = solver;
+		}
+
+
+		@Override
+		public void add(final BoolAst constraint) {
+			this.solver.add(constraint);
+		}
+
+
+		@Override
+		public SatResult checkSat() {
+			return checkSatAssuming(Collections.emptyList());
+		}
+
+
+		@Override
+		public SatResult checkSatAssuming(final List<BoolAst> assumptions) {
+			while (this.solver.checkSatAssuming(assumptions) != SatResult.UNKNOWN) {
+				try {
+					Thread.sleep(1);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return SatResult.UNKNOWN;
+				}
+			}
+			return SatResult.UNKNOWN;
+		}
+
+
+		@Override
+		public List<BoolAst> getUnsatCore() {
+			return this.solver.getUnsatCore();
+		}
+
+
+		@Override
+		public BitVector getBVAssignment(final BVAst tree) {
+			return this.solver.getBVAssignment(tree);
+		}
+
+
+		@Override
+		public boolean getBoolAssignment(final BoolAst tree) {
+			return this.solver.getBoolAssignment(tree);
+		}
+
+
+		@Override
+		public void push() {
+			this.solver.push();
+		}
+
+
+		@Override
+		public void pop() {
+			this.solver.pop();
+		}
+
+
+		@Override
+		public void interrupt() {
+			this.solver.interrupt();
+		}
+	}
+
+
+
+	private static SynthesizerSettings blockingSettings() {
+		final SynthesizerSettings settings = SynthesizerSettings.getDefault();
+		settings.setGenerateSolverType(SolverType.JAVA);
+		settings.setVerifySolverType(SolverType.JAVA);
+		settings.setSolverInterceptor(factory -> new BlockingSolver(factory.get()));
+		return settings;
+	}
+
+
+
+	private static TestCase getTestCase() {
+		return TestData.getFastSatTestCases().stream()
+				.filter(testCase -> testCase.getName().equals("Absolute"))
+				.findFirst()
+				.get();
+	}
+
+
+
+	// All members except the first one record their settings and block
+	private static PortfolioSynthesizer makePortfolio(
+			final List<SynthesizerSettings> memberSettings, final boolean firstMemberFinishes) {
+
+		final AtomicInteger memberNumber = new AtomicInteger();
+		return new PortfolioSynthesizer(SIZE, () -> {
+			if (firstMemberFinishes && memberNumber.getAndIncrement() == 0) {
+				return (spec, library, examples, settings) -> Optional.empty();
+			}
+			return (spec, library, examples, settings) -> {
+				memberSettings.add(settings);
+				return new ListBasedSynthesizer().synthesizeProgramWith(spec, library, examples,
+						settings);
+			};
+		});
+	}
+
+
+
+	private static void assertStopped(final List<SynthesizerSettings> memberSettings,
+			final int expectedSize) {
+
+		assertEquals(expectedSize, memberSettings.size());
+		for (final SynthesizerSettings memberSetting : memberSettings) {
+			assertTrue(memberSetting.isCancelled());
+			assertTrue(memberSetting.getActiveSolvers().isEmpty());
+		}
+	}
+
+
+
+	@Test(timeout = 10000)
+	public void testFirstResultWins() throws TimeoutException {
+		final TestCase testCase = getTestCase();
+		final List<SynthesizerSettings> memberSettings = new CopyOnWriteArrayList<>();
+
+		final Optional<Program> result = makePortfolio(memberSettings, true).synthesizeProgram(
+				testCase.getSpecification(), Library.of(testCase.getLibrary()), blockingSettings());
+
+		assertFalse(result.isPresent());
+		assertStopped(memberSettings, SIZE - 1);
+	}
+
+
+
+	@Test(timeout = 10000)
+	public void testCancel() throws Exception {
+		final TestCase testCase = getTestCase();
+		final List<SynthesizerSettings> memberSettings = new CopyOnWriteArrayList<>();
+		final SynthesizerSettings settings = blockingSettings();
+
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Future<Optional<Program>> future = executor.submit(() -> makePortfolio(
+					memberSettings, false).synthesizeProgram(testCase.getSpecification(),
+							Library.of(testCase.getLibrary()), settings));
+
+			// Wait until all members are blocked in their solvers
+			while (memberSettings.size() < SIZE
+					|| memberSettings.stream().anyMatch(s -> s.getActiveSolvers().isEmpty())) {
+				Thread.sleep(1);
+			}
+			settings.cancel();
+
+			try {
+				future.get(5, TimeUnit.SECONDS);
+				fail();
+			} catch (final ExecutionException e) {
+				assertTrue(e.getCause() instanceof TimeoutException);
+			}
+			assertStopped(memberSettings, SIZE);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package synth;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import smt.QueryDump;
+
+
+
+public class SynthesizerShellTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private static final String SCRIPT = String.join("\n",
+			"solver java",
+			"bitwidth 8",
+			"lib add, shl, const 8 1",
+			"spec 1 x -> (mul x 4:8)",
+			"synth",
+			"spec 1 x -> (add x x)",
+			"synth",
+			"unknown",
+			"spec 1 x -> (add x 3:8)",
+			"synth");
+
+
+
+	private static String runScript(final String script, final int numberOfJobs) {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		SynthesizerShell.runScript(new Scanner(script), numberOfJobs, new PrintStream(output, true));
+		return output.toString();
+	}
+
+
+
+	@Test(timeout = 60000)
+	public void testScriptOutputOrder() {
+		final String sequential = runScript(SCRIPT, 1);
+		final String[] blocks = sequential.split("\n\n");
+
+		assertTrue(blocks[0].startsWith("sat\n# 1 inputs\n# 3 statements"));
+		assertTrue(blocks[1].startsWith("sat\n# 1 inputs\n# 1 statements"));
+		assertEquals("Invalid command unknown\nunsat\n", blocks[2]);
+
+		assertEquals(sequential, runScript(SCRIPT, 3));
+	}
+
+
+
+	@Test(timeout = 60000)
+	public void testQuitWaitsForJobs() {
+		final String output = runScript(String.join("\n",
+				"solver java",
+				"bitwidth 8",
+				"lib add",
+				"spec 1 x -> (add x x)",
+				"synth",
+				"quit",
+				"synth"), 2);
+
+		assertEquals("sat\n# 1 inputs\n# 1 statements\nv1 := add(v0, v0)\n\n", output);
+	}
+
+
+
+	@Test(timeout = 60000)
+	public void testRecordAndReplay() throws IOException {
+		final Path file = this.folder.getRoot().toPath().resolve("run.smt2");
+		final String setup = String.join("\n",
+				"solver java",
+				"bitwidth 8",
+				"lib add, shl, const 8 1",
+				"spec 1 x -> (mul x 4:8)");
+
+		final String recorded = runScript(String.join("\n", setup, "record " + file, "synth"), 1);
+		assertTrue(recorded.startsWith("sat\n"));
+		assertTrue(Files.exists(file));
+
+		assertEquals(recorded, runScript(String.join("\n", setup, "replay " + file, "synth"), 1));
+
+		// The replay does not match a different problem
+		final String diverged = runScript(String.join("\n",
+				"solver java",
+				"bitwidth 8",
+				"lib add",
+				"spec 1 x -> (add x x)",
+				"replay " + file,
+				"synth"), 1);
+		assertTrue(diverged.startsWith("Replay diverged"));
+	}
+
+
+
+	@Test(timeout = 60000)
+	public void testDumpReplayedQueries() throws IOException {
+		final Path file = this.folder.getRoot().toPath().resolve("run.smt2");
+		final Path directory = this.folder.getRoot().toPath().resolve("queries");
+		final String setup = String.join("\n",
+				"solver java",
+				"bitwidth 8",
+				"lib add, shl, const 8 1",
+				"spec 1 x -> (mul x 4:8)");
+
+		final String recorded = runScript(String.join("\n", setup, "record " + file, "synth"), 1);
+		assertEquals(recorded + recorded, runScript(String.join("\n",
+				setup, "replay " + file, "dump " + directory, "synth", "synth"), 2));
+
+		// Each run writes into its own subdirectory
+		for (final String run : Arrays.asList("run1", "run2")) {
+			final List<String> report = Files.readAllLines(
+					directory.resolve(run).resolve(QueryDump.REPORT_FILE));
+			assertTrue(report.size() > 1);
+			assertTrue(Files.exists(directory.resolve(run).resolve("solver0-query0.smt2")));
+		}
+	}
+}
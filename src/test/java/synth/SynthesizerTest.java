@@ -1,11 +1,14 @@
 package synth;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviders;
@@ -14,15 +17,23 @@ import com.tngtech.java.junit.dataprovider.UseDataProvider;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import sat.BitBlastingSolver;
 import smt.BitVector;
 import smt.Builder;
 import smt.BVAst;
 import smt.BVConst;
+import smt.SatResult;
+import smt.Solver;
+import smt.SolverLog;
+import smt.SolverRecording;
+import util.Pair;
 
 
 
@@ -42,6 +53,15 @@ public class SynthesizerTest {
 
 
 
+	private static SynthesizerSettings javaSolverSettings() {
+		final SynthesizerSettings settings = SynthesizerSettings.getDefault();
+		settings.setGenerateSolverType(SolverType.JAVA);
+		settings.setVerifySolverType(SolverType.JAVA);
+		return settings;
+	}
+
+
+
 	private static Object[][] fromTestCases(final List<TestCase> testCases) {
 		final Object[][] result = new Object[testCases.size()][3];
 		for (int i = 0; i < testCases.size(); ++i) {
@@ -79,7 +99,214 @@ public class SynthesizerTest {
 			final String problemName, final Specification specification,
 			final Library library) throws TimeoutException {
 
-		final Optional<Program> result = synthesizer.synthesizeProgram(specification, library);
+		assertSolves(algorithmName, problemName, specification,
+				synthesizer.synthesizeProgram(specification, library));
+	}
+
+
+
+
+	// The pure-Java solver backend is considerably slower than Yices
+	@Test(timeout = 90000)
+	@UseDataProvider("fastSat")
+	public void testFastSatTestCasesWithJavaSolver(final String algorithmName,
+			final Synthesizer synthesizer, final String problemName,
+			final Specification specification, final Library library) throws TimeoutException {
+
+		assertSolves(algorithmName, problemName, specification,
+				synthesizer.synthesizeProgram(specification, library, javaSolverSettings()));
+	}
+
+
+
+	// Some of the fast test cases are slow with the pure-Java solver if they
+	// are run repeatedly or with batches of counter examples, so only a few
+	// are used for these modes
+	@DataProvider(format = "%p[2] with %p[0]")
+	public static Object[][] selectedSat() {
+		final List<String> names = Arrays.asList("Absolute", "Division by 2", "Maximum");
+		return DataProviders.crossProduct(
+				synthesizers(),
+				fromTestCases(TestData.getFastSatTestCases().stream()
+						.filter(testCase -> names.contains(testCase.getName()))
+						.collect(Collectors.toList())));
+	}
+
+
+
+	// All candidates are verified by one solver and only passed as assumptions,
+	// so that no candidate affects the checks of later ones
+	@Test(timeout = 90000)
+	@UseDataProvider("selectedSat")
+	public void testIncrementalVerification(final String algorithmName,
+			final Synthesizer synthesizer, final String problemName,
+			final Specification specification, final Library library) throws TimeoutException {
+
+		final SolverRecording recording = new SolverRecording();
+		final SynthesizerSettings settings = javaSolverSettings();
+		settings.setIncrementalVerification(true);
+		settings.setSolverInterceptor(recording::record);
+
+		assertSolves(algorithmName, problemName, specification,
+				synthesizer.synthesizeProgram(specification, library, settings));
+
+		// The verify solver is created first, followed by the generate solver
+		assertEquals(2, recording.getLogs().size());
+		final List<SolverLog.Event> events = recording.getLogs().get(0).getEvents();
+
+		int checks = 0;
+		int candidateChecks = 0;
+		int candidateAssumptions = -1;
+		for (final SolverLog.Event event : events) {
+			switch (event.getKind()) {
+				case CHECK_SAT_ASSUMING:
+					if (candidateAssumptions < 0) {
+						candidateAssumptions = event.getArguments().size();
+					}
+					// A check with a forced different output assumes one more formula
+					if (event.getArguments().size() == candidateAssumptions) {
+						candidateChecks += 1;
+					} else {
+						assertEquals(candidateAssumptions + 1, event.getArguments().size());
+					}
+					checks += 1;
+					break;
+
+				case ADD:
+				case PUSH:
+				case POP:
+					assertEquals("Constraint added after the first check", 0, checks);
+					break;
+
+				case CHECK_SAT:
+					fail("Check without the candidate");
+					break;
+
+				default:
+					break;
+			}
+		}
+		assertEquals(synthesizer.getStatistics().get().getNumberOfIterations(), candidateChecks);
+	}
+
+
+
+	// Batches block their inputs in the shared verify solver, while the example
+	// limit drops examples from the generate solver again
+	@Test(timeout = 90000)
+	@UseDataProvider("selectedSat")
+	public void testExampleLimitWithBatches(final String algorithmName,
+			final Synthesizer synthesizer, final String problemName,
+			final Specification specification, final Library library) throws TimeoutException {
+
+		final SynthesizerSettings settings = javaSolverSettings();
+		settings.setIncrementalVerification(true);
+		settings.setCounterExampleBatchSize(4);
+		settings.setGenerateExampleLimit(2);
+
+		assertSolves(algorithmName, problemName, specification,
+				synthesizer.synthesizeProgram(specification, library, settings));
+	}
+
+
+
+	@Test(timeout = 90000)
+	@UseDataProvider("selectedSat")
+	public void testBatches(final String algorithmName, final Synthesizer synthesizer,
+			final String problemName, final Specification specification,
+			final Library library) throws TimeoutException {
+
+		final SynthesizerSettings settings = javaSolverSettings();
+		settings.setCounterExampleBatchSize(4);
+
+		assertSolves(algorithmName, problemName, specification,
+				synthesizer.synthesizeProgram(specification, library, settings));
+
+		// Some verify steps add more than one counter example
+		final SynthesisStatistics statistics = synthesizer.getStatistics().get();
+		final List<List<BitVector>> examples = statistics.getExamples();
+		assertEquals(examples.size(), new HashSet<>(examples).size());
+		assertTrue(examples.size() > statistics.getNumberOfIterations());
+	}
+
+
+
+	// The candidate is refuted by all inputs whose lowest two bits are not zero
+	private static Solver makeRefutingSolver(final Specification specification) {
+		final Solver solver = new BitBlastingSolver();
+		solver.add(Builder.mkNe(Builder.mkBVConst(8, 0),
+				specification.getFunction().apply(Arrays.asList(Builder.mkBVVar(8, "in_0")))));
+		assertEquals(SatResult.SAT, solver.checkSat());
+		return solver;
+	}
+
+
+
+	@Test(timeout = 15000)
+	public void testCounterExampleBatch() {
+		final Specification specification = new Specification(Arrays.asList(8), 8,
+				x -> Builder.mkAnd(x.get(0), Builder.mkBVConst(8, 3)));
+
+		final List<Pair<List<BitVector>, BitVector>> counterExamples = new ListBasedSynthesizer()
+				.getCounterExamples(makeRefutingSolver(specification), Collections.emptyList(),
+						specification, Optional.empty(), 4);
+
+		assertEquals(4, counterExamples.size());
+		assertEquals(4, counterExamples.stream().map(Pair::getFirst).distinct().count());
+		for (final Pair<List<BitVector>, BitVector> counterExample : counterExamples) {
+			assertEquals(specification.evaluate(counterExample.getFirst()), counterExample.getSecond());
+			assertNotEquals(new BitVector(8, 0), counterExample.getSecond());
+		}
+
+		// All three refuting outputs occur before any of them is repeated
+		assertEquals(3, counterExamples.subList(0, 3).stream().map(Pair::getSecond).distinct().count());
+	}
+
+
+
+	@Test(timeout = 15000)
+	public void testCounterExampleWithDifferentOutput() {
+		final Specification specification = new Specification(Arrays.asList(8), 8,
+				x -> Builder.mkAnd(x.get(0), Builder.mkBVConst(8, 3)));
+		final Solver solver = makeRefutingSolver(specification);
+		final BitVector sameOutput = specification.evaluate(
+				solver.getBVAssignments(Arrays.asList(Builder.mkBVVar(8, "in_0"))));
+
+		// After too many counter examples with the same output, a different one is forced
+		final List<Pair<List<BitVector>, BitVector>> counterExamples = new ListBasedSynthesizer()
+				.getCounterExamples(solver, Collections.emptyList(), specification,
+						Optional.of(sameOutput), 1);
+
+		assertEquals(1, counterExamples.size());
+		assertEquals(specification.evaluate(counterExamples.get(0).getFirst()),
+				counterExamples.get(0).getSecond());
+		assertNotEquals(sameOutput, counterExamples.get(0).getSecond());
+		assertNotEquals(new BitVector(8, 0), counterExamples.get(0).getSecond());
+	}
+
+
+
+	// While a candidate is verified, the next one is searched for
+	@Test(timeout = 90000)
+	@UseDataProvider("selectedSat")
+	public void testPipelinedSat(final String algorithmName,
+			final Synthesizer synthesizer, final String problemName,
+			final Specification specification, final Library library) throws TimeoutException {
+
+		final SynthesizerSettings settings = javaSolverSettings();
+		settings.setPipelined(true);
+
+		final Optional<Program> result = synthesizer.synthesizeProgram(specification, library,
+				settings);
+		assertEquals(synthesizer.synthesizeProgram(specification, library, javaSolverSettings())
+				.isPresent(), result.isPresent());
+		assertSolves(algorithmName, problemName, specification, result);
+	}
+
+
+
+	private static void assertSolves(final String algorithmName, final String problemName,
+			final Specification specification, final Optional<Program> result) {
 
 		assertTrue(algorithmName + " could not find a solution for " + problemName,
 				result.isPresent());
@@ -113,5 +340,35 @@ public class SynthesizerTest {
 		assertFalse(algorithmName + " found a solution for unsatisfiable problem " + problemName,
 				synthesizer.synthesizeProgram(specification, library).isPresent());
 	}
-}
 
+
+
+
+	@Test(timeout = 90000)
+	@UseDataProvider("fastUnsat")
+	public void testFastUnsatTestCasesWithJavaSolver(final String algorithmName,
+			final Synthesizer synthesizer, final String problemName,
+			final Specification specification, final Library library) throws TimeoutException {
+
+		assertFalse(algorithmName + " found a solution for unsatisfiable problem " + problemName,
+				synthesizer.synthesizeProgram(specification, library, javaSolverSettings())
+						.isPresent());
+	}
+
+
+
+	@Test(timeout = 90000)
+	@UseDataProvider("fastUnsat")
+	public void testPipelinedUnsat(final String algorithmName,
+			final Synthesizer synthesizer, final String problemName,
+			final Specification specification, final Library library) throws TimeoutException {
+
+		final SynthesizerSettings settings = javaSolverSettings();
+		settings.setPipelined(true);
+
+		assertFalse(synthesizer.synthesizeProgram(specification, library, javaSolverSettings())
+				.isPresent());
+		assertFalse(algorithmName + " found a solution for unsatisfiable problem " + problemName,
+				synthesizer.synthesizeProgram(specification, library, settings).isPresent());
+	}
+}
@@ -0,0 +1,132 @@
+package yices;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static smt.Builder.*;
+
+import smt.Ast;
+import smt.BitVector;
+import smt.BVAst;
+
+
+
+public class TermEncoderTest {
+
+	@Test(timeout = 1000)
+	public void testSharedSubtrees() {
+		final TermEncoder encoder = new TermEncoder(new IdentityHashMap<>(), new HashMap<>());
+
+		BVAst tree = mkBVVar(8, "x");
+		for (int i = 0; i < 64; ++i) {
+			tree = mkAdd(tree, tree);
+		}
+
+		assertEquals(64, encoder.encode(tree));
+		assertEquals(65, encoder.getNumberOfInstructions());
+	}
+
+
+
+	@Test(timeout = 1000)
+	public void testVariables() {
+		final Map<String, Integer> variableCache = new HashMap<>();
+		variableCache.put("y", 42);
+		final TermEncoder encoder = new TermEncoder(new IdentityHashMap<>(), variableCache);
+
+		// Different objects for the same variable share one term
+		encoder.encode(mkEq(mkAdd(mkBVVar(8, "x"), mkBVVar(8, "x")), mkBVVar(8, "y")));
+
+		assertArrayEquals(new int[] {
+			TermEncoder.OP_BV_VAR, 8,
+			TermEncoder.OP_BV_ADD, 0, 0,
+			TermEncoder.OP_TERM, 42,
+			TermEncoder.OP_BV_EQ, 1, 2
+		}, Arrays.copyOf(encoder.getCode(), encoder.getCodeLength()));
+		assertEquals(1, encoder.getCacheHits());
+
+		encoder.store(new int[] { 10, 11, 42, 13 });
+		assertEquals(Integer.valueOf(10), variableCache.get("x"));
+	}
+
+
+
+	@Test(timeout = 1000)
+	public void testSameVariableObjects() {
+		final Map<Ast, Integer> termCache = new IdentityHashMap<>();
+		final TermEncoder encoder = new TermEncoder(termCache, new HashMap<>());
+
+		final BVAst first = mkBVVar(8, "x");
+		final BVAst second = mkBVVar(8, "x");
+		assertEquals(0, encoder.encode(first));
+		assertEquals(0, encoder.encode(second));
+		assertEquals(1, encoder.getNumberOfInstructions());
+
+		encoder.store(new int[] { 10 });
+		assertEquals(Integer.valueOf(10), termCache.get(first));
+		assertEquals(Integer.valueOf(10), termCache.get(second));
+	}
+
+
+
+	@Test(timeout = 1000)
+	public void testStoreVariables() {
+		final Map<Ast, Integer> termCache = new IdentityHashMap<>();
+		final Map<String, Integer> variableCache = new HashMap<>();
+		final TermEncoder encoder = new TermEncoder(termCache, variableCache);
+
+		encoder.encode(mkEq(mkBVVar(8, "x"), mkBVConst(8, 3)));
+		encoder.storeVariables(new int[] { 10, 11, 12 });
+
+		assertTrue(termCache.isEmpty());
+		assertEquals(Collections.singletonMap("x", 10), variableCache);
+	}
+
+
+
+	@Test(timeout = 1000)
+	public void testCachedTerms() {
+		final Map<Ast, Integer> termCache = new IdentityHashMap<>();
+		final BVAst shared = mkNot(mkBVVar(8, "x"));
+		termCache.put(shared, 7);
+		final TermEncoder encoder = new TermEncoder(termCache, new HashMap<>());
+
+		final Ast tree = mkNeg(shared);
+		encoder.encode(tree);
+
+		assertArrayEquals(new int[] {
+			TermEncoder.OP_TERM, 7,
+			TermEncoder.OP_BV_NEG, 0
+		}, Arrays.copyOf(encoder.getCode(), encoder.getCodeLength()));
+
+		encoder.store(new int[] { 7, 8 });
+		assertEquals(Integer.valueOf(8), termCache.get(tree));
+	}
+
+
+
+	@Test(timeout = 1000)
+	public void testConstants() {
+		final TermEncoder encoder = new TermEncoder(new IdentityHashMap<>(), new HashMap<>());
+
+		final BigInteger wide = BigInteger.ONE.shiftLeft(99).or(BigInteger.valueOf(5));
+		encoder.encode(mkConcat(mkBVConst(new BitVector(100, wide)), mkBVConst(8, -1)));
+
+		assertArrayEquals(new int[] {
+			TermEncoder.OP_BV_CONST, 100, 0,
+			TermEncoder.OP_BV_CONST, 8, 2,
+			TermEncoder.OP_BV_CONCAT, 0, 1
+		}, Arrays.copyOf(encoder.getCode(), encoder.getCodeLength()));
+		assertArrayEquals(new long[] { 5L, 1L << 35, 0xFFL }, encoder.getWords());
+	}
+}
@@ -2,6 +2,7 @@ package yices;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Collections;
 import java.util.function.BinaryOperator;
 
 import com.tngtech.java.junit.dataprovider.DataProvider;
@@ -13,6 +14,8 @@ import org.junit.runner.RunWith;
 
 import smt.Builder;
 import smt.BVAst;
+import smt.BitVector;
+import smt.BoolAst;
 import smt.SatResult;
 
 
@@ -57,5 +60,64 @@ public class YicesTest {
 
 		assertEquals("Constraint should be satisfiable", SatResult.SAT, solver.checkSat());
 	}
-}
 
+
+
+	@Test(timeout = 1500)
+	public void testFreeKeepsOtherSolvers() {
+		final BVAst varX = Builder.mkBVVar(32, "x");
+		final BoolAst constraint = Builder.mkEq(Builder.mkAdd(varX, Builder.mkBVConst(32, 1)),
+				Builder.mkBVConst(32, 411));
+
+		final YicesSolver kept = new YicesSolver();
+		kept.add(constraint);
+		final YicesSolver freed = new YicesSolver();
+		freed.add(Builder.mkNot(constraint));
+		freed.free();
+
+		assertEquals(SatResult.SAT, kept.checkSat());
+		assertEquals(new BitVector(32, 410), kept.getBVAssignment(varX));
+		kept.free();
+	}
+
+
+
+	@Test(expected = IllegalStateException.class)
+	public void testUseAfterFree() {
+		final YicesSolver solver = new YicesSolver();
+		solver.free();
+		solver.checkSat();
+	}
+
+
+
+	@Test(timeout = 1500)
+	public void testTermCache() {
+		final BVAst varX = Builder.mkBVVar(8, "x");
+		final BoolAst constraint = Builder.mkEq(Builder.mkAdd(varX, Builder.mkBVConst(8, 1)),
+				Builder.mkBVVar(8, "r"));
+
+		final YicesSolver solver = new YicesSolver();
+		solver.add(constraint);
+		assertEquals(0, solver.getTermCacheHits());
+		assertEquals(5, solver.getTermCacheMisses());
+
+		solver.add(constraint);
+		assertEquals(1, solver.getTermCacheHits());
+		assertEquals(5, solver.getTermCacheMisses());
+
+		// Assumptions are not cached, but their cached subtrees are reused
+		final BoolAst assumption = Builder.mkEq(varX, Builder.mkBVConst(8, 3));
+		for (int i = 1; i <= 2; ++i) {
+			assertEquals(SatResult.SAT, solver.checkSatAssuming(Collections.singletonList(assumption)));
+			assertEquals(1 + i, solver.getTermCacheHits());
+			assertEquals(5 + 2 * i, solver.getTermCacheMisses());
+		}
+
+		// Equally named variables share their term
+		assertEquals(new BitVector(8, 4), solver.getBVAssignment(Builder.mkBVVar(8, "r")));
+		assertEquals(4, solver.getTermCacheHits());
+		assertEquals(9, solver.getTermCacheMisses());
+		solver.free();
+	}
+}